@@ -1,6 +1,7 @@
 plugins {
     id("java-library")
     id("com.gradleup.shadow") version "8.3.3"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "io.github.uoyteamsix"
@@ -18,6 +19,7 @@ dependencies {
     implementation("com.badlogicgames.gdx:gdx-freetype-platform:1.12.1:natives-desktop")
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    jmh("com.badlogicgames.gdx:gdx-backend-headless:1.12.1")
 }
 
 tasks.compileJava {
@@ -36,6 +38,57 @@ tasks.shadowJar {
     minimize()
 }
 
+// Compiles the TMX map into the binary format loaded by the game, which is much quicker to load than parsing XML. The
+// compiler doesn't depend on LibGDX, so only needs the compiled classes.
+val compileMaps by tasks.registering(JavaExec::class) {
+    group = "build"
+    description = "Compiles the TMX maps into the binary map format."
+    val input = file("src/main/resources/maps/map.tmx")
+    val output = layout.buildDirectory.file("generated/maps/maps/map.umap")
+    inputs.file(input)
+    outputs.file(output)
+    classpath = sourceSets["main"].output.classesDirs
+    mainClass = "io.github.uoyteamsix.map.TmxMapCompiler"
+    args(input.path, output.get().asFile.path)
+}
+
+sourceSets["main"].resources.srcDir(layout.buildDirectory.dir("generated/maps"))
+
+tasks.processResources {
+    dependsOn(compileMaps)
+}
+
 tasks.test {
     useJUnitPlatform()
 }
+
+jmh {
+    jmhVersion = "1.37"
+
+    // Always report allocation rates alongside timings, and write machine readable results so they can be tracked.
+    profilers = listOf("gc")
+    resultFormat = "JSON"
+}
+
+// Drives the camera and input hot paths with synthetic frames and fails if they allocate once warmed up. Escape
+// analysis is turned off so that allocations have to be removed from the code rather than relying on the JIT.
+val checkAllocations by tasks.registering(JavaExec::class) {
+    group = "verification"
+    description = "Checks that the camera and input hot paths don't allocate per frame."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass = "io.github.uoyteamsix.AllocationBudget"
+    jvmArgs("-XX:-DoEscapeAnalysis")
+}
+
+tasks.check {
+    dependsOn(checkAllocations)
+}
+
+// Launches the game, which logs the time from launch to its first interactive frame and then exits.
+val benchmarkStartup by tasks.registering(JavaExec::class) {
+    group = "benchmark"
+    description = "Measures the time from launching the game to its first interactive frame."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass = "io.github.uoyteamsix.UniSimGame"
+    systemProperty("unisim.startupBenchmark", "true")
+}
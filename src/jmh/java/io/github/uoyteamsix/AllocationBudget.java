@@ -0,0 +1,93 @@
+package io.github.uoyteamsix;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.backends.headless.mock.input.MockInput;
+import io.github.uoyteamsix.map.BenchmarkTiledMaps;
+import io.github.uoyteamsix.map.GameMapInput;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Drives the camera and map input with synthetic frames and input events, and fails if they allocate once warmed up.
+ * Run with {@code ./gradlew checkAllocations}, which turns off escape analysis so that allocations have to be absent
+ * from the code rather than optimised away by the JIT.
+ */
+public final class AllocationBudget {
+    private static final float FRAME_TIME = 1.0f / 60.0f;
+    private static final int VIEWPORT_WIDTH = 1280;
+    private static final int VIEWPORT_HEIGHT = 720;
+    private static final int MAP_SIZE = 60;
+
+    // Warmup frames let classes load and the JIT compile the hot paths before measuring.
+    private static final int WARMUP_FRAMES = 50_000;
+    private static final int MEASURED_FRAMES = 50_000;
+
+    // Maximum number of bytes a single frame is allowed to allocate.
+    private static final long BYTES_PER_FRAME_BUDGET = 0;
+
+    // Frame results are kept here so that the JIT can't skip any work.
+    private static volatile int sink;
+
+    private final CameraController cameraController;
+    private final GameMapInput mapInput;
+
+    private AllocationBudget() {
+        Gdx.input = new MockInput();
+        var map = BenchmarkTiledMaps.createGameMap(MAP_SIZE, MAP_SIZE, 10);
+        var gameLogic = new GameLogic();
+        gameLogic.setMap(map);
+
+        cameraController = new CameraController();
+        cameraController.setViewportDimensions(VIEWPORT_WIDTH, VIEWPORT_HEIGHT);
+        cameraController.setMapDimensions(map.getWidthPx(), map.getHeightPx());
+        cameraController.getCamera().position.set(map.getWidthPx() / 2.0f, map.getHeightPx() / 2.0f, 0.0f);
+        mapInput = new GameMapInput(map, gameLogic, cameraController);
+
+        // Select a prefab up front so that the placement preview is worked out every frame. Recording the selection
+        // allocates, but that only happens on a key press or click.
+        gameLogic.setSelectedPrefabIndex(0);
+    }
+
+    /**
+     * Runs one frame, with the mouse moving every frame and a short camera drag and a scroll every few frames.
+     */
+    private int runFrame(int frame) {
+        int screenX = (frame * 7) % VIEWPORT_WIDTH;
+        int screenY = (frame * 3) % VIEWPORT_HEIGHT;
+        mapInput.mouseMoved(screenX, screenY);
+        if (frame % 4 == 0) {
+            cameraController.touchDown(screenX, screenY, 0, Input.Buttons.RIGHT);
+            cameraController.touchDragged(screenX + 5, screenY + 5, 0);
+            cameraController.touchUp(screenX + 5, screenY + 5, 0, Input.Buttons.RIGHT);
+        }
+        if (frame % 8 == 0) {
+            cameraController.scrolled(0.0f, (frame & 8) == 0 ? 1.0f : -1.0f);
+        }
+        cameraController.update(FRAME_TIME);
+        return mapInput.getPlacementTileX() + mapInput.getPlacementTileY();
+    }
+
+    public static void main(String[] args) {
+        var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        var budget = new AllocationBudget();
+
+        for (int frame = 0; frame < WARMUP_FRAMES; frame++) {
+            sink += budget.runFrame(frame);
+        }
+
+        long startBytes = threadBean.getCurrentThreadAllocatedBytes();
+        for (int frame = 0; frame < MEASURED_FRAMES; frame++) {
+            sink += budget.runFrame(WARMUP_FRAMES + frame);
+        }
+        long allocatedBytes = threadBean.getCurrentThreadAllocatedBytes() - startBytes;
+
+        long bytesPerFrame = allocatedBytes / MEASURED_FRAMES;
+        System.out.printf("Allocated %d bytes over %d frames (%d bytes per frame, budget %d)%n", allocatedBytes,
+                MEASURED_FRAMES, bytesPerFrame, BYTES_PER_FRAME_BUDGET);
+        if (bytesPerFrame > BYTES_PER_FRAME_BUDGET) {
+            System.err.println("Camera and input hot paths exceeded their allocation budget");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package io.github.uoyteamsix;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.mock.input.MockInput;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a single frame of {@link CameraController#update}, using a mock input with no keys held.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CameraControllerBenchmark {
+    private static final float FRAME_TIME = 1.0f / 60.0f;
+    private static final int TILE_SIZE = 32;
+
+    @Param({"60", "500", "2000"})
+    private int mapSize;
+
+    private CameraController cameraController;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Gdx.input = new MockInput();
+        cameraController = new CameraController();
+        cameraController.setViewportDimensions(1280, 720);
+        cameraController.setMapDimensions(mapSize * TILE_SIZE, mapSize * TILE_SIZE);
+        cameraController.getCamera().position.set(mapSize * TILE_SIZE / 2.0f, mapSize * TILE_SIZE / 2.0f, 0.0f);
+    }
+
+    @Benchmark
+    public float update() {
+        cameraController.update(FRAME_TIME);
+        return cameraController.getCamera().position.x;
+    }
+}
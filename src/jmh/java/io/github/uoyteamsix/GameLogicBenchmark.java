@@ -0,0 +1,47 @@
+package io.github.uoyteamsix;
+
+import io.github.uoyteamsix.map.BenchmarkTiledMaps;
+import io.github.uoyteamsix.map.GameMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a single frame of {@link GameLogic#update} on a full game map.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameLogicBenchmark {
+    private static final float FRAME_TIME = 1.0f / 60.0f;
+
+    @Param({"60", "500", "2000"})
+    private int mapSize;
+
+    // Maps are filled up to this many buildings, or until they run out of room.
+    @Param({"10", "1000"})
+    private int buildingCount;
+
+    private GameMap map;
+    private GameLogic gameLogic;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = BenchmarkTiledMaps.createGameMap(mapSize, mapSize, buildingCount);
+        gameLogic = new GameLogic();
+        gameLogic.setMap(map);
+    }
+
+    @Benchmark
+    public float update() {
+        // A game only lasts a few thousand frames, so start a new one rather than measuring the game over early exit.
+        if (gameLogic.getSimulation().isGameOver()) {
+            gameLogic.setMap(map);
+        }
+        gameLogic.update(FRAME_TIME);
+        return gameLogic.getSatisfaction();
+    }
+}
@@ -0,0 +1,100 @@
+package io.github.uoyteamsix.map;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.tiles.StaticTiledMapTile;
+import io.github.uoyteamsix.sim.BenchmarkMaps;
+
+import java.util.Random;
+
+/**
+ * Helpers for building tiled maps for the benchmarks without loading any files or creating any GL resources.
+ */
+public final class BenchmarkTiledMaps {
+    // Tiles are never rendered by the benchmarks, so an empty texture region is enough.
+    private static final StaticTiledMapTile TILE = new StaticTiledMapTile(new TextureRegion());
+    private static final int TILE_SIZE = 32;
+
+    private BenchmarkTiledMaps() {
+    }
+
+    /**
+     * Creates a tiled map with the same layer structure as the shipped map. Water and tree tiles are scattered randomly
+     * with a fixed seed so the result is reproducible.
+     *
+     * @param width  the width of the map in tiles
+     * @param height the height of the map in tiles
+     * @return a {@link TiledMap}
+     */
+    public static TiledMap createTiledMap(int width, int height) {
+        var random = new Random(0);
+        var tiledMap = new TiledMap();
+        tiledMap.getLayers().add(createLayer("Terrain", width, height, random, 1.0f));
+        tiledMap.getLayers().add(createLayer("Water", width, height, random, 0.05f));
+        for (int i = 1; i <= 4; i++) {
+            tiledMap.getLayers().add(createLayer("Trees " + i, width, height, random, 0.02f));
+        }
+        tiledMap.getLayers().add(createLayer("Buildings", width, height, random, 0.0f));
+
+        // Prefab layers hold a single building in the bottom left corner, like the shipped map.
+        for (var type : BenchmarkMaps.createBuildingTypes()) {
+            var layer = createLayer("Prefab: " + type.getName(), width, height, random, 0.0f);
+            for (int x = 0; x < type.getWidth(); x++) {
+                for (int y = 0; y < type.getHeight(); y++) {
+                    layer.setCell(x, y, createCell());
+                }
+            }
+            layer.setVisible(false);
+            tiledMap.getLayers().add(layer);
+        }
+        return tiledMap;
+    }
+
+    /**
+     * Creates a game map and fills it with up to the given number of buildings at random valid positions. Fewer
+     * buildings are placed if the map runs out of room.
+     *
+     * @param width         the width of the map in tiles
+     * @param height        the height of the map in tiles
+     * @param buildingCount the number of buildings to try to place
+     * @return a {@link GameMap}
+     */
+    public static GameMap createGameMap(int width, int height, int buildingCount) {
+        var random = new Random(0);
+        var map = new GameMap(createTiledMap(width, height));
+        var prefabs = map.getAvailablePrefabs();
+        for (int i = 0; i < buildingCount; i++) {
+            var prefab = prefabs.get(i % prefabs.size());
+            var validAnchors = map.getValidAnchors(prefab);
+            int anchor = validAnchors.findNearest(random.nextInt(width), random.nextInt(height),
+                    Math.max(width, height));
+            if (anchor < 0) {
+                break;
+            }
+            map.placeBuilding(prefab, anchor % width, anchor / width);
+        }
+        return map;
+    }
+
+    private static TiledMapTileLayer createLayer(String name, int width, int height, Random random, float density) {
+        var layer = new TiledMapTileLayer(width, height, TILE_SIZE, TILE_SIZE);
+        layer.setName(name);
+        if (density > 0.0f) {
+            for (int x = 0; x < width; x++) {
+                for (int y = 0; y < height; y++) {
+                    if (random.nextFloat() < density) {
+                        layer.setCell(x, y, createCell());
+                    }
+                }
+            }
+        }
+        return layer;
+    }
+
+    private static TiledMapTileLayer.Cell createCell() {
+        var cell = new TiledMapTileLayer.Cell();
+        cell.setTile(TILE);
+        return cell;
+    }
+}
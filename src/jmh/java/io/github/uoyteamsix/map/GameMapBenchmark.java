@@ -0,0 +1,111 @@
+package io.github.uoyteamsix.map;
+
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import io.github.uoyteamsix.sim.Building;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the {@link GameMap} placement and query hot paths on square maps of various sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameMapBenchmark {
+    // Number of precomputed query positions to cycle through.
+    private static final int QUERY_COUNT = 1024;
+
+    @Param({"60", "500", "2000"})
+    private int mapSize;
+
+    // Maps are filled up to this many buildings, or until they run out of room.
+    @Param({"10", "1000"})
+    private int buildingCount;
+
+    private TiledMap tiledMap;
+    private GameMap map;
+    private final int[] queryX = new int[QUERY_COUNT];
+    private final int[] queryY = new int[QUERY_COUNT];
+    private int queryIndex;
+    private BuildingPrefab placementPrefab;
+    private int placementX;
+    private int placementY;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = BenchmarkTiledMaps.createGameMap(mapSize, mapSize, buildingCount);
+        tiledMap = map.getTiledMap();
+
+        var random = new Random(0);
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queryX[i] = random.nextInt(mapSize);
+            queryY[i] = random.nextInt(mapSize);
+        }
+
+        // Pick a free spot near the middle of the map to repeatedly place a building on.
+        placementPrefab = map.getAvailablePrefabs().get(0);
+        int anchor = map.getValidAnchors(placementPrefab).findNearest(mapSize / 2, mapSize / 2, mapSize);
+        placementX = anchor % mapSize;
+        placementY = anchor / mapSize;
+    }
+
+    /**
+     * Holds the building placed by the placement benchmark, kept separate so that the per-invocation teardown doesn't
+     * affect the other benchmarks.
+     */
+    @State(Scope.Thread)
+    public static class PlacementState {
+        private GameMap map;
+        private Building placedBuilding;
+
+        @Setup(Level.Trial)
+        public void setUp(GameMapBenchmark benchmark) {
+            map = benchmark.map;
+        }
+
+        @TearDown(Level.Invocation)
+        public void removePlacedBuilding() {
+            // Keep the map the same between invocations.
+            if (placedBuilding != null) {
+                map.removeBuilding(placedBuilding);
+                placedBuilding = null;
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean canPlaceBuilding() {
+        queryIndex = (queryIndex + 1) & (QUERY_COUNT - 1);
+        return map.canPlaceBuilding(placementPrefab, queryX[queryIndex], queryY[queryIndex]);
+    }
+
+    @Benchmark
+    public Building placeBuilding(PlacementState state) {
+        state.placedBuilding = map.placeBuilding(placementPrefab, placementX, placementY);
+        return state.placedBuilding;
+    }
+
+    @Benchmark
+    public int getBuildingCount() {
+        int total = 0;
+        for (var prefab : map.getAvailablePrefabs()) {
+            total += map.getBuildingCount(prefab);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public boolean[][] computeUsableTiles() {
+        return GameMap.computeUsableTiles(tiledMap, mapSize, mapSize);
+    }
+
+    @Benchmark
+    public GameMap createGameMap() {
+        return new GameMap(tiledMap);
+    }
+}
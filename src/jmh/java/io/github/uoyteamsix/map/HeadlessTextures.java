@@ -0,0 +1,108 @@
+package io.github.uoyteamsix.map;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.mock.graphics.MockGraphics;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * Helpers for creating textures in the benchmarks without a GL context, so that map loaders which need tileset
+ * textures can be benchmarked headlessly. The textures have a size but no image data, and every GL call does nothing.
+ */
+public final class HeadlessTextures {
+    private HeadlessTextures() {
+    }
+
+    /**
+     * Installs a GL implementation where every call does nothing and returns zero, along with mock graphics. Must be
+     * called before creating any textures.
+     */
+    public static void install() {
+        Gdx.graphics = new MockGraphics();
+        var gl = (GL20) Proxy.newProxyInstance(GL20.class.getClassLoader(), new Class<?>[]{GL20.class},
+                (proxy, method, args) -> defaultValue(method.getReturnType()));
+        Gdx.gl = gl;
+        Gdx.gl20 = gl;
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == float.class) {
+            return 0.0f;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    /**
+     * Creates an empty texture of the given size.
+     *
+     * @param width  the width in pixels
+     * @param height the height in pixels
+     * @return a {@link Texture}
+     */
+    public static Texture create(int width, int height) {
+        return new Texture(new TextureData() {
+            @Override
+            public TextureDataType getType() {
+                return TextureDataType.Custom;
+            }
+
+            @Override
+            public boolean isPrepared() {
+                return true;
+            }
+
+            @Override
+            public void prepare() {
+            }
+
+            @Override
+            public Pixmap consumePixmap() {
+                return null;
+            }
+
+            @Override
+            public boolean disposePixmap() {
+                return false;
+            }
+
+            @Override
+            public void consumeCustomData(int target) {
+            }
+
+            @Override
+            public int getWidth() {
+                return width;
+            }
+
+            @Override
+            public int getHeight() {
+                return height;
+            }
+
+            @Override
+            public Pixmap.Format getFormat() {
+                return Pixmap.Format.RGBA8888;
+            }
+
+            @Override
+            public boolean useMipMaps() {
+                return false;
+            }
+
+            @Override
+            public boolean isManaged() {
+                return false;
+            }
+        });
+    }
+}
@@ -0,0 +1,169 @@
+package io.github.uoyteamsix.map;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.ImageResolver;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TmxMapLoader;
+import io.github.uoyteamsix.sim.BenchmarkMaps;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for loading a map from disk into a {@link GameMap}, comparing parsing the TMX map against loading the map
+ * compiled by {@link TmxMapCompiler}. Run on the shipped map and on a synthetic map with the same layer structure.
+ * Tileset images aren't loaded, as they are the same for both formats, so no GL context is needed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MapLoadBenchmark {
+    // Tile IDs of the first tile of each tileset in the shipped map, and the number of tiles in each.
+    private static final int TERRAIN_FIRST_ID = 1;
+    private static final int TREES_FIRST_ID = 1025;
+    private static final int BUILDINGS_FIRST_ID = 1281;
+    private static final int TILESET_SIZE = 256;
+
+    // Either the shipped map, or the width and height of a synthetic map in tiles.
+    @Param({"shipped", "1000"})
+    private String map;
+
+    private Path directory;
+    private FileHandle tmxFile;
+    private FileHandle compiledFile;
+    private TexturelessTmxMapLoader tmxMapLoader;
+    private ImageResolver imageResolver;
+
+    /**
+     * A TMX map loader which uses the given image resolver instead of loading the tileset images itself.
+     */
+    private static class TexturelessTmxMapLoader extends TmxMapLoader {
+        TiledMap load(FileHandle file, ImageResolver imageResolver) {
+            root = xml.parse(file);
+            return loadTiledMap(file, new Parameters(), imageResolver);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        HeadlessTextures.install();
+        var largeTileset = HeadlessTextures.create(1024, 1024);
+        var smallTileset = HeadlessTextures.create(512, 512);
+        imageResolver = name -> new TextureRegion(name.contains("tree") ? smallTileset : largeTileset);
+        tmxMapLoader = new TexturelessTmxMapLoader();
+
+        directory = Files.createTempDirectory("unisim-maps");
+        var tmxPath = directory.resolve("map.tmx");
+        if (map.equals("shipped")) {
+            try (InputStream in = MapLoadBenchmark.class.getResourceAsStream("/maps/map.tmx")) {
+                if (in == null) {
+                    throw new IOException("Shipped map not found on the classpath");
+                }
+                Files.copy(in, tmxPath);
+            }
+        } else {
+            int size = Integer.parseInt(map);
+            writeSyntheticTmx(tmxPath, size, size);
+        }
+        var compiledPath = directory.resolve("map.umap");
+        TmxMapCompiler.compile(tmxPath, compiledPath);
+
+        tmxFile = new FileHandle(tmxPath.toFile());
+        compiledFile = new FileHandle(compiledPath.toFile());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("map.tmx"));
+        Files.deleteIfExists(directory.resolve("map.umap"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public GameMap loadTmx() {
+        return new GameMap(tmxMapLoader.load(tmxFile, imageResolver));
+    }
+
+    @Benchmark
+    public GameMap loadCompiled() {
+        return new GameMap(CompiledMapLoader.load(compiledFile, imageResolver));
+    }
+
+    /**
+     * Writes a TMX map with the same tilesets and layers as the shipped map. Water and tree tiles are scattered
+     * randomly with a fixed seed, and each prefab layer holds a single building in the bottom left corner.
+     */
+    private static void writeSyntheticTmx(Path path, int width, int height) throws IOException {
+        var random = new Random(0);
+        try (var out = Files.newBufferedWriter(path)) {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            out.write("<map version=\"1.10\" orientation=\"orthogonal\" renderorder=\"right-down\" width=\"" + width
+                    + "\" height=\"" + height + "\" tilewidth=\"32\" tileheight=\"32\" infinite=\"0\">\n");
+            writeTileset(out, TERRAIN_FIRST_ID, "Terrain", "terrain_tileset.png", 1024);
+            writeTileset(out, TREES_FIRST_ID, "Trees", "tree_tileset.png", 512);
+            writeTileset(out, BUILDINGS_FIRST_ID, "Buildings", "building_tileset.png", 1024);
+
+            writeLayer(out, "Terrain", width, height, true, (x, y) -> TERRAIN_FIRST_ID + random.nextInt(64));
+            writeLayer(out, "Water", width, height, true,
+                    (x, y) -> random.nextFloat() < 0.05f ? TERRAIN_FIRST_ID + 64 + random.nextInt(64) : 0);
+            for (int i = 1; i <= 4; i++) {
+                writeLayer(out, "Trees " + i, width, height, true,
+                        (x, y) -> random.nextFloat() < 0.02f ? TREES_FIRST_ID + random.nextInt(TILESET_SIZE) : 0);
+            }
+            writeLayer(out, "Buildings", width, height, true, (x, y) -> 0);
+            for (var type : BenchmarkMaps.createBuildingTypes()) {
+                writeLayer(out, "Prefab: " + type.getName(), width, height, false,
+                        (x, y) -> x < type.getWidth() && y < type.getHeight()
+                                ? BUILDINGS_FIRST_ID + random.nextInt(TILESET_SIZE) : 0);
+            }
+            out.write("</map>\n");
+        }
+    }
+
+    private static void writeTileset(Appendable out, int firstId, String name, String image, int imageSize)
+            throws IOException {
+        out.append(" <tileset firstgid=\"").append(String.valueOf(firstId)).append("\" name=\"").append(name)
+                .append("\" tilewidth=\"32\" tileheight=\"32\">\n");
+        out.append("  <image source=\"").append(image).append("\" width=\"").append(String.valueOf(imageSize))
+                .append("\" height=\"").append(String.valueOf(imageSize)).append("\"/>\n");
+        out.append(" </tileset>\n");
+    }
+
+    /**
+     * Gives the tile ID at the given position, where y counts up from the bottom row.
+     */
+    @FunctionalInterface
+    private interface TileGenerator {
+        int getTile(int x, int y);
+    }
+
+    private static void writeLayer(Appendable out, String name, int width, int height, boolean visible,
+                                   TileGenerator generator) throws IOException {
+        out.append(" <layer name=\"").append(name).append("\" width=\"").append(String.valueOf(width))
+                .append("\" height=\"").append(String.valueOf(height)).append("\"")
+                .append(visible ? "" : " visible=\"0\"").append(">\n");
+        out.append("  <data encoding=\"csv\">\n");
+
+        // TMX stores rows from the top down.
+        for (int row = 0; row < height; row++) {
+            for (int x = 0; x < width; x++) {
+                out.append(String.valueOf(generator.getTile(x, height - 1 - row)));
+                if (row < height - 1 || x < width - 1) {
+                    out.append(',');
+                }
+            }
+            out.append('\n');
+        }
+        out.append("  </data>\n");
+        out.append(" </layer>\n");
+    }
+}
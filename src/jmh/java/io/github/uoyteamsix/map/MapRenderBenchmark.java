@@ -0,0 +1,125 @@
+package io.github.uoyteamsix.map;
+
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Benchmarks for the CPU side of rendering a map frame. Compares walking every visible cell of every layer, as
+ * {@code OrthogonalTiledMapRenderer} does, against the walks over the chunks in view in {@link MapChunks} which
+ * {@link ChunkedMapRenderer} draws with, where the static layers are already on the GPU and only the building layer's
+ * occupied cells are submitted. Neither draws anything, so no GL context is needed. The vertices submitted through
+ * the batch and the cached chunk draws in a single frame are reported as auxiliary counters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MapRenderBenchmark {
+    // Size of the window in pixels, and the number of vertices the batch submits per tile.
+    private static final int VIEWPORT_WIDTH = 1280;
+    private static final int VIEWPORT_HEIGHT = 720;
+    private static final int VERTICES_PER_TILE = 4;
+
+    @Param({"60", "500", "2000"})
+    private int mapSize;
+
+    @Param({"1000"})
+    private int buildingCount;
+
+    // Camera zoom, where larger values show more of the map.
+    @Param({"1", "4"})
+    private float zoom;
+
+    private TiledMap tiledMap;
+    private MapChunks chunks;
+    private float viewX;
+    private float viewY;
+    private float viewWidth;
+    private float viewHeight;
+
+    // Work counted by the chunk walk, using the same walks over the chunks in view as ChunkedMapRenderer.
+    private long vertices;
+    private long cachedDraws;
+    private IntConsumer countCachedDraw;
+    private MapChunks.BuildingCellVisitor countBuildingCell;
+
+    /**
+     * Work done to draw the most recent frame.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class FrameCounters {
+        public long verticesPerFrame;
+        public long cachedDrawsPerFrame;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            verticesPerFrame = 0;
+            cachedDrawsPerFrame = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var map = BenchmarkTiledMaps.createGameMap(mapSize, mapSize, buildingCount);
+        tiledMap = map.getTiledMap();
+        chunks = new MapChunks(tiledMap, (TiledMapTileLayer) tiledMap.getLayers().get("Buildings"));
+
+        // View the middle of the map, like the game does at startup.
+        viewWidth = VIEWPORT_WIDTH * zoom;
+        viewHeight = VIEWPORT_HEIGHT * zoom;
+        viewX = map.getWidthPx() / 2.0f - viewWidth / 2.0f;
+        viewY = map.getHeightPx() / 2.0f - viewHeight / 2.0f;
+
+        countCachedDraw = chunk -> {
+            if (chunks.getStaticCellCount(chunk) > 0) {
+                cachedDraws++;
+            }
+        };
+        countBuildingCell = (x, y, cell) -> vertices += VERTICES_PER_TILE;
+    }
+
+    @Benchmark
+    public long cellWalk(FrameCounters counters) {
+        long vertices = 0;
+        for (var layer : tiledMap.getLayers()) {
+            if (!layer.isVisible()) {
+                continue;
+            }
+            var tileLayer = (TiledMapTileLayer) layer;
+            int startX = Math.max(0, (int) (viewX / tileLayer.getTileWidth()));
+            int endX = Math.min(tileLayer.getWidth(), (int) ((viewX + viewWidth) / tileLayer.getTileWidth()) + 1);
+            int startY = Math.max(0, (int) (viewY / tileLayer.getTileHeight()));
+            int endY = Math.min(tileLayer.getHeight(), (int) ((viewY + viewHeight) / tileLayer.getTileHeight()) + 1);
+            for (int y = startY; y < endY; y++) {
+                for (int x = startX; x < endX; x++) {
+                    var cell = tileLayer.getCell(x, y);
+                    if (cell != null && cell.getTile() != null) {
+                        vertices += VERTICES_PER_TILE;
+                    }
+                }
+            }
+        }
+        counters.verticesPerFrame = vertices;
+        counters.cachedDrawsPerFrame = 0;
+        return vertices;
+    }
+
+    @Benchmark
+    public long chunkWalk(FrameCounters counters) {
+        chunks.setView(viewX, viewY, viewWidth, viewHeight);
+        vertices = 0;
+        cachedDraws = 0;
+        chunks.forEachVisibleChunk(countCachedDraw);
+        chunks.forEachVisibleBuildingCell(countBuildingCell);
+        counters.verticesPerFrame = vertices;
+        counters.cachedDrawsPerFrame = cachedDraws;
+        return vertices;
+    }
+}
@@ -0,0 +1,56 @@
+package io.github.uoyteamsix.sim;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for placing a dragged out grid of buildings, comparing placing the whole {@link PlacementBatch} at once
+ * with placing each slot one at a time. Anchor indices are created for every building type first, as they are in the
+ * game, since keeping them up to date is most of the cost of placing a building.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchPlacementBenchmark {
+    @Param({"16", "256"})
+    private int slotCount;
+
+    private BuildingType type;
+    private PlacementBatch batch;
+    private SimulationMap map;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        var types = BenchmarkMaps.createBuildingTypes();
+        type = types.get(0);
+        map = SimulationMap.createEmpty(256, 256, types);
+        for (var buildingType : types) {
+            map.getValidAnchors(buildingType);
+        }
+        int side = (int) Math.sqrt(slotCount);
+        batch = new PlacementBatch(slotCount);
+        batch.layOut(type, 0, 0, (side - 1) * type.getWidth(), (side - 1) * type.getHeight());
+    }
+
+    @Benchmark
+    public int placeBatch() {
+        map.validateBatch(batch, Integer.MAX_VALUE);
+        return map.placeBatch(batch).length;
+    }
+
+    @Benchmark
+    public int placeOneAtATime() {
+        int placed = 0;
+        for (int i = 0; i < batch.getCount(); i++) {
+            if (map.canPlaceBuilding(type, batch.getX(i), batch.getY(i))) {
+                map.placeBuilding(type, batch.getX(i), batch.getY(i));
+                placed++;
+            }
+        }
+        return placed;
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.uoyteamsix.sim;
+
+import java.util.List;
+
+/**
+ * Helpers for building headless maps for the benchmarks.
+ */
+public final class BenchmarkMaps {
+    private BenchmarkMaps() {
+    }
+
+    /**
+     * @return building types matching the names and sizes of the prefabs in the shipped map
+     */
+    public static List<BuildingType> createBuildingTypes() {
+        return List.of(
+                new BuildingType(0, "Accommodation", 4, 3),
+                new BuildingType(1, "Canteen", 4, 3),
+                new BuildingType(2, "Recreation", 5, 7),
+                new BuildingType(3, "Study", 4, 3));
+    }
+
+    /**
+     * Creates an empty map which is just large enough to fit the given number of buildings laid out in a grid, and
+     * fills it with buildings cycling through each building type.
+     *
+     * @param buildingCount the number of buildings to place
+     * @return a {@link SimulationMap}
+     */
+    public static SimulationMap createFilledMap(int buildingCount) {
+        var types = createBuildingTypes();
+
+        // Each grid slot is large enough to hold any of the building types.
+        int slotWidth = 5;
+        int slotHeight = 7;
+        int columns = Math.max((int) Math.ceil(Math.sqrt(buildingCount)), 1);
+        int rows = Math.max((buildingCount + columns - 1) / columns, 1);
+        var map = SimulationMap.createEmpty(columns * slotWidth, rows * slotHeight, types);
+
+        // Place in bulk, as placing a million buildings one at a time would dominate the set up time.
+        var typeIds = new int[buildingCount];
+        var xs = new int[buildingCount];
+        var ys = new int[buildingCount];
+        for (int i = 0; i < buildingCount; i++) {
+            typeIds[i] = i % types.size();
+            xs[i] = (i % columns) * slotWidth;
+            ys[i] = (i / columns) * slotHeight;
+        }
+        map.placeBuildings(buildingCount, typeIds, xs, ys);
+        return map;
+    }
+}
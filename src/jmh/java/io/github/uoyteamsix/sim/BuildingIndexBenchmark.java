@@ -0,0 +1,89 @@
+package io.github.uoyteamsix.sim;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the queries of {@link BuildingIndex}, compared with scanning every placed building. The cost of each
+ * query should stay roughly the same as the number of buildings grows, whereas the scan grows linearly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class BuildingIndexBenchmark {
+    private static final int QUERY_COUNT = 1024;
+    private static final float RADIUS = 10.0f;
+
+    @Param({"1000", "100000", "1000000"})
+    private int buildingCount;
+
+    private SimulationMap map;
+    private BuildingIndex index;
+    private BuildingType canteen;
+    private final int[] queryXs = new int[QUERY_COUNT];
+    private final int[] queryYs = new int[QUERY_COUNT];
+    private final Building[] nearest = new Building[8];
+    private int nextQuery;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = BenchmarkMaps.createFilledMap(buildingCount);
+        index = map.getBuildingIndex();
+        canteen = map.findBuildingType("Canteen");
+        var random = new Random(0L);
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            queryXs[i] = random.nextInt(map.getWidth());
+            queryYs[i] = random.nextInt(map.getHeight());
+        }
+    }
+
+    private int nextQuery() {
+        nextQuery = (nextQuery + 1) & (QUERY_COUNT - 1);
+        return nextQuery;
+    }
+
+    @Benchmark
+    public Building buildingAt() {
+        int query = nextQuery();
+        return index.getBuildingAt(queryXs[query], queryYs[query]);
+    }
+
+    @Benchmark
+    public int countInRect() {
+        int query = nextQuery();
+        return index.countInRect(queryXs[query], queryYs[query], 32, 32, null);
+    }
+
+    @Benchmark
+    public int countInRadius() {
+        int query = nextQuery();
+        return index.countInRadius(queryXs[query], queryYs[query], RADIUS, canteen);
+    }
+
+    @Benchmark
+    public int findNearest() {
+        int query = nextQuery();
+        return index.findNearest(queryXs[query], queryYs[query], canteen, nearest);
+    }
+
+    @Benchmark
+    public int countInRadiusByScan() {
+        int query = nextQuery();
+        float radiusSquared = RADIUS * RADIUS;
+        int count = 0;
+        for (var building : map.getPlacedBuildings()) {
+            var type = building.getType();
+            float dx = building.getX() + type.getWidth() / 2.0f - queryXs[query];
+            float dy = building.getY() + type.getHeight() / 2.0f - queryYs[query];
+            if (type == canteen && dx * dx + dy * dy <= radiusSquared) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.uoyteamsix.sim;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for saving and loading a game with {@link SimulationSnapshot}. Taking a snapshot happens on the render
+ * thread so must be cheap, whereas writing happens in the background. Loading covers reading the save and rebuilding
+ * the map and simulation from it, which should take well under 100ms for 100,000 buildings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SaveLoadBenchmark {
+    private static final float TICK_TIME = 1.0f / 60.0f;
+
+    @Param({"1000", "100000"})
+    private int buildingCount;
+
+    private Simulation simulation;
+    private SimulationSnapshot snapshot;
+    private byte[] save;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        simulation = new Simulation(BenchmarkMaps.createFilledMap(buildingCount), 0L);
+        for (int i = 0; i < 600; i++) {
+            simulation.update(TICK_TIME);
+        }
+        snapshot = simulation.createSnapshot(600);
+        var out = new ByteArrayOutputStream();
+        snapshot.writeTo(out);
+        save = out.toByteArray();
+    }
+
+    @Benchmark
+    public SimulationSnapshot createSnapshot() {
+        return simulation.createSnapshot(600);
+    }
+
+    @Benchmark
+    public int write() throws IOException {
+        var out = new ByteArrayOutputStream(save.length);
+        snapshot.writeTo(out);
+        return out.size();
+    }
+
+    @Benchmark
+    public Simulation load() throws IOException {
+        var loaded = SimulationSnapshot.read(new ByteArrayInputStream(save));
+        var map = SimulationMap.createEmpty(simulation.getMap().getWidth(), simulation.getMap().getHeight(),
+                BenchmarkMaps.createBuildingTypes());
+        loaded.checkCompatible(map);
+        loaded.placeBuildings(map);
+        var result = new Simulation(map, loaded.getSeed());
+        result.restore(loaded);
+        return result;
+    }
+}
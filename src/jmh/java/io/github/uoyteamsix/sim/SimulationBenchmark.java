@@ -0,0 +1,51 @@
+package io.github.uoyteamsix.sim;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many ticks per second the headless simulation core can run, without any GL context. The building count
+ * is varied to show that the cost of a tick doesn't grow with the number of placed buildings.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SimulationBenchmark {
+    private static final float TICK_TIME = 1.0f / 60.0f;
+
+    @Param({"10", "1000", "100000"})
+    private int buildingCount;
+
+    private SimulationMap map;
+    private Simulation simulation;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = BenchmarkMaps.createFilledMap(buildingCount);
+        simulation = new Simulation(map, 0L);
+    }
+
+    @Benchmark
+    public float tick() {
+        // A game only lasts a few thousand ticks, so start a new one rather than measuring the game over early exit.
+        if (simulation.isGameOver()) {
+            simulation.detach();
+            simulation = new Simulation(map, 0L);
+        }
+        simulation.update(TICK_TIME);
+        return simulation.getSatisfaction();
+    }
+
+    @Benchmark
+    public int countBuildings() {
+        int total = 0;
+        for (var type : map.getBuildingTypes()) {
+            total += map.getBuildingCount(type.getId());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,64 @@
+package io.github.uoyteamsix.sim;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for moving a {@link StudentCrowd}. Each student only looks up its flow field when it reaches the next
+ * tile, so a step should cost the same per student however many there are, and repairing the flow fields after a
+ * building is placed should be much cheaper than building them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StudentCrowdBenchmark {
+    private static final float FRAME_TIME = 1.0f / 60.0f;
+    private static final int BUILDING_COUNT = 10000;
+
+    @Param({"1000", "10000", "100000"})
+    private int studentCount;
+
+    private SimulationMap map;
+    private StudentCrowd crowd;
+    private Building canteen;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = BenchmarkMaps.createFilledMap(BUILDING_COUNT);
+        crowd = new StudentCrowd(map, studentCount, studentCount, 0L);
+
+        // Students are added a few at a time, so step until the crowd is full.
+        while (crowd.getStudentCount() < studentCount) {
+            crowd.updateFields();
+            crowd.step(FRAME_TIME);
+            crowd.swapBuffers();
+        }
+        canteen = map.getPlacedBuildings().get(BUILDING_COUNT / 2 + 1);
+    }
+
+    @Benchmark
+    public int step() {
+        crowd.updateFields();
+        crowd.step(FRAME_TIME);
+        crowd.swapBuffers();
+        return crowd.getStudentCount();
+    }
+
+    @Benchmark
+    public int stepAfterRemovingAndPlacing() {
+        // Each step repairs the flow fields around the building before moving the students.
+        map.removeBuilding(canteen);
+        crowd.updateFields();
+        crowd.step(FRAME_TIME);
+        crowd.swapBuffers();
+        canteen = map.placeBuilding(canteen.getType(), canteen.getX(), canteen.getY());
+        crowd.updateFields();
+        crowd.step(FRAME_TIME);
+        crowd.swapBuffers();
+        return crowd.getStudentCount();
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.uoyteamsix.sim;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for updating the needs and moods of every student in a {@link StudentPopulation}. Students are stored as
+ * columns and updated in chunks on the fork-join pool, so a tick should cost the same per student however many there
+ * are, and a million students should fit comfortably in a tick.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StudentPopulationBenchmark {
+    private static final float TICK_TIME = 1.0f / 20.0f;
+
+    // The filled map cycles through the four building types, so every fourth building is an accommodation.
+    private static final int BUILDINGS_PER_ACCOMMODATION = 4;
+    private static final int STUDY_INDEX = 3;
+
+    @Param({"10000", "100000", "1000000"})
+    private int studentCount;
+
+    private SimulationMap map;
+    private StudentPopulation population;
+    private Building study;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var parameters = new SimulationParameters();
+        int accommodationCount = studentCount / parameters.getStudentsPerAccommodation();
+        map = BenchmarkMaps.createFilledMap(accommodationCount * BUILDINGS_PER_ACCOMMODATION);
+        population = new StudentPopulation(map, parameters);
+        population.applyChanges();
+        study = map.getPlacedBuildings().get(STUDY_INDEX);
+    }
+
+    @Benchmark
+    public float update() {
+        return population.update(TICK_TIME, 0.5f, 0.5f, true);
+    }
+
+    @Benchmark
+    public float updateAfterRemovingAndPlacing() {
+        // Moving a study building reassigns every student to their nearest study buildings.
+        map.removeBuilding(study);
+        population.applyChanges();
+        population.update(TICK_TIME, 0.5f, 0.5f, true);
+        study = map.placeBuilding(study.getType(), study.getX(), study.getY());
+        population.applyChanges();
+        return population.update(TICK_TIME, 0.5f, 0.5f, true);
+    }
+}
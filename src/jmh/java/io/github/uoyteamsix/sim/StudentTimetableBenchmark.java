@@ -0,0 +1,51 @@
+package io.github.uoyteamsix.sim;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for running the timetables of a {@link StudentPopulation} through a whole simulated day. Each student has
+ * two events for each activity of the day, so a million students process ten million events per day, which should
+ * take a small fraction of the day's length.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StudentTimetableBenchmark {
+    private static final float TICK_TIME = 1.0f / 20.0f;
+
+    // The filled map cycles through the four building types, so every fourth building is an accommodation.
+    private static final int BUILDINGS_PER_ACCOMMODATION = 4;
+
+    @Param({"10000", "100000", "1000000"})
+    private int studentCount;
+
+    private StudentPopulation population;
+    private StudentTimetable timetable;
+    private int ticksPerDay;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var parameters = new SimulationParameters();
+        int accommodationCount = studentCount / parameters.getStudentsPerAccommodation();
+        var map = BenchmarkMaps.createFilledMap(accommodationCount * BUILDINGS_PER_ACCOMMODATION);
+        population = new StudentPopulation(map, parameters);
+        timetable = new StudentTimetable(map, parameters, population);
+        population.applyChanges();
+        timetable.update(0.0f);
+        ticksPerDay = Math.round(parameters.getDayLength() / TICK_TIME);
+    }
+
+    @Benchmark
+    public float simulateDay() {
+        for (int i = 0; i < ticksPerDay; i++) {
+            population.applyChanges();
+            timetable.update(TICK_TIME);
+        }
+        return timetable.getAverageWaitingTime();
+    }
+}
@@ -10,13 +10,35 @@ import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
 
+import java.util.Arrays;
+
 /**
  * A class which holds the {@link Camera} object and implements the camera movement logic.
  */
 public class CameraController extends InputAdapter {
+    /**
+     * A listener which is notified when the area of the world in view changes, e.g. so that the parts of a large map
+     * which are about to be drawn can be paged in.
+     */
+    public interface ViewListener {
+        /**
+         * Called after the camera has been updated, if the area in view has changed since the last call.
+         *
+         * @param x      the left edge of the view in world space
+         * @param y      the bottom edge of the view in world space
+         * @param width  the width of the view in world space
+         * @param height the height of the view in world space
+         */
+        void onViewChanged(float x, float y, float width, float height);
+    }
+
     private final OrthographicCamera camera;
     private final Vector2 lastDragPosition;
 
+    // Scratch vectors reused every frame and input event, so that the camera never allocates once running.
+    private final Vector3 mouseStart = new Vector3();
+    private final Vector3 mouseEnd = new Vector3();
+
     private boolean isCurrentlyDragging = false;
     private float desiredZoomLevel = 0.5f;
 
@@ -27,6 +49,13 @@ public class CameraController extends InputAdapter {
     // Maximum zoom level to keep the whole map visible
     private float maxZoomLevel;
 
+    // The area in view which listeners were last notified of.
+    private ViewListener[] viewListeners = new ViewListener[0];
+    private float lastViewX = Float.NaN;
+    private float lastViewY;
+    private float lastViewWidth;
+    private float lastViewHeight;
+
     public CameraController() {
         camera = new OrthographicCamera();
         camera.zoom = desiredZoomLevel;
@@ -90,8 +119,8 @@ public class CameraController extends InputAdapter {
 
         // Convert mouse movement into world space which allows movement of the camera whilst keeping the mouse cursor
         // fixed relative to the same point in world space.
-        var mouseNow = camera.unproject(new Vector3(screenX, screenY, 0));
-        camera.translate(camera.unproject(new Vector3(lastDragPosition, 0)).sub(mouseNow));
+        unproject(screenX, screenY, mouseEnd);
+        camera.translate(unproject(lastDragPosition.x, lastDragPosition.y, mouseStart).sub(mouseEnd));
         lastDragPosition.set(screenX, screenY);
         return true;
     }
@@ -124,7 +153,7 @@ public class CameraController extends InputAdapter {
 
         // Handle camera zooming. The code below gives the effect of zooming into a point by keeping the mouse position
         // constant relative to world space.
-        var mouseStart = camera.unproject(new Vector3(Gdx.input.getX(), Gdx.input.getY(), 0));
+        unproject(Gdx.input.getX(), Gdx.input.getY(), mouseStart);
 
         // Clamp desired zoom level. Do this every frame in case the maximum zoom level gets updated.
         desiredZoomLevel = MathUtils.clamp(desiredZoomLevel, 0.2f, maxZoomLevel);
@@ -135,16 +164,79 @@ public class CameraController extends InputAdapter {
 
         // The difference in mouse position in world space before and after zooming is the amount we need to
         // translate by to keep the mouse position constant.
-        var mouseEnd = camera.unproject(new Vector3(Gdx.input.getX(), Gdx.input.getY(), 0));
+        unproject(Gdx.input.getX(), Gdx.input.getY(), mouseEnd);
         camera.translate(mouseStart.sub(mouseEnd));
 
         // Clamp camera position to the map boundaries.
-        var halfViewport = new Vector2(camera.viewportWidth, camera.viewportHeight).scl(camera.zoom / 2.0f);
-        camera.position.x = MathUtils.clamp(camera.position.x, halfViewport.x, mapWidth - halfViewport.x);
-        camera.position.y = MathUtils.clamp(camera.position.y, halfViewport.y, mapHeight - halfViewport.y);
+        float halfViewportWidth = camera.viewportWidth * camera.zoom / 2.0f;
+        float halfViewportHeight = camera.viewportHeight * camera.zoom / 2.0f;
+        camera.position.x = MathUtils.clamp(camera.position.x, halfViewportWidth, mapWidth - halfViewportWidth);
+        camera.position.y = MathUtils.clamp(camera.position.y, halfViewportHeight, mapHeight - halfViewportHeight);
 
         // Final camera update with the new position.
         camera.update();
+
+        notifyViewListeners(camera.position.x - halfViewportWidth, camera.position.y - halfViewportHeight,
+                halfViewportWidth * 2.0f, halfViewportHeight * 2.0f);
+    }
+
+    private void notifyViewListeners(float x, float y, float width, float height) {
+        if (x == lastViewX && y == lastViewY && width == lastViewWidth && height == lastViewHeight) {
+            return;
+        }
+        lastViewX = x;
+        lastViewY = y;
+        lastViewWidth = width;
+        lastViewHeight = height;
+        for (var listener : viewListeners) {
+            listener.onViewChanged(x, y, width, height);
+        }
+    }
+
+    /**
+     * Adds a listener to notify when the area in view changes. The listener is notified of the current view on the
+     * next update.
+     *
+     * @param listener the listener
+     */
+    public void addViewListener(ViewListener listener) {
+        viewListeners = Arrays.copyOf(viewListeners, viewListeners.length + 1);
+        viewListeners[viewListeners.length - 1] = listener;
+        lastViewX = Float.NaN;
+    }
+
+    /**
+     * Removes a previously added view listener.
+     *
+     * @param listener the listener
+     */
+    public void removeViewListener(ViewListener listener) {
+        for (int i = 0; i < viewListeners.length; i++) {
+            if (viewListeners[i] == listener) {
+                var newListeners = new ViewListener[viewListeners.length - 1];
+                System.arraycopy(viewListeners, 0, newListeners, 0, i);
+                System.arraycopy(viewListeners, i + 1, newListeners, i, viewListeners.length - i - 1);
+                viewListeners = newListeners;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Converts a position on the screen into world space, the same as {@link Camera#unproject(Vector3)}. The viewport
+     * always covers the whole window, so this uses the viewport size rather than querying the window size, which lets
+     * it run headlessly.
+     *
+     * @param screenX the x coordinate on the screen, with the origin at the top left
+     * @param screenY the y coordinate on the screen, with the origin at the top left
+     * @param out     the vector to store the world position in
+     * @return the given vector, for chaining
+     */
+    public Vector3 unproject(float screenX, float screenY, Vector3 out) {
+        // Convert to normalized device coordinates on the near plane, then transform back into world space.
+        float x = 2.0f * screenX / camera.viewportWidth - 1.0f;
+        float y = 2.0f * (camera.viewportHeight - screenY) / camera.viewportHeight - 1.0f;
+        return out.set(x, y, -1.0f).prj(camera.invProjectionView);
     }
 
     /**
@@ -0,0 +1,97 @@
+package io.github.uoyteamsix;
+
+import com.badlogic.gdx.Gdx;
+import io.github.uoyteamsix.sim.SimulationMap;
+import io.github.uoyteamsix.sim.StudentCrowd;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A class which moves the crowd of walking students on a background thread. Each frame, the step is started once the
+ * game logic has been updated and runs whilst the map and UI are drawn, and is finished at the end of the frame,
+ * before the next frame's input can change the map. The students drawn during a frame are the ones from the previous
+ * step, so drawing never waits for the step.
+ */
+public class CrowdUpdater {
+    private static final int MAX_STUDENTS = 16384;
+    private static final int STUDENTS_PER_ACCOMMODATION = 8;
+
+    private final ExecutorService worker;
+    private final Runnable stepTask = this::step;
+    private StudentCrowd crowd;
+    private Future<?> pendingStep;
+    private float stepDeltaTime;
+
+    public CrowdUpdater() {
+        worker = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "unisim-crowd");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Replaces the crowd with an empty one walking around the given map.
+     *
+     * @param map the map
+     */
+    public void setMap(SimulationMap map) {
+        finish();
+        crowd = new StudentCrowd(map, MAX_STUDENTS, STUDENTS_PER_ACCOMMODATION, System.nanoTime());
+    }
+
+    /**
+     * Starts moving the crowd on the background thread, once its flow fields have been brought up to date on this
+     * thread. The map must not change until {@link #finish} is called.
+     *
+     * @param deltaTime the delta time between the last call of begin
+     */
+    public void begin(float deltaTime) {
+        if (crowd == null || pendingStep != null) {
+            return;
+        }
+        crowd.updateFields();
+        stepDeltaTime = deltaTime;
+        pendingStep = worker.submit(stepTask);
+    }
+
+    private void step() {
+        crowd.step(stepDeltaTime);
+    }
+
+    /**
+     * Waits for the step started by {@link #begin} to finish, if there is one, and publishes the new positions.
+     */
+    public void finish() {
+        if (pendingStep == null) {
+            return;
+        }
+        try {
+            pendingStep.get();
+            crowd.swapBuffers();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Gdx.app.error("CrowdUpdater", "Failed to move the crowd: " + e.getCause());
+        }
+        pendingStep = null;
+    }
+
+    /**
+     * @return the crowd, or null if the map hasn't been set yet
+     */
+    public StudentCrowd getCrowd() {
+        return crowd;
+    }
+
+    /**
+     * Waits for any running step and stops the background thread.
+     */
+    public void dispose() {
+        finish();
+        worker.shutdown();
+    }
+}
@@ -23,28 +23,25 @@ public class CursorManager implements Disposable {
         this.assetManager = assetManager;
         cursorMap = new HashMap<>();
 
-        // Queue loading of all cursors.
+        // Queue loading of all cursors. The pointer is queued first, so it is the first to be available as a fallback.
         for (var cursor : GameCursor.values()) {
             assetManager.load(cursor.getPath(), Pixmap.class);
         }
-
-        // Finish loading standard pointer straight away so it can be used as a fallback.
-        assetManager.finishLoadingAsset(GameCursor.POINTER.getPath());
-
-        // Call update to load pointer.
-        update();
     }
 
     /**
      * Tries to set the current cursor to the given cursor. If the given cursor is not loaded, fallback to the
-     * pointer cursor.
+     * pointer cursor, or the system arrow if that isn't loaded yet either.
      *
      * @param cursor the desired cursor
      */
     public void setCursor(GameCursor cursor) {
-        // Cursors.POINTER is guaranteed to be loaded. Use it as a fallback in case the requested cursor isn't loaded.
         var gdxCursor = cursorMap.getOrDefault(cursor, cursorMap.get(GameCursor.POINTER));
-        Gdx.graphics.setCursor(gdxCursor);
+        if (gdxCursor != null) {
+            Gdx.graphics.setCursor(gdxCursor);
+        } else {
+            Gdx.graphics.setSystemCursor(Cursor.SystemCursor.Arrow);
+        }
     }
 
     /**
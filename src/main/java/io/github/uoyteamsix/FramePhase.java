@@ -0,0 +1,27 @@
+package io.github.uoyteamsix;
+
+/**
+ * The phases of a frame measured by {@link FrameProfiler}, in the order they run.
+ */
+public enum FramePhase {
+    ASSET_LOADING("Assets"),
+    CURSOR_UPDATE("Cursor"),
+    CAMERA_UPDATE("Camera"),
+    GAME_LOGIC("Logic"),
+    UI_ACT("UI act"),
+    MAP_RENDER("Map"),
+    STUDENT_RENDER("Students"),
+    PLACEMENT_PREVIEW("Preview"),
+    UI_DRAW("UI draw"),
+    CROWD_WAIT("Crowd");
+
+    private final String displayName;
+
+    FramePhase(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,165 @@
+package io.github.uoyteamsix;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * A class which measures how long each phase of a frame takes. Each phase ends with a call to {@link #mark}, which
+ * charges the time since the previous mark to that phase, so the phases of a frame add up to the whole frame. Timings
+ * of the most recent frames are kept in fixed size ring buffers of primitives, from which rolling percentiles are
+ * worked out, and can be written out as CSV for offline analysis.
+ * <p>
+ * When disabled, each call costs a single branch. Enabling or disabling takes effect from the next frame.
+ */
+public class FrameProfiler {
+    // Number of frames kept for export, and the number of most recent frames percentiles are worked out over.
+    public static final int HISTORY_SIZE = 4096;
+    public static final int STATS_WINDOW = 600;
+
+    private static final FramePhase[] PHASES = FramePhase.values();
+
+    // Ring buffers of phase and whole frame times in nanoseconds, indexed by frame number modulo the history size.
+    private final long[][] phaseHistory;
+    private final long[] frameHistory;
+    private final long[] currentPhaseTimes;
+    private final long[] sortScratch;
+    private long frameCount;
+
+    private boolean enabled;
+    private boolean enabledRequested;
+    private long frameStartTime;
+    private long lastMarkTime;
+
+    public FrameProfiler() {
+        phaseHistory = new long[PHASES.length][HISTORY_SIZE];
+        frameHistory = new long[HISTORY_SIZE];
+        currentPhaseTimes = new long[PHASES.length];
+        sortScratch = new long[STATS_WINDOW];
+    }
+
+    /**
+     * Starts timing a new frame. Should be called at the very start of the frame.
+     */
+    public void beginFrame() {
+        enabled = enabledRequested;
+        if (enabled) {
+            frameStartTime = System.nanoTime();
+            lastMarkTime = frameStartTime;
+        }
+    }
+
+    /**
+     * Ends a phase, charging the time since the previous mark or the start of the frame to it. A phase may be marked
+     * more than once in a frame, in which case the times are added up.
+     *
+     * @param phase the phase which has just finished
+     */
+    public void mark(FramePhase phase) {
+        if (enabled) {
+            long now = System.nanoTime();
+            currentPhaseTimes[phase.ordinal()] += now - lastMarkTime;
+            lastMarkTime = now;
+        }
+    }
+
+    /**
+     * Finishes timing the current frame and stores its timings. Should be called at the very end of the frame.
+     */
+    public void endFrame() {
+        if (enabled) {
+            int index = (int) (frameCount % HISTORY_SIZE);
+            frameHistory[index] = System.nanoTime() - frameStartTime;
+            for (int i = 0; i < PHASES.length; i++) {
+                phaseHistory[i][index] = currentPhaseTimes[i];
+                currentPhaseTimes[i] = 0;
+            }
+            frameCount++;
+        }
+    }
+
+    /**
+     * Works out a percentile of the most recent values of a ring buffer without allocating.
+     */
+    private long getPercentile(long[] history, double percentile) {
+        int count = (int) Math.min(frameCount, STATS_WINDOW);
+        if (count == 0) {
+            return 0;
+        }
+        for (int i = 0; i < count; i++) {
+            sortScratch[i] = history[(int) ((frameCount - 1 - i) % HISTORY_SIZE)];
+        }
+        Arrays.sort(sortScratch, 0, count);
+        int rank = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sortScratch[Math.min(Math.max(rank, 0), count - 1)];
+    }
+
+    /**
+     * @param phase      the phase
+     * @param percentile the percentile, between 0 and 100
+     * @return the given percentile of the phase's time over the most recent frames, in nanoseconds
+     */
+    public long getPhasePercentile(FramePhase phase, double percentile) {
+        return getPercentile(phaseHistory[phase.ordinal()], percentile);
+    }
+
+    /**
+     * @param percentile the percentile, between 0 and 100
+     * @return the given percentile of the whole frame time over the most recent frames, in nanoseconds
+     */
+    public long getFramePercentile(double percentile) {
+        return getPercentile(frameHistory, percentile);
+    }
+
+    /**
+     * Writes the timings of every stored frame as CSV, oldest first, with one row per frame and one column per phase.
+     *
+     * @param writer the writer to write to
+     * @throws IOException if writing fails
+     */
+    public void writeCsv(Writer writer) throws IOException {
+        writer.write("frame,total_ns");
+        for (var phase : PHASES) {
+            writer.write(',');
+            writer.write(phase.name().toLowerCase());
+            writer.write("_ns");
+        }
+        writer.write('\n');
+
+        long firstFrame = Math.max(frameCount - HISTORY_SIZE, 0);
+        for (long frame = firstFrame; frame < frameCount; frame++) {
+            int index = (int) (frame % HISTORY_SIZE);
+            writer.write(Long.toString(frame));
+            writer.write(',');
+            writer.write(Long.toString(frameHistory[index]));
+            for (int i = 0; i < PHASES.length; i++) {
+                writer.write(',');
+                writer.write(Long.toString(phaseHistory[i][index]));
+            }
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Turns profiling on or off from the next frame.
+     *
+     * @param enabled whether to profile frames
+     */
+    public void setEnabled(boolean enabled) {
+        enabledRequested = enabled;
+    }
+
+    /**
+     * @return whether profiling has been turned on
+     */
+    public boolean isEnabled() {
+        return enabledRequested;
+    }
+
+    /**
+     * @return the number of frames profiled so far
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+}
@@ -1,190 +1,286 @@
 package io.github.uoyteamsix;
 
-import com.badlogic.gdx.math.MathUtils;
 import io.github.uoyteamsix.map.BuildingPrefab;
 import io.github.uoyteamsix.map.GameMap;
+import io.github.uoyteamsix.sim.ActionRecorder;
+import io.github.uoyteamsix.sim.Building;
+import io.github.uoyteamsix.sim.CommandLog;
+import io.github.uoyteamsix.sim.FixedTimestep;
+import io.github.uoyteamsix.sim.GameEvent;
+import io.github.uoyteamsix.sim.PlacementBatch;
+import io.github.uoyteamsix.sim.Simulation;
+import io.github.uoyteamsix.sim.SimulationListener;
+import io.github.uoyteamsix.sim.SimulationSnapshot;
+
+import java.util.Arrays;
 
 /**
- * A class which manages the gameplay logic, including the remaining game time, placing buildings, and calculating
- * satisfaction and score.
+ * A class which connects the headless {@link Simulation} to the rest of the game, and keeps track of which building
+ * the player currently has selected for placement. The simulation is stepped at a fixed tick rate independent of the
+ * frame rate, and the values displayed by the UI are interpolated between ticks.
  */
 public class GameLogic {
-    private static final float TOTAL_GAME_TIME = 5.0f * 60.0f;
-    private static final float BUILDING_TIME = 20.0f;
-
+    private static final int DEFAULT_TICK_RATE = 60;
+    private static final int MAX_TICKS_PER_FRAME = 8;
+    private static final int UNDO_CAPACITY = 4096;
+
+    private final int tickRate;
+    private final long seed;
+    private final FixedTimestep timestep;
+    private final CommandLog commandLog = new CommandLog(UNDO_CAPACITY);
     private GameMap gameMap;
-    private int maximumAllowedBuildings;
+    private Simulation simulation;
+    private ActionRecorder recorder;
     private int selectedPrefabIndex = -1;
 
-    // Timers.
-    private float remainingTime;
-    private float nextBuildingTime;
-    private boolean gameOver;
-
-    // Satisfaction.
-    private float satisfaction;
-    private float newBuildingSatisfaction;
-    private int previousBuildingCount;
+    // Listeners added before the map is set are kept so they can be added to each new simulation.
+    private SimulationListener[] listeners = new SimulationListener[0];
 
-    // Events.
-    private GameEvent currentEvent;
-    private float nextEventProbability;
-    private float checkEventTimer;
-    private float eventDurationTimer;
+    // Simulation values from the previous tick, used for interpolation.
+    private float previousRemainingTime;
+    private float previousNextBuildingTime;
+    private float previousSatisfaction;
+    private float previousEventDurationTimer;
 
     public GameLogic() {
-        remainingTime = TOTAL_GAME_TIME;
-        nextBuildingTime = 0.0f;
-        currentEvent = GameEvent.NONE;
+        this(DEFAULT_TICK_RATE, System.nanoTime());
+    }
+
+    /**
+     * @param tickRate the number of simulation ticks per second
+     * @param seed     the seed for the simulation's random number generator
+     */
+    public GameLogic(int tickRate, long seed) {
+        this.tickRate = tickRate;
+        this.seed = seed;
+        timestep = new FixedTimestep(tickRate, MAX_TICKS_PER_FRAME);
     }
 
     public void setMap(GameMap gameMap) {
+        if (simulation != null) {
+            simulation.detach();
+        }
         this.gameMap = gameMap;
+        simulation = new Simulation(gameMap.getSimulationMap(), seed);
+        for (var listener : listeners) {
+            simulation.addListener(listener);
+        }
+        recorder = new ActionRecorder(gameMap.getSimulationMap(), seed, tickRate);
+        commandLog.clear();
+        storePreviousValues();
     }
 
     /**
-     * Finds a building prefab given its name.
+     * Adds a listener to notify of changes to the game state, which is kept when the map is changed.
      *
-     * @param name the prefab name
-     * @return a {@link BuildingPrefab}
+     * @param listener the listener
      */
-    private BuildingPrefab findPrefab(String name) {
-        for (var prefab : gameMap.getAvailablePrefabs()) {
-            if (prefab.getName().equals(name)) {
-                return prefab;
-            }
+    public void addListener(SimulationListener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        if (simulation != null) {
+            simulation.addListener(listener);
         }
-        return null;
     }
 
     /**
-     * Continuously updates the student satisfaction.
+     * Removes a previously added listener.
      *
-     * @param deltaTime the time between the last call of this method
+     * @param listener the listener
      */
-    private void updateSatisfaction(float deltaTime) {
-        // Get all building types.
-        var accommodationPrefab = findPrefab("Accommodation");
-        var canteenPrefab = findPrefab("Canteen");
-        var recreationPrefab = findPrefab("Recreation");
-        var studyPrefab = findPrefab("Study");
-
-        // Work out the number of students based on how many accommodation buildings there are.
-        int studentCount = gameMap.getBuildingCount(accommodationPrefab) * 25;
-
-        // Store satisfaction to add for new buildings.
-        int newBuildingCount = gameMap.getTotalBuildingCount() - previousBuildingCount;
-        if (newBuildingCount > 0) {
-            newBuildingSatisfaction += 0.5f * newBuildingCount;
-        }
-        previousBuildingCount = gameMap.getTotalBuildingCount();
-
-        // Slowly apply new building satisfaction.
-        float newBuildingFactor = newBuildingSatisfaction * 2.0f * deltaTime;
-        satisfaction += newBuildingFactor;
-        newBuildingSatisfaction -= newBuildingFactor;
-        newBuildingSatisfaction = Math.max(newBuildingSatisfaction, 0.0f);
-
-        // Apply some satisfaction based on student count.
-        satisfaction += Math.min(studentCount / 25000.0f, 0.01f) * deltaTime;
-
-        // Decrease satisfaction if there isn't enough canteen or study buildings for all the students. Each canteen
-        // can support 100 students and each study building can support 75 students. Use exponential formulas so a
-        // deficit can not just be offset by placing lots of recreation buildings.
-        var canteenDeficit = studentCount - gameMap.getBuildingCount(canteenPrefab) * 100;
-        var studyDeficit = studentCount - gameMap.getBuildingCount(studyPrefab) * 75;
-        if (canteenDeficit > 0) {
-            satisfaction -= ((float) Math.pow(2.0f, canteenDeficit / 12.0f) / 175.0f) * deltaTime * 0.5f;
+    public void removeListener(SimulationListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                var newListeners = new SimulationListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                listeners = newListeners;
+                break;
+            }
         }
-        if (studyDeficit > 0) {
-            float factor = currentEvent == GameEvent.STRIKE ? 1.0f : 0.5f;
-            satisfaction -= ((float) Math.pow(2.0f, studyDeficit / 15.0f) / 75.0f) * deltaTime * factor;
+        if (simulation != null) {
+            simulation.removeListener(listener);
         }
+    }
 
-        // Decay satisfaction based on a rate determined by the amount of recreation buildings.
-        float decayRate = 0.035f;
-        decayRate -= gameMap.getBuildingCount(recreationPrefab) / 500.0f;
-        satisfaction -= Math.max(decayRate, 0.015f) * deltaTime;
+    /**
+     * Records the current simulation values so they can be interpolated from after the next tick.
+     */
+    private void storePreviousValues() {
+        previousRemainingTime = simulation.getRemainingTime();
+        previousNextBuildingTime = simulation.getNextBuildingTime();
+        previousSatisfaction = simulation.getSatisfaction();
+        previousEventDurationTimer = simulation.getEventDurationTimer();
+    }
 
-        // Handle rain and roses events.
-        if (currentEvent == GameEvent.RAIN) {
-            satisfaction -= 0.02f * deltaTime;
-        } else if (currentEvent == GameEvent.ROSES) {
-            satisfaction += 0.02f * deltaTime;
+    /**
+     * Interpolates between the previous and current value of a count down timer. Timers which have been reset since
+     * the previous tick are not interpolated, as that would show a value half way between empty and full.
+     */
+    private float interpolateTimer(float previous, float current) {
+        if (current > previous) {
+            return current;
         }
-
-        // Clamp satisfaction between 0 and 1.
-        satisfaction = MathUtils.clamp(satisfaction, 0.0f, 1.0f);
+        return previous + (current - previous) * timestep.getAlpha();
     }
 
     /**
-     * Updates the game logic.
+     * Updates the game logic, running as many fixed length simulation ticks as have elapsed.
      *
      * @param deltaTime the delta time between the last call of update
      */
     public void update(float deltaTime) {
-        if (gameOver) {
+        if (simulation == null) {
             return;
         }
+        int ticks = timestep.advance(deltaTime);
+        for (int i = 0; i < ticks; i++) {
+            storePreviousValues();
+            simulation.update(timestep.getTickTime());
+        }
+    }
 
-        // Update timers.
-        remainingTime -= deltaTime;
-        if (remainingTime < 0.0f) {
-            gameOver = true;
+    /**
+     * Sets the selected building placement prefab to the given index.
+     *
+     * @param prefabIndex the prefab index
+     */
+    public void setSelectedPrefabIndex(int prefabIndex) {
+        if (gameMap != null && prefabIndex < gameMap.getAvailablePrefabs().size()) {
+            selectedPrefabIndex = prefabIndex;
+        } else {
+            selectedPrefabIndex = -1;
         }
-        nextBuildingTime -= deltaTime;
-        if (nextBuildingTime < 0.0f) {
-            // User can place another building.
-            maximumAllowedBuildings++;
-            nextBuildingTime = BUILDING_TIME;
+        if (recorder != null) {
+            recorder.recordSelection(timestep.getTickCount(), selectedPrefabIndex);
         }
+    }
 
-        // Update satisfaction.
-        updateSatisfaction(deltaTime);
-
-        // Tick event duration timer.
-        if (currentEvent != GameEvent.NONE) {
-            eventDurationTimer -= deltaTime;
+    /**
+     * Places a building if the player is allowed to place another one and the placement is valid, and records it.
+     *
+     * @param prefab the building prefab
+     * @param x      the x coordinate in tiles
+     * @param y      the y coordinate in tiles
+     * @return true if the building was placed
+     */
+    public boolean placeBuilding(BuildingPrefab prefab, int x, int y) {
+        if (!canPlaceBuilding() || !gameMap.canPlaceBuilding(prefab, x, y)) {
+            return false;
         }
-        if (eventDurationTimer < 0.0f) {
-            currentEvent = GameEvent.NONE;
+        commandLog.record(gameMap.placeBuilding(prefab, x, y));
+        if (recorder != null) {
+            recorder.recordPlacement(timestep.getTickCount(), prefab.getId(), x, y);
         }
-        if (currentEvent != GameEvent.NONE) {
-            return;
+        return true;
+    }
+
+    /**
+     * Validates a batch against the map and the player's allowance, without placing anything, e.g. to preview it.
+     *
+     * @param batch the batch, laid out with one of the map's prefabs
+     * @return the number of slots which would be placed
+     */
+    public int validateBatch(PlacementBatch batch) {
+        return simulation != null ? gameMap.validateBatch(batch, simulation.getAllowance()) : 0;
+    }
+
+    /**
+     * Places a building in every slot of a batch which is free, up to the number of buildings the player is allowed to
+     * place, and records each one. The result of each slot is left in the batch so failed slots can be reported.
+     *
+     * @param batch the batch, laid out with one of the map's prefabs
+     * @return the number of buildings placed
+     */
+    public int placeBatch(PlacementBatch batch) {
+        if (simulation == null) {
+            return 0;
         }
+        var buildings = gameMap.placeBatch(batch, simulation.getAllowance());
+        commandLog.record(buildings);
+        // The slots never overlap, so replaying them one at a time places the same buildings.
+        recordPlacements(buildings);
+        return buildings.length;
+    }
 
-        // Generate a random number every 2 seconds to see if we should start an event. Bias the random number slightly
-        // to prevent events from happening to close to each other.
-        nextEventProbability += deltaTime * 0.01f;
-        checkEventTimer += deltaTime;
-        if (checkEventTimer > 2.0f) {
-            checkEventTimer = 0.0f;
-            if (Math.min(MathUtils.random() + 0.1f, 1.0f) < nextEventProbability) {
-                nextEventProbability = 0;
-                currentEvent = GameEvent.values()[MathUtils.random(GameEvent.values().length - 1)];
-                eventDurationTimer = MathUtils.random(15.0f, 45.0f);
+    /**
+     * Undoes the most recent placement, or every building of the most recent batch, and records the removals.
+     *
+     * @return true if anything was undone
+     */
+    public boolean undo() {
+        if (simulation == null || simulation.isGameOver()) {
+            return false;
+        }
+        var buildings = commandLog.undo(gameMap);
+        if (recorder != null) {
+            for (var building : buildings) {
+                recorder.recordRemoval(timestep.getTickCount(), building.getType().getId(), building.getX(),
+                        building.getY());
             }
         }
+        return buildings.length > 0;
     }
 
     /**
-     * Sets the selected building placement prefab to the given index.
+     * Redoes the most recently undone placement or batch, if the player is still allowed to place that many buildings,
+     * and records the placements.
      *
-     * @param prefabIndex the prefab index
+     * @return true if anything was redone
      */
-    public void setSelectedPrefabIndex(int prefabIndex) {
-        if (gameMap != null && prefabIndex < gameMap.getAvailablePrefabs().size()) {
-            selectedPrefabIndex = prefabIndex;
-        } else {
-            selectedPrefabIndex = -1;
+    public boolean redo() {
+        int count = commandLog.getRedoSize();
+        if (simulation == null || simulation.isGameOver() || count == 0 || count > simulation.getAllowance()) {
+            return false;
+        }
+        recordPlacements(commandLog.redo(gameMap));
+        return true;
+    }
+
+    private void recordPlacements(Building[] buildings) {
+        if (recorder == null) {
+            return;
+        }
+        for (var building : buildings) {
+            recorder.recordPlacement(timestep.getTickCount(), building.getType().getId(), building.getX(),
+                    building.getY());
         }
     }
 
+    /**
+     * Takes an immutable copy of the game state, which can be saved on another thread. Every building and student is
+     * copied, so it is meant for saving rather than for taking every frame.
+     *
+     * @return the snapshot, or null if the map hasn't been set yet
+     */
+    public SimulationSnapshot createSnapshot() {
+        return simulation != null ? simulation.createSnapshot(timestep.getTickCount()) : null;
+    }
+
+    /**
+     * Replaces the game state with a saved snapshot, removing any buildings placed so far. Recording of the player's
+     * actions stops, as a recording can only be replayed from an empty map, and placements made before loading can no
+     * longer be undone.
+     *
+     * @param snapshot the snapshot
+     * @throws IllegalArgumentException if the snapshot was taken on a different map or its buildings don't fit on it
+     */
+    public void loadSnapshot(SimulationSnapshot snapshot) {
+        snapshot.checkCompatible(gameMap.getSimulationMap());
+        gameMap.removeAllBuildings();
+        gameMap.placeBuildings(snapshot);
+        simulation.restore(snapshot);
+        timestep.setTickCount(snapshot.getTickCount());
+        recorder = null;
+        commandLog.clear();
+        storePreviousValues();
+    }
+
     /**
      * @return true if the player is allowed to place another building
      */
     public boolean canPlaceBuilding() {
-        return !gameOver && gameMap.getTotalBuildingCount() < maximumAllowedBuildings;
+        return simulation != null && simulation.canPlaceBuilding();
     }
 
     /**
@@ -201,27 +297,43 @@ public class GameLogic {
         return gameMap;
     }
 
+    public Simulation getSimulation() {
+        return simulation;
+    }
+
+    /**
+     * @return the recorder of the player's actions, or null if the map hasn't been set yet or a save has been loaded
+     */
+    public ActionRecorder getRecorder() {
+        return recorder;
+    }
+
     public int getSelectedPrefabIndex() {
         return selectedPrefabIndex;
     }
 
+    public FixedTimestep getTimestep() {
+        return timestep;
+    }
+
     public float getRemainingTime() {
-        return remainingTime;
+        return interpolateTimer(previousRemainingTime, simulation.getRemainingTime());
     }
 
     public float getNextBuildingTime() {
-        return nextBuildingTime;
+        return interpolateTimer(previousNextBuildingTime, simulation.getNextBuildingTime());
     }
 
     public float getSatisfaction() {
-        return satisfaction;
+        float alpha = timestep.getAlpha();
+        return previousSatisfaction + (simulation.getSatisfaction() - previousSatisfaction) * alpha;
     }
 
     public GameEvent getCurrentEvent() {
-        return currentEvent;
+        return simulation.getCurrentEvent();
     }
 
     public float getEventDurationTimer() {
-        return eventDurationTimer;
+        return interpolateTimer(previousEventDurationTimer, simulation.getEventDurationTimer());
     }
 }
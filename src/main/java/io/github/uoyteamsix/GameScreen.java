@@ -4,41 +4,65 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.InputMultiplexer;
 import com.badlogic.gdx.ScreenAdapter;
 import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.maps.MapRenderer;
 import com.badlogic.gdx.maps.tiled.TiledMap;
-import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
 import com.badlogic.gdx.utils.ScreenUtils;
+import io.github.uoyteamsix.map.ChunkedMapRenderer;
 import io.github.uoyteamsix.map.GameMap;
 import io.github.uoyteamsix.map.GameMapInput;
+import io.github.uoyteamsix.map.GameMapLoader;
+import io.github.uoyteamsix.sim.PlacementBatch;
 import io.github.uoyteamsix.ui.UiStage;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 /**
  * A class representing the main gameplay screen.
  */
 public class GameScreen extends ScreenAdapter {
-    private final AssetManager assetManager;
+    // Tints applied to the building being placed, depending on whether it can be placed.
+    private static final Color VALID_PLACEMENT_TINT = new Color(1.0f, 1.0f, 1.0f, 0.8f);
+    private static final Color INVALID_PLACEMENT_TINT = new Color(1.0f, 0.1f, 0.1f, 0.8f);
+
+    // Walking students are drawn as dots of this colour, sized as a fraction of a tile.
+    private static final Color STUDENT_COLOR = new Color(0.95f, 0.85f, 0.2f, 1.0f);
+    private static final int STUDENT_TEXTURE_SIZE = 16;
+    private static final float STUDENT_SIZE = 0.4f;
+
     private final CursorManager cursorManager;
     private final SpriteBatch batch;
     private final CameraController cameraController;
     private final GameLogic gameLogic;
     private final UiStage uiStage;
+    private final FrameProfiler profiler;
+    private final SaveManager saveManager;
+    private final CrowdUpdater crowdUpdater;
+    private final Texture studentTexture;
     private GameMap map;
     private GameMapInput mapInput;
-    private MapRenderer mapRenderer;
+    private ChunkedMapRenderer mapRenderer;
 
-    public GameScreen(AssetManager assetManager, CursorManager cursorManager) {
-        this.assetManager = assetManager;
+    public GameScreen(AssetManager assetManager, CursorManager cursorManager, FrameProfiler profiler) {
         this.cursorManager = cursorManager;
+        this.profiler = profiler;
         batch = new SpriteBatch();
         cameraController = new CameraController();
         gameLogic = new GameLogic();
-        uiStage = new UiStage(assetManager, gameLogic);
+        uiStage = new UiStage(assetManager, gameLogic, profiler);
+        saveManager = new SaveManager(gameLogic);
+        crowdUpdater = new CrowdUpdater();
+        studentTexture = createStudentTexture();
 
         // Create an input multiplexer to chain together our input adapters.
-        // Add the UI stage first, then the camera controller.
+        // Add the UI stage first, then the save manager and the camera controller.
         var inputMultiplexer = new InputMultiplexer();
         inputMultiplexer.addProcessor(uiStage);
+        inputMultiplexer.addProcessor(saveManager);
         inputMultiplexer.addProcessor(cameraController);
         Gdx.input.setInputProcessor(inputMultiplexer);
     }
@@ -55,51 +79,74 @@ public class GameScreen extends ScreenAdapter {
         // Clear the screen with a solid color (black).
         ScreenUtils.clear(0.0f, 0.0f, 0.0f, 1.0f);
 
-        // Create map and map renderer if first run.
-        if (map == null) {
-            initializeMap();
-        }
-
         // Set cursor based on camera behavior.
         updateCursorState();
+        profiler.mark(FramePhase.CURSOR_UPDATE);
 
-        // Update camera, game logic, and UI.
+        // Update camera, game logic, and UI. The game logic converts the frame time into fixed length ticks itself.
         cameraController.update(deltaTime);
+        profiler.mark(FramePhase.CAMERA_UPDATE);
         gameLogic.update(deltaTime);
+        saveManager.update(deltaTime);
+        // Move the students in the background whilst drawing, as nothing changes the map until the next frame's input.
+        crowdUpdater.begin(deltaTime);
+        profiler.mark(FramePhase.GAME_LOGIC);
         uiStage.act(deltaTime);
+        profiler.mark(FramePhase.UI_ACT);
 
         // Render the map.
         mapRenderer.setView(cameraController.getCamera());
         mapRenderer.render();
+        profiler.mark(FramePhase.MAP_RENDER);
+
+        // Render the students walking around the map.
+        renderStudents();
+        profiler.mark(FramePhase.STUDENT_RENDER);
 
         // Render the building currently being placed.
         renderBuildingPlacement();
+        profiler.mark(FramePhase.PLACEMENT_PREVIEW);
 
         // Render the UI last.
         uiStage.draw();
+        profiler.mark(FramePhase.UI_DRAW);
+
+        // Wait for the students to finish moving before the map can be changed again.
+        crowdUpdater.finish();
+        profiler.mark(FramePhase.CROWD_WAIT);
     }
 
     /**
-     * Initializes the map and map renderer and sets up the camera position.
+     * Creates a loader which builds the map from the given tiled map, with a renderer which draws using this screen's
+     * batch. The loader should be finished and passed back to {@link #setMap} before the screen is shown.
+     *
+     * @param tiledMap the loaded tiled map
+     * @return a {@link GameMapLoader}
      */
-    private void initializeMap() {
-        try {
-            var tiledMap = assetManager.get("maps/map.tmx", TiledMap.class);
-            map = new GameMap(tiledMap);
-            mapRenderer = new OrthogonalTiledMapRenderer(tiledMap, batch);
-
-            // Center the camera on the map.
-            cameraController.getCamera().position.set(map.getWidthPx() / 2.0f, map.getHeightPx() / 2.0f, 0.0f);
-            cameraController.setMapDimensions(map.getWidthPx(), map.getHeightPx());
-
-            gameLogic.setMap(map);
-
-            // Add input handler for map.
-            mapInput = new GameMapInput(map, gameLogic, cameraController);
-            ((InputMultiplexer) Gdx.input.getInputProcessor()).addProcessor(mapInput);
-        } catch (Exception e) {
-            Gdx.app.error("GameScreen", "Failed to initialize the map renderer: " + e.getMessage());
-        }
+    public GameMapLoader createMapLoader(TiledMap tiledMap) {
+        return new GameMapLoader(tiledMap, batch);
+    }
+
+    /**
+     * Sets up the game with the map and map renderer built by the given loader, and centers the camera on the map.
+     *
+     * @param loader a loader which has finished building the map
+     */
+    public void setMap(GameMapLoader loader) {
+        map = loader.getMap();
+        mapRenderer = loader.getRenderer();
+
+        // Center the camera on the map.
+        cameraController.getCamera().position.set(map.getWidthPx() / 2.0f, map.getHeightPx() / 2.0f, 0.0f);
+        cameraController.setMapDimensions(map.getWidthPx(), map.getHeightPx());
+        cameraController.addViewListener(map);
+
+        gameLogic.setMap(map);
+        crowdUpdater.setMap(map.getSimulationMap());
+
+        // Add input handler for map.
+        mapInput = new GameMapInput(map, gameLogic, cameraController);
+        ((InputMultiplexer) Gdx.input.getInputProcessor()).addProcessor(mapInput);
     }
 
     /**
@@ -118,7 +165,56 @@ public class GameScreen extends ScreenAdapter {
     }
 
     /**
-     * Renders a building on the mouse cursor if a building is currently being placed.
+     * Creates the texture walking students are drawn with, which is a filled circle.
+     */
+    private static Texture createStudentTexture() {
+        var pixmap = new Pixmap(STUDENT_TEXTURE_SIZE, STUDENT_TEXTURE_SIZE, Pixmap.Format.RGBA8888);
+        pixmap.setColor(STUDENT_COLOR);
+        pixmap.fillCircle(STUDENT_TEXTURE_SIZE / 2, STUDENT_TEXTURE_SIZE / 2, STUDENT_TEXTURE_SIZE / 2 - 1);
+        var texture = new Texture(pixmap);
+        texture.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+        pixmap.dispose();
+        return texture;
+    }
+
+    /**
+     * Renders the walking students from the crowd's last step, skipping any which are outside the camera's view. The
+     * positions are only read, so this is safe whilst the next step is running.
+     */
+    private void renderStudents() {
+        var crowd = crowdUpdater.getCrowd();
+        if (crowd == null) {
+            return;
+        }
+
+        // Work out the view in tiles, with a margin so that students half way off the edge are still drawn.
+        var camera = cameraController.getCamera();
+        float halfViewWidth = camera.viewportWidth * camera.zoom / 2.0f;
+        float halfViewHeight = camera.viewportHeight * camera.zoom / 2.0f;
+        float tileWidth = map.getTileWidthPx();
+        float tileHeight = map.getTileHeightPx();
+        float minX = (camera.position.x - halfViewWidth) / tileWidth - STUDENT_SIZE;
+        float maxX = (camera.position.x + halfViewWidth) / tileWidth + STUDENT_SIZE;
+        float minY = (camera.position.y - halfViewHeight) / tileHeight - STUDENT_SIZE;
+        float maxY = (camera.position.y + halfViewHeight) / tileHeight + STUDENT_SIZE;
+
+        float width = STUDENT_SIZE * tileWidth;
+        float height = STUDENT_SIZE * tileHeight;
+        batch.begin();
+        for (int i = 0; i < crowd.getStudentCount(); i++) {
+            float x = crowd.getX(i);
+            float y = crowd.getY(i);
+            if (!crowd.isWalking(i) || x < minX || x > maxX || y < minY || y > maxY) {
+                continue;
+            }
+            batch.draw(studentTexture, x * tileWidth - width / 2.0f, y * tileHeight - height / 2.0f, width, height);
+        }
+        batch.end();
+    }
+
+    /**
+     * Renders a building on the mouse cursor if a building is currently being placed, or every slot of the grid if one
+     * is being dragged out.
      */
     private void renderBuildingPlacement() {
         var prefab = gameLogic.getSelectedPrefab();
@@ -126,23 +222,73 @@ public class GameScreen extends ScreenAdapter {
             // Building not being placed.
             return;
         }
+        if (mapInput.isDragging()) {
+            renderDragPlacement();
+            return;
+        }
 
         int placementX = mapInput.getPlacementTileX();
         int placementY = mapInput.getPlacementTileY();
 
-        // Select texture based on whether this placement is valid.
+        // Select tint based on whether this placement is valid.
         boolean canPlace = map.canPlaceBuilding(prefab, placementX, placementY);
-        var texture = canPlace ? prefab.getTransparentTexture() : prefab.getRedTexture();
 
-        // Render texture.
+        // Render texture, restoring the batch colour afterwards as the batch is shared with the map renderer.
+        batch.begin();
+        batch.setColor(canPlace ? VALID_PLACEMENT_TINT : INVALID_PLACEMENT_TINT);
+        batch.draw(prefab.getTexture(), placementX * map.getTileWidthPx(), placementY * map.getTileHeightPx());
+        batch.setColor(Color.WHITE);
+        batch.end();
+    }
+
+    /**
+     * Renders every slot of the grid being dragged out, tinted by whether it will be placed. The whole grid is
+     * validated in a single pass each frame, so the preview matches what releasing the button would place.
+     */
+    private void renderDragPlacement() {
+        var dragBatch = mapInput.getDragBatch();
+        var prefab = gameLogic.getSelectedPrefab();
+        gameLogic.validateBatch(dragBatch);
+
         batch.begin();
-        batch.draw(texture, placementX * map.getTileWidthPx(), placementY * map.getTileHeightPx());
+        for (int i = 0; i < dragBatch.getCount(); i++) {
+            boolean accepted = dragBatch.getResult(i) == PlacementBatch.SlotResult.ACCEPTED;
+            batch.setColor(accepted ? VALID_PLACEMENT_TINT : INVALID_PLACEMENT_TINT);
+            batch.draw(prefab.getTexture(), dragBatch.getX(i) * map.getTileWidthPx(),
+                    dragBatch.getY(i) * map.getTileHeightPx());
+        }
+        batch.setColor(Color.WHITE);
         batch.end();
     }
 
+    /**
+     * Saves the recording of the player's actions if a path has been given with the {@code unisim.replay} system
+     * property, so the session can be replayed headlessly later.
+     */
+    private void saveRecording() {
+        var path = System.getProperty("unisim.replay");
+        var recorder = gameLogic.getRecorder();
+        if (path == null || recorder == null) {
+            return;
+        }
+        try (var out = Files.newOutputStream(Path.of(path))) {
+            recorder.writeTo(out);
+        } catch (IOException e) {
+            Gdx.app.error("GameScreen", "Failed to save the recording: " + e.getMessage());
+        }
+    }
+
     @Override
     public void dispose() {
+        saveRecording();
+        crowdUpdater.dispose();
+        saveManager.dispose();
+        studentTexture.dispose();
         batch.dispose();
         uiStage.dispose();
+        if (map != null) {
+            map.dispose();
+            mapRenderer.dispose();
+        }
     }
 }
@@ -0,0 +1,125 @@
+package io.github.uoyteamsix;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.ScreenAdapter;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.utils.ScreenUtils;
+import io.github.uoyteamsix.map.GameMapLoader;
+
+/**
+ * A class representing the screen shown whilst the game loads, which draws a progress bar. The asset manager decodes
+ * images and parses the map on its own worker thread, so each frame only has to upload finished assets to the GPU.
+ * Once every asset has loaded, the game map is built in small steps over the following frames, after which the game
+ * screen is handed the map and shown.
+ */
+public class LoadingScreen extends ScreenAdapter {
+    // The map compiled by the build is much quicker to load, but fall back to the TMX map if it hasn't been compiled,
+    // e.g. when running from an IDE.
+    private static final String COMPILED_MAP_PATH = "maps/map.umap";
+    private static final String TMX_MAP_PATH = "maps/map.tmx";
+
+    // Time spent loading each frame, leaving enough of a 60 frames per second frame to draw the screen.
+    private static final int ASSET_BUDGET_MILLIS = 12;
+    private static final long MAP_BUDGET_NANOS = 12_000_000L;
+
+    // Share of the progress bar taken up by loading assets, with the rest taken up by building the map.
+    private static final float ASSET_SHARE = 0.7f;
+
+    // Size of the progress bar relative to the screen width, and its height in pixels.
+    private static final float BAR_WIDTH = 0.5f;
+    private static final float BAR_HEIGHT = 24.0f;
+    private static final float BAR_BORDER = 3.0f;
+
+    private final AssetManager assetManager;
+    private final GameScreen gameScreen;
+    private final FrameProfiler profiler;
+    private final Runnable onFinished;
+    private final ShapeRenderer shapeRenderer;
+    private final String mapPath;
+    private GameMapLoader mapLoader;
+    private int screenWidth;
+    private int screenHeight;
+
+    /**
+     * @param assetManager the asset manager which other assets have been queued on
+     * @param gameScreen   the game screen to build the map for
+     * @param profiler     the frame profiler
+     * @param onFinished   called once everything has loaded, to switch to the game screen
+     */
+    public LoadingScreen(AssetManager assetManager, GameScreen gameScreen, FrameProfiler profiler,
+                         Runnable onFinished) {
+        this.assetManager = assetManager;
+        this.gameScreen = gameScreen;
+        this.profiler = profiler;
+        this.onFinished = onFinished;
+        shapeRenderer = new ShapeRenderer();
+
+        // Queue loading of the tiled map.
+        mapPath = Gdx.files.internal(COMPILED_MAP_PATH).exists() ? COMPILED_MAP_PATH : TMX_MAP_PATH;
+        assetManager.load(mapPath, TiledMap.class);
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        screenWidth = width;
+        screenHeight = height;
+        shapeRenderer.getProjectionMatrix().setToOrtho2D(0.0f, 0.0f, width, height);
+        shapeRenderer.updateMatrices();
+    }
+
+    @Override
+    public void render(float deltaTime) {
+        boolean finished = false;
+        if (mapLoader == null) {
+            // Upload any assets which have finished loading, then start building the map once they all have.
+            if (assetManager.update(ASSET_BUDGET_MILLIS)) {
+                mapLoader = gameScreen.createMapLoader(assetManager.get(mapPath, TiledMap.class));
+            }
+        } else if (mapLoader.update(MAP_BUDGET_NANOS)) {
+            gameScreen.setMap(mapLoader);
+            finished = true;
+        }
+        profiler.mark(FramePhase.ASSET_LOADING);
+
+        float progress = assetManager.getProgress() * ASSET_SHARE;
+        if (mapLoader != null) {
+            progress = ASSET_SHARE + mapLoader.getProgress() * (1.0f - ASSET_SHARE);
+        }
+        drawProgressBar(progress);
+        profiler.mark(FramePhase.UI_DRAW);
+
+        // Switch screens after drawing, so that the full progress bar is shown rather than a blank frame.
+        if (finished) {
+            onFinished.run();
+        }
+    }
+
+    /**
+     * Draws a progress bar in the middle of the screen.
+     *
+     * @param progress the progress between 0 and 1
+     */
+    private void drawProgressBar(float progress) {
+        ScreenUtils.clear(0.0f, 0.0f, 0.0f, 1.0f);
+
+        float width = screenWidth * BAR_WIDTH;
+        float x = (screenWidth - width) / 2.0f;
+        float y = (screenHeight - BAR_HEIGHT) / 2.0f;
+
+        shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
+        shapeRenderer.setColor(0.3f, 0.3f, 0.3f, 1.0f);
+        shapeRenderer.rect(x - BAR_BORDER, y - BAR_BORDER, width + 2.0f * BAR_BORDER, BAR_HEIGHT + 2.0f * BAR_BORDER);
+        shapeRenderer.setColor(0.1f, 0.1f, 0.1f, 1.0f);
+        shapeRenderer.rect(x, y, width, BAR_HEIGHT);
+        shapeRenderer.setColor(0.2f, 0.7f, 0.3f, 1.0f);
+        shapeRenderer.rect(x, y, width * Math.min(Math.max(progress, 0.0f), 1.0f), BAR_HEIGHT);
+        shapeRenderer.end();
+    }
+
+    @Override
+    public void dispose() {
+        shapeRenderer.dispose();
+    }
+}
@@ -0,0 +1,142 @@
+package io.github.uoyteamsix;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.InputAdapter;
+import io.github.uoyteamsix.sim.SimulationSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A class which saves and loads the game. The game is autosaved every so often and when it closes, and can also be
+ * saved with F5 and loaded with F9. Only a snapshot of the game state is taken on the render thread, whereas encoding,
+ * compressing and writing the save is done on a background thread, so saving never causes a frame hitch. Saves are
+ * written to a temporary file and then moved over the old save, so a crash whilst saving never loses the previous
+ * save.
+ * <p>
+ * The save is written to {@code unisim.sav} in the working directory, unless a path is given with the
+ * {@code unisim.save} system property.
+ */
+public class SaveManager extends InputAdapter {
+    private static final float AUTOSAVE_INTERVAL = 60.0f;
+
+    private final GameLogic gameLogic;
+    private final Path path;
+    private final ExecutorService writer;
+    private Future<?> pendingWrite;
+    private float autosaveTimer;
+
+    public SaveManager(GameLogic gameLogic) {
+        this.gameLogic = gameLogic;
+        path = Path.of(System.getProperty("unisim.save", "unisim.sav"));
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "unisim-save-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public boolean keyDown(int keyCode) {
+        if (keyCode == Input.Keys.F5) {
+            save();
+            return true;
+        }
+        if (keyCode == Input.Keys.F9) {
+            load();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Autosaves the game if enough time has passed since the last save. Should be called once per frame.
+     *
+     * @param deltaTime the delta time between the last call of update
+     */
+    public void update(float deltaTime) {
+        autosaveTimer += deltaTime;
+        if (autosaveTimer >= AUTOSAVE_INTERVAL) {
+            save();
+        }
+    }
+
+    /**
+     * Takes a snapshot of the game and writes it in the background. If the previous save is still being written, the
+     * save is skipped rather than queueing up writes.
+     */
+    public void save() {
+        if (pendingWrite != null && !pendingWrite.isDone()) {
+            return;
+        }
+        var snapshot = gameLogic.createSnapshot();
+        if (snapshot == null) {
+            return;
+        }
+        autosaveTimer = 0.0f;
+        pendingWrite = writer.submit(() -> write(snapshot));
+    }
+
+    private void write(SimulationSnapshot snapshot) {
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            snapshot.writeTo(path);
+            Gdx.app.log("SaveManager", "Saved " + snapshot.getBuildingCount() + " buildings to " + path);
+        } catch (IOException e) {
+            Gdx.app.error("SaveManager", "Failed to save the game: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the save, if there is one, replacing the current game. Waits for any save which is still being written
+     * first, so the latest save is loaded.
+     */
+    public void load() {
+        waitForPendingWrite();
+        if (gameLogic.getGameMap() == null || !Files.exists(path)) {
+            return;
+        }
+        try {
+            gameLogic.loadSnapshot(SimulationSnapshot.read(path));
+            autosaveTimer = 0.0f;
+        } catch (IOException | IllegalArgumentException e) {
+            Gdx.app.error("SaveManager", "Failed to load the save: " + e.getMessage());
+        }
+    }
+
+    private void waitForPendingWrite() {
+        if (pendingWrite == null) {
+            return;
+        }
+        try {
+            pendingWrite.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Gdx.app.error("SaveManager", "Failed to finish saving: " + e.getCause());
+        }
+    }
+
+    /**
+     * Saves the game one last time, then waits for the save to be written and stops the background thread.
+     */
+    public void dispose() {
+        waitForPendingWrite();
+        save();
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+                Gdx.app.error("SaveManager", "Timed out waiting for the save to be written");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
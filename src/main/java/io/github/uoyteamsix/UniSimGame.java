@@ -1,6 +1,7 @@
 package io.github.uoyteamsix;
 
 import com.badlogic.gdx.Game;
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.assets.loaders.resolvers.InternalFileHandleResolver;
 import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Application;
@@ -9,50 +10,71 @@ import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator;
 import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGeneratorLoader;
 import com.badlogic.gdx.maps.tiled.TiledMap;
 import com.badlogic.gdx.maps.tiled.TmxMapLoader;
+import io.github.uoyteamsix.map.CompiledMapLoader;
 
 /**
  * Class implementing the main game loop by extending from {@link Game}.
  */
 public class UniSimGame extends Game {
+    // Time at which main was entered, used to report how long the game takes to become interactive.
+    private static final long LAUNCH_TIME = System.nanoTime();
+
     // Use LibGDX's AssetManager class which handles asynchronous loading and unloading of assets for us.
     private AssetManager assetManager;
     private CursorManager cursorManager;
+    private LoadingScreen loadingScreen;
     private GameScreen gameScreen;
+    private FrameProfiler profiler;
+    private boolean startupReported;
 
     @Override
     public void create() {
-        // Create the asset manager and register the loader for TTF fonts and tiled maps.
+        // Create the asset manager and register the loader for TTF fonts and tiled maps, both TMX and compiled.
         assetManager = new AssetManager();
         assetManager.setLoader(FreeTypeFontGenerator.class, new FreeTypeFontGeneratorLoader(new InternalFileHandleResolver()));
         assetManager.setLoader(TiledMap.class, new TmxMapLoader(new InternalFileHandleResolver()));
-
-        // Load tiled map.
-        assetManager.load("maps/map.tmx", TiledMap.class);
+        assetManager.setLoader(TiledMap.class, ".umap", new CompiledMapLoader(new InternalFileHandleResolver()));
 
         cursorManager = new CursorManager(assetManager);
 
-        // Create all of our screens.
-        gameScreen = new GameScreen(assetManager, cursorManager);
+        // The profiler is off until toggled in game.
+        profiler = new FrameProfiler();
 
-        // Go straight to the main game screen.
-        setScreen(gameScreen);
+        // Create all of our screens. The loading screen queues the map, and switches to the game screen once everything
+        // has loaded.
+        gameScreen = new GameScreen(assetManager, cursorManager, profiler);
+        loadingScreen = new LoadingScreen(assetManager, gameScreen, profiler, () -> setScreen(gameScreen));
+        setScreen(loadingScreen);
     }
 
     @Override
     public void render() {
-        // Continuously load in assets. Block for a maximum of 17 milliseconds which should maintain roughly 60 frames
-        // per second.
-        if (!assetManager.update(17)) {
-            // Returned false so we are still loading assets.
-            // TODO: Display some kind of loading screen?
-            return;
-        }
+        profiler.beginFrame();
 
         // Create any cursors for pixmaps which have been loaded.
         cursorManager.update();
+        profiler.mark(FramePhase.CURSOR_UPDATE);
 
-        // Otherwise delegate to the current screen via the Game class.
+        // Delegate to the current screen via the Game class. The loading screen loads assets whilst it is shown.
         super.render();
+        profiler.endFrame();
+
+        if (!startupReported && getScreen() == gameScreen) {
+            reportStartup();
+        }
+    }
+
+    /**
+     * Logs how long the game took from launch to its first interactive frame. If the {@code unisim.startupBenchmark}
+     * system property is set, the game then exits, so the startup time can be measured repeatedly.
+     */
+    private void reportStartup() {
+        startupReported = true;
+        long startupMillis = (System.nanoTime() - LAUNCH_TIME) / 1_000_000L;
+        Gdx.app.log("UniSimGame", "First interactive frame after " + startupMillis + " ms");
+        if (Boolean.getBoolean("unisim.startupBenchmark")) {
+            Gdx.app.exit();
+        }
     }
 
     @Override
@@ -60,6 +82,7 @@ public class UniSimGame extends Game {
         super.dispose();
 
         // Dispose is not called automatically for screens, Game.dispose() only calls Screen.hide().
+        loadingScreen.dispose();
         gameScreen.dispose();
         cursorManager.dispose();
         assetManager.dispose();
@@ -1,54 +1,52 @@
 package io.github.uoyteamsix.map;
 
-import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import io.github.uoyteamsix.sim.BuildingType;
 
 /**
- * A class which represents the information about a building.
+ * A class which represents the information about a building, along with the tiles and textures used to render it.
  */
-public class BuildingPrefab {
-    private final String name;
+public class BuildingPrefab extends BuildingType {
     private final TiledMapTileLayer tiledLayer;
-    private int width;
-    private int height;
-    private TextureRegion normalTexture;
-    private TextureRegion transparentTexture;
-    private TextureRegion redTexture;
+    private TextureRegion texture;
 
-    public BuildingPrefab(String name, TiledMapTileLayer tiledLayer) {
-        this.name = name;
+    public BuildingPrefab(int id, String name, TiledMapTileLayer tiledLayer) {
+        this(id, name, tiledLayer, computeWidth(tiledLayer), computeHeight(tiledLayer));
+    }
+
+    /**
+     * Creates a prefab whose footprint has already been computed, e.g. by {@link TmxMapCompiler}.
+     */
+    BuildingPrefab(int id, String name, TiledMapTileLayer tiledLayer, int width, int height) {
+        super(id, name, width, height);
         this.tiledLayer = tiledLayer;
+    }
 
-        // Compute width and height. Assumes building is rectangular.
+    /**
+     * Computes the width of the building in the given layer. Assumes building is rectangular.
+     */
+    private static int computeWidth(TiledMapTileLayer tiledLayer) {
+        int width;
         for (width = 0; width < tiledLayer.getWidth(); width++) {
             if (tiledLayer.getCell(width, 0) == null) {
                 break;
             }
         }
+        return width;
+    }
+
+    /**
+     * Computes the height of the building in the given layer. Assumes building is rectangular.
+     */
+    private static int computeHeight(TiledMapTileLayer tiledLayer) {
+        int height;
         for (height = 0; height < tiledLayer.getHeight(); height++) {
             if (tiledLayer.getCell(0, height) == null) {
                 break;
             }
         }
-    }
-
-    /**
-     * Generate transparent and red textures for this building.
-     *
-     * @param renderer an instance of an OfflineBuildingRenderer
-     */
-    public void generateTextures(OffscreenBuildingRenderer renderer) {
-        normalTexture = renderer.render(this, new Color(1.0f, 1.0f, 1.0f, 1.0f));
-        transparentTexture = renderer.render(this, new Color(1.0f, 1.0f, 1.0f, 0.8f));
-        redTexture = renderer.render(this, new Color(1.0f, 0.1f, 0.1f, 0.8f));
-    }
-
-    /**
-     * @return the name of the building
-     */
-    public String getName() {
-        return name;
+        return height;
     }
 
     /**
@@ -59,37 +57,19 @@ public class BuildingPrefab {
     }
 
     /**
-     * @return the width of the building in tiles
-     */
-    public int getWidth() {
-        return width;
-    }
-
-    /**
-     * @return the height of the building in tiles
-     */
-    public int getHeight() {
-        return height;
-    }
-
-    /**
-     * @return an exact fit rendered texture of this building
+     * @return an exact fit rendered texture of this building, which is a region of the shared prefab atlas
      */
-    public TextureRegion getNormalTexture() {
-        return normalTexture;
+    public TextureRegion getTexture() {
+        return texture;
     }
 
     /**
-     * @return an exact fit rendered texture of this building which is slightly transparent
-     */
-    public TextureRegion getTransparentTexture() {
-        return transparentTexture;
-    }
-
-    /**
-     * @return an exact fit rendered texture of this building which is slightly transparent and with a red tint
+     * Sets the rendered texture of this building.
+     *
+     * @param texture the texture region
+     * @see OffscreenBuildingRenderer#renderAtlas
      */
-    public TextureRegion getRedTexture() {
-        return redTexture;
+    void setTexture(TextureRegion texture) {
+        this.texture = texture;
     }
 }
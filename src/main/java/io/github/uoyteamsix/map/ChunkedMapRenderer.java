@@ -0,0 +1,313 @@
+package io.github.uoyteamsix.map;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.utils.Disposable;
+import io.github.uoyteamsix.sim.Building;
+import io.github.uoyteamsix.sim.MapListener;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A class which renders a game map in chunks. The layers which never change after load are baked into a
+ * {@link SpriteCache} once, so they stay on the GPU and cost a single draw per chunk in view. Only the building layer
+ * is submitted through the batch every frame, using the occupied cells gathered by {@link MapChunks}, which are
+ * gathered again just for the chunks touched when buildings are placed or removed.
+ * <p>
+ * Chunks can be baked a few at a time with {@link #bakeChunks} to spread the work over several frames whilst loading.
+ * The cache holds a limited number of sprites, so on large maps only some of the chunks fit. Chunks which come into
+ * view unbaked are baked before they are drawn, and if they don't fit, the cache is cleared and just the chunks in view
+ * are baked again.
+ * <p>
+ * Cached tiles are not animated, and tile rotation is not supported, as the shipped map uses neither.
+ */
+public class ChunkedMapRenderer implements MapListener, Disposable {
+    // Maximum number of sprites the cache holds, which is enough for a full screen of every layer at any zoom level
+    // other than the furthest out.
+    private static final int MAX_CACHED_SPRITES = 1 << 18;
+
+    private final Batch batch;
+    private final MapChunks chunks;
+    private final TiledMapTileLayer buildingLayer;
+    private final SpriteCache spriteCache;
+
+    // Cache IDs of the static layers drawn below and above the building layer in each chunk, or -1 if empty.
+    private final int[] belowCacheIds;
+    private final int[] aboveCacheIds;
+    private final boolean[] bakedChunks;
+    private final int buildingLayerIndex;
+    private final int cacheCapacity;
+    private int cachedSprites;
+    private boolean hasAboveLayers;
+
+    // Next chunk to bake ahead of time whilst loading, and whether that stopped because the cache filled up.
+    private int nextBakeChunk;
+    private boolean cacheFull;
+
+    // Walks over the chunks in view, created once so that drawing a frame doesn't allocate.
+    private final IntConsumer drawBelowCache;
+    private final IntConsumer drawAboveCache;
+    private final MapChunks.BuildingCellVisitor drawBuildingCell;
+
+    public ChunkedMapRenderer(GameMap map, Batch batch) {
+        this.batch = batch;
+        var tiledMap = map.getTiledMap();
+        buildingLayer = (TiledMapTileLayer) tiledMap.getLayers().get("Buildings");
+        chunks = new MapChunks(tiledMap, buildingLayer);
+
+        // Size the cache to fit a cell in every tile of every static layer, up to the limit. Indices would limit the
+        // cache to 8191 sprites, so don't use them.
+        long maxCells = 0;
+        for (var layer : tiledMap.getLayers()) {
+            if (chunks.isStaticLayer(layer)) {
+                maxCells += (long) buildingLayer.getWidth() * buildingLayer.getHeight();
+            }
+        }
+        cacheCapacity = (int) Math.max(Math.min(maxCells, MAX_CACHED_SPRITES), 1);
+        spriteCache = new SpriteCache(cacheCapacity, false);
+
+        buildingLayerIndex = tiledMap.getLayers().getIndex(buildingLayer);
+        belowCacheIds = new int[chunks.getChunkCount()];
+        aboveCacheIds = new int[chunks.getChunkCount()];
+        bakedChunks = new boolean[chunks.getChunkCount()];
+        Arrays.fill(belowCacheIds, -1);
+        Arrays.fill(aboveCacheIds, -1);
+        drawBelowCache = chunk -> drawCache(belowCacheIds[chunk]);
+        drawAboveCache = chunk -> drawCache(aboveCacheIds[chunk]);
+        drawBuildingCell = this::drawBuildingCell;
+    }
+
+    /**
+     * Bakes the static layers of up to the given number of chunks which haven't been baked yet, stopping early once
+     * the cache is full.
+     *
+     * @param maxChunks the maximum number of chunks to bake
+     * @return true if every chunk which fits in the cache has now been baked, false otherwise
+     */
+    public boolean bakeChunks(int maxChunks) {
+        for (int i = 0; i < maxChunks && !isBaked(); i++) {
+            int chunk = nextBakeChunk;
+            if (!bakedChunks[chunk]) {
+                if (!fitsInCache(chunk)) {
+                    cacheFull = true;
+                    break;
+                }
+                bakeChunk(chunk);
+            }
+            nextBakeChunk++;
+        }
+        return isBaked();
+    }
+
+    /**
+     * @return true if every chunk which fits in the cache has been baked, false otherwise
+     */
+    public boolean isBaked() {
+        return cacheFull || nextBakeChunk == chunks.getChunkCount();
+    }
+
+    /**
+     * @return the fraction of chunks which have been baked ahead of time, between 0 and 1
+     */
+    public float getBakeProgress() {
+        return isBaked() ? 1.0f : (float) nextBakeChunk / chunks.getChunkCount();
+    }
+
+    /**
+     * Bakes any chunks in view which haven't been baked yet. If they don't all fit, the cache is cleared first so
+     * that only the chunks in view are kept.
+     */
+    private void bakeVisibleChunks() {
+        int neededSprites = 0;
+        for (int chunkY = chunks.getVisibleStartY(); chunkY < chunks.getVisibleEndY(); chunkY++) {
+            for (int chunkX = chunks.getVisibleStartX(); chunkX < chunks.getVisibleEndX(); chunkX++) {
+                int chunk = chunks.getChunkIndex(chunkX, chunkY);
+                if (!bakedChunks[chunk]) {
+                    neededSprites += chunks.getStaticCellCount(chunk);
+                }
+            }
+        }
+        if (neededSprites == 0) {
+            return;
+        }
+        if (cachedSprites + neededSprites > cacheCapacity) {
+            clearCache();
+        }
+
+        // When zoomed far out on a large map, even the chunks in view might not all fit, in which case the ones which
+        // don't fit are left undrawn.
+        for (int chunkY = chunks.getVisibleStartY(); chunkY < chunks.getVisibleEndY(); chunkY++) {
+            for (int chunkX = chunks.getVisibleStartX(); chunkX < chunks.getVisibleEndX(); chunkX++) {
+                int chunk = chunks.getChunkIndex(chunkX, chunkY);
+                if (!bakedChunks[chunk] && fitsInCache(chunk)) {
+                    bakeChunk(chunk);
+                }
+            }
+        }
+    }
+
+    private boolean fitsInCache(int chunk) {
+        return cachedSprites + chunks.getStaticCellCount(chunk) <= cacheCapacity;
+    }
+
+    private void bakeChunk(int chunk) {
+        int layerCount = chunks.getTiledMap().getLayers().getCount();
+        belowCacheIds[chunk] = bakeChunk(chunk, 0, buildingLayerIndex);
+        aboveCacheIds[chunk] = bakeChunk(chunk, buildingLayerIndex + 1, layerCount);
+        hasAboveLayers |= aboveCacheIds[chunk] >= 0;
+        bakedChunks[chunk] = true;
+        cachedSprites += chunks.getStaticCellCount(chunk);
+    }
+
+    /**
+     * Removes every chunk from the cache.
+     */
+    private void clearCache() {
+        spriteCache.clear();
+        Arrays.fill(belowCacheIds, -1);
+        Arrays.fill(aboveCacheIds, -1);
+        Arrays.fill(bakedChunks, false);
+        cachedSprites = 0;
+        hasAboveLayers = false;
+    }
+
+    /**
+     * Bakes the static layers in the given range of a chunk into a new cache.
+     *
+     * @return the cache ID, or -1 if the layers have no cells in the chunk
+     */
+    private int bakeChunk(int chunk, int startLayer, int endLayer) {
+        var layers = chunks.getTiledMap().getLayers();
+        boolean empty = true;
+        for (int i = startLayer; i < endLayer && empty; i++) {
+            empty = !chunks.isStaticLayer(layers.get(i));
+        }
+        if (empty || chunks.getStaticCellCount(chunk) == 0) {
+            return -1;
+        }
+
+        int cellCount = 0;
+        spriteCache.beginCache();
+        for (int i = startLayer; i < endLayer; i++) {
+            if (!chunks.isStaticLayer(layers.get(i))) {
+                continue;
+            }
+            var layer = (TiledMapTileLayer) layers.get(i);
+            float color = Color.toFloatBits(1.0f, 1.0f, 1.0f, layer.getOpacity());
+            for (int y = chunks.getChunkStartY(chunk); y < chunks.getChunkEndY(chunk); y++) {
+                for (int x = chunks.getChunkStartX(chunk); x < chunks.getChunkEndX(chunk); x++) {
+                    var cell = layer.getCell(x, y);
+                    if (cell == null || cell.getTile() == null) {
+                        continue;
+                    }
+                    var region = cell.getTile().getTextureRegion();
+                    float u = cell.getFlipHorizontally() ? region.getU2() : region.getU();
+                    float u2 = cell.getFlipHorizontally() ? region.getU() : region.getU2();
+                    float v = cell.getFlipVertically() ? region.getV() : region.getV2();
+                    float v2 = cell.getFlipVertically() ? region.getV2() : region.getV();
+                    spriteCache.add(region.getTexture(), x * layer.getTileWidth() + cell.getTile().getOffsetX(),
+                            y * layer.getTileHeight() + cell.getTile().getOffsetY(), region.getRegionWidth(),
+                            region.getRegionHeight(), u, v, u2, v2, color);
+                    cellCount++;
+                }
+            }
+        }
+        int cacheId = spriteCache.endCache();
+        return cellCount > 0 ? cacheId : -1;
+    }
+
+    /**
+     * Sets the camera to render the map with. Also sets the batch's projection so that it can be used to draw over the
+     * map in world coordinates.
+     *
+     * @param camera the camera
+     */
+    public void setView(OrthographicCamera camera) {
+        spriteCache.setProjectionMatrix(camera.combined);
+        batch.setProjectionMatrix(camera.combined);
+
+        float width = camera.viewportWidth * camera.zoom;
+        float height = camera.viewportHeight * camera.zoom;
+        chunks.setView(camera.position.x - width / 2.0f, camera.position.y - height / 2.0f, width, height);
+    }
+
+    /**
+     * Renders the chunks in view.
+     */
+    public void render() {
+        bakeVisibleChunks();
+        renderCaches(drawBelowCache);
+        renderBuildings();
+        if (hasAboveLayers) {
+            renderCaches(drawAboveCache);
+        }
+    }
+
+    private void renderCaches(IntConsumer drawCache) {
+        // Unlike the batch, the cache doesn't enable blending itself, and tree tiles are partly transparent.
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        spriteCache.begin();
+        chunks.forEachVisibleChunk(drawCache);
+        spriteCache.end();
+        Gdx.gl.glDisable(GL20.GL_BLEND);
+    }
+
+    private void drawCache(int cacheId) {
+        if (cacheId >= 0) {
+            spriteCache.draw(cacheId);
+        }
+    }
+
+    private void renderBuildings() {
+        if (!buildingLayer.isVisible()) {
+            return;
+        }
+        batch.begin();
+        batch.setColor(1.0f, 1.0f, 1.0f, buildingLayer.getOpacity());
+        chunks.forEachVisibleBuildingCell(drawBuildingCell);
+        batch.setColor(Color.WHITE);
+        batch.end();
+    }
+
+    private void drawBuildingCell(int x, int y, TiledMapTileLayer.Cell cell) {
+        var region = cell.getTile().getTextureRegion();
+        float u = cell.getFlipHorizontally() ? region.getU2() : region.getU();
+        float u2 = cell.getFlipHorizontally() ? region.getU() : region.getU2();
+        float v = cell.getFlipVertically() ? region.getV() : region.getV2();
+        float v2 = cell.getFlipVertically() ? region.getV2() : region.getV();
+        batch.draw(region.getTexture(), x * buildingLayer.getTileWidth() + cell.getTile().getOffsetX(),
+                y * buildingLayer.getTileHeight() + cell.getTile().getOffsetY(), region.getRegionWidth(),
+                region.getRegionHeight(), u, v, u2, v2);
+    }
+
+    @Override
+    public void onBuildingPlaced(Building building) {
+        chunks.invalidate(building.getX(), building.getY(), building.getType().getWidth(),
+                building.getType().getHeight());
+    }
+
+    @Override
+    public void onBuildingRemoved(Building building) {
+        chunks.invalidate(building.getX(), building.getY(), building.getType().getWidth(),
+                building.getType().getHeight());
+    }
+
+    /**
+     * @return the chunk layout of the map
+     */
+    public MapChunks getChunks() {
+        return chunks;
+    }
+
+    @Override
+    public void dispose() {
+        spriteCache.dispose();
+    }
+}
@@ -0,0 +1,225 @@
+package io.github.uoyteamsix.map;
+
+import com.badlogic.gdx.Files;
+import com.badlogic.gdx.assets.AssetDescriptor;
+import com.badlogic.gdx.assets.AssetLoaderParameters;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.AsynchronousAssetLoader;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.assets.loaders.TextureLoader;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.maps.ImageResolver;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTileSet;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An asset loader for maps compiled by {@link TmxMapCompiler}. The tiles are memory-mapped where possible and held by
+ * a {@link TileChunkStore}, which only decodes the chunks in use, so the time and memory needed to load a map don't
+ * grow with its size. Like {@link com.badlogic.gdx.maps.tiled.TmxMapLoader}, the tileset images are loaded as
+ * dependencies and the map is built on the asset manager's worker thread.
+ */
+public class CompiledMapLoader extends AsynchronousAssetLoader<TiledMap, CompiledMapLoader.Parameters> {
+    private ByteBuffer metadata;
+    private CompiledTiledMap map;
+
+    public static class Parameters extends AssetLoaderParameters<TiledMap> {
+        public Texture.TextureFilter textureMinFilter = Texture.TextureFilter.Nearest;
+        public Texture.TextureFilter textureMagFilter = Texture.TextureFilter.Nearest;
+
+        /**
+         * The amount of memory which decoded tile chunks may use, in bytes.
+         */
+        public long tileMemoryBudget = TileChunkStore.DEFAULT_MEMORY_BUDGET;
+    }
+
+    public CompiledMapLoader(FileHandleResolver resolver) {
+        super(resolver);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Array<AssetDescriptor> getDependencies(String fileName, FileHandle file, Parameters parameter) {
+        metadata = readMetadata(file);
+
+        var textureParameter = new TextureLoader.TextureParameter();
+        if (parameter != null) {
+            textureParameter.minFilter = parameter.textureMinFilter;
+            textureParameter.magFilter = parameter.textureMagFilter;
+        }
+
+        var dependencies = new Array<AssetDescriptor>();
+        var data = metadata.duplicate();
+        data.position(5 * Integer.BYTES);
+        int tilesetCount = data.getInt();
+        for (int i = 0; i < tilesetCount; i++) {
+            readString(data);
+            var image = resolveImage(file, readString(data));
+            dependencies.add(new AssetDescriptor<>(image, Texture.class, textureParameter));
+            data.position(data.position() + 5 * Integer.BYTES);
+        }
+        return dependencies;
+    }
+
+    @Override
+    public void loadAsync(AssetManager manager, String fileName, FileHandle file, Parameters parameter) {
+        long memoryBudget = parameter != null ? parameter.tileMemoryBudget : TileChunkStore.DEFAULT_MEMORY_BUDGET;
+        map = read(metadata, file, new ImageResolver.AssetManagerImageResolver(manager), memoryBudget);
+        metadata = null;
+    }
+
+    @Override
+    public TiledMap loadSync(AssetManager manager, String fileName, FileHandle file, Parameters parameter) {
+        var result = map;
+        map = null;
+        return result;
+    }
+
+    /**
+     * Loads a compiled map outside of an asset manager.
+     *
+     * @param file          the compiled map file
+     * @param imageResolver resolves tileset image paths, relative to the working directory, to textures
+     * @return a {@link CompiledTiledMap}
+     */
+    public static CompiledTiledMap load(FileHandle file, ImageResolver imageResolver) {
+        return read(readMetadata(file), file, imageResolver, TileChunkStore.DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * Checks the magic number and version, and reads the metadata which comes before the tiles.
+     *
+     * @return the metadata, positioned at the start
+     */
+    private static ByteBuffer readMetadata(FileHandle file) {
+        try (var in = new DataInputStream(new BufferedInputStream(file.read()))) {
+            if (in.readInt() != TmxMapCompiler.MAGIC) {
+                throw new GdxRuntimeException("Not a compiled UniSim map: " + file);
+            }
+            int version = in.readByte();
+            if (version != TmxMapCompiler.VERSION) {
+                throw new GdxRuntimeException("Unsupported compiled map version " + version + ": " + file);
+            }
+            var bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return ByteBuffer.wrap(bytes).order(ByteOrder.BIG_ENDIAN);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Couldn't read compiled map " + file, e);
+        }
+    }
+
+    /**
+     * Opens the tiles of a compiled map. Files on disk are memory-mapped, whereas files which only exist on the
+     * classpath, e.g. inside a jar, can't be mapped so are read into memory instead.
+     */
+    private static TileChunkStore openTiles(FileHandle file, int offset, int width, int height, int layerCount,
+                                            long memoryBudget) {
+        if (file.type() != Files.FileType.Classpath && file.file().exists()) {
+            try {
+                return TileChunkStore.open(file.file().toPath(), offset, width, height, layerCount, memoryBudget);
+            } catch (IOException e) {
+                throw new GdxRuntimeException("Couldn't map compiled map " + file, e);
+            }
+        }
+        var data = ByteBuffer.wrap(file.readBytes());
+        data.position(offset);
+        return TileChunkStore.wrap(data, width, height, layerCount, memoryBudget);
+    }
+
+    private static CompiledTiledMap read(ByteBuffer metadata, FileHandle file, ImageResolver imageResolver,
+                                         long memoryBudget) {
+        var data = metadata.duplicate();
+        int width = data.getInt();
+        int height = data.getInt();
+        int tileWidth = data.getInt();
+        int tileHeight = data.getInt();
+        int chunkSize = data.getInt();
+        if (chunkSize != TileChunkStore.CHUNK_SIZE) {
+            throw new GdxRuntimeException("Unsupported chunk size " + chunkSize + ": " + file);
+        }
+
+        var cells = new CompiledTileCells(data.getInt());
+        var tilesets = cells.getTilesets();
+        for (int i = 0; i < tilesets.length; i++) {
+            var tileset = new TiledMapTileSet();
+            tileset.setName(readString(data));
+            var image = imageResolver.getImage(resolveImage(file, readString(data)).path());
+            int firstId = data.getInt();
+            tileset.getProperties().put("firstgid", firstId);
+            cells.addTileset(i, tileset, image, firstId, data.getInt(), data.getInt(), data.getInt(), data.getInt());
+        }
+
+        int layerCount = data.getInt();
+        var layerNames = new String[layerCount];
+        var layerVisibilities = new boolean[layerCount];
+        var layerOpacities = new float[layerCount];
+        for (int i = 0; i < layerCount; i++) {
+            layerNames[i] = readString(data);
+            layerVisibilities[i] = data.get() != 0;
+            layerOpacities[i] = data.getFloat();
+        }
+
+        var usableTiles = new byte[(width * height + 7) / 8];
+        data.get(usableTiles);
+
+        int prefabCount = data.getInt();
+        var prefabNames = new String[prefabCount];
+        var prefabLayerIndices = new int[prefabCount];
+        var prefabWidths = new int[prefabCount];
+        var prefabHeights = new int[prefabCount];
+        for (int i = 0; i < prefabCount; i++) {
+            prefabNames[i] = readString(data);
+            prefabLayerIndices[i] = data.getInt();
+            prefabWidths[i] = data.getInt();
+            prefabHeights[i] = data.getInt();
+        }
+
+        // The tiles start straight after the magic number, version, metadata length and metadata.
+        int offset = Integer.BYTES + 1 + Integer.BYTES + metadata.capacity();
+        var store = openTiles(file, offset, width, height, layerCount, memoryBudget);
+
+        var map = new CompiledTiledMap(store, usableTiles, prefabNames, prefabLayerIndices, prefabWidths,
+                prefabHeights);
+        for (var tileset : tilesets) {
+            map.getTileSets().addTileSet(tileset);
+        }
+        for (int i = 0; i < layerCount; i++) {
+            var layer = new PagedTileLayer(store, i, cells, tileWidth, tileHeight);
+            layer.setName(layerNames[i]);
+            layer.setVisible(layerVisibilities[i]);
+            layer.setOpacity(layerOpacities[i]);
+            map.getLayers().add(layer);
+        }
+        return map;
+    }
+
+    /**
+     * Resolves a tileset image path, which is relative to the map file.
+     */
+    private static FileHandle resolveImage(FileHandle mapFile, String path) {
+        var result = mapFile.parent();
+        for (var part : path.split("[/\\\\]")) {
+            if (part.equals("..")) {
+                result = result.parent();
+            } else if (!part.isEmpty() && !part.equals(".")) {
+                result = result.child(part);
+            }
+        }
+        return result;
+    }
+
+    private static String readString(ByteBuffer data) {
+        var bytes = new byte[data.getShort() & 0xFFFF];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,141 @@
+package io.github.uoyteamsix.map;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.TiledMapTileSet;
+import com.badlogic.gdx.maps.tiled.tiles.StaticTiledMapTile;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A class which maps the packed tiles of a compiled map to cells. Tiles are only created for the tile IDs which are
+ * actually used, and each distinct packed tile shares a single cell, as cells are never modified after loading. Cells
+ * can also be mapped back to their packed tile, so that {@link PagedTileLayer} can store cells which are placed on it.
+ */
+class CompiledTileCells {
+    private final TiledMapTileSet[] tilesets;
+    private final TextureRegion[] images;
+    private final int[] firstIds;
+    private final int[] tileWidths;
+    private final int[] tileHeights;
+    private final int[] spacings;
+    private final int[] margins;
+    private final TiledMapTile[] tiles;
+    private final TiledMapTileLayer.Cell[] cells;
+    private final Map<TiledMapTileLayer.Cell, Integer> packedTiles = new IdentityHashMap<>();
+
+    CompiledTileCells(int tilesetCount) {
+        tilesets = new TiledMapTileSet[tilesetCount];
+        images = new TextureRegion[tilesetCount];
+        firstIds = new int[tilesetCount];
+        tileWidths = new int[tilesetCount];
+        tileHeights = new int[tilesetCount];
+        spacings = new int[tilesetCount];
+        margins = new int[tilesetCount];
+        tiles = new TiledMapTile[TmxMapCompiler.TILE_ID_MASK + 1];
+        cells = new TiledMapTileLayer.Cell[1 << 16];
+    }
+
+    void addTileset(int index, TiledMapTileSet tileset, TextureRegion image, int firstId, int tileWidth,
+                    int tileHeight, int spacing, int margin) {
+        tilesets[index] = tileset;
+        images[index] = image;
+        firstIds[index] = firstId;
+        tileWidths[index] = tileWidth;
+        tileHeights[index] = tileHeight;
+        spacings[index] = spacing;
+        margins[index] = margin;
+    }
+
+    TiledMapTileSet[] getTilesets() {
+        return tilesets;
+    }
+
+    /**
+     * Gets the shared cell of a packed tile, creating it on first use.
+     *
+     * @param packedTile the packed tile, which must not be empty
+     * @return the cell
+     */
+    TiledMapTileLayer.Cell getCell(int packedTile) {
+        var cell = cells[packedTile];
+        if (cell == null) {
+            cell = createCell(getTile(packedTile & TmxMapCompiler.TILE_ID_MASK), packedTile);
+            cells[packedTile] = cell;
+            packedTiles.put(cell, packedTile);
+        }
+        return cell;
+    }
+
+    /**
+     * Gets the packed tile of a cell which was created by {@link #getCell(int)}.
+     *
+     * @param cell the cell
+     * @return the packed tile, or -1 if the cell doesn't belong to this map
+     */
+    int getPackedTile(TiledMapTileLayer.Cell cell) {
+        var packedTile = packedTiles.get(cell);
+        return packedTile != null ? packedTile : -1;
+    }
+
+    /**
+     * Creates a cell for a packed tile, with the same rotation and flips as
+     * {@link com.badlogic.gdx.maps.tiled.TmxMapLoader} would give it.
+     */
+    private static TiledMapTileLayer.Cell createCell(TiledMapTile tile, int packedTile) {
+        boolean flipHorizontally = (packedTile & TmxMapCompiler.FLIP_HORIZONTALLY) != 0;
+        boolean flipVertically = (packedTile & TmxMapCompiler.FLIP_VERTICALLY) != 0;
+        boolean flipDiagonally = (packedTile & TmxMapCompiler.FLIP_DIAGONALLY) != 0;
+
+        var cell = new TiledMapTileLayer.Cell();
+        cell.setTile(tile);
+        if (flipDiagonally) {
+            if (flipHorizontally && flipVertically) {
+                cell.setFlipHorizontally(true);
+                cell.setRotation(TiledMapTileLayer.Cell.ROTATE_270);
+            } else if (flipHorizontally) {
+                cell.setRotation(TiledMapTileLayer.Cell.ROTATE_270);
+            } else if (flipVertically) {
+                cell.setRotation(TiledMapTileLayer.Cell.ROTATE_90);
+            } else {
+                cell.setFlipVertically(true);
+                cell.setRotation(TiledMapTileLayer.Cell.ROTATE_270);
+            }
+        } else {
+            cell.setFlipHorizontally(flipHorizontally);
+            cell.setFlipVertically(flipVertically);
+        }
+        return cell;
+    }
+
+    /**
+     * Creates the tiles of each tileset on first use, cutting them out of the tileset images in the same order as
+     * {@link com.badlogic.gdx.maps.tiled.TmxMapLoader}.
+     */
+    private TiledMapTile getTile(int id) {
+        if (tiles[id] != null) {
+            return tiles[id];
+        }
+
+        // Find the tileset with the highest first ID which the tile could belong to. The compiler has already dropped
+        // any IDs which don't belong to a tile.
+        int index = tilesets.length - 1;
+        while (index > 0 && firstIds[index] > id) {
+            index--;
+        }
+        var image = images[index];
+        int columns = TmxMapCompiler.countTiles(image.getRegionWidth(), tileWidths[index], spacings[index],
+                margins[index]);
+        int localId = id - firstIds[index];
+        int x = margins[index] + (localId % columns) * (tileWidths[index] + spacings[index]);
+        int y = margins[index] + (localId / columns) * (tileHeights[index] + spacings[index]);
+
+        var tile = new StaticTiledMapTile(new TextureRegion(image, x, y, tileWidths[index], tileHeights[index]));
+        tile.setId(id);
+        tilesets[index].putTile(id, tile);
+        tiles[id] = tile;
+        return tile;
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.uoyteamsix.map;
+
+import com.badlogic.gdx.maps.tiled.TiledMap;
+
+/**
+ * A tiled map loaded from a map compiled by {@link TmxMapCompiler}, which also carries the usable tiles and prefab
+ * footprints computed at build time, so that {@link GameMap} doesn't need to derive them from the layers. The tiles of
+ * every layer are held by a single {@link TileChunkStore}.
+ */
+public class CompiledTiledMap extends TiledMap {
+    private final TileChunkStore tileStore;
+    private final int width;
+    private final int height;
+    private final byte[] usableTiles;
+    private final String[] prefabNames;
+    private final int[] prefabLayerIndices;
+    private final int[] prefabWidths;
+    private final int[] prefabHeights;
+
+    CompiledTiledMap(TileChunkStore tileStore, byte[] usableTiles, String[] prefabNames, int[] prefabLayerIndices,
+                     int[] prefabWidths, int[] prefabHeights) {
+        this.tileStore = tileStore;
+        width = tileStore.getWidth();
+        height = tileStore.getHeight();
+        this.usableTiles = usableTiles;
+        this.prefabNames = prefabNames;
+        this.prefabLayerIndices = prefabLayerIndices;
+        this.prefabWidths = prefabWidths;
+        this.prefabHeights = prefabHeights;
+    }
+
+    /**
+     * Unpacks the usable tiles bitmap.
+     *
+     * @return a new [width][height] array of which tiles are usable
+     */
+    public boolean[][] getUsableTiles() {
+        var tiles = new boolean[width][height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int index = y * width + x;
+                tiles[x][y] = (usableTiles[index >> 3] & (1 << (index & 7))) != 0;
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * @return the store holding the tiles of every layer
+     */
+    public TileChunkStore getTileStore() {
+        return tileStore;
+    }
+
+    /**
+     * @return the number of prefabs, in the order their layers appear in the map
+     */
+    public int getPrefabCount() {
+        return prefabNames.length;
+    }
+
+    public String getPrefabName(int prefab) {
+        return prefabNames[prefab];
+    }
+
+    public int getPrefabLayerIndex(int prefab) {
+        return prefabLayerIndices[prefab];
+    }
+
+    public int getPrefabWidth(int prefab) {
+        return prefabWidths[prefab];
+    }
+
+    public int getPrefabHeight(int prefab) {
+        return prefabHeights[prefab];
+    }
+}
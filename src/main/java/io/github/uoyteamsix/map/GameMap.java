@@ -2,17 +2,28 @@ package io.github.uoyteamsix.map;
 
 import com.badlogic.gdx.maps.tiled.TiledMap;
 import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.utils.Disposable;
+import io.github.uoyteamsix.CameraController;
+import io.github.uoyteamsix.sim.AnchorIndex;
+import io.github.uoyteamsix.sim.Building;
+import io.github.uoyteamsix.sim.CommandLog;
+import io.github.uoyteamsix.sim.MapListener;
+import io.github.uoyteamsix.sim.PlacementBatch;
+import io.github.uoyteamsix.sim.SimulationMap;
+import io.github.uoyteamsix.sim.SimulationSnapshot;
 
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * A class which represents the playable game map. Holds the underlying tiled map and keeps track
- * of placed buildings.
+ * A class which represents the playable game map. Holds the underlying tiled map and mirrors placed buildings into it,
+ * whilst the placement rules themselves live in a headless {@link SimulationMap}. For compiled maps, the chunks of
+ * tiles around the camera are paged in as the view moves.
  */
-public class GameMap {
+public class GameMap implements Disposable, CameraController.ViewListener, CommandLog.Target {
     private final TiledMap tiledMap;
     private final TiledMapTileLayer buildingLayer;
+    private final TileChunkStore tileStore;
 
     private final int width;
     private final int height;
@@ -21,13 +32,24 @@ public class GameMap {
     private final int tileWidthPx;
     private final int tileHeightPx;
 
-    private final boolean[][] usableTiles;
     private final List<BuildingPrefab> availablePrefabs;
-    private final List<Building> placedBuildings;
+    private final SimulationMap simulationMap;
+    private OffscreenBuildingRenderer prefabRenderer;
 
     public GameMap(TiledMap tiledMap) {
+        this(tiledMap, computeUsableTiles(tiledMap));
+    }
+
+    /**
+     * Creates a map whose usable tiles have already been computed, e.g. a column at a time by {@link GameMapLoader}.
+     *
+     * @param tiledMap    the tiled map
+     * @param usableTiles a [width][height] array of which tiles are usable
+     */
+    GameMap(TiledMap tiledMap, boolean[][] usableTiles) {
         this.tiledMap = tiledMap;
-        buildingLayer = (TiledMapTileLayer) tiledMap.getLayers().get("Buildings");
+        buildingLayer = getBuildingLayer(tiledMap);
+        tileStore = tiledMap instanceof CompiledTiledMap compiledMap ? compiledMap.getTileStore() : null;
 
         width = buildingLayer.getWidth();
         height = buildingLayer.getHeight();
@@ -36,10 +58,76 @@ public class GameMap {
         widthPx = width * tileWidthPx;
         heightPx = height * tileHeightPx;
 
-        // Compute which tiles are allowed to be placed on.
-        usableTiles = new boolean[width][height];
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
+        // Create building types for each prefab layer in the map. Each prefab's ID is its index in the list. Compiled
+        // maps already know the footprint of each prefab.
+        availablePrefabs = new ArrayList<>();
+        if (tiledMap instanceof CompiledTiledMap compiledMap) {
+            for (int i = 0; i < compiledMap.getPrefabCount(); i++) {
+                var prefabLayer = (TiledMapTileLayer) tiledMap.getLayers().get(compiledMap.getPrefabLayerIndex(i));
+                availablePrefabs.add(new BuildingPrefab(i, compiledMap.getPrefabName(i), prefabLayer,
+                        compiledMap.getPrefabWidth(i), compiledMap.getPrefabHeight(i)));
+            }
+        } else {
+            for (var layer : tiledMap.getLayers()) {
+                if (layer.getName().startsWith("Prefab: ")) {
+                    // Extract prefab name, e.g. Accomodation.
+                    var prefabName = layer.getName().substring("Prefab: ".length());
+                    var prefabLayer = (TiledMapTileLayer) layer;
+                    availablePrefabs.add(new BuildingPrefab(availablePrefabs.size(), prefabName, prefabLayer));
+                }
+            }
+        }
+
+        simulationMap = new SimulationMap(usableTiles, availablePrefabs);
+    }
+
+    /**
+     * @param tiledMap the tiled map
+     * @return the layer of the tiled map which placed buildings are drawn into
+     */
+    static TiledMapTileLayer getBuildingLayer(TiledMap tiledMap) {
+        return (TiledMapTileLayer) tiledMap.getLayers().get("Buildings");
+    }
+
+    /**
+     * Computes which tiles are allowed to be placed on, unless the map was compiled with them already computed.
+     *
+     * @param tiledMap the tiled map
+     * @return a [width][height] array of which tiles are usable
+     */
+    static boolean[][] computeUsableTiles(TiledMap tiledMap) {
+        if (tiledMap instanceof CompiledTiledMap compiledMap) {
+            return compiledMap.getUsableTiles();
+        }
+        var layer = getBuildingLayer(tiledMap);
+        return computeUsableTiles(tiledMap, layer.getWidth(), layer.getHeight());
+    }
+
+    /**
+     * Computes which tiles are allowed to be placed on. A tile is usable if it has nothing on it other than terrain.
+     *
+     * @param tiledMap the tiled map
+     * @param width    the width of the map in tiles
+     * @param height   the height of the map in tiles
+     * @return a [width][height] array of which tiles are usable
+     */
+    static boolean[][] computeUsableTiles(TiledMap tiledMap, int width, int height) {
+        var usableTiles = new boolean[width][height];
+        computeUsableTiles(tiledMap, usableTiles, 0, width);
+        return usableTiles;
+    }
+
+    /**
+     * Computes which tiles in a range of columns are allowed to be placed on, so the work can be split up.
+     *
+     * @param tiledMap    the tiled map
+     * @param usableTiles a [width][height] array to fill in
+     * @param startX      the first column to compute
+     * @param endX        the column to stop at, exclusive
+     */
+    static void computeUsableTiles(TiledMap tiledMap, boolean[][] usableTiles, int startX, int endX) {
+        for (int x = startX; x < endX; x++) {
+            for (int y = 0; y < usableTiles[x].length; y++) {
                 usableTiles[x][y] = true;
                 for (var layer : tiledMap.getLayers()) {
                     if (layer.getName().equals("Terrain")) {
@@ -51,96 +139,221 @@ public class GameMap {
                 }
             }
         }
+    }
 
-        // Create building types for each prefab layer in the map.
-        availablePrefabs = new ArrayList<>();
-        for (var layer : tiledMap.getLayers()) {
-            if (layer.getName().startsWith("Prefab: ")) {
-                // Extract prefab name, e.g. Accomodation.
-                var prefabName = layer.getName().substring("Prefab: ".length());
-                availablePrefabs.add(new BuildingPrefab(prefabName, (TiledMapTileLayer) layer));
-            }
-        }
-
-        // Generate textures for each building prefab.
-        var offscreenBuildingRenderer = new OffscreenBuildingRenderer(this);
-        for (var prefab : availablePrefabs) {
-            prefab.generateTextures(offscreenBuildingRenderer);
+    /**
+     * Generates textures for each building prefab, packed into a single atlas. Requires a GL context, so is kept
+     * separate from construction to allow the map to be created headlessly.
+     */
+    public void generatePrefabTextures() {
+        if (prefabRenderer == null) {
+            prefabRenderer = new OffscreenBuildingRenderer(this);
         }
-
-        placedBuildings = new ArrayList<>();
+        prefabRenderer.renderAtlas(availablePrefabs);
     }
 
     /**
      * Checks whether a building prefab can be placed at the given coordinates.
      *
      * @param prefab the building prefab
-     * @param x      the x coordinate in world space
-     * @param y      the y coordinate in world space
+     * @param x      the x coordinate in tiles
+     * @param y      the y coordinate in tiles
      * @return true if the building can be placed, false otherwise
      */
     public boolean canPlaceBuilding(BuildingPrefab prefab, int x, int y) {
+        return simulationMap.canPlaceBuilding(prefab, x, y);
+    }
+
+    /**
+     * Gets the set of all tiles where the given building prefab can currently be placed.
+     *
+     * @param prefab the building prefab
+     * @return an {@link AnchorIndex} which is kept up to date as buildings are placed
+     */
+    public AnchorIndex getValidAnchors(BuildingPrefab prefab) {
+        return simulationMap.getValidAnchors(prefab);
+    }
+
+    /**
+     * Creates an instance of the given building prefab and places it at the given coordinates. Doesn't check for
+     * validity of placement.
+     *
+     * @param prefab the building prefab
+     * @param x      the x coordinate in tiles
+     * @param y      the y coordinate in tiles
+     * @return the placed {@link Building}
+     * @see #canPlaceBuilding
+     */
+    public Building placeBuilding(BuildingPrefab prefab, int x, int y) {
         for (int prefabX = 0; prefabX < prefab.getWidth(); prefabX++) {
             for (int prefabY = 0; prefabY < prefab.getHeight(); prefabY++) {
-                int mapX = x + prefabX;
-                int mapY = y + prefabY;
+                buildingLayer.setCell(x + prefabX, y + prefabY, prefab.getTiledLayer().getCell(prefabX, prefabY));
+            }
+        }
+        return simulationMap.placeBuilding(prefab, x, y);
+    }
+
+    @Override
+    public Building placeBuilding(int prefabId, int x, int y) {
+        return placeBuilding(availablePrefabs.get(prefabId), x, y);
+    }
+
+    /**
+     * Validates every slot of a batch against the map, without placing anything, e.g. to preview which slots of a
+     * drag would fail.
+     *
+     * @param batch     the batch, laid out with one of this map's prefabs
+     * @param allowance the most buildings which may be placed
+     * @return the number of accepted slots
+     * @see SimulationMap#validateBatch
+     */
+    public int validateBatch(PlacementBatch batch, int allowance) {
+        return simulationMap.validateBatch(batch, allowance);
+    }
 
-                // Check out of bounds.
-                if (mapX < 0 || mapY < 0 || mapX >= width || mapY >= height) {
-                    return false;
+    /**
+     * Validates a batch and places a building in every accepted slot at once, writing all of their tiles into the
+     * building layer before the simulation map is updated in a single pass. The result of each slot is left in the
+     * batch so failed slots can be reported.
+     *
+     * @param batch     the batch, laid out with one of this map's prefabs
+     * @param allowance the most buildings which may be placed
+     * @return the placed buildings, in slot order
+     */
+    public Building[] placeBatch(PlacementBatch batch, int allowance) {
+        simulationMap.validateBatch(batch, allowance);
+        var prefab = availablePrefabs.get(batch.getType().getId());
+        for (int i = 0; i < batch.getCount(); i++) {
+            if (batch.getResult(i) != PlacementBatch.SlotResult.ACCEPTED) {
+                continue;
+            }
+            for (int prefabX = 0; prefabX < prefab.getWidth(); prefabX++) {
+                for (int prefabY = 0; prefabY < prefab.getHeight(); prefabY++) {
+                    buildingLayer.setCell(batch.getX(i) + prefabX, batch.getY(i) + prefabY,
+                            prefab.getTiledLayer().getCell(prefabX, prefabY));
                 }
+            }
+        }
+        return simulationMap.placeBatch(batch);
+    }
 
-                // Check if on top of a disallowed tile.
-                if (!usableTiles[mapX][mapY]) {
-                    return false;
+    /**
+     * Places every building saved in a snapshot at once, e.g. when loading a save. Doesn't check for validity of
+     * placement.
+     *
+     * @param snapshot a snapshot which is compatible with this map
+     * @see SimulationSnapshot#checkCompatible
+     */
+    public void placeBuildings(SimulationSnapshot snapshot) {
+        for (int i = 0; i < snapshot.getBuildingCount(); i++) {
+            var prefab = availablePrefabs.get(snapshot.getBuildingTypeId(i));
+            int x = snapshot.getBuildingX(i);
+            int y = snapshot.getBuildingY(i);
+            for (int prefabX = 0; prefabX < prefab.getWidth(); prefabX++) {
+                for (int prefabY = 0; prefabY < prefab.getHeight(); prefabY++) {
+                    buildingLayer.setCell(x + prefabX, y + prefabY, prefab.getTiledLayer().getCell(prefabX, prefabY));
                 }
             }
         }
-        return true;
+        snapshot.placeBuildings(simulationMap);
     }
 
     /**
-     * Creates an instance of the given building prefab and places it at the given coordinates. Doesn't check for
-     * validity of placement.
+     * Removes every placed building from the map at once, clearing their tiles from the building layer.
+     */
+    public void removeAllBuildings() {
+        for (var building : simulationMap.getPlacedBuildings()) {
+            var type = building.getType();
+            for (int prefabX = 0; prefabX < type.getWidth(); prefabX++) {
+                for (int prefabY = 0; prefabY < type.getHeight(); prefabY++) {
+                    buildingLayer.setCell(building.getX() + prefabX, building.getY() + prefabY, null);
+                }
+            }
+        }
+        simulationMap.removeAllBuildings();
+    }
+
+    /**
+     * Removes a previously placed building from the map, clearing its tiles from the building layer.
      *
-     * @param prefab the building prefab
-     * @param x      the x coordinate in world space
-     * @param y      the y coordinate in world space
-     * @see #canPlaceBuilding
+     * @param building the building to remove
+     * @return true if the building was on the map and has been removed, false otherwise
      */
-    public void placeBuilding(BuildingPrefab prefab, int x, int y) {
-        for (int prefabX = 0; prefabX < prefab.getWidth(); prefabX++) {
-            for (int prefabY = 0; prefabY < prefab.getHeight(); prefabY++) {
-                int mapX = x + prefabX;
-                int mapY = y + prefabY;
-                buildingLayer.setCell(mapX, mapY, prefab.getTiledLayer().getCell(prefabX, prefabY));
-                usableTiles[mapX][mapY] = false;
+    @Override
+    public boolean removeBuilding(Building building) {
+        if (!simulationMap.isPlaced(building)) {
+            return false;
+        }
+
+        // Clear the tiles before removing the building from the simulation map, so listeners see the updated layer.
+        var type = building.getType();
+        for (int prefabX = 0; prefabX < type.getWidth(); prefabX++) {
+            for (int prefabY = 0; prefabY < type.getHeight(); prefabY++) {
+                buildingLayer.setCell(building.getX() + prefabX, building.getY() + prefabY, null);
             }
         }
-        placedBuildings.add(new Building(prefab, x, y));
+        return simulationMap.removeBuilding(building);
     }
 
     /**
-     * Counts the number of existing buildings of the given prefab.
+     * Gets the number of existing buildings of the given prefab. Runs in constant time.
      *
      * @param prefab the building prefab
      * @return the building count
      */
     public int getBuildingCount(BuildingPrefab prefab) {
-        int count = 0;
-        for (var building : placedBuildings) {
-            if (building.getPrefab() == prefab) {
-                count++;
-            }
-        }
-        return count;
+        return simulationMap.getBuildingCount(prefab);
+    }
+
+    /**
+     * Gets the number of existing buildings of the prefab with the given ID. Runs in constant time.
+     *
+     * @param prefabId the prefab ID
+     * @return the building count
+     */
+    public int getBuildingCount(int prefabId) {
+        return simulationMap.getBuildingCount(prefabId);
     }
 
     /**
      * @return the total building count of all prefabs
      */
     public int getTotalBuildingCount() {
-        return placedBuildings.size();
+        return simulationMap.getTotalBuildingCount();
+    }
+
+    @Override
+    public void onViewChanged(float x, float y, float width, float height) {
+        if (tileStore != null) {
+            tileStore.retain((int) Math.floor(x / tileWidthPx), (int) Math.floor(y / tileHeightPx),
+                    (int) Math.ceil((x + width) / tileWidthPx), (int) Math.ceil((y + height) / tileHeightPx));
+        }
+    }
+
+    /**
+     * Adds a listener to notify when buildings are placed or removed, after the building layer has been updated, e.g.
+     * so a renderer can update its caches.
+     *
+     * @param listener the listener
+     */
+    public void addListener(MapListener listener) {
+        simulationMap.addListener(listener);
+    }
+
+    /**
+     * Removes a previously added listener.
+     *
+     * @param listener the listener
+     */
+    public void removeListener(MapListener listener) {
+        simulationMap.removeListener(listener);
+    }
+
+    /**
+     * @return the headless simulation map which holds the placement state
+     */
+    public SimulationMap getSimulationMap() {
+        return simulationMap;
     }
 
     /**
@@ -192,10 +405,28 @@ public class GameMap {
         return tileHeightPx;
     }
 
+    /**
+     * Finds a building prefab given its name.
+     *
+     * @param name the prefab name
+     * @return a {@link BuildingPrefab}, or null if there is no prefab with the given name
+     */
+    public BuildingPrefab findPrefab(String name) {
+        var type = simulationMap.findBuildingType(name);
+        return type != null ? availablePrefabs.get(type.getId()) : null;
+    }
+
     /**
      * @return a list of all available prefabs in this map
      */
     public List<BuildingPrefab> getAvailablePrefabs() {
         return availablePrefabs;
     }
+
+    @Override
+    public void dispose() {
+        if (prefabRenderer != null) {
+            prefabRenderer.dispose();
+        }
+    }
 }
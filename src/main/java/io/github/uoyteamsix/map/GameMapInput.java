@@ -1,20 +1,41 @@
 package io.github.uoyteamsix.map;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.InputAdapter;
 import com.badlogic.gdx.math.Vector3;
 import io.github.uoyteamsix.CameraController;
 import io.github.uoyteamsix.GameLogic;
+import io.github.uoyteamsix.sim.PlacementBatch;
 
 /**
- * A class which handles user input events on the game map.
+ * A class which handles user input events on the game map. Clicking places the selected prefab, whereas dragging lays
+ * out a grid of copies of it from where the drag started, which are all placed at once when the button is released.
  */
 public class GameMapInput extends InputAdapter {
+    // How far in tiles a building is allowed to snap from the cursor to the nearest valid spot.
+    private static final int SNAP_DISTANCE = 2;
+
+    // The most buildings a single drag can lay out.
+    private static final int MAX_DRAG_SLOTS = 256;
+
     private final GameMap map;
     private final GameLogic gameLogic;
     private final CameraController cameraController;
+
+    // Reused for every mouse move to avoid allocating.
+    private final Vector3 worldCoordinates = new Vector3();
+
     private int selectedTileX = -1;
     private int selectedTileY = -1;
+    private int placementTileX = -1;
+    private int placementTileY = -1;
+
+    // The grid of slots being dragged out, which is only valid whilst dragging.
+    private final PlacementBatch dragBatch = new PlacementBatch(MAX_DRAG_SLOTS);
+    private boolean dragging;
+    private int dragStartX;
+    private int dragStartY;
 
     public GameMapInput(GameMap map, GameLogic gameLogic, CameraController cameraController) {
         this.map = map;
@@ -24,6 +45,20 @@ public class GameMapInput extends InputAdapter {
 
     @Override
     public boolean keyDown(int keycode) {
+        // Undo with Ctrl+Z, and redo with either Ctrl+Y or Ctrl+Shift+Z.
+        boolean control = Gdx.input.isKeyPressed(Input.Keys.CONTROL_LEFT)
+                || Gdx.input.isKeyPressed(Input.Keys.CONTROL_RIGHT);
+        boolean shift = Gdx.input.isKeyPressed(Input.Keys.SHIFT_LEFT)
+                || Gdx.input.isKeyPressed(Input.Keys.SHIFT_RIGHT);
+        if (control && (keycode == Input.Keys.Y || (keycode == Input.Keys.Z && shift))) {
+            gameLogic.redo();
+            return true;
+        }
+        if (control && keycode == Input.Keys.Z) {
+            gameLogic.undo();
+            return true;
+        }
+
         // Allow deselecting the current prefab either by pressing escape, pressing a number out of range, or pressing
         // the same key again.
         if (keycode == Input.Keys.ESCAPE) {
@@ -44,7 +79,12 @@ public class GameMapInput extends InputAdapter {
 
     @Override
     public boolean mouseMoved(int screenX, int screenY) {
-        Vector3 worldCoordinates = cameraController.getCamera().unproject(new Vector3(screenX, screenY, 0));
+        updateSelectedTile(screenX, screenY);
+        return true;
+    }
+
+    private void updateSelectedTile(int screenX, int screenY) {
+        cameraController.unproject(screenX, screenY, worldCoordinates);
         selectedTileX = (int) (worldCoordinates.x / map.getTileWidthPx());
         selectedTileY = (int) (worldCoordinates.y / map.getTileHeightPx());
 
@@ -55,25 +95,98 @@ public class GameMapInput extends InputAdapter {
         if (selectedTileY < 0 || selectedTileY >= map.getHeight()) {
             selectedTileY = -1;
         }
-        return true;
     }
 
     @Override
     public boolean touchDown(int screenX, int screenY, int pointer, int button) {
         var prefab = gameLogic.getSelectedPrefab();
         if (button == Input.Buttons.LEFT && selectedTileX >= 0 && selectedTileY >= 0 && prefab != null) {
-            int placementX = getPlacementTileX();
-            int placementY = getPlacementTileY();
-            if (gameLogic.canPlaceBuilding() && map.canPlaceBuilding(prefab, placementX, placementY)) {
-                map.placeBuilding(prefab, placementX, placementY);
+            // Start a drag from where the prefab would be placed. Nothing is placed until the button is released.
+            dragStartX = getPlacementTileX();
+            dragStartY = getPlacementTileY();
+            dragBatch.layOut(prefab, dragStartX, dragStartY, dragStartX, dragStartY);
+            dragging = true;
+        }
+        return true;
+    }
 
-                // Deselect prefab after successfully placing a building.
-                gameLogic.setSelectedPrefabIndex(-1);
-            }
+    @Override
+    public boolean touchDragged(int screenX, int screenY, int pointer) {
+        if (!dragging) {
+            return false;
+        }
+        var prefab = gameLogic.getSelectedPrefab();
+        if (prefab != dragBatch.getType()) {
+            // The prefab was changed or deselected part way through the drag.
+            dragging = false;
+            return true;
+        }
+        updateSelectedTile(screenX, screenY);
+        if (selectedTileX >= 0 && selectedTileY >= 0) {
+            // Lay out towards where the prefab would be centred on the cursor, without snapping.
+            dragBatch.layOut(prefab, dragStartX, dragStartY, selectedTileX - prefab.getWidth() / 2,
+                    selectedTileY - prefab.getHeight() / 2);
         }
         return true;
     }
 
+    @Override
+    public boolean touchUp(int screenX, int screenY, int pointer, int button) {
+        if (button != Input.Buttons.LEFT || !dragging) {
+            return false;
+        }
+        dragging = false;
+        var prefab = gameLogic.getSelectedPrefab();
+        if (prefab != dragBatch.getType()) {
+            return true;
+        }
+
+        int placed;
+        if (dragBatch.getCount() == 1) {
+            placed = gameLogic.placeBuilding(prefab, dragStartX, dragStartY) ? 1 : 0;
+        } else {
+            placed = gameLogic.placeBatch(dragBatch);
+            reportFailedSlots();
+        }
+        if (placed > 0) {
+            // Deselect prefab after successfully placing a building.
+            gameLogic.setSelectedPrefabIndex(-1);
+        }
+        return true;
+    }
+
+    /**
+     * Logs which slots of the last placed batch couldn't be placed, and why.
+     */
+    private void reportFailedSlots() {
+        var failed = new StringBuilder();
+        for (int i = 0; i < dragBatch.getCount(); i++) {
+            var result = dragBatch.getResult(i);
+            if (result != PlacementBatch.SlotResult.ACCEPTED) {
+                failed.append(" (").append(dragBatch.getX(i)).append(", ").append(dragBatch.getY(i)).append(") ")
+                        .append(result == PlacementBatch.SlotResult.BLOCKED ? "blocked" : "over allowance");
+            }
+        }
+        if (!failed.isEmpty()) {
+            Gdx.app.log("GameMapInput", "Placed " + dragBatch.getAcceptedCount() + " of " + dragBatch.getCount()
+                    + " buildings, failed slots:" + failed);
+        }
+    }
+
+    /**
+     * @return true if a grid of buildings is currently being dragged out
+     */
+    public boolean isDragging() {
+        return dragging && dragBatch.getType() == gameLogic.getSelectedPrefab();
+    }
+
+    /**
+     * @return the grid of slots currently being dragged out, which is only valid whilst {@link #isDragging()}
+     */
+    public PlacementBatch getDragBatch() {
+        return dragBatch;
+    }
+
     /**
      * @return the x coordinate of the currently hovered tile
      */
@@ -89,24 +202,47 @@ public class GameMapInput extends InputAdapter {
     }
 
     /**
-     * @return the x coordinate of the centre of the currently selected prefab in world space
+     * Works out where the currently selected prefab would be placed. The prefab is centred on the hovered tile, and if
+     * that isn't a valid spot it snaps to the nearest valid spot within {@link #SNAP_DISTANCE} tiles.
      */
-    public int getPlacementTileX() {
+    private void updatePlacementTile() {
         var prefab = gameLogic.getSelectedPrefab();
         if (prefab == null) {
-            return selectedTileX;
+            placementTileX = selectedTileX;
+            placementTileY = selectedTileY;
+            return;
+        }
+
+        placementTileX = selectedTileX - prefab.getWidth() / 2;
+        placementTileY = selectedTileY - prefab.getHeight() / 2;
+        if (selectedTileX < 0 || selectedTileY < 0) {
+            return;
+        }
+
+        var validAnchors = map.getValidAnchors(prefab);
+        if (validAnchors.isValid(placementTileX, placementTileY)) {
+            return;
+        }
+        int nearest = validAnchors.findNearest(placementTileX, placementTileY, SNAP_DISTANCE);
+        if (nearest >= 0) {
+            placementTileX = nearest % map.getWidth();
+            placementTileY = nearest / map.getWidth();
         }
-        return selectedTileX - prefab.getWidth() / 2;
     }
 
     /**
-     * @return the y coordinate of the centre of the currently selected prefab in world space
+     * @return the x coordinate of the bottom left tile of the currently selected prefab's placement
+     */
+    public int getPlacementTileX() {
+        updatePlacementTile();
+        return placementTileX;
+    }
+
+    /**
+     * @return the y coordinate of the bottom left tile of the currently selected prefab's placement
      */
     public int getPlacementTileY() {
-        var prefab = gameLogic.getSelectedPrefab();
-        if (prefab == null) {
-            return selectedTileY;
-        }
-        return selectedTileY - prefab.getHeight() / 2;
+        updatePlacementTile();
+        return placementTileY;
     }
 }
@@ -0,0 +1,139 @@
+package io.github.uoyteamsix.map;
+
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+
+/**
+ * A class which builds a {@link GameMap} and its {@link ChunkedMapRenderer} from a loaded tiled map in small steps, so
+ * that the work can be spread over several frames whilst a loading screen is shown instead of stalling a single frame.
+ * Must be used on the render thread, as generating the prefab textures and baking the chunks need the GL context.
+ */
+public class GameMapLoader {
+    // Amount of work done by a single step of the stages which are split up.
+    private static final int USABLE_TILE_COLUMNS_PER_STEP = 8;
+    private static final int CHUNKS_PER_STEP = 4;
+
+    private enum Stage {
+        USABLE_TILES,
+        PREFABS,
+        PREFAB_TEXTURES,
+        RENDERER,
+        BAKE_CHUNKS,
+        DONE,
+    }
+
+    private final TiledMap tiledMap;
+    private final Batch batch;
+    private final boolean[][] usableTiles;
+    private Stage stage;
+    private int nextColumn;
+    private GameMap map;
+    private ChunkedMapRenderer renderer;
+
+    public GameMapLoader(TiledMap tiledMap, Batch batch) {
+        this.tiledMap = tiledMap;
+        this.batch = batch;
+
+        // Compiled maps come with their usable tiles already computed.
+        if (tiledMap instanceof CompiledTiledMap compiledMap) {
+            usableTiles = compiledMap.getUsableTiles();
+            stage = Stage.PREFABS;
+        } else {
+            var buildingLayer = GameMap.getBuildingLayer(tiledMap);
+            usableTiles = new boolean[buildingLayer.getWidth()][buildingLayer.getHeight()];
+            stage = Stage.USABLE_TILES;
+        }
+    }
+
+    /**
+     * Runs steps until either the map has been built or the given time budget has been used up. At least one step is
+     * run on each call.
+     *
+     * @param budgetNanos the time budget in nanoseconds
+     * @return true if the map has been built, false otherwise
+     */
+    public boolean update(long budgetNanos) {
+        long startTime = System.nanoTime();
+        while (stage != Stage.DONE) {
+            step();
+            if (System.nanoTime() - startTime >= budgetNanos) {
+                break;
+            }
+        }
+        return isDone();
+    }
+
+    /**
+     * Runs a single step of the current stage.
+     */
+    private void step() {
+        switch (stage) {
+            case USABLE_TILES -> {
+                int endColumn = Math.min(nextColumn + USABLE_TILE_COLUMNS_PER_STEP, usableTiles.length);
+                GameMap.computeUsableTiles(tiledMap, usableTiles, nextColumn, endColumn);
+                nextColumn = endColumn;
+                if (nextColumn == usableTiles.length) {
+                    stage = Stage.PREFABS;
+                }
+            }
+            case PREFABS -> {
+                map = new GameMap(tiledMap, usableTiles);
+                stage = Stage.PREFAB_TEXTURES;
+            }
+            case PREFAB_TEXTURES -> {
+                map.generatePrefabTextures();
+                stage = Stage.RENDERER;
+            }
+            case RENDERER -> {
+                renderer = new ChunkedMapRenderer(map, batch);
+                map.addListener(renderer);
+                stage = Stage.BAKE_CHUNKS;
+            }
+            case BAKE_CHUNKS -> {
+                if (renderer.bakeChunks(CHUNKS_PER_STEP)) {
+                    stage = Stage.DONE;
+                }
+            }
+            case DONE -> {
+            }
+        }
+    }
+
+    /**
+     * Gets a rough estimate of how much of the map has been built. Computing the usable tiles and baking the chunks
+     * take up most of the time, so each counts for just under half.
+     *
+     * @return the progress between 0 and 1
+     */
+    public float getProgress() {
+        return switch (stage) {
+            case USABLE_TILES -> 0.45f * nextColumn / Math.max(usableTiles.length, 1);
+            case PREFABS -> 0.45f;
+            case PREFAB_TEXTURES -> 0.5f;
+            case RENDERER -> 0.55f;
+            case BAKE_CHUNKS -> 0.55f + 0.45f * renderer.getBakeProgress();
+            case DONE -> 1.0f;
+        };
+    }
+
+    /**
+     * @return true if the map has been built, false otherwise
+     */
+    public boolean isDone() {
+        return stage == Stage.DONE;
+    }
+
+    /**
+     * @return the built map, or null if it hasn't been created yet
+     */
+    public GameMap getMap() {
+        return map;
+    }
+
+    /**
+     * @return the built map renderer, or null if it hasn't been created yet
+     */
+    public ChunkedMapRenderer getRenderer() {
+        return renderer;
+    }
+}
@@ -0,0 +1,294 @@
+package io.github.uoyteamsix.map;
+
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A class which splits a map into square chunks of tiles, so that rendering work can be limited to the chunks in view.
+ * Counts the cells of the static layers in each chunk the first time they are needed, so that chunks of a large map
+ * which are never looked at aren't read. Keeps track of the occupied cells of the building layer in each chunk, which
+ * are only gathered again for chunks touched by a change. Doesn't need a GL context, so can be used headlessly.
+ */
+public class MapChunks {
+    public static final int CHUNK_SIZE = 16;
+
+    /**
+     * Receives the cells of the building layer which have a tile.
+     */
+    @FunctionalInterface
+    public interface BuildingCellVisitor {
+        /**
+         * @param x    the x coordinate in tiles
+         * @param y    the y coordinate in tiles
+         * @param cell the cell, which has a tile
+         */
+        void visit(int x, int y, TiledMapTileLayer.Cell cell);
+    }
+
+    private final TiledMap tiledMap;
+    private final TiledMapTileLayer buildingLayer;
+    private final int chunkCountX;
+    private final int chunkCountY;
+    private final int chunkWidthPx;
+    private final int chunkHeightPx;
+
+    // Number of non-empty static cells in each chunk, or -1 if they haven't been counted yet.
+    private final int[] staticCellCounts;
+
+    // Occupied building cells in each chunk as tile indices local to the chunk, and which chunks need them gathering.
+    private final int[][] buildingCells;
+    private final int[] buildingCellCounts;
+    private final boolean[] dirtyChunks;
+
+    // Range of chunks in view, with exclusive ends.
+    private int visibleStartX;
+    private int visibleStartY;
+    private int visibleEndX;
+    private int visibleEndY;
+
+    public MapChunks(TiledMap tiledMap, TiledMapTileLayer buildingLayer) {
+        this.tiledMap = tiledMap;
+        this.buildingLayer = buildingLayer;
+        chunkCountX = (buildingLayer.getWidth() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        chunkCountY = (buildingLayer.getHeight() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        chunkWidthPx = CHUNK_SIZE * buildingLayer.getTileWidth();
+        chunkHeightPx = CHUNK_SIZE * buildingLayer.getTileHeight();
+
+        int chunkCount = chunkCountX * chunkCountY;
+        staticCellCounts = new int[chunkCount];
+        Arrays.fill(staticCellCounts, -1);
+        buildingCells = new int[chunkCount][];
+        buildingCellCounts = new int[chunkCount];
+        dirtyChunks = new boolean[chunkCount];
+        Arrays.fill(dirtyChunks, true);
+        setView(0.0f, 0.0f, buildingLayer.getWidth() * buildingLayer.getTileWidth(),
+                buildingLayer.getHeight() * buildingLayer.getTileHeight());
+    }
+
+    /**
+     * Checks whether the given layer is drawn and never changes after load. Hidden layers, such as the prefab layers,
+     * are not drawn at all.
+     *
+     * @param layer the layer
+     * @return true if the layer is static, false otherwise
+     */
+    public boolean isStaticLayer(MapLayer layer) {
+        return layer != buildingLayer && layer.isVisible() && layer instanceof TiledMapTileLayer;
+    }
+
+    /**
+     * Counts the non-empty cells of a layer within a chunk.
+     */
+    private int countCells(TiledMapTileLayer layer, int chunk) {
+        int count = 0;
+        int endX = getChunkEndX(chunk);
+        int endY = getChunkEndY(chunk);
+        for (int y = getChunkStartY(chunk); y < endY; y++) {
+            for (int x = getChunkStartX(chunk); x < endX; x++) {
+                if (layer.getCell(x, y) != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Updates the range of chunks in view.
+     *
+     * @param x      the left edge of the view in pixels
+     * @param y      the bottom edge of the view in pixels
+     * @param width  the width of the view in pixels
+     * @param height the height of the view in pixels
+     */
+    public void setView(float x, float y, float width, float height) {
+        visibleStartX = Math.max((int) Math.floor(x / chunkWidthPx), 0);
+        visibleStartY = Math.max((int) Math.floor(y / chunkHeightPx), 0);
+        visibleEndX = Math.min((int) Math.ceil((x + width) / chunkWidthPx), chunkCountX);
+        visibleEndY = Math.min((int) Math.ceil((y + height) / chunkHeightPx), chunkCountY);
+    }
+
+    /**
+     * Marks the chunks overlapping the given tile rectangle as changed, so their building cells are gathered again the
+     * next time they are needed.
+     *
+     * @param x      the x coordinate in tiles
+     * @param y      the y coordinate in tiles
+     * @param width  the width in tiles
+     * @param height the height in tiles
+     */
+    public void invalidate(int x, int y, int width, int height) {
+        int startX = Math.max(x / CHUNK_SIZE, 0);
+        int startY = Math.max(y / CHUNK_SIZE, 0);
+        int endX = Math.min((x + width - 1) / CHUNK_SIZE, chunkCountX - 1);
+        int endY = Math.min((y + height - 1) / CHUNK_SIZE, chunkCountY - 1);
+        for (int chunkY = startY; chunkY <= endY; chunkY++) {
+            for (int chunkX = startX; chunkX <= endX; chunkX++) {
+                dirtyChunks[chunkY * chunkCountX + chunkX] = true;
+            }
+        }
+    }
+
+    /**
+     * Gathers the occupied building cells of a chunk if it has changed.
+     */
+    private void gatherBuildingCells(int chunk) {
+        if (!dirtyChunks[chunk]) {
+            return;
+        }
+        int count = countCells(buildingLayer, chunk);
+        if (buildingCells[chunk] == null || buildingCells[chunk].length < count) {
+            buildingCells[chunk] = new int[count];
+        }
+        var cells = buildingCells[chunk];
+        int index = 0;
+        int startX = getChunkStartX(chunk);
+        int startY = getChunkStartY(chunk);
+        int endX = getChunkEndX(chunk);
+        int endY = getChunkEndY(chunk);
+        for (int y = startY; y < endY; y++) {
+            for (int x = startX; x < endX; x++) {
+                if (buildingLayer.getCell(x, y) != null) {
+                    cells[index++] = (y - startY) * CHUNK_SIZE + (x - startX);
+                }
+            }
+        }
+        buildingCellCounts[chunk] = count;
+        dirtyChunks[chunk] = false;
+    }
+
+    /**
+     * Calls the given consumer with the index of each chunk in view, row by row from the bottom left.
+     *
+     * @param consumer the consumer
+     */
+    public void forEachVisibleChunk(IntConsumer consumer) {
+        for (int chunkY = visibleStartY; chunkY < visibleEndY; chunkY++) {
+            for (int chunkX = visibleStartX; chunkX < visibleEndX; chunkX++) {
+                consumer.accept(getChunkIndex(chunkX, chunkY));
+            }
+        }
+    }
+
+    /**
+     * Calls the given visitor with each cell of the building layer in view which has a tile, chunk by chunk in the
+     * order of {@link #forEachVisibleChunk}. Only the occupied cells of each chunk are read.
+     *
+     * @param visitor the visitor
+     */
+    public void forEachVisibleBuildingCell(BuildingCellVisitor visitor) {
+        for (int chunkY = visibleStartY; chunkY < visibleEndY; chunkY++) {
+            for (int chunkX = visibleStartX; chunkX < visibleEndX; chunkX++) {
+                int chunk = getChunkIndex(chunkX, chunkY);
+                gatherBuildingCells(chunk);
+                var cells = buildingCells[chunk];
+                int startX = getChunkStartX(chunk);
+                int startY = getChunkStartY(chunk);
+                for (int i = 0; i < buildingCellCounts[chunk]; i++) {
+                    int x = startX + cells[i] % CHUNK_SIZE;
+                    int y = startY + cells[i] / CHUNK_SIZE;
+                    var cell = buildingLayer.getCell(x, y);
+                    if (cell != null && cell.getTile() != null) {
+                        visitor.visit(x, y, cell);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the occupied building cells of a chunk, as tile indices local to the chunk. Only the first
+     * {@link #getBuildingCellCount} entries are valid.
+     *
+     * @param chunk the chunk index
+     * @return the building cells, which must not be modified
+     */
+    public int[] getBuildingCells(int chunk) {
+        gatherBuildingCells(chunk);
+        return buildingCells[chunk];
+    }
+
+    /**
+     * @param chunk the chunk index
+     * @return the number of occupied building cells in the chunk
+     */
+    public int getBuildingCellCount(int chunk) {
+        gatherBuildingCells(chunk);
+        return buildingCellCounts[chunk];
+    }
+
+    /**
+     * @param chunk the chunk index
+     * @return the number of non-empty static cells in the chunk
+     */
+    public int getStaticCellCount(int chunk) {
+        if (staticCellCounts[chunk] < 0) {
+            int count = 0;
+            for (var layer : tiledMap.getLayers()) {
+                if (isStaticLayer(layer)) {
+                    count += countCells((TiledMapTileLayer) layer, chunk);
+                }
+            }
+            staticCellCounts[chunk] = count;
+        }
+        return staticCellCounts[chunk];
+    }
+
+    public int getChunkIndex(int chunkX, int chunkY) {
+        return chunkY * chunkCountX + chunkX;
+    }
+
+    public int getChunkStartX(int chunk) {
+        return (chunk % chunkCountX) * CHUNK_SIZE;
+    }
+
+    public int getChunkStartY(int chunk) {
+        return (chunk / chunkCountX) * CHUNK_SIZE;
+    }
+
+    public int getChunkEndX(int chunk) {
+        return Math.min(getChunkStartX(chunk) + CHUNK_SIZE, buildingLayer.getWidth());
+    }
+
+    public int getChunkEndY(int chunk) {
+        return Math.min(getChunkStartY(chunk) + CHUNK_SIZE, buildingLayer.getHeight());
+    }
+
+    public int getChunkCount() {
+        return staticCellCounts.length;
+    }
+
+    public int getVisibleStartX() {
+        return visibleStartX;
+    }
+
+    public int getVisibleStartY() {
+        return visibleStartY;
+    }
+
+    public int getVisibleEndX() {
+        return visibleEndX;
+    }
+
+    public int getVisibleEndY() {
+        return visibleEndY;
+    }
+
+    /**
+     * @return the tiled map which has been split into chunks
+     */
+    public TiledMap getTiledMap() {
+        return tiledMap;
+    }
+
+    /**
+     * @return the dynamic building layer
+     */
+    public TiledMapTileLayer getBuildingLayer() {
+        return buildingLayer;
+    }
+}
@@ -1,73 +1,114 @@
 package io.github.uoyteamsix.map;
 
-import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.glutils.FrameBuffer;
-import com.badlogic.gdx.maps.MapRenderer;
 import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ScreenUtils;
+
+import java.util.List;
 
 /**
- * A class which renders each building type to textures. This is used for the transparent green and red building
- * textures when buildings are being placed, as well as for the preview on the building toolbar.
+ * A class which renders every building prefab once into a single packed atlas texture. The textures are used for the
+ * building placement preview and the building toolbar, with any tint applied through the batch colour when drawing, so
+ * all building icons share a single texture bind.
  */
-public class OffscreenBuildingRenderer {
+public class OffscreenBuildingRenderer implements Disposable {
+    // Maximum width of the atlas before prefabs wrap onto a new row, and the gap left between prefabs so that texture
+    // filtering doesn't bleed neighbouring prefabs into each other.
+    private static final int MAX_ATLAS_WIDTH = 2048;
+    private static final int PADDING = 2;
+
     private final GameMap map;
-    private final SpriteBatch spriteBatch;
-    private final MapRenderer mapRenderer;
+    private FrameBuffer atlas;
 
     public OffscreenBuildingRenderer(GameMap map) {
         this.map = map;
-
-        // Create our own sprite batch so we can control the tint colour on it.
-        spriteBatch = new SpriteBatch();
-        mapRenderer = new OrthogonalTiledMapRenderer(map.getTiledMap(), spriteBatch);
     }
 
     /**
-     * Renders the given building to an offscreen texture.
+     * Renders the given prefabs into a new atlas texture and assigns each prefab its region of the atlas. Any
+     * previously rendered atlas is disposed.
      *
-     * @param buildingPrefab the building to render
-     * @param tintColour     a colour to tint the rendering
-     * @return a texture region containing the rendered building
+     * @param prefabs the prefabs to render
      */
-    public TextureRegion render(BuildingPrefab buildingPrefab, Color tintColour) {
-        // Fit the framebuffer perfectly to the building's size.
-        int fboWidth = buildingPrefab.getWidth() * map.getTileWidthPx();
-        int fboHeight = buildingPrefab.getHeight() * map.getTileHeightPx();
-
-        // Create the framebuffer.
-        var fbo = new FrameBuffer(Pixmap.Format.RGBA8888, fboWidth, fboHeight, false);
-        var fboRegion = new TextureRegion(fbo.getColorBufferTexture());
-        fboRegion.flip(false, true);
-
-        // Create a camera centered on the building.
-        var camera = new OrthographicCamera();
-        camera.viewportWidth = fboWidth;
-        camera.viewportHeight = fboHeight;
-        camera.position.set(fboWidth / 2.0f, fboHeight / 2.0f, 0.0f);
-        camera.update();
-        mapRenderer.setView(camera);
-
-        // Set the tint colour and set the render target to the FBO.
-        spriteBatch.setColor(tintColour);
-        fbo.begin();
-
-        // Make sure the layer is visible.
-        boolean layerOriginallyVisible = buildingPrefab.getTiledLayer().isVisible();
-        buildingPrefab.getTiledLayer().setVisible(true);
-
-        // Render the single layer corresponding to the building into the FBO texture.
-        int layerIndex = map.getTiledMap().getLayers().getIndex(buildingPrefab.getTiledLayer());
-        mapRenderer.render(new int[]{layerIndex});
-
-        // Unbind the FBO.
-        fbo.end();
-
-        // Restore layer's original visibility.
-        buildingPrefab.getTiledLayer().setVisible(layerOriginallyVisible);
-        return fboRegion;
+    public void renderAtlas(List<BuildingPrefab> prefabs) {
+        // Work out where each prefab goes by packing them into rows.
+        var offsetsX = new int[prefabs.size()];
+        var offsetsY = new int[prefabs.size()];
+        int atlasWidth = 0;
+        int atlasHeight = 0;
+        int cursorX = PADDING;
+        int cursorY = PADDING;
+        int rowHeight = 0;
+        for (int i = 0; i < prefabs.size(); i++) {
+            int width = prefabs.get(i).getWidth() * map.getTileWidthPx();
+            int height = prefabs.get(i).getHeight() * map.getTileHeightPx();
+            if (cursorX + width + PADDING > MAX_ATLAS_WIDTH && cursorX > PADDING) {
+                cursorX = PADDING;
+                cursorY += rowHeight + PADDING;
+                rowHeight = 0;
+            }
+            offsetsX[i] = cursorX;
+            offsetsY[i] = cursorY;
+            cursorX += width + PADDING;
+            rowHeight = Math.max(rowHeight, height);
+            atlasWidth = Math.max(atlasWidth, cursorX);
+            atlasHeight = Math.max(atlasHeight, cursorY + height + PADDING);
+        }
+
+        if (atlas != null) {
+            atlas.dispose();
+        }
+        atlas = new FrameBuffer(Pixmap.Format.RGBA8888, Math.max(atlasWidth, 1), Math.max(atlasHeight, 1), false);
+
+        // Use a temporary batch and renderer, as they are only needed once.
+        var spriteBatch = new SpriteBatch();
+        var mapRenderer = new OrthogonalTiledMapRenderer(map.getTiledMap(), spriteBatch);
+        var camera = new OrthographicCamera(atlas.getWidth(), atlas.getHeight());
+        var layerIndex = new int[1];
+
+        atlas.begin();
+        ScreenUtils.clear(0.0f, 0.0f, 0.0f, 0.0f);
+        for (int i = 0; i < prefabs.size(); i++) {
+            var prefab = prefabs.get(i);
+
+            // Move the camera so that the prefab, which sits at the origin of its layer, lands on its slot.
+            camera.position.set(atlas.getWidth() / 2.0f - offsetsX[i], atlas.getHeight() / 2.0f - offsetsY[i], 0.0f);
+            camera.update();
+            mapRenderer.setView(camera);
+
+            // Make sure the layer is visible.
+            boolean layerOriginallyVisible = prefab.getTiledLayer().isVisible();
+            prefab.getTiledLayer().setVisible(true);
+
+            // Render the single layer corresponding to the building into the atlas.
+            layerIndex[0] = map.getTiledMap().getLayers().getIndex(prefab.getTiledLayer());
+            mapRenderer.render(layerIndex);
+
+            // Restore layer's original visibility.
+            prefab.getTiledLayer().setVisible(layerOriginallyVisible);
+
+            // Framebuffer textures are upside down, so flip the region.
+            int width = prefab.getWidth() * map.getTileWidthPx();
+            int height = prefab.getHeight() * map.getTileHeightPx();
+            var region = new TextureRegion(atlas.getColorBufferTexture(), offsetsX[i], offsetsY[i], width, height);
+            region.flip(false, true);
+            prefab.setTexture(region);
+        }
+        atlas.end();
+
+        spriteBatch.dispose();
+    }
+
+    @Override
+    public void dispose() {
+        if (atlas != null) {
+            atlas.dispose();
+            atlas = null;
+        }
     }
 }
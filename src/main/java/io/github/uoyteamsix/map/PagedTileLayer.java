@@ -0,0 +1,47 @@
+package io.github.uoyteamsix.map;
+
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+
+/**
+ * A tile layer of a compiled map which reads its cells from a {@link TileChunkStore} instead of holding an array of
+ * cells, so that only the chunks which are in use take up memory. Cells placed on the layer must be ones which came
+ * from the same map, as only packed tiles are stored.
+ */
+public class PagedTileLayer extends TiledMapTileLayer {
+    private final TileChunkStore store;
+    private final int layerIndex;
+    private final CompiledTileCells cells;
+
+    PagedTileLayer(TileChunkStore store, int layerIndex, CompiledTileCells cells, int tileWidth, int tileHeight) {
+        // The cell array of the superclass is unused, so is kept as small as possible.
+        super(1, 1, tileWidth, tileHeight);
+        this.store = store;
+        this.layerIndex = layerIndex;
+        this.cells = cells;
+    }
+
+    @Override
+    public int getWidth() {
+        return store.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return store.getHeight();
+    }
+
+    @Override
+    public Cell getCell(int x, int y) {
+        int packedTile = store.getTile(layerIndex, x, y);
+        return packedTile != 0 ? cells.getCell(packedTile) : null;
+    }
+
+    @Override
+    public void setCell(int x, int y, Cell cell) {
+        int packedTile = cell != null ? cells.getPackedTile(cell) : 0;
+        if (packedTile < 0) {
+            throw new IllegalArgumentException("Only cells from the same compiled map can be placed on a paged layer");
+        }
+        store.setTile(layerIndex, x, y, packedTile);
+    }
+}
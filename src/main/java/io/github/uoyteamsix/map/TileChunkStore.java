@@ -0,0 +1,376 @@
+package io.github.uoyteamsix.map;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A class which holds the tiles of every layer of a compiled map, stored in the fixed-size chunks written by
+ * {@link TmxMapCompiler}. The chunks are read straight from the memory-mapped file, and only the chunks which are in
+ * use are decoded and kept resident. Once the resident chunks would use more memory than the budget allows, the least
+ * recently used chunk is evicted, so that maps far larger than the screen can be held without loading every tile.
+ * <p>
+ * The file is read only, so the tiles which have been changed are kept in a small overlay for each chunk and applied
+ * again whenever the chunk is paged back in, which lets modified chunks be evicted like any other. Doesn't depend on
+ * LibGDX.
+ */
+public class TileChunkStore {
+    /**
+     * The width and height of each chunk in tiles.
+     */
+    public static final int CHUNK_SIZE = 64;
+    private static final int TILES_PER_CHUNK = CHUNK_SIZE * CHUNK_SIZE;
+
+    /**
+     * The default amount of memory which resident chunks may use, in bytes.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+
+    // Largest region of a file which is mapped at once, as a mapped buffer can be at most 2GB.
+    private static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+    private final int width;
+    private final int height;
+    private final int layerCount;
+    private final int chunkCountX;
+    private final int chunkCountY;
+    private final int chunkBytes;
+
+    // The raw chunk data, split into segments which each hold a whole number of chunks.
+    private final ByteBuffer[] segments;
+    private final int chunksPerSegment;
+
+    // Slot of each resident chunk, or -1 if the chunk isn't resident.
+    private final int[] chunkSlots;
+
+    // The decoded tiles of each slot, holding each layer in turn, and the chunk it holds or -1 if it is free.
+    private short[][] slotTiles;
+    private int[] slotChunks;
+    private long[] slotLastUsed;
+    private int usedSlots;
+    private final int maxSlots;
+    private long clock;
+
+    // Tiles which differ from the file in each chunk, or null if there are none. Each entry packs the tile's index in
+    // the chunk above the packed tile, so sorting the entries sorts them by index.
+    private final long[][] overlays;
+    private final int[] overlaySizes;
+
+    // Stats for the profiler and benchmarks.
+    private long pageIns;
+    private long evictions;
+
+    TileChunkStore(ByteBuffer[] segments, int chunksPerSegment, int width, int height, int layerCount,
+                   long memoryBudget) {
+        this.segments = segments;
+        this.chunksPerSegment = chunksPerSegment;
+        this.width = width;
+        this.height = height;
+        this.layerCount = layerCount;
+        chunkCountX = (width + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        chunkCountY = (height + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        chunkBytes = layerCount * TILES_PER_CHUNK * Short.BYTES;
+
+        chunkSlots = new int[chunkCountX * chunkCountY];
+        Arrays.fill(chunkSlots, -1);
+        overlays = new long[chunkSlots.length][];
+        overlaySizes = new int[chunkSlots.length];
+        maxSlots = (int) Math.max(1, Math.min(chunkSlots.length, memoryBudget / Math.max(chunkBytes, 1)));
+        allocateSlots(Math.min(maxSlots, 16));
+    }
+
+    /**
+     * Opens the tiles of a compiled map file, memory-mapping them in segments.
+     *
+     * @param file         the compiled map file
+     * @param offset       the offset of the first chunk in the file
+     * @param width        the map width in tiles
+     * @param height       the map height in tiles
+     * @param layerCount   the number of layers
+     * @param memoryBudget the amount of memory resident chunks may use, in bytes
+     * @return the tile store
+     * @throws IOException if the file couldn't be mapped
+     */
+    public static TileChunkStore open(Path file, long offset, int width, int height, int layerCount,
+                                      long memoryBudget) throws IOException {
+        long chunkBytes = (long) layerCount * TILES_PER_CHUNK * Short.BYTES;
+        long chunkCount = (long) ((width + CHUNK_SIZE - 1) / CHUNK_SIZE) * ((height + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        int chunksPerSegment = (int) Math.max(1, MAX_SEGMENT_SIZE / Math.max(chunkBytes, 1));
+        var segments = new ByteBuffer[(int) ((chunkCount + chunksPerSegment - 1) / chunksPerSegment)];
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < offset + chunkCount * chunkBytes) {
+                throw new IOException("Compiled map is truncated");
+            }
+
+            // The mappings stay valid after the channel is closed.
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i * chunksPerSegment;
+                long size = Math.min(chunksPerSegment, chunkCount - start) * chunkBytes;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start * chunkBytes, size);
+            }
+        }
+        return new TileChunkStore(segments, chunksPerSegment, width, height, layerCount, memoryBudget);
+    }
+
+    /**
+     * Wraps tiles which have already been read into memory, e.g. from a file which can't be mapped.
+     *
+     * @param data         a buffer positioned at the first chunk
+     * @param width        the map width in tiles
+     * @param height       the map height in tiles
+     * @param layerCount   the number of layers
+     * @param memoryBudget the amount of memory resident chunks may use, in bytes
+     * @return the tile store
+     */
+    public static TileChunkStore wrap(ByteBuffer data, int width, int height, int layerCount, long memoryBudget) {
+        int chunkCount = ((width + CHUNK_SIZE - 1) / CHUNK_SIZE) * ((height + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        return new TileChunkStore(new ByteBuffer[]{data.slice()}, Math.max(chunkCount, 1), width, height, layerCount,
+                memoryBudget);
+    }
+
+    /**
+     * Gets a packed tile, paging in its chunk if needed.
+     *
+     * @param layer the layer index
+     * @param x     the tile x coordinate
+     * @param y     the tile y coordinate, counting up from the bottom row
+     * @return the packed tile, or 0 if there is no tile or the position is outside the map
+     */
+    public int getTile(int layer, int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return 0;
+        }
+        int slot = touch(chunkIndex(x, y));
+        return slotTiles[slot][tileIndex(layer, x, y)] & 0xFFFF;
+    }
+
+    /**
+     * Sets a packed tile, paging in its chunk if needed. The change is kept even if the chunk is evicted.
+     *
+     * @param layer      the layer index
+     * @param x          the tile x coordinate
+     * @param y          the tile y coordinate, counting up from the bottom row
+     * @param packedTile the packed tile, or 0 for no tile
+     */
+    public void setTile(int layer, int x, int y, int packedTile) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return;
+        }
+        int chunk = chunkIndex(x, y);
+        int index = tileIndex(layer, x, y);
+        slotTiles[touch(chunk)][index] = (short) packedTile;
+        setOverlayTile(chunk, index, packedTile & 0xFFFF);
+    }
+
+    /**
+     * Records a changed tile in a chunk's overlay, or removes it from the overlay if it has been changed back to the
+     * tile in the file.
+     */
+    private void setOverlayTile(int chunk, int index, int packedTile) {
+        var entries = overlays[chunk];
+        int size = overlaySizes[chunk];
+        int position = findOverlayEntry(entries, size, index);
+        boolean unchanged = packedTile == readTile(chunk, index);
+        long entry = ((long) index << Short.SIZE) | packedTile;
+        if (position >= 0) {
+            if (!unchanged) {
+                entries[position] = entry;
+                return;
+            }
+            System.arraycopy(entries, position + 1, entries, position, size - position - 1);
+            overlaySizes[chunk]--;
+            if (overlaySizes[chunk] == 0) {
+                overlays[chunk] = null;
+            }
+            return;
+        }
+        if (unchanged) {
+            return;
+        }
+
+        position = -position - 1;
+        if (entries == null) {
+            entries = overlays[chunk] = new long[8];
+        } else if (size == entries.length) {
+            entries = overlays[chunk] = Arrays.copyOf(entries, size * 2);
+        }
+        System.arraycopy(entries, position, entries, position + 1, size - position);
+        entries[position] = entry;
+        overlaySizes[chunk]++;
+    }
+
+    /**
+     * Binary searches a chunk's overlay for the entry of a tile.
+     *
+     * @return the position of the entry, or -(insertion point) - 1 if the tile has no entry
+     */
+    private static int findOverlayEntry(long[] entries, int size, int index) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleIndex = (int) (entries[middle] >>> Short.SIZE);
+            if (middleIndex < index) {
+                low = middle + 1;
+            } else if (middleIndex > index) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Reads a single packed tile of a chunk straight from the file, without paging the chunk in.
+     */
+    private int readTile(int chunk, int index) {
+        int offset = (chunk % chunksPerSegment) * chunkBytes + index * Short.BYTES;
+        return segments[chunk / chunksPerSegment].getShort(offset) & 0xFFFF;
+    }
+
+    /**
+     * Makes sure that every chunk overlapping the given region, plus a margin of one chunk, is resident, so that
+     * drawing the region doesn't need to page in chunks part way through.
+     *
+     * @param startX the leftmost tile x coordinate
+     * @param startY the bottommost tile y coordinate
+     * @param endX   the rightmost tile x coordinate, exclusive
+     * @param endY   the topmost tile y coordinate, exclusive
+     */
+    public void retain(int startX, int startY, int endX, int endY) {
+        int startChunkX = Math.max(Math.floorDiv(startX, CHUNK_SIZE) - 1, 0);
+        int startChunkY = Math.max(Math.floorDiv(startY, CHUNK_SIZE) - 1, 0);
+        int endChunkX = Math.min(Math.floorDiv(endX - 1, CHUNK_SIZE) + 1, chunkCountX - 1);
+        int endChunkY = Math.min(Math.floorDiv(endY - 1, CHUNK_SIZE) + 1, chunkCountY - 1);
+
+        // Don't page in more chunks than fit in the budget, otherwise they would just evict each other.
+        int limit = maxSlots;
+        for (int chunkY = startChunkY; chunkY <= endChunkY && limit > 0; chunkY++) {
+            for (int chunkX = startChunkX; chunkX <= endChunkX && limit > 0; chunkX++) {
+                touch(chunkY * chunkCountX + chunkX);
+                limit--;
+            }
+        }
+    }
+
+    private int chunkIndex(int x, int y) {
+        return (y / CHUNK_SIZE) * chunkCountX + x / CHUNK_SIZE;
+    }
+
+    private static int tileIndex(int layer, int x, int y) {
+        return layer * TILES_PER_CHUNK + (y % CHUNK_SIZE) * CHUNK_SIZE + x % CHUNK_SIZE;
+    }
+
+    /**
+     * Marks a chunk as just used, paging it in if it isn't resident.
+     *
+     * @return the slot holding the chunk
+     */
+    private int touch(int chunk) {
+        int slot = chunkSlots[chunk];
+        if (slot < 0) {
+            slot = pageIn(chunk);
+        }
+        slotLastUsed[slot] = ++clock;
+        return slot;
+    }
+
+    private int pageIn(int chunk) {
+        int slot = findSlot();
+        if (slotChunks[slot] >= 0) {
+            chunkSlots[slotChunks[slot]] = -1;
+            evictions++;
+        }
+        if (slotTiles[slot] == null) {
+            slotTiles[slot] = new short[layerCount * TILES_PER_CHUNK];
+        }
+
+        var segment = segments[chunk / chunksPerSegment].duplicate().order(ByteOrder.BIG_ENDIAN);
+        segment.position((chunk % chunksPerSegment) * chunkBytes);
+        segment.asShortBuffer().get(slotTiles[slot]);
+
+        // Apply any changes which were made before the chunk was last evicted.
+        var entries = overlays[chunk];
+        for (int i = 0; i < overlaySizes[chunk]; i++) {
+            slotTiles[slot][(int) (entries[i] >>> Short.SIZE)] = (short) entries[i];
+        }
+
+        slotChunks[slot] = chunk;
+        chunkSlots[chunk] = slot;
+        pageIns++;
+        return slot;
+    }
+
+    /**
+     * Finds a slot for a chunk to be paged into, which is either a free slot or the least recently used chunk's.
+     */
+    private int findSlot() {
+        if (usedSlots < maxSlots) {
+            if (usedSlots == slotChunks.length) {
+                allocateSlots(Math.min(slotChunks.length * 2, maxSlots));
+            }
+            return usedSlots++;
+        }
+
+        int oldestSlot = 0;
+        for (int i = 1; i < usedSlots; i++) {
+            if (slotLastUsed[i] < slotLastUsed[oldestSlot]) {
+                oldestSlot = i;
+            }
+        }
+        return oldestSlot;
+    }
+
+    private void allocateSlots(int count) {
+        int oldCount = slotChunks == null ? 0 : slotChunks.length;
+        slotTiles = slotTiles == null ? new short[count][] : Arrays.copyOf(slotTiles, count);
+        slotChunks = slotChunks == null ? new int[count] : Arrays.copyOf(slotChunks, count);
+        slotLastUsed = slotLastUsed == null ? new long[count] : Arrays.copyOf(slotLastUsed, count);
+        Arrays.fill(slotChunks, oldCount, count, -1);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getLayerCount() {
+        return layerCount;
+    }
+
+    /**
+     * @return the number of chunks which are currently decoded in memory
+     */
+    public int getResidentChunkCount() {
+        return usedSlots;
+    }
+
+    /**
+     * @return the total number of chunks the map is split into
+     */
+    public int getChunkCount() {
+        return chunkSlots.length;
+    }
+
+    /**
+     * @return the number of times a chunk has been read from the file
+     */
+    public long getPageIns() {
+        return pageIns;
+    }
+
+    /**
+     * @return the number of times a chunk has been evicted to stay within the memory budget
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+}
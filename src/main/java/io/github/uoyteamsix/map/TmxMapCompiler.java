@@ -0,0 +1,408 @@
+package io.github.uoyteamsix.map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class which compiles Tiled TMX maps into a compact binary format which can be loaded by {@link CompiledMapLoader}
+ * without parsing any XML. Tile IDs are packed into shorts, and the usable tiles and prefab footprints which
+ * {@link GameMap} would otherwise derive from the layers are computed up front. Doesn't depend on LibGDX, so that it
+ * can be run as part of the build:
+ * <pre>
+ * java -cp build/classes/java/main io.github.uoyteamsix.map.TmxMapCompiler &lt;input.tmx&gt; &lt;output.umap&gt;
+ * </pre>
+ * Only the parts of the TMX format used by the game's maps are supported: orthogonal, finite maps with embedded
+ * tilesets of a single image each, and CSV encoded tile layers. Tile properties and animations are not kept.
+ * <p>
+ * The format is big-endian and consists of:
+ * <ul>
+ *     <li>the magic number, format version and the length of the metadata which follows</li>
+ *     <li>the map size in tiles, tile size in pixels and chunk size in tiles</li>
+ *     <li>each tileset's name, image path relative to the map, first tile ID, tile size, spacing and margin</li>
+ *     <li>each layer's name, visibility and opacity</li>
+ *     <li>the usable tiles as a row-major bitmap</li>
+ *     <li>each prefab's name, layer index and footprint in tiles</li>
+ *     <li>the tiles, split into square chunks which are stored in row-major order starting from the bottom left as
+ *     LibGDX does. Each chunk holds the tiles of every layer in turn as a row-major array of packed shorts, padded
+ *     with empty tiles where the chunk runs off the edge of the map</li>
+ * </ul>
+ * Storing the tiles in fixed-size chunks lets {@link TileChunkStore} page in just the parts of a large map which are
+ * in view, straight from the memory-mapped file.
+ * A packed tile holds the tile ID in its lower 13 bits, or 0 for no tile, and the diagonal, vertical and horizontal
+ * flip flags in its upper 3 bits, matching the order of the flags in TMX's 32-bit tile IDs.
+ */
+public final class TmxMapCompiler {
+    static final int MAGIC = 0x55534D50;
+    static final int VERSION = 2;
+
+    static final int TILE_ID_MASK = 0x1FFF;
+    static final int FLIP_DIAGONALLY = 0x2000;
+    static final int FLIP_VERTICALLY = 0x4000;
+    static final int FLIP_HORIZONTALLY = 0x8000;
+
+    // Flip flags of TMX tile IDs, which are shifted down into the top of a packed tile.
+    private static final long TMX_FLAGS_MASK = 0xE0000000L;
+    private static final int TMX_FLAGS_SHIFT = 16;
+
+    static final String TERRAIN_LAYER = "Terrain";
+    static final String PREFAB_LAYER_PREFIX = "Prefab: ";
+
+    private int width;
+    private int height;
+    private int tileWidth;
+    private int tileHeight;
+    private final List<Tileset> tilesets = new ArrayList<>();
+    private final List<Layer> layers = new ArrayList<>();
+
+    private record Tileset(String name, String imageSource, int firstId, int tileWidth, int tileHeight, int spacing,
+                           int margin, int tileCount) {
+    }
+
+    private record Layer(String name, boolean visible, float opacity, short[] tiles) {
+    }
+
+    private TmxMapCompiler() {
+    }
+
+    /**
+     * Compiles a TMX map.
+     *
+     * @param tmx the TMX map to read
+     * @param out the stream to write the compiled map to, which is not closed
+     * @throws IOException if the map couldn't be read, or uses parts of the TMX format which aren't supported
+     */
+    public static void compile(InputStream tmx, OutputStream out) throws IOException {
+        var compiler = new TmxMapCompiler();
+        try {
+            compiler.parse(tmx);
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed TMX map: " + e.getMessage(), e);
+        }
+        compiler.write(out);
+    }
+
+    /**
+     * Compiles a TMX map file.
+     *
+     * @param input  the path of the TMX map
+     * @param output the path to write the compiled map to
+     * @throws IOException if the map couldn't be read or written
+     */
+    public static void compile(Path input, Path output) throws IOException {
+        try (var in = Files.newInputStream(input);
+             var out = new BufferedOutputStream(Files.newOutputStream(output))) {
+            compile(in, out);
+        }
+    }
+
+    private void parse(InputStream tmx) throws XMLStreamException, IOException {
+        var factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        var reader = factory.createXMLStreamReader(tmx);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                switch (reader.getLocalName()) {
+                    case "map" -> parseMap(reader);
+                    case "tileset" -> parseTileset(reader);
+                    case "layer" -> parseLayer(reader);
+                    case "objectgroup", "imagelayer", "group" ->
+                            throw new IOException("Unsupported layer type " + reader.getLocalName());
+                    default -> {
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void parseMap(XMLStreamReader reader) throws IOException {
+        if (!"orthogonal".equals(reader.getAttributeValue(null, "orientation"))) {
+            throw new IOException("Only orthogonal maps are supported");
+        }
+        if (intAttribute(reader, "infinite", 0) != 0) {
+            throw new IOException("Infinite maps are not supported");
+        }
+        width = intAttribute(reader, "width", 0);
+        height = intAttribute(reader, "height", 0);
+        tileWidth = intAttribute(reader, "tilewidth", 0);
+        tileHeight = intAttribute(reader, "tileheight", 0);
+    }
+
+    private void parseTileset(XMLStreamReader reader) throws XMLStreamException, IOException {
+        if (reader.getAttributeValue(null, "source") != null) {
+            throw new IOException("External tilesets are not supported");
+        }
+        var name = stringAttribute(reader, "name");
+        int firstId = intAttribute(reader, "firstgid", 1);
+        int tilesetTileWidth = intAttribute(reader, "tilewidth", tileWidth);
+        int tilesetTileHeight = intAttribute(reader, "tileheight", tileHeight);
+        int spacing = intAttribute(reader, "spacing", 0);
+        int margin = intAttribute(reader, "margin", 0);
+
+        // Find the image, skipping over any other children such as wang sets.
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("image")) {
+                var imageSource = reader.getAttributeValue(null, "source");
+                int imageWidth = intAttribute(reader, "width", 0);
+                int imageHeight = intAttribute(reader, "height", 0);
+
+                // Count the tiles the same way LibGDX cuts up the image, so the same tile IDs exist.
+                int columns = countTiles(imageWidth, tilesetTileWidth, spacing, margin);
+                int rows = countTiles(imageHeight, tilesetTileHeight, spacing, margin);
+                tilesets.add(new Tileset(name, imageSource, firstId, tilesetTileWidth, tilesetTileHeight, spacing,
+                        margin, columns * rows));
+                return;
+            }
+            if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("tileset")) {
+                break;
+            }
+        }
+        throw new IOException("Tileset " + name + " has no image, which is not supported");
+    }
+
+    /**
+     * Counts the tiles along one side of a tileset image.
+     */
+    static int countTiles(int imageSize, int tileSize, int spacing, int margin) {
+        if (tileSize <= 0 || imageSize - margin < tileSize) {
+            return 0;
+        }
+        return (imageSize - margin - tileSize) / (tileSize + spacing) + 1;
+    }
+
+    private void parseLayer(XMLStreamReader reader) throws XMLStreamException, IOException {
+        var name = stringAttribute(reader, "name");
+        boolean visible = intAttribute(reader, "visible", 1) != 0;
+        var opacityValue = reader.getAttributeValue(null, "opacity");
+        float opacity = opacityValue != null ? Float.parseFloat(opacityValue) : 1.0f;
+        if (intAttribute(reader, "width", width) != width || intAttribute(reader, "height", height) != height) {
+            throw new IOException("Layer " + name + " is not the same size as the map");
+        }
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("data")) {
+                if (!"csv".equals(reader.getAttributeValue(null, "encoding"))
+                        || reader.getAttributeValue(null, "compression") != null) {
+                    throw new IOException("Layer " + name + " is not CSV encoded, the only supported encoding");
+                }
+                layers.add(new Layer(name, visible, opacity, parseCsv(reader.getElementText(), name)));
+                return;
+            }
+        }
+        throw new IOException("Layer " + name + " has no data");
+    }
+
+    /**
+     * Parses CSV layer data into packed tiles. TMX stores rows from the top down, whereas LibGDX's layers start from
+     * the bottom row, so the rows are flipped.
+     */
+    private short[] parseCsv(String csv, String layerName) throws IOException {
+        var tiles = new short[width * height];
+        int index = 0;
+        long value = 0;
+        boolean inNumber = false;
+        for (int i = 0; i <= csv.length(); i++) {
+            char c = i < csv.length() ? csv.charAt(i) : ',';
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                inNumber = true;
+            } else if (c == ',' && inNumber) {
+                if (index == tiles.length) {
+                    throw new IOException("Layer " + layerName + " has too many tiles");
+                }
+                int x = index % width;
+                int y = height - 1 - index / width;
+                tiles[y * width + x] = packTile(value);
+                index++;
+                value = 0;
+                inNumber = false;
+            }
+        }
+        if (index != tiles.length) {
+            throw new IOException("Layer " + layerName + " has " + index + " tiles but should have " + tiles.length);
+        }
+        return tiles;
+    }
+
+    /**
+     * Packs a TMX tile ID into a short. IDs which don't belong to a tile in any tileset become empty, as LibGDX
+     * doesn't create cells for them.
+     */
+    private short packTile(long tmxId) throws IOException {
+        int id = (int) (tmxId & ~TMX_FLAGS_MASK);
+        if (id == 0 || !tileExists(id)) {
+            return 0;
+        }
+        if (id > TILE_ID_MASK) {
+            throw new IOException("Tile ID " + id + " is too large to be packed");
+        }
+        return (short) (id | (tmxId & TMX_FLAGS_MASK) >>> TMX_FLAGS_SHIFT);
+    }
+
+    private boolean tileExists(int id) {
+        // Like LibGDX, look up the tileset with the highest first ID which the tile could belong to.
+        for (int i = tilesets.size() - 1; i >= 0; i--) {
+            var tileset = tilesets.get(i);
+            if (id >= tileset.firstId() && id < tileset.firstId() + tileset.tileCount()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void write(OutputStream stream) throws IOException {
+        // Write the metadata up front so that its length, and so where the tiles start, is known.
+        var metadata = new ByteArrayOutputStream();
+        writeMetadata(new DataOutputStream(metadata));
+
+        var out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(metadata.size());
+        metadata.writeTo(out);
+        writeChunks(out);
+        out.flush();
+    }
+
+    private void writeMetadata(DataOutputStream out) throws IOException {
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeInt(tileWidth);
+        out.writeInt(tileHeight);
+        out.writeInt(TileChunkStore.CHUNK_SIZE);
+
+        out.writeInt(tilesets.size());
+        for (var tileset : tilesets) {
+            writeString(out, tileset.name());
+            writeString(out, tileset.imageSource());
+            out.writeInt(tileset.firstId());
+            out.writeInt(tileset.tileWidth());
+            out.writeInt(tileset.tileHeight());
+            out.writeInt(tileset.spacing());
+            out.writeInt(tileset.margin());
+        }
+
+        out.writeInt(layers.size());
+        for (var layer : layers) {
+            writeString(out, layer.name());
+            out.writeBoolean(layer.visible());
+            out.writeFloat(layer.opacity());
+        }
+
+        // Write the usable tiles as a row-major bitmap. A tile is usable if it has nothing on it other than terrain.
+        int bits = 0;
+        int bitCount = 0;
+        for (int i = 0; i < width * height; i++) {
+            if (isUsable(i)) {
+                bits |= 1 << bitCount;
+            }
+            if (++bitCount == 8) {
+                out.writeByte(bits);
+                bits = 0;
+                bitCount = 0;
+            }
+        }
+        if (bitCount > 0) {
+            out.writeByte(bits);
+        }
+
+        // Write the footprint of each prefab, which sits in the bottom left corner of its layer. Assumes each
+        // building is rectangular.
+        int prefabCount = 0;
+        for (var layer : layers) {
+            if (layer.name().startsWith(PREFAB_LAYER_PREFIX)) {
+                prefabCount++;
+            }
+        }
+        out.writeInt(prefabCount);
+        for (int i = 0; i < layers.size(); i++) {
+            var layer = layers.get(i);
+            if (!layer.name().startsWith(PREFAB_LAYER_PREFIX)) {
+                continue;
+            }
+            int prefabWidth = 0;
+            while (prefabWidth < width && layer.tiles()[prefabWidth] != 0) {
+                prefabWidth++;
+            }
+            int prefabHeight = 0;
+            while (prefabHeight < height && layer.tiles()[prefabHeight * width] != 0) {
+                prefabHeight++;
+            }
+            writeString(out, layer.name().substring(PREFAB_LAYER_PREFIX.length()));
+            out.writeInt(i);
+            out.writeInt(prefabWidth);
+            out.writeInt(prefabHeight);
+        }
+    }
+
+    private void writeChunks(DataOutputStream out) throws IOException {
+        int chunkSize = TileChunkStore.CHUNK_SIZE;
+        for (int chunkY = 0; chunkY < height; chunkY += chunkSize) {
+            for (int chunkX = 0; chunkX < width; chunkX += chunkSize) {
+                for (var layer : layers) {
+                    for (int y = chunkY; y < chunkY + chunkSize; y++) {
+                        for (int x = chunkX; x < chunkX + chunkSize; x++) {
+                            out.writeShort(x < width && y < height ? layer.tiles()[y * width + x] : 0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean isUsable(int index) {
+        for (var layer : layers) {
+            if (!layer.name().equals(TERRAIN_LAYER) && layer.tiles()[index] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String stringAttribute(XMLStreamReader reader, String name) {
+        var value = reader.getAttributeValue(null, name);
+        return value != null ? value : "";
+    }
+
+    private static int intAttribute(XMLStreamReader reader, String name, int defaultValue) {
+        var value = reader.getAttributeValue(null, name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: TmxMapCompiler <input.tmx> <output.umap>");
+            System.exit(1);
+        }
+        var output = Path.of(args[1]);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        compile(Path.of(args[0]), output);
+    }
+}
@@ -0,0 +1,165 @@
+package io.github.uoyteamsix.sim;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * A class which records the player's actions into a compact binary log, so that a session can be replayed headlessly
+ * with {@link Replay}. The log starts with the simulation seed and tick rate and a snapshot of the map's usable tiles
+ * and building types, so a recording can be replayed without the original map files.
+ * <p>
+ * Each action is stored with the number of ticks which had run when it happened, as a variable length delta from the
+ * previous action.
+ */
+public class ActionRecorder {
+    static final int MAGIC = 0x55535250;
+    static final int VERSION = 2;
+
+    // Action types.
+    static final int ACTION_END = 0;
+    static final int ACTION_SELECT_PREFAB = 1;
+    static final int ACTION_PLACE_BUILDING = 2;
+    static final int ACTION_REMOVE_BUILDING = 3;
+
+    private final ByteArrayOutputStream buffer;
+    private long previousTick;
+    private int actionCount;
+
+    /**
+     * Starts a new recording. Must be created before any ticks have run or buildings have been placed.
+     *
+     * @param map      the map the simulation is running on
+     * @param seed     the seed of the simulation's random number generator
+     * @param tickRate the number of simulation ticks per second
+     */
+    public ActionRecorder(SimulationMap map, long seed, int tickRate) {
+        buffer = new ByteArrayOutputStream();
+        try {
+            var out = new DataOutputStream(buffer);
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(seed);
+            VarInt.writeUnsigned(out, tickRate);
+
+            // Snapshot the usable tiles as a row-major bitmap.
+            int width = map.getWidth();
+            int height = map.getHeight();
+            VarInt.writeUnsigned(out, width);
+            VarInt.writeUnsigned(out, height);
+            int bits = 0;
+            int bitCount = 0;
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if (map.isUsable(x, y)) {
+                        bits |= 1 << bitCount;
+                    }
+                    if (++bitCount == 8) {
+                        out.writeByte(bits);
+                        bits = 0;
+                        bitCount = 0;
+                    }
+                }
+            }
+            if (bitCount > 0) {
+                out.writeByte(bits);
+            }
+
+            VarInt.writeUnsigned(out, map.getBuildingTypes().size());
+            for (var type : map.getBuildingTypes()) {
+                out.writeUTF(type.getName());
+                VarInt.writeUnsigned(out, type.getWidth());
+                VarInt.writeUnsigned(out, type.getHeight());
+            }
+            out.flush();
+        } catch (IOException e) {
+            // Writing to memory can't fail.
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the action type and tick delta common to every action.
+     */
+    private void writeActionHeader(long tick, int actionType) {
+        VarInt.writeUnsigned(buffer, tick - previousTick);
+        buffer.write(actionType);
+        previousTick = tick;
+        actionCount++;
+    }
+
+    /**
+     * Records the player selecting a prefab.
+     *
+     * @param tick        the number of ticks which have run
+     * @param prefabIndex the selected prefab index, or -1 if the selection was cleared
+     */
+    public void recordSelection(long tick, int prefabIndex) {
+        writeActionHeader(tick, ACTION_SELECT_PREFAB);
+        VarInt.writeSigned(buffer, prefabIndex);
+    }
+
+    /**
+     * Records the player placing a building.
+     *
+     * @param tick   the number of ticks which have run
+     * @param typeId the ID of the placed building type
+     * @param x      the x coordinate in tiles
+     * @param y      the y coordinate in tiles
+     */
+    public void recordPlacement(long tick, int typeId, int x, int y) {
+        writeActionHeader(tick, ACTION_PLACE_BUILDING);
+        VarInt.writeUnsigned(buffer, typeId);
+        VarInt.writeSigned(buffer, x);
+        VarInt.writeSigned(buffer, y);
+    }
+
+    /**
+     * Records the player removing a building, e.g. by undoing its placement.
+     *
+     * @param tick   the number of ticks which have run
+     * @param typeId the ID of the removed building type
+     * @param x      the x coordinate in tiles
+     * @param y      the y coordinate in tiles
+     */
+    public void recordRemoval(long tick, int typeId, int x, int y) {
+        writeActionHeader(tick, ACTION_REMOVE_BUILDING);
+        VarInt.writeUnsigned(buffer, typeId);
+        VarInt.writeSigned(buffer, x);
+        VarInt.writeSigned(buffer, y);
+    }
+
+    /**
+     * @return the number of actions recorded so far
+     */
+    public int getActionCount() {
+        return actionCount;
+    }
+
+    /**
+     * Writes the recording so far to the given stream. Recording can continue afterwards.
+     *
+     * @param out the stream to write to
+     * @throws IOException if writing fails
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        buffer.writeTo(out);
+        VarInt.writeUnsigned(out, 0);
+        out.write(ACTION_END);
+    }
+
+    /**
+     * @return the recording so far as a byte array
+     */
+    public byte[] toByteArray() {
+        var out = new ByteArrayOutputStream(buffer.size() + 2);
+        try {
+            writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,136 @@
+package io.github.uoyteamsix.sim;
+
+/**
+ * A class which keeps track of every tile where a building type can currently be placed (its valid anchors, i.e. the
+ * bottom left tile of the building). When an area of the map changes, only the anchors whose footprint overlaps the
+ * changed area are re-checked.
+ */
+public class AnchorIndex {
+    private final OccupancyGrid occupancy;
+    private final int typeWidth;
+    private final int typeHeight;
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+
+    // One bit per tile, set if the building type can be placed with its bottom left corner on that tile.
+    private final long[] validBits;
+    private int size;
+
+    /**
+     * Creates an anchor index for the given building type and computes the initial set of valid anchors.
+     *
+     * @param occupancy the occupancy grid of the map
+     * @param type      the building type
+     */
+    public AnchorIndex(OccupancyGrid occupancy, BuildingType type) {
+        this.occupancy = occupancy;
+        typeWidth = type.getWidth();
+        typeHeight = type.getHeight();
+        width = occupancy.getWidth();
+        height = occupancy.getHeight();
+        wordsPerRow = (width + 63) >>> 6;
+        validBits = new long[wordsPerRow * height];
+        recheck(0, 0, width - 1, height - 1);
+    }
+
+    /**
+     * Re-checks every anchor within the given inclusive bounds against the occupancy grid.
+     */
+    private void recheck(int minX, int minY, int maxX, int maxY) {
+        minX = Math.max(minX, 0);
+        minY = Math.max(minY, 0);
+        maxX = Math.min(maxX, width - typeWidth);
+        maxY = Math.min(maxY, height - typeHeight);
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                int index = y * wordsPerRow + (x >>> 6);
+                long mask = 1L << x;
+                boolean wasValid = (validBits[index] & mask) != 0;
+                boolean isValid = occupancy.countBlocked(x, y, typeWidth, typeHeight) == 0;
+                if (wasValid != isValid) {
+                    validBits[index] ^= mask;
+                    size += isValid ? 1 : -1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the index after the tiles in the given rectangle have changed. Only anchors whose footprint overlaps the
+     * rectangle are re-checked.
+     *
+     * @param x      the x coordinate of the bottom left changed tile
+     * @param y      the y coordinate of the bottom left changed tile
+     * @param width  the width of the changed rectangle in tiles
+     * @param height the height of the changed rectangle in tiles
+     */
+    public void update(int x, int y, int width, int height) {
+        recheck(x - typeWidth + 1, y - typeHeight + 1, x + width - 1, y + height - 1);
+    }
+
+    /**
+     * @return true if the building type can currently be placed at the given tile
+     */
+    public boolean isValid(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return false;
+        }
+        return (validBits[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Calls the given consumer for every valid anchor, in row-major order.
+     *
+     * @param consumer the consumer to call
+     */
+    public void forEach(TileConsumer consumer) {
+        for (int y = 0; y < height; y++) {
+            for (int word = 0; word < wordsPerRow; word++) {
+                long bits = validBits[y * wordsPerRow + word];
+                while (bits != 0) {
+                    consumer.accept((word << 6) + Long.numberOfTrailingZeros(bits), y);
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the valid anchor closest to the given tile, searching outwards in rings up to a maximum distance.
+     *
+     * @param x           the x coordinate to search from
+     * @param y           the y coordinate to search from
+     * @param maxDistance the maximum distance in tiles along either axis to search
+     * @return the closest anchor encoded as {@code y * width + x}, or -1 if there is no valid anchor within range
+     */
+    public int findNearest(int x, int y, int maxDistance) {
+        int best = -1;
+        int bestDistanceSquared = Integer.MAX_VALUE;
+        for (int ring = 0; ring <= maxDistance; ring++) {
+            // No anchor in this ring or further out can be closer than the best found so far.
+            if (ring * ring > bestDistanceSquared) {
+                break;
+            }
+            for (int dy = -ring; dy <= ring; dy++) {
+                // Only visit the edges of the ring, as the inside has already been searched.
+                int step = (dy == -ring || dy == ring) ? 1 : 2 * ring;
+                for (int dx = -ring; dx <= ring; dx += Math.max(step, 1)) {
+                    int distanceSquared = dx * dx + dy * dy;
+                    if (distanceSquared < bestDistanceSquared && isValid(x + dx, y + dy)) {
+                        best = (y + dy) * width + x + dx;
+                        bestDistanceSquared = distanceSquared;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the number of valid anchors
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,229 @@
+package io.github.uoyteamsix.sim;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A class which plays thousands of simulated games with a scripted build strategy to find the distribution of final
+ * satisfaction for a set of {@link SimulationParameters}. Games are spread across all cores with a fork-join pool.
+ * Every game has its own map, simulation and random number generator, and writes its result to its own slot of the
+ * results array, so there is no shared mutable state between games.
+ */
+public class BalanceSweeper {
+    // Number of games a single fork-join task plays before it stops splitting.
+    private static final int GAMES_PER_TASK = 8;
+
+    private final boolean[][] usableTiles;
+    private final List<BuildingType> buildingTypes;
+    private final int tickRate;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a sweeper which plays games on copies of the given map.
+     *
+     * @param templateMap the map to start each game from, which is only read
+     * @param tickRate    the number of simulation ticks per second
+     * @param pool        the pool to run games on
+     */
+    public BalanceSweeper(SimulationMap templateMap, int tickRate, ForkJoinPool pool) {
+        usableTiles = templateMap.copyUsableTiles();
+        buildingTypes = templateMap.getBuildingTypes();
+        this.tickRate = tickRate;
+        this.pool = pool;
+    }
+
+    /**
+     * Plays a single game to completion.
+     *
+     * @param parameters the simulation parameters
+     * @param strategy   the build strategy
+     * @param seed       the seed for both the simulation and the building positions
+     * @return the satisfaction at the end of the game
+     */
+    public float playGame(SimulationParameters parameters, BuildStrategy strategy, long seed) {
+        // SimulationMap copies the usable tiles into its own occupancy grid, so the array can be shared.
+        var map = new SimulationMap(usableTiles, buildingTypes);
+        var simulation = new Simulation(map, seed, parameters);
+        var placementRandom = new SimulationRandom(~seed);
+        float tickTime = 1.0f / tickRate;
+
+        while (!simulation.isGameOver()) {
+            if (simulation.canPlaceBuilding()) {
+                var type = strategy.chooseBuilding(simulation);
+                if (type != null) {
+                    // Place the building at the closest free spot to a random point.
+                    int x = placementRandom.nextInt(map.getWidth());
+                    int y = placementRandom.nextInt(map.getHeight());
+                    int searchDistance = Math.max(map.getWidth(), map.getHeight());
+                    int anchor = map.getValidAnchors(type).findNearest(x, y, searchDistance);
+                    if (anchor >= 0) {
+                        map.placeBuilding(type, anchor % map.getWidth(), anchor / map.getWidth());
+                    }
+                }
+            }
+            simulation.update(tickTime);
+        }
+        return simulation.getSatisfaction();
+    }
+
+    /**
+     * Plays many games in parallel and collects the final satisfaction of each.
+     *
+     * @param parameters the simulation parameters
+     * @param strategy   the build strategy
+     * @param gameCount  the number of games to play
+     * @param baseSeed   the seed from which each game's seed is derived
+     * @return a {@link SweepResult}
+     */
+    public SweepResult run(SimulationParameters parameters, BuildStrategy strategy, int gameCount, long baseSeed) {
+        var finalSatisfactions = new float[gameCount];
+        pool.invoke(new GamesTask(parameters, strategy, baseSeed, finalSatisfactions, 0, gameCount));
+        return new SweepResult(finalSatisfactions);
+    }
+
+    /**
+     * A task which plays a range of games, splitting itself in half until the range is small.
+     */
+    private class GamesTask extends RecursiveAction {
+        private final SimulationParameters parameters;
+        private final BuildStrategy strategy;
+        private final long baseSeed;
+        private final float[] results;
+        private final int from;
+        private final int to;
+
+        GamesTask(SimulationParameters parameters, BuildStrategy strategy, long baseSeed, float[] results, int from,
+                  int to) {
+            this.parameters = parameters;
+            this.strategy = strategy;
+            this.baseSeed = baseSeed;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    // Derive well mixed, independent seeds for each game.
+                    long seed = new SimulationRandom(baseSeed + i).nextLong();
+                    results[i] = playGame(parameters, strategy, seed);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new GamesTask(parameters, strategy, baseSeed, results, from, middle),
+                    new GamesTask(parameters, strategy, baseSeed, results, middle, to));
+        }
+    }
+
+    /**
+     * The distribution of final satisfaction over a batch of games.
+     */
+    public static class SweepResult {
+        private final float[] sortedSatisfactions;
+
+        SweepResult(float[] finalSatisfactions) {
+            sortedSatisfactions = finalSatisfactions.clone();
+            Arrays.sort(sortedSatisfactions);
+        }
+
+        /**
+         * @return the number of games played
+         */
+        public int getGameCount() {
+            return sortedSatisfactions.length;
+        }
+
+        /**
+         * @return the mean final satisfaction
+         */
+        public double getMean() {
+            double sum = 0.0;
+            for (var satisfaction : sortedSatisfactions) {
+                sum += satisfaction;
+            }
+            return sum / sortedSatisfactions.length;
+        }
+
+        /**
+         * @param percentile the percentile, between 0 and 100
+         * @return the final satisfaction at the given percentile
+         */
+        public float getPercentile(double percentile) {
+            int index = (int) Math.round(percentile / 100.0 * (sortedSatisfactions.length - 1));
+            return sortedSatisfactions[Math.min(Math.max(index, 0), sortedSatisfactions.length - 1)];
+        }
+
+        /**
+         * Counts the games falling into equally sized satisfaction bins between 0 and 1.
+         *
+         * @param binCount the number of bins
+         * @return the number of games in each bin
+         */
+        public int[] getHistogram(int binCount) {
+            var histogram = new int[binCount];
+            for (var satisfaction : sortedSatisfactions) {
+                histogram[Math.min((int) (satisfaction * binCount), binCount - 1)]++;
+            }
+            return histogram;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("games=%d mean=%.4f p5=%.4f p50=%.4f p95=%.4f", getGameCount(), getMean(),
+                    getPercentile(5), getPercentile(50), getPercentile(95));
+        }
+    }
+
+    /**
+     * Runs a sweep of each built-in strategy with the default parameters and prints the distributions.
+     *
+     * @param args the number of games per strategy, and optionally a recording to take the map from
+     * @throws IOException if the recording can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        int gameCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        SimulationMap templateMap;
+        int tickRate = 60;
+        if (args.length > 1) {
+            try (var in = Files.newInputStream(Path.of(args[1]))) {
+                var replay = Replay.read(in);
+                templateMap = replay.createMap();
+                tickRate = replay.getTickRate();
+            }
+        } else {
+            // An empty map the same size as the shipped map, with the same building types.
+            var types = new ArrayList<BuildingType>();
+            types.add(new BuildingType(0, "Accommodation", 4, 3));
+            types.add(new BuildingType(1, "Canteen", 4, 3));
+            types.add(new BuildingType(2, "Recreation", 5, 7));
+            types.add(new BuildingType(3, "Study", 4, 3));
+            templateMap = SimulationMap.createEmpty(60, 34, types);
+        }
+
+        var pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        var sweeper = new BalanceSweeper(templateMap, tickRate, pool);
+        var parameters = new SimulationParameters();
+        var strategies = new String[]{"roundRobin", "demandDriven", "onlyAccommodation"};
+        for (var name : strategies) {
+            var strategy = switch (name) {
+                case "roundRobin" -> BuildStrategy.roundRobin();
+                case "demandDriven" -> BuildStrategy.demandDriven();
+                default -> BuildStrategy.only("Accommodation");
+            };
+            long startTime = System.nanoTime();
+            var result = sweeper.run(parameters, strategy, gameCount, 0L);
+            double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+            System.out.printf("%-18s %s (%.0f games/s)%n", name, result, gameCount / elapsedSeconds);
+        }
+        pool.shutdown();
+    }
+}
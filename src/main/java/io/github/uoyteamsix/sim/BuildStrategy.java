@@ -0,0 +1,64 @@
+package io.github.uoyteamsix.sim;
+
+/**
+ * A scripted player which decides what to build next in a simulated game. Strategies must not hold any mutable state
+ * of their own, so that a single instance can be shared by games running on different threads.
+ */
+@FunctionalInterface
+public interface BuildStrategy {
+    /**
+     * Chooses the building type to place next. Only called when the player is allowed to place another building.
+     *
+     * @param simulation the simulation being played
+     * @return the building type to place, or null to not place anything this tick
+     */
+    BuildingType chooseBuilding(Simulation simulation);
+
+    /**
+     * @return a strategy which cycles through every building type in turn
+     */
+    static BuildStrategy roundRobin() {
+        return simulation -> {
+            var map = simulation.getMap();
+            var types = map.getBuildingTypes();
+            return types.get(map.getTotalBuildingCount() % types.size());
+        };
+    }
+
+    /**
+     * @return a strategy which builds whichever building is most needed by the students, and otherwise builds more
+     * accommodation
+     */
+    static BuildStrategy demandDriven() {
+        return simulation -> {
+            var map = simulation.getMap();
+            var parameters = simulation.getParameters();
+            var accommodation = map.findBuildingType("Accommodation");
+            var canteen = map.findBuildingType("Canteen");
+            var study = map.findBuildingType("Study");
+            var recreation = map.findBuildingType("Recreation");
+
+            int students = accommodation != null
+                    ? map.getBuildingCount(accommodation) * parameters.getStudentsPerAccommodation() : 0;
+            if (canteen != null && map.getBuildingCount(canteen) * parameters.getStudentsPerCanteen() < students) {
+                return canteen;
+            }
+            if (study != null && map.getBuildingCount(study) * parameters.getStudentsPerStudy() < students) {
+                return study;
+            }
+            if (recreation != null && accommodation != null
+                    && map.getBuildingCount(recreation) * 4 < map.getBuildingCount(accommodation)) {
+                return recreation;
+            }
+            return accommodation;
+        };
+    }
+
+    /**
+     * @param typeName the name of the building type to build
+     * @return a strategy which only ever builds a single building type
+     */
+    static BuildStrategy only(String typeName) {
+        return simulation -> simulation.getMap().findBuildingType(typeName);
+    }
+}
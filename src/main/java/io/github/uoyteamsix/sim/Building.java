@@ -0,0 +1,52 @@
+package io.github.uoyteamsix.sim;
+
+/**
+ * A class which represents a building placed on the map.
+ */
+public class Building {
+    private final BuildingType type;
+    private final int x;
+    private final int y;
+
+    // Dense ID given by the map's BuildingIndex, which is kept after removal so listeners can still look it up.
+    private int id = -1;
+
+    public Building(BuildingType type, int x, int y) {
+        this.type = type;
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * @return the building type this building was constructed from
+     */
+    public BuildingType getType() {
+        return type;
+    }
+
+    /**
+     * @return the x position of the building in tiles on the game map
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * @return the y position of the building in tiles on the game map
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * @return the building's ID in the map's {@link BuildingIndex}, which is reused once the building is removed, or -1
+     * if it has never been placed
+     */
+    int getId() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
+    }
+}
@@ -0,0 +1,362 @@
+package io.github.uoyteamsix.sim;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A class which indexes placed buildings by position, so that finding the building on a tile, or the buildings in a
+ * rectangle, within a radius or nearest to a point, doesn't need to look at every building on the map.
+ * <p>
+ * Every building is given a dense ID, which is written into a grid over every tile of its footprint, so the building
+ * on a tile is found in constant time. The grid is split into chunks which are only allocated once a building is
+ * placed in them. Buildings are also kept in uniform buckets by their bottom left tile, so area queries only look at
+ * the buckets which overlap the area.
+ */
+public class BuildingIndex {
+    private static final int CHUNK_SHIFT = 6;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int BUCKET_SHIFT = 4;
+    private static final int BUCKET_SIZE = 1 << BUCKET_SHIFT;
+
+    private final int width;
+    private final int height;
+    private final int maxBuildingWidth;
+    private final int maxBuildingHeight;
+
+    // Building ID plus one of each tile, or 0 for no building, in row-major chunks.
+    private final int chunksX;
+    private final int[][] tileChunks;
+
+    // IDs of the buildings whose bottom left tile is in each bucket, in row-major buckets.
+    private final int bucketsX;
+    private final int bucketsY;
+    private final int[][] bucketIds;
+    private final int[] bucketSizes;
+
+    // Buildings by ID, with the IDs of removed buildings reused.
+    private Building[] buildings = new Building[64];
+    private int[] freeIds = new int[16];
+    private int freeCount;
+    private int nextId;
+    private int size;
+
+    // Squared distances of the nearest buildings found so far by findNearest, reused between queries.
+    private float[] nearestDistances = new float[8];
+
+    /**
+     * Creates an empty index.
+     *
+     * @param width             the width of the map in tiles
+     * @param height            the height of the map in tiles
+     * @param maxBuildingWidth  the width of the widest building type
+     * @param maxBuildingHeight the height of the tallest building type
+     */
+    BuildingIndex(int width, int height, int maxBuildingWidth, int maxBuildingHeight) {
+        this.width = width;
+        this.height = height;
+        this.maxBuildingWidth = maxBuildingWidth;
+        this.maxBuildingHeight = maxBuildingHeight;
+        chunksX = (width + CHUNK_MASK) >> CHUNK_SHIFT;
+        tileChunks = new int[chunksX * ((height + CHUNK_MASK) >> CHUNK_SHIFT)][];
+        bucketsX = (width + BUCKET_SIZE - 1) >> BUCKET_SHIFT;
+        bucketsY = (height + BUCKET_SIZE - 1) >> BUCKET_SHIFT;
+        bucketIds = new int[bucketsX * bucketsY][];
+        bucketSizes = new int[bucketsX * bucketsY];
+    }
+
+    /**
+     * Adds a building, which must not overlap any building already in the index.
+     */
+    void add(Building building) {
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            id = nextId++;
+            if (id == buildings.length) {
+                buildings = Arrays.copyOf(buildings, buildings.length * 2);
+            }
+        }
+        buildings[id] = building;
+        building.setId(id);
+        size++;
+
+        setTiles(building, id + 1);
+        int bucket = getBucket(building.getX(), building.getY());
+        var ids = bucketIds[bucket];
+        if (ids == null) {
+            ids = new int[4];
+            bucketIds[bucket] = ids;
+        } else if (bucketSizes[bucket] == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+            bucketIds[bucket] = ids;
+        }
+        ids[bucketSizes[bucket]++] = id;
+    }
+
+    /**
+     * Removes a building which is in the index.
+     */
+    void remove(Building building) {
+        int id = building.getId();
+        setTiles(building, 0);
+
+        // Buckets are unordered, so the last ID can be moved into the removed one's place.
+        int bucket = getBucket(building.getX(), building.getY());
+        var ids = bucketIds[bucket];
+        for (int i = 0; i < bucketSizes[bucket]; i++) {
+            if (ids[i] == id) {
+                ids[i] = ids[--bucketSizes[bucket]];
+                break;
+            }
+        }
+
+        buildings[id] = null;
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+        }
+        freeIds[freeCount++] = id;
+        size--;
+    }
+
+    /**
+     * Removes every building.
+     */
+    void clear() {
+        Arrays.fill(tileChunks, null);
+        Arrays.fill(bucketIds, null);
+        Arrays.fill(bucketSizes, 0);
+        Arrays.fill(buildings, 0, nextId, null);
+        freeCount = 0;
+        nextId = 0;
+        size = 0;
+    }
+
+    private void setTiles(Building building, int value) {
+        var type = building.getType();
+        for (int y = building.getY(); y < building.getY() + type.getHeight(); y++) {
+            for (int x = building.getX(); x < building.getX() + type.getWidth(); x++) {
+                int chunk = (y >> CHUNK_SHIFT) * chunksX + (x >> CHUNK_SHIFT);
+                if (tileChunks[chunk] == null) {
+                    tileChunks[chunk] = new int[CHUNK_SIZE * CHUNK_SIZE];
+                }
+                tileChunks[chunk][((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK)] = value;
+            }
+        }
+    }
+
+    /**
+     * @return the ID of the building on a tile inside the map, or -1 if there is none
+     */
+    private int getId(int x, int y) {
+        var chunk = tileChunks[(y >> CHUNK_SHIFT) * chunksX + (x >> CHUNK_SHIFT)];
+        return chunk != null ? chunk[((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK)] - 1 : -1;
+    }
+
+    private int getBucket(int x, int y) {
+        return (y >> BUCKET_SHIFT) * bucketsX + (x >> BUCKET_SHIFT);
+    }
+
+    /**
+     * Finds the building covering a tile. Runs in constant time.
+     *
+     * @param x the x coordinate in tiles
+     * @param y the y coordinate in tiles
+     * @return the {@link Building} covering the tile, or null if there is none or the tile is outside the map
+     */
+    public Building getBuildingAt(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return null;
+        }
+        int id = getId(x, y);
+        return id >= 0 ? buildings[id] : null;
+    }
+
+    /**
+     * Visits every building whose footprint overlaps a rectangle of tiles.
+     *
+     * @param x        the x coordinate of the bottom left tile of the rectangle
+     * @param y        the y coordinate of the bottom left tile of the rectangle
+     * @param width    the width of the rectangle in tiles
+     * @param height   the height of the rectangle in tiles
+     * @param type     the building type to visit, or null for every type
+     * @param consumer the consumer to call with each building
+     * @return the number of buildings visited
+     */
+    public int forEachInRect(int x, int y, int width, int height, BuildingType type, Consumer<Building> consumer) {
+        // A building can overlap the rectangle even if its bottom left tile is below or to the left of it.
+        int minBucketX = Math.max((x - maxBuildingWidth + 1) >> BUCKET_SHIFT, 0);
+        int minBucketY = Math.max((y - maxBuildingHeight + 1) >> BUCKET_SHIFT, 0);
+        int maxBucketX = Math.min((x + width - 1) >> BUCKET_SHIFT, bucketsX - 1);
+        int maxBucketY = Math.min((y + height - 1) >> BUCKET_SHIFT, bucketsY - 1);
+
+        int count = 0;
+        for (int bucketY = minBucketY; bucketY <= maxBucketY; bucketY++) {
+            for (int bucketX = minBucketX; bucketX <= maxBucketX; bucketX++) {
+                int bucket = bucketY * bucketsX + bucketX;
+                var ids = bucketIds[bucket];
+                for (int i = 0; i < bucketSizes[bucket]; i++) {
+                    var building = buildings[ids[i]];
+                    var buildingType = building.getType();
+                    if ((type == null || buildingType == type)
+                            && building.getX() < x + width && building.getX() + buildingType.getWidth() > x
+                            && building.getY() < y + height && building.getY() + buildingType.getHeight() > y) {
+                        if (consumer != null) {
+                            consumer.accept(building);
+                        }
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the buildings whose footprint overlaps a rectangle of tiles.
+     *
+     * @see #forEachInRect
+     */
+    public int countInRect(int x, int y, int width, int height, BuildingType type) {
+        return forEachInRect(x, y, width, height, type, null);
+    }
+
+    /**
+     * Visits every building whose centre is within a radius of a point.
+     *
+     * @param centreX  the x coordinate of the point in tiles
+     * @param centreY  the y coordinate of the point in tiles
+     * @param radius   the radius in tiles
+     * @param type     the building type to visit, or null for every type
+     * @param consumer the consumer to call with each building
+     * @return the number of buildings visited
+     */
+    public int forEachInRadius(float centreX, float centreY, float radius, BuildingType type,
+                               Consumer<Building> consumer) {
+        int minBucketX = Math.max((int) Math.floor(centreX - radius - maxBuildingWidth) >> BUCKET_SHIFT, 0);
+        int minBucketY = Math.max((int) Math.floor(centreY - radius - maxBuildingHeight) >> BUCKET_SHIFT, 0);
+        int maxBucketX = Math.min((int) Math.floor(centreX + radius) >> BUCKET_SHIFT, bucketsX - 1);
+        int maxBucketY = Math.min((int) Math.floor(centreY + radius) >> BUCKET_SHIFT, bucketsY - 1);
+
+        float radiusSquared = radius * radius;
+        int count = 0;
+        for (int bucketY = minBucketY; bucketY <= maxBucketY; bucketY++) {
+            for (int bucketX = minBucketX; bucketX <= maxBucketX; bucketX++) {
+                int bucket = bucketY * bucketsX + bucketX;
+                var ids = bucketIds[bucket];
+                for (int i = 0; i < bucketSizes[bucket]; i++) {
+                    var building = buildings[ids[i]];
+                    if ((type == null || building.getType() == type)
+                            && distanceSquared(building, centreX, centreY) <= radiusSquared) {
+                        if (consumer != null) {
+                            consumer.accept(building);
+                        }
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the buildings whose centre is within a radius of a point.
+     *
+     * @see #forEachInRadius
+     */
+    public int countInRadius(float centreX, float centreY, float radius, BuildingType type) {
+        return forEachInRadius(centreX, centreY, radius, type, null);
+    }
+
+    /**
+     * Finds the buildings whose centres are nearest to a point, searching outwards a ring of buckets at a time until
+     * no unsearched bucket could hold a nearer building. Doesn't allocate, so it can be called on hot paths, but it
+     * reuses scratch space so must not be called from several threads at once.
+     *
+     * @param centreX the x coordinate of the point in tiles
+     * @param centreY the y coordinate of the point in tiles
+     * @param type    the building type to find, or null for every type
+     * @param nearest an array to fill with the nearest buildings, nearest first, whose length is the number to find
+     * @return the number of buildings found, which is less than the length of the array if there aren't enough
+     */
+    public int findNearest(float centreX, float centreY, BuildingType type, Building[] nearest) {
+        int k = nearest.length;
+        if (k == 0) {
+            return 0;
+        }
+        if (nearestDistances.length < k) {
+            nearestDistances = new float[k];
+        }
+        var distances = nearestDistances;
+        int found = 0;
+
+        int startX = Math.min(Math.max((int) Math.floor(centreX) >> BUCKET_SHIFT, 0), bucketsX - 1);
+        int startY = Math.min(Math.max((int) Math.floor(centreY) >> BUCKET_SHIFT, 0), bucketsY - 1);
+        int maxRing = Math.max(Math.max(startX, bucketsX - 1 - startX), Math.max(startY, bucketsY - 1 - startY));
+        float maxOffset = Math.max(maxBuildingWidth, maxBuildingHeight) / 2.0f;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Every building in this ring has its bottom left tile at least ring - 1 buckets away from the point, and
+            // its centre can only be closer than that by half of the largest building.
+            float bound = Math.max((ring - 1) * BUCKET_SIZE - maxOffset, 0.0f);
+            if (found == k && bound * bound > distances[k - 1]) {
+                break;
+            }
+            for (int bucketY = startY - ring; bucketY <= startY + ring; bucketY++) {
+                if (bucketY < 0 || bucketY >= bucketsY) {
+                    continue;
+                }
+                boolean edgeRow = bucketY == startY - ring || bucketY == startY + ring;
+                int step = edgeRow || ring == 0 ? 1 : 2 * ring;
+                for (int bucketX = startX - ring; bucketX <= startX + ring; bucketX += step) {
+                    if (bucketX < 0 || bucketX >= bucketsX) {
+                        continue;
+                    }
+                    int bucket = bucketY * bucketsX + bucketX;
+                    var ids = bucketIds[bucket];
+                    for (int i = 0; i < bucketSizes[bucket]; i++) {
+                        var building = buildings[ids[i]];
+                        if (type != null && building.getType() != type) {
+                            continue;
+                        }
+                        float distance = distanceSquared(building, centreX, centreY);
+                        if (found == k && distance >= distances[k - 1]) {
+                            continue;
+                        }
+
+                        // Insert into the sorted list of the nearest buildings so far.
+                        int position = found < k ? found++ : k - 1;
+                        while (position > 0 && distances[position - 1] > distance) {
+                            distances[position] = distances[position - 1];
+                            nearest[position] = nearest[position - 1];
+                            position--;
+                        }
+                        distances[position] = distance;
+                        nearest[position] = building;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private static float distanceSquared(Building building, float x, float y) {
+        float dx = building.getX() + building.getType().getWidth() / 2.0f - x;
+        float dy = building.getY() + building.getType().getHeight() / 2.0f - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * @return one more than the highest ID any building in the index has had, for sizing arrays indexed by ID
+     */
+    int getIdCapacity() {
+        return nextId;
+    }
+
+    /**
+     * @return the number of buildings in the index
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.uoyteamsix.sim;
+
+/**
+ * A class which represents the simulation-side information about a building type, independent of how it is rendered.
+ */
+public class BuildingType {
+    private final int id;
+    private final String name;
+    private final int width;
+    private final int height;
+
+    /**
+     * Creates a new building type.
+     *
+     * @param id     a dense identifier for this type, equal to its index in the map's list of building types
+     * @param name   the name of the building
+     * @param width  the width of the building in tiles
+     * @param height the height of the building in tiles
+     */
+    public BuildingType(int id, String name, int width, int height) {
+        this.id = id;
+        this.name = name;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * @return the dense identifier of this building type, suitable for indexing arrays
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the name of the building
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the width of the building in tiles
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the building in tiles
+     */
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.uoyteamsix.sim;
+
+/**
+ * A queue of the rectangles of tiles covered by buildings placed or removed since the {@link DistanceField}s built
+ * from a map were last updated. Past a certain number of changes, repairing the fields would be slower than
+ * rebuilding them, so the changes are dropped and the queue only remembers that a rebuild is needed.
+ */
+class ChangeQueue {
+    private final int capacity;
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] widths;
+    private final int[] heights;
+    private int count;
+
+    // Starts off true, as the fields haven't been built yet.
+    private boolean rebuildNeeded = true;
+
+    /**
+     * @param capacity the most changes which are repaired rather than rebuilt
+     */
+    ChangeQueue(int capacity) {
+        this.capacity = capacity;
+        xs = new int[capacity];
+        ys = new int[capacity];
+        widths = new int[capacity];
+        heights = new int[capacity];
+    }
+
+    /**
+     * Adds the footprint of a placed or removed building to the queue.
+     *
+     * @param building the building
+     */
+    void add(Building building) {
+        if (rebuildNeeded) {
+            return;
+        }
+        if (count == capacity) {
+            rebuildNeeded = true;
+            count = 0;
+            return;
+        }
+        xs[count] = building.getX();
+        ys[count] = building.getY();
+        widths[count] = building.getType().getWidth();
+        heights[count] = building.getType().getHeight();
+        count++;
+    }
+
+    /**
+     * Brings a field up to date with the queued changes, either by repairing or rebuilding it. The queue should be
+     * cleared once every field has been updated.
+     *
+     * @param field the field
+     */
+    void applyTo(DistanceField field) {
+        if (rebuildNeeded) {
+            field.rebuild();
+        } else if (count > 0) {
+            field.update(count, xs, ys, widths, heights);
+        }
+    }
+
+    /**
+     * Empties the queue, once every field has been updated.
+     */
+    void clear() {
+        count = 0;
+        rebuildNeeded = false;
+    }
+
+    /**
+     * @return true if there were too many changes to repair, so every field needs rebuilding
+     */
+    boolean isRebuildNeeded() {
+        return rebuildNeeded;
+    }
+
+    /**
+     * @return the number of queued changes, which is 0 if a rebuild is needed
+     */
+    int getCount() {
+        return count;
+    }
+
+    int getX(int index) {
+        return xs[index];
+    }
+
+    int getY(int index) {
+        return ys[index];
+    }
+
+    int getWidth(int index) {
+        return widths[index];
+    }
+
+    int getHeight(int index) {
+        return heights[index];
+    }
+}
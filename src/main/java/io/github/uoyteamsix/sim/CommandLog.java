@@ -0,0 +1,210 @@
+package io.github.uoyteamsix.sim;
+
+/**
+ * A class which records building placements as small fixed size commands in a bounded ring buffer, so they can be
+ * undone and redone. Each command only stores the type and position of a building, and the commands of a single
+ * placement or batch are grouped into one step, which is undone or redone as a whole. Memory never grows with the
+ * length of the session, as the oldest steps are forgotten once the log is full.
+ * <p>
+ * The log doesn't change the map itself, but applies its commands to a {@link Target}, so the same log works both
+ * headlessly and in the game, where the tiles of each building also need updating.
+ */
+public class CommandLog {
+    /**
+     * Something which commands can be applied to.
+     */
+    public interface Target {
+        /**
+         * Places a building without checking for validity of placement.
+         *
+         * @param typeId the building type ID
+         * @param x      the x coordinate in tiles
+         * @param y      the y coordinate in tiles
+         * @return the placed {@link Building}
+         */
+        Building placeBuilding(int typeId, int x, int y);
+
+        /**
+         * Removes a previously placed building.
+         *
+         * @param building the building to remove
+         * @return true if the building was on the map and has been removed, false otherwise
+         */
+        boolean removeBuilding(Building building);
+    }
+
+    private final int capacity;
+
+    // Commands as parallel arrays, indexed from start and wrapping around.
+    private final int[] typeIds;
+    private final int[] xs;
+    private final int[] ys;
+    private final boolean[] stepStarts;
+
+    // The building placed by each applied command, so it can be removed again. Cleared once undone.
+    private final Building[] buildings;
+
+    private int start;
+    private int size;
+    // The number of commands from the start which are currently applied. Any after them can be redone.
+    private int applied;
+
+    /**
+     * @param capacity the most commands to keep, which is also the largest step which can be undone
+     */
+    public CommandLog(int capacity) {
+        this.capacity = capacity;
+        typeIds = new int[capacity];
+        xs = new int[capacity];
+        ys = new int[capacity];
+        stepStarts = new boolean[capacity];
+        buildings = new Building[capacity];
+    }
+
+    private int index(int command) {
+        int index = start + command;
+        return index < capacity ? index : index - capacity;
+    }
+
+    /**
+     * Records a single building placement as its own step.
+     *
+     * @param building the placed building
+     */
+    public void record(Building building) {
+        record(new Building[]{building});
+    }
+
+    /**
+     * Records buildings which were placed together, e.g. by a drag, as a single step. Any undone steps can no longer be
+     * redone. A step which is larger than the whole log can't be undone, so the log is cleared instead.
+     *
+     * @param placed the placed buildings, in the order they were placed
+     */
+    public void record(Building[] placed) {
+        if (placed.length == 0) {
+            return;
+        }
+        discardRedo();
+        if (placed.length > capacity) {
+            clear();
+            return;
+        }
+
+        // Forget the oldest steps until there is room.
+        while (size + placed.length > capacity) {
+            do {
+                buildings[start] = null;
+                start = index(1);
+                size--;
+                applied--;
+            } while (size > 0 && !stepStarts[start]);
+        }
+
+        for (int i = 0; i < placed.length; i++) {
+            int index = index(size);
+            typeIds[index] = placed[i].getType().getId();
+            xs[index] = placed[i].getX();
+            ys[index] = placed[i].getY();
+            stepStarts[index] = i == 0;
+            buildings[index] = placed[i];
+            size++;
+        }
+        applied = size;
+    }
+
+    private void discardRedo() {
+        for (int i = applied; i < size; i++) {
+            buildings[index(i)] = null;
+        }
+        size = applied;
+    }
+
+    /**
+     * Undoes the most recent step by removing its buildings in the reverse order they were placed.
+     *
+     * @param target the target to apply the step to
+     * @return the buildings which were removed, or an empty array if there was nothing to undo
+     */
+    public Building[] undo(Target target) {
+        int count = getUndoSize();
+        var removed = new Building[count];
+        for (int i = 0; i < count; i++) {
+            int index = index(applied - 1);
+            removed[i] = buildings[index];
+            target.removeBuilding(buildings[index]);
+            buildings[index] = null;
+            applied--;
+        }
+        return removed;
+    }
+
+    /**
+     * Redoes the most recently undone step by placing its buildings again in their original order.
+     *
+     * @param target the target to apply the step to
+     * @return the buildings which were placed, or an empty array if there was nothing to redo
+     */
+    public Building[] redo(Target target) {
+        int count = getRedoSize();
+        var placed = new Building[count];
+        for (int i = 0; i < count; i++) {
+            int index = index(applied);
+            placed[i] = target.placeBuilding(typeIds[index], xs[index], ys[index]);
+            buildings[index] = placed[i];
+            applied++;
+        }
+        return placed;
+    }
+
+    /**
+     * @return the number of buildings the next undo would remove, or 0 if there is nothing to undo
+     */
+    public int getUndoSize() {
+        int first = applied - 1;
+        while (first > 0 && !stepStarts[index(first)]) {
+            first--;
+        }
+        return applied - Math.max(first, 0);
+    }
+
+    /**
+     * @return the number of buildings the next redo would place, or 0 if there is nothing to redo
+     */
+    public int getRedoSize() {
+        if (applied == size) {
+            return 0;
+        }
+        int end = applied + 1;
+        while (end < size && !stepStarts[index(end)]) {
+            end++;
+        }
+        return end - applied;
+    }
+
+    /**
+     * Forgets every step, e.g. when the map is replaced by a save.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            buildings[index(i)] = null;
+        }
+        start = 0;
+        size = 0;
+        applied = 0;
+    }
+
+    /**
+     * @return the number of commands in the log, including undone ones
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the most commands the log can hold
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,313 @@
+package io.github.uoyteamsix.sim;
+
+import java.util.Arrays;
+
+/**
+ * A class which holds the walking distance from every tile to the nearest building of one type, found by a
+ * multi-source breadth-first search from every tile of those buildings across the tiles which can be walked on, i.e.
+ * the usable tiles not covered by a building. Distances are only tracked up to a maximum, beyond which every tile is
+ * treated as being too far away, so a change to the map only affects the tiles within that distance of it.
+ * <p>
+ * Rather than searching the whole map again when buildings are placed or removed, only the changed area is repaired.
+ * Tiles whose shortest path relied on the changed tiles are found and cleared level by level, and then the cleared
+ * tiles and any tiles which can now be reached more quickly are filled in again from their neighbours. Both steps use
+ * a queue bucketed by distance, as every step costs the same.
+ */
+public class DistanceField {
+    /**
+     * The distance of tiles which are further than the maximum distance, or can't be walked on.
+     */
+    public static final int UNREACHABLE = Short.MAX_VALUE;
+
+    private static final int[] NEIGHBOUR_XS = {-1, 1, 0, 0};
+    private static final int[] NEIGHBOUR_YS = {0, 0, -1, 1};
+
+    private final SimulationMap map;
+    private final BuildingType type;
+    private final int width;
+    private final int height;
+    private final int maxDistance;
+    private final short[] distances;
+
+    // Queue of tiles bucketed by distance, reused between updates.
+    private final int[][] buckets;
+    private final int[] bucketSizes;
+
+    // Tiles cleared by the current update, which need filling in again.
+    private int[] clearedTiles = new int[64];
+    private int clearedCount;
+
+    /**
+     * Creates a distance field and computes the initial distances.
+     *
+     * @param map         the map
+     * @param type        the building type to measure the distance to
+     * @param maxDistance the furthest distance to track in tiles, which must be less than {@link #UNREACHABLE}
+     */
+    public DistanceField(SimulationMap map, BuildingType type, int maxDistance) {
+        this.map = map;
+        this.type = type;
+        this.maxDistance = maxDistance;
+        width = map.getWidth();
+        height = map.getHeight();
+        distances = new short[width * height];
+        buckets = new int[maxDistance + 2][16];
+        bucketSizes = new int[maxDistance + 2];
+        rebuild();
+    }
+
+    /**
+     * Recomputes every distance from scratch, e.g. after so many changes that repairing them would be slower.
+     */
+    public void rebuild() {
+        Arrays.fill(distances, (short) UNREACHABLE);
+        for (var building : map.getPlacedBuildings()) {
+            if (building.getType() != type) {
+                continue;
+            }
+            for (int y = building.getY(); y < building.getY() + type.getHeight(); y++) {
+                for (int x = building.getX(); x < building.getX() + type.getWidth(); x++) {
+                    distances[y * width + x] = 0;
+                    push(0, y * width + x);
+                }
+            }
+        }
+        propagate();
+    }
+
+    /**
+     * Repairs the distances after buildings have been placed or removed in the given rectangles of tiles. The map must
+     * already hold every change, and each rectangle should cover the footprint of a changed building.
+     *
+     * @param count the number of rectangles
+     * @param xs    the x coordinate of the bottom left tile of each rectangle
+     * @param ys    the y coordinate of the bottom left tile of each rectangle
+     * @param ws    the width of each rectangle in tiles
+     * @param hs    the height of each rectangle in tiles
+     */
+    public void update(int count, int[] xs, int[] ys, int[] ws, int[] hs) {
+        // Clear the changed tiles and every tile whose distance came from them, in order of distance so that a tile is
+        // only checked once every tile closer than it is final.
+        clearedCount = 0;
+        for (int i = 0; i < count; i++) {
+            forEachTile(xs[i], ys[i], ws[i], hs[i], true);
+        }
+        for (int level = 0; level <= maxDistance; level++) {
+            for (int i = 0; i < bucketSizes[level]; i++) {
+                int tile = buckets[level][i];
+                if (distances[tile] != level || isSource(tile) || (isWalkable(tile) && hasSupport(tile, level))) {
+                    continue;
+                }
+                distances[tile] = (short) UNREACHABLE;
+                addCleared(tile);
+                int x = tile % width;
+                int y = tile / width;
+                pushIfLevel(x - 1, y, level + 1);
+                pushIfLevel(x + 1, y, level + 1);
+                pushIfLevel(x, y - 1, level + 1);
+                pushIfLevel(x, y + 1, level + 1);
+            }
+            bucketSizes[level] = 0;
+        }
+
+        // Fill in the changed and cleared tiles from their neighbours, then spread any shorter distances outwards.
+        for (int i = 0; i < count; i++) {
+            forEachTile(xs[i], ys[i], ws[i], hs[i], false);
+        }
+        for (int i = 0; i < clearedCount; i++) {
+            seed(clearedTiles[i]);
+        }
+        propagate();
+    }
+
+    private void forEachTile(int rectX, int rectY, int rectWidth, int rectHeight, boolean clear) {
+        int minX = Math.max(rectX, 0);
+        int minY = Math.max(rectY, 0);
+        int maxX = Math.min(rectX + rectWidth, width);
+        int maxY = Math.min(rectY + rectHeight, height);
+        for (int y = minY; y < maxY; y++) {
+            for (int x = minX; x < maxX; x++) {
+                int tile = y * width + x;
+                if (!clear) {
+                    seed(tile);
+                } else if (distances[tile] != UNREACHABLE) {
+                    push(distances[tile], tile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Works out the distance of a tile from its neighbours, and queues it to spread outwards if it has got shorter.
+     */
+    private void seed(int tile) {
+        int distance;
+        if (isSource(tile)) {
+            distance = 0;
+        } else if (isWalkable(tile)) {
+            int x = tile % width;
+            int y = tile / width;
+            distance = Math.min(Math.min(getDistance(x - 1, y), getDistance(x + 1, y)),
+                    Math.min(getDistance(x, y - 1), getDistance(x, y + 1))) + 1;
+        } else {
+            distances[tile] = (short) UNREACHABLE;
+            return;
+        }
+        if (distance <= maxDistance && distance < distances[tile]) {
+            distances[tile] = (short) distance;
+            push(distance, tile);
+        }
+    }
+
+    /**
+     * Spreads the queued distances outwards to every walkable tile they shorten.
+     */
+    private void propagate() {
+        for (int level = 0; level <= maxDistance; level++) {
+            for (int i = 0; i < bucketSizes[level]; i++) {
+                int tile = buckets[level][i];
+                if (distances[tile] != level || level == maxDistance) {
+                    continue;
+                }
+                int x = tile % width;
+                int y = tile / width;
+                relax(x - 1, y, level + 1);
+                relax(x + 1, y, level + 1);
+                relax(x, y - 1, level + 1);
+                relax(x, y + 1, level + 1);
+            }
+            bucketSizes[level] = 0;
+        }
+    }
+
+    private void relax(int x, int y, int distance) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return;
+        }
+        int tile = y * width + x;
+        if (distance < distances[tile] && map.isUsable(x, y)) {
+            distances[tile] = (short) distance;
+            push(distance, tile);
+        }
+    }
+
+    /**
+     * @return true if a neighbour of a tile is one step closer, so the tile's distance still holds
+     */
+    private boolean hasSupport(int tile, int level) {
+        int x = tile % width;
+        int y = tile / width;
+        return level > 0 && (getDistance(x - 1, y) == level - 1 || getDistance(x + 1, y) == level - 1
+                || getDistance(x, y - 1) == level - 1 || getDistance(x, y + 1) == level - 1);
+    }
+
+    private void pushIfLevel(int x, int y, int level) {
+        if (x >= 0 && y >= 0 && x < width && y < height && distances[y * width + x] == level) {
+            push(level, y * width + x);
+        }
+    }
+
+    private void push(int level, int tile) {
+        if (bucketSizes[level] == buckets[level].length) {
+            buckets[level] = Arrays.copyOf(buckets[level], buckets[level].length * 2);
+        }
+        buckets[level][bucketSizes[level]++] = tile;
+    }
+
+    private void addCleared(int tile) {
+        if (clearedCount == clearedTiles.length) {
+            clearedTiles = Arrays.copyOf(clearedTiles, clearedTiles.length * 2);
+        }
+        clearedTiles[clearedCount++] = tile;
+    }
+
+    private boolean isSource(int tile) {
+        var building = map.getBuildingAt(tile % width, tile / width);
+        return building != null && building.getType() == type;
+    }
+
+    private boolean isWalkable(int tile) {
+        return map.isUsable(tile % width, tile / width);
+    }
+
+    /**
+     * Gets the walking distance from a tile to the nearest building of this field's type. Tiles covered by one of
+     * those buildings have a distance of 0.
+     *
+     * @param x the x coordinate in tiles
+     * @param y the y coordinate in tiles
+     * @return the distance in tiles, or {@link #UNREACHABLE} if it is further than the maximum distance, the tile
+     * can't be walked on or it is outside the map
+     */
+    public int getDistance(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return UNREACHABLE;
+        }
+        int tile = y * width + x;
+        if (isSource(tile)) {
+            return 0;
+        }
+        return isWalkable(tile) ? distances[tile] : UNREACHABLE;
+    }
+
+    /**
+     * Gets the neighbouring tile to walk to from a tile to get one step closer to the nearest building of this field's
+     * type, which makes the field a flow field that can be shared by everyone walking there. Ties are broken in a fixed
+     * order, so everyone on the same tile takes the same path.
+     *
+     * @param x the x coordinate in tiles
+     * @param y the y coordinate in tiles
+     * @return the index {@code y * width + x} of the neighbouring tile, which has a distance of 0 if it is covered by
+     * one of the buildings, or -1 if no neighbour is closer than the maximum distance
+     */
+    public int getNextTile(int x, int y) {
+        int bestTile = -1;
+        int bestDistance = UNREACHABLE;
+        for (int i = 0; i < NEIGHBOUR_XS.length; i++) {
+            int neighbourX = x + NEIGHBOUR_XS[i];
+            int neighbourY = y + NEIGHBOUR_YS[i];
+            int distance = getDistance(neighbourX, neighbourY);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestTile = neighbourY * width + neighbourX;
+            }
+        }
+        return bestTile;
+    }
+
+    /**
+     * Gets the walking distance from the edge of a building to the nearest building of this field's type, i.e. one
+     * more than the shortest distance of any tile next to the building.
+     *
+     * @param building the building
+     * @return the distance in tiles, or {@link #UNREACHABLE} if it is further than the maximum distance
+     */
+    public int getDistance(Building building) {
+        int minX = building.getX();
+        int minY = building.getY();
+        int maxX = minX + building.getType().getWidth() - 1;
+        int maxY = minY + building.getType().getHeight() - 1;
+        int distance = UNREACHABLE;
+        for (int x = minX; x <= maxX; x++) {
+            distance = Math.min(distance, Math.min(getDistance(x, minY - 1), getDistance(x, maxY + 1)));
+        }
+        for (int y = minY; y <= maxY; y++) {
+            distance = Math.min(distance, Math.min(getDistance(minX - 1, y), getDistance(maxX + 1, y)));
+        }
+        return distance < maxDistance ? distance + 1 : UNREACHABLE;
+    }
+
+    /**
+     * @return the building type this field measures the distance to
+     */
+    public BuildingType getType() {
+        return type;
+    }
+
+    /**
+     * @return the furthest distance tracked in tiles
+     */
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.uoyteamsix.sim;
+
+/**
+ * The {@link DistanceField}s of a map, one for each building type which needs one, shared by everything which measures
+ * walking distances so that each field is only built and repaired once. Fields are created on first request, and
+ * changes to the map are queued up and applied to every field at once by {@link #update}.
+ * <p>
+ * Fields are only updated on the thread which changes the map, so they can be read from another thread whilst the
+ * map isn't changing, e.g. by a {@link StudentCrowd} step.
+ */
+class DistanceFields implements MapListener {
+    // Above this many queued changes, the fields are rebuilt rather than repaired.
+    private static final int MAX_REPAIRED_CHANGES = 64;
+
+    private final SimulationMap map;
+    private final int maxDistance;
+    private final ChangeQueue changes = new ChangeQueue(MAX_REPAIRED_CHANGES);
+
+    // Field of each building type, indexed by building type ID, or null if it hasn't been requested.
+    private final DistanceField[] fields;
+
+    /**
+     * @param map the map
+     */
+    DistanceFields(SimulationMap map) {
+        this.map = map;
+        // Nobody needs to walk further than across the map.
+        maxDistance = Math.min(map.getWidth() + map.getHeight(), DistanceField.UNREACHABLE - 1);
+        fields = new DistanceField[map.getBuildingTypes().size()];
+        map.addListener(this);
+    }
+
+    @Override
+    public void onBuildingPlaced(Building building) {
+        changes.add(building);
+    }
+
+    @Override
+    public void onBuildingRemoved(Building building) {
+        changes.add(building);
+    }
+
+    /**
+     * Gets the field of a building type, building it if it is the first request. Brings every field up to date, so
+     * must only be called on the thread which changes the map.
+     *
+     * @param type the building type
+     * @return the {@link DistanceField} to the nearest building of the type
+     */
+    DistanceField get(BuildingType type) {
+        // A new field is built from the map as it is now, so the other fields must be too.
+        update();
+        var field = fields[type.getId()];
+        if (field == null) {
+            field = new DistanceField(map, type, maxDistance);
+            fields[type.getId()] = field;
+        }
+        return field;
+    }
+
+    /**
+     * Applies the changes queued since the last call to every field.
+     */
+    void update() {
+        if (changes.getCount() == 0 && !changes.isRebuildNeeded()) {
+            return;
+        }
+        for (var field : fields) {
+            if (field != null) {
+                changes.applyTo(field);
+            }
+        }
+        changes.clear();
+    }
+}
@@ -0,0 +1,212 @@
+package io.github.uoyteamsix.sim;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A priority queue of events keyed on simulation time, for discrete-event simulation. Every subject, e.g. a student,
+ * has at most one pending event, so the subjects' columns serve as a pool of event records and the queue itself is a
+ * binary heap of primitive keys, each packing an event's time with its subject. Nothing is allocated per event, and the
+ * position of each subject in the heap is tracked so that its event can be rescheduled or cancelled.
+ * <p>
+ * Events at the same time are ordered by subject, so the order they are taken in never depends on the order they were
+ * scheduled in, and is unchanged by {@link #remapSubjects} as long as the subjects keep their relative order.
+ */
+final class EventQueue {
+    private static final int SUBJECT_BITS = 24;
+    private static final long SUBJECT_MASK = (1L << SUBJECT_BITS) - 1;
+
+    /**
+     * The most subjects a queue can have.
+     */
+    static final int MAX_SUBJECTS = 1 << SUBJECT_BITS;
+
+    /**
+     * The latest time an event can be scheduled at.
+     */
+    static final long MAX_TIME = Long.MAX_VALUE >>> SUBJECT_BITS;
+
+    private long[] heap = new long[64];
+    private int size;
+
+    // Index of each subject's event in the heap, or -1 if it doesn't have one.
+    private int[] positions = new int[0];
+
+    /**
+     * Schedules an event for a subject, replacing any event it already has.
+     *
+     * @param subject the subject, from 0 to {@link #MAX_SUBJECTS}
+     * @param time    the time of the event, from 0 to {@link #MAX_TIME}
+     */
+    void schedule(int subject, long time) {
+        if (subject < 0 || subject >= MAX_SUBJECTS) {
+            throw new IllegalArgumentException("Subject " + subject + " is out of range");
+        }
+        if (time < 0 || time > MAX_TIME) {
+            throw new IllegalArgumentException("Time " + time + " is out of range");
+        }
+        ensureSubjectCapacity(subject + 1);
+        long key = (time << SUBJECT_BITS) | subject;
+        int position = positions[subject];
+        if (position >= 0) {
+            // The key only ever moves one way, so one of these is a no-op.
+            heap[position] = key;
+            siftUp(position);
+            siftDown(positions[subject]);
+            return;
+        }
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        heap[size] = key;
+        positions[subject] = size;
+        size++;
+        siftUp(size - 1);
+    }
+
+    /**
+     * Cancels a subject's event, if it has one.
+     *
+     * @param subject the subject
+     */
+    void cancel(int subject) {
+        int position = subject < positions.length ? positions[subject] : -1;
+        if (position < 0) {
+            return;
+        }
+        positions[subject] = -1;
+        size--;
+        if (position == size) {
+            return;
+        }
+        heap[position] = heap[size];
+        positions[getSubject(heap[position])] = position;
+        siftUp(position);
+        siftDown(positions[getSubject(heap[position])]);
+    }
+
+    /**
+     * @return the time of the earliest event, or {@link Long#MAX_VALUE} if there are no events
+     */
+    long peekTime() {
+        return size > 0 ? heap[0] >>> SUBJECT_BITS : Long.MAX_VALUE;
+    }
+
+    /**
+     * Removes the earliest event. Its time can be found with {@link #peekTime} beforehand.
+     *
+     * @return the subject of the event
+     */
+    int poll() {
+        int subject = getSubject(heap[0]);
+        cancel(subject);
+        return subject;
+    }
+
+    /**
+     * @param subject the subject, which must have an event
+     * @return the time of the subject's event
+     */
+    long getTime(int subject) {
+        return heap[positions[subject]] >>> SUBJECT_BITS;
+    }
+
+    /**
+     * Renumbers the subjects, e.g. after some have been removed from a list and the rest have moved down, and cancels
+     * the events of any which have gone.
+     *
+     * @param newSubjects  gives the new number of each subject, or -1 if it has gone, which must keep the subjects in
+     *                     the same relative order
+     * @param subjectCount the number of subjects before renumbering
+     */
+    void remapSubjects(IntUnaryOperator newSubjects, int subjectCount) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int subject = getSubject(heap[i]);
+            int newSubject = subject < subjectCount ? newSubjects.applyAsInt(subject) : subject;
+            if (newSubject >= 0) {
+                heap[kept++] = (heap[i] & ~SUBJECT_MASK) | newSubject;
+            }
+        }
+        size = kept;
+
+        // Dropping events breaks the heap, so it is rebuilt. Only the remaining subjects have positions.
+        Arrays.fill(positions, -1);
+        for (int i = 0; i < size; i++) {
+            positions[getSubject(heap[i])] = i;
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * Cancels every event.
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[getSubject(heap[i])] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * @return the number of events
+     */
+    int size() {
+        return size;
+    }
+
+    private void ensureSubjectCapacity(int capacity) {
+        if (capacity <= positions.length) {
+            return;
+        }
+        int previousLength = positions.length;
+        positions = Arrays.copyOf(positions, Math.max(capacity, previousLength * 2));
+        Arrays.fill(positions, previousLength, positions.length, -1);
+    }
+
+    private static int getSubject(long key) {
+        return (int) (key & SUBJECT_MASK);
+    }
+
+    private void siftUp(int position) {
+        long key = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (heap[parent] <= key) {
+                break;
+            }
+            move(parent, position);
+            position = parent;
+        }
+        place(key, position);
+    }
+
+    private void siftDown(int position) {
+        long key = heap[position];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (key <= heap[child]) {
+                break;
+            }
+            move(child, position);
+            position = child;
+        }
+        place(key, position);
+    }
+
+    private void move(int from, int to) {
+        heap[to] = heap[from];
+        positions[getSubject(heap[to])] = to;
+    }
+
+    private void place(long key, int position) {
+        heap[position] = key;
+        positions[getSubject(key)] = position;
+    }
+}
@@ -0,0 +1,78 @@
+package io.github.uoyteamsix.sim;
+
+/**
+ * A class which converts variable frame times into a whole number of fixed length simulation ticks, so that the
+ * simulation gives the same results regardless of the frame rate. Leftover time is carried over to the next frame, and
+ * the number of ticks run in a single frame is capped so a long frame (e.g. while loading) can't stall the game.
+ */
+public class FixedTimestep {
+    private final float tickTime;
+    private final int maxTicksPerFrame;
+    private float accumulator;
+    private long tickCount;
+
+    /**
+     * Creates a new fixed timestep.
+     *
+     * @param tickRate         the number of ticks per second of simulation time
+     * @param maxTicksPerFrame the maximum number of ticks to run in a single frame before dropping time
+     */
+    public FixedTimestep(int tickRate, int maxTicksPerFrame) {
+        if (tickRate <= 0 || maxTicksPerFrame <= 0) {
+            throw new IllegalArgumentException("Tick rate and maximum ticks per frame must be positive");
+        }
+        tickTime = 1.0f / tickRate;
+        this.maxTicksPerFrame = maxTicksPerFrame;
+    }
+
+    /**
+     * Accumulates the given frame time and works out how many ticks should be run this frame.
+     *
+     * @param deltaTime the frame time in seconds
+     * @return the number of ticks to run
+     */
+    public int advance(float deltaTime) {
+        accumulator += Math.max(deltaTime, 0.0f);
+        int ticks = (int) (accumulator / tickTime);
+        if (ticks > maxTicksPerFrame) {
+            // Too far behind to catch up. Drop the excess time rather than spending ever longer simulating.
+            ticks = maxTicksPerFrame;
+            accumulator = tickTime * ticks;
+        }
+        accumulator -= tickTime * ticks;
+        accumulator = Math.max(accumulator, 0.0f);
+        tickCount += ticks;
+        return ticks;
+    }
+
+    /**
+     * @return how far between the previous and next tick the current frame is, between 0 and 1
+     */
+    public float getAlpha() {
+        return Math.min(accumulator / tickTime, 1.0f);
+    }
+
+    /**
+     * @return the length of a single tick in seconds
+     */
+    public float getTickTime() {
+        return tickTime;
+    }
+
+    /**
+     * Sets the number of ticks run so far and discards any leftover time, e.g. when a saved game is loaded.
+     *
+     * @param tickCount the number of ticks
+     */
+    public void setTickCount(long tickCount) {
+        this.tickCount = tickCount;
+        accumulator = 0.0f;
+    }
+
+    /**
+     * @return the total number of ticks run so far
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+}
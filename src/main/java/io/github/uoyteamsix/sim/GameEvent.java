@@ -1,4 +1,4 @@
-package io.github.uoyteamsix;
+package io.github.uoyteamsix.sim;
 
 public enum GameEvent {
     NONE,
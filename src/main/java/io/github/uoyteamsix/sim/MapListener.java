@@ -0,0 +1,24 @@
+package io.github.uoyteamsix.sim;
+
+/**
+ * A listener which is notified when buildings are placed on or removed from a {@link SimulationMap}. Methods are
+ * called after the map has been updated, and do nothing by default so listeners only need to implement the changes
+ * they are interested in.
+ */
+public interface MapListener {
+    /**
+     * Called after a building has been placed.
+     *
+     * @param building the placed building
+     */
+    default void onBuildingPlaced(Building building) {
+    }
+
+    /**
+     * Called after a building has been removed.
+     *
+     * @param building the removed building
+     */
+    default void onBuildingRemoved(Building building) {
+    }
+}
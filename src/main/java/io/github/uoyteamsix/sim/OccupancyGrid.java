@@ -0,0 +1,233 @@
+package io.github.uoyteamsix.sim;
+
+/**
+ * A class which records which tiles of the map are blocked. Tiles are stored as a bit-packed, row-major bitmap. The map
+ * is split into square chunks, each with its own summed-area table, so checking whether a rectangle is completely free
+ * only costs a constant amount of work per chunk it overlaps, and blocking or freeing a rectangle only rebuilds the
+ * tables of the chunks it overlaps, however large the map is.
+ */
+public class OccupancyGrid {
+    public static final int CHUNK_SIZE = 64;
+
+    // Number of entries in each chunk's summed-area table, which has a zero border.
+    private static final int SUMS_STRIDE = CHUNK_SIZE + 1;
+    private static final int SUMS_PER_CHUNK = SUMS_STRIDE * SUMS_STRIDE;
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final int chunkCountX;
+
+    // One bit per tile, set if the tile is blocked. Row y starts at word y * wordsPerRow.
+    private final long[] blockedBits;
+
+    // Summed-area table of blocked tiles of each chunk, so entry (x, y) of a chunk holds the number of blocked tiles in
+    // the rectangle [0, x) * [0, y) relative to the chunk's bottom left tile. Chunks never hold more than
+    // CHUNK_SIZE * CHUNK_SIZE blocked tiles, so the counts fit in shorts.
+    private final short[] chunkSums;
+
+    // Chunks touched by the current batch of rectangles, kept between batches so that a batch doesn't allocate, and
+    // the indices of the marked chunks, so that only those are visited and cleared.
+    private final boolean[] dirtyChunks;
+    private final int[] dirtyChunkList;
+
+    /**
+     * Creates an occupancy grid from an array of usable tiles.
+     *
+     * @param usableTiles a [width][height] array of which tiles are not blocked
+     */
+    public OccupancyGrid(boolean[][] usableTiles) {
+        width = usableTiles.length;
+        height = width > 0 ? usableTiles[0].length : 0;
+        wordsPerRow = (width + 63) >>> 6;
+        blockedBits = new long[wordsPerRow * height];
+        chunkCountX = (width + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int chunkCountY = (height + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        chunkSums = new short[chunkCountX * chunkCountY * SUMS_PER_CHUNK];
+        dirtyChunks = new boolean[chunkCountX * chunkCountY];
+        dirtyChunkList = new int[chunkCountX * chunkCountY];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (!usableTiles[x][y]) {
+                    blockedBits[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+                }
+            }
+        }
+        for (int chunkY = 0; chunkY < chunkCountY; chunkY++) {
+            for (int chunkX = 0; chunkX < chunkCountX; chunkX++) {
+                rebuildSums(chunkX, chunkY);
+            }
+        }
+    }
+
+    /**
+     * Recomputes the summed-area table of a chunk from the bitmap.
+     */
+    private void rebuildSums(int chunkX, int chunkY) {
+        int base = (chunkY * chunkCountX + chunkX) * SUMS_PER_CHUNK;
+        int startX = chunkX * CHUNK_SIZE;
+        int startY = chunkY * CHUNK_SIZE;
+        int endX = Math.min(startX + CHUNK_SIZE, width);
+        int endY = Math.min(startY + CHUNK_SIZE, height);
+        for (int y = startY; y < endY; y++) {
+            int rowSum = 0;
+            int row = base + (y - startY + 1) * SUMS_STRIDE;
+            for (int x = startX; x < endX; x++) {
+                if ((blockedBits[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0) {
+                    rowSum++;
+                }
+                chunkSums[row + x - startX + 1] = (short) (chunkSums[row - SUMS_STRIDE + x - startX + 1] + rowSum);
+            }
+        }
+    }
+
+    /**
+     * @return true if the given tile is inside the grid and blocked
+     */
+    public boolean isBlocked(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return false;
+        }
+        return (blockedBits[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Counts the number of blocked tiles in a rectangle, in constant time per chunk the rectangle overlaps. The
+     * rectangle must lie within the grid.
+     *
+     * @param x      the x coordinate of the bottom left tile
+     * @param y      the y coordinate of the bottom left tile
+     * @param width  the width of the rectangle in tiles
+     * @param height the height of the rectangle in tiles
+     * @return the number of blocked tiles
+     */
+    public int countBlocked(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return 0;
+        }
+        int endX = x + width;
+        int endY = y + height;
+        int count = 0;
+        for (int chunkY = y / CHUNK_SIZE; chunkY <= (endY - 1) / CHUNK_SIZE; chunkY++) {
+            int chunkStartY = chunkY * CHUNK_SIZE;
+            int bottom = Math.max(y, chunkStartY) - chunkStartY;
+            int top = Math.min(endY, chunkStartY + CHUNK_SIZE) - chunkStartY;
+            for (int chunkX = x / CHUNK_SIZE; chunkX <= (endX - 1) / CHUNK_SIZE; chunkX++) {
+                int chunkStartX = chunkX * CHUNK_SIZE;
+                int left = Math.max(x, chunkStartX) - chunkStartX;
+                int right = Math.min(endX, chunkStartX + CHUNK_SIZE) - chunkStartX;
+                int base = (chunkY * chunkCountX + chunkX) * SUMS_PER_CHUNK;
+                int topRow = base + top * SUMS_STRIDE;
+                int bottomRow = base + bottom * SUMS_STRIDE;
+                count += chunkSums[topRow + right] - chunkSums[topRow + left]
+                        - chunkSums[bottomRow + right] + chunkSums[bottomRow + left];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether a rectangle lies completely within the grid and contains no blocked tiles. Runs in constant time
+     * per chunk the rectangle overlaps.
+     *
+     * @param x      the x coordinate of the bottom left tile
+     * @param y      the y coordinate of the bottom left tile
+     * @param width  the width of the rectangle in tiles
+     * @param height the height of the rectangle in tiles
+     * @return true if every tile of the rectangle is free
+     */
+    public boolean isFree(int x, int y, int width, int height) {
+        if (x < 0 || y < 0 || x + width > this.width || y + height > this.height) {
+            return false;
+        }
+        return countBlocked(x, y, width, height) == 0;
+    }
+
+    /**
+     * Marks every tile in a rectangle as blocked or free. The rectangle must lie within the grid. Only the summed-area
+     * tables of the chunks the rectangle overlaps are rebuilt.
+     *
+     * @param x       the x coordinate of the bottom left tile
+     * @param y       the y coordinate of the bottom left tile
+     * @param width   the width of the rectangle in tiles
+     * @param height  the height of the rectangle in tiles
+     * @param blocked whether the tiles should become blocked or free
+     */
+    public void setRect(int x, int y, int width, int height, boolean blocked) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        setBits(x, y, width, height, blocked);
+        for (int chunkY = y / CHUNK_SIZE; chunkY <= (y + height - 1) / CHUNK_SIZE; chunkY++) {
+            for (int chunkX = x / CHUNK_SIZE; chunkX <= (x + width - 1) / CHUNK_SIZE; chunkX++) {
+                rebuildSums(chunkX, chunkY);
+            }
+        }
+    }
+
+    /**
+     * Marks every tile of several rectangles as blocked or free, e.g. when many buildings are placed at once. Each
+     * chunk's summed-area table is rebuilt at most once, rather than once for every rectangle which overlaps it. The
+     * rectangles must lie within the grid.
+     *
+     * @param count   the number of rectangles
+     * @param xs      the x coordinate of the bottom left tile of each rectangle
+     * @param ys      the y coordinate of the bottom left tile of each rectangle
+     * @param widths  the width of each rectangle in tiles
+     * @param heights the height of each rectangle in tiles
+     * @param blocked whether the tiles should become blocked or free
+     */
+    public void setRects(int count, int[] xs, int[] ys, int[] widths, int[] heights, boolean blocked) {
+        int dirtyChunkCount = 0;
+        for (int i = 0; i < count; i++) {
+            int x = xs[i];
+            int y = ys[i];
+            if (widths[i] <= 0 || heights[i] <= 0) {
+                continue;
+            }
+            setBits(x, y, widths[i], heights[i], blocked);
+            for (int chunkY = y / CHUNK_SIZE; chunkY <= (y + heights[i] - 1) / CHUNK_SIZE; chunkY++) {
+                for (int chunkX = x / CHUNK_SIZE; chunkX <= (x + widths[i] - 1) / CHUNK_SIZE; chunkX++) {
+                    int chunk = chunkY * chunkCountX + chunkX;
+                    if (!dirtyChunks[chunk]) {
+                        dirtyChunks[chunk] = true;
+                        dirtyChunkList[dirtyChunkCount++] = chunk;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < dirtyChunkCount; i++) {
+            int chunk = dirtyChunkList[i];
+            rebuildSums(chunk % chunkCountX, chunk / chunkCountX);
+            dirtyChunks[chunk] = false;
+        }
+    }
+
+    private void setBits(int x, int y, int width, int height, boolean blocked) {
+        for (int row = y; row < y + height; row++) {
+            for (int column = x; column < x + width; column++) {
+                int index = row * wordsPerRow + (column >>> 6);
+                if (blocked) {
+                    blockedBits[index] |= 1L << column;
+                } else {
+                    blockedBits[index] &= ~(1L << column);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the width of the grid in tiles
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the grid in tiles
+     */
+    public int getHeight() {
+        return height;
+    }
+}
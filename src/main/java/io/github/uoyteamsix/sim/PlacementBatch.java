@@ -0,0 +1,148 @@
+package io.github.uoyteamsix.sim;
+
+import java.util.Arrays;
+
+/**
+ * A class which lays out a grid of slots for copies of a building type, e.g. when the player drags out a block of
+ * buildings, and records whether each slot could be placed. Slots are spaced by the size of the building, so they
+ * never overlap each other, and are validated together by {@link SimulationMap#validateBatch} and then placed in one
+ * go by {@link SimulationMap#placeBatch}. The arrays are reused between layouts so dragging doesn't allocate.
+ */
+public class PlacementBatch {
+    /**
+     * The outcome of validating a slot.
+     */
+    public enum SlotResult {
+        // The slot is free and will be or has been placed.
+        ACCEPTED,
+        // The slot overlaps a tile which can't be built on.
+        BLOCKED,
+        // The slot is free, but the player isn't allowed to place that many buildings.
+        OVER_ALLOWANCE,
+    }
+
+    private final int maxSlots;
+    private BuildingType type;
+    private int columns;
+    private int rows;
+    private int count;
+    private int[] xs = new int[16];
+    private int[] ys = new int[16];
+    private SlotResult[] results = new SlotResult[16];
+    private int acceptedCount;
+
+    /**
+     * @param maxSlots the most slots a single layout is allowed to have, to bound the cost of very long drags
+     */
+    public PlacementBatch(int maxSlots) {
+        this.maxSlots = maxSlots;
+    }
+
+    /**
+     * Lays out a grid of slots from a start anchor towards an end anchor, in whichever direction the end anchor lies.
+     * The start slot is always included, and as many more whole slots are added as fit before the end anchor, up to the
+     * maximum number of slots. Any previous results are cleared.
+     *
+     * @param type   the building type to place in every slot
+     * @param startX the x coordinate of the first slot's bottom left tile
+     * @param startY the y coordinate of the first slot's bottom left tile
+     * @param endX   the x coordinate of the tile the grid is dragged towards
+     * @param endY   the y coordinate of the tile the grid is dragged towards
+     */
+    public void layOut(BuildingType type, int startX, int startY, int endX, int endY) {
+        this.type = type;
+        int stepX = endX >= startX ? type.getWidth() : -type.getWidth();
+        int stepY = endY >= startY ? type.getHeight() : -type.getHeight();
+        columns = Math.min(Math.abs(endX - startX) / type.getWidth() + 1, maxSlots);
+        rows = Math.max(Math.min(Math.abs(endY - startY) / type.getHeight() + 1, maxSlots / columns), 1);
+
+        count = columns * rows;
+        if (count > xs.length) {
+            int capacity = Math.max(count, xs.length * 2);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            results = Arrays.copyOf(results, capacity);
+        }
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int i = row * columns + column;
+                xs[i] = startX + column * stepX;
+                ys[i] = startY + row * stepY;
+            }
+        }
+        Arrays.fill(results, 0, count, null);
+        acceptedCount = 0;
+    }
+
+    /**
+     * Records the outcome of validating a slot.
+     */
+    void setResult(int index, SlotResult result) {
+        if (results[index] == SlotResult.ACCEPTED) {
+            acceptedCount--;
+        }
+        results[index] = result;
+        if (result == SlotResult.ACCEPTED) {
+            acceptedCount++;
+        }
+    }
+
+    /**
+     * @return the building type placed in every slot, or null if nothing has been laid out yet
+     */
+    public BuildingType getType() {
+        return type;
+    }
+
+    /**
+     * @return the number of slots across
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of slots up
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of slots
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @param index the slot index
+     * @return the x coordinate of the slot's bottom left tile
+     */
+    public int getX(int index) {
+        return xs[index];
+    }
+
+    /**
+     * @param index the slot index
+     * @return the y coordinate of the slot's bottom left tile
+     */
+    public int getY(int index) {
+        return ys[index];
+    }
+
+    /**
+     * @param index the slot index
+     * @return the outcome of validating the slot, or null if the batch hasn't been validated since it was laid out
+     */
+    public SlotResult getResult(int index) {
+        return results[index];
+    }
+
+    /**
+     * @return the number of slots which were accepted by the last validation
+     */
+    public int getAcceptedCount() {
+        return acceptedCount;
+    }
+}
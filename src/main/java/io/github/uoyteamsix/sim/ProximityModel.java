@@ -0,0 +1,167 @@
+package io.github.uoyteamsix.sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A class which keeps track of how far students have to walk from each accommodation to the nearest canteen, study and
+ * recreation building, using the map's shared {@link DistanceFields}. The fields are only built on the first tick, and
+ * changes to the map are queued up and applied at the start of the next tick, so that many buildings placed at once,
+ * e.g. when loading a save, only cost one rebuild. Distances are cached for each accommodation and only recomputed for
+ * the accommodations near a change, so the average distance is cheap to read every tick.
+ */
+class ProximityModel implements MapListener {
+    // Above this many queued changes, every accommodation is recomputed rather than just the ones near a change.
+    private static final int MAX_REPAIRED_CHANGES = 64;
+
+    private final SimulationMap map;
+    private final BuildingType accommodationType;
+    private final BuildingType[] serviceTypes;
+    private DistanceField[] fields;
+    private final int maxDistance;
+
+    // Total distance to every field of each accommodation by building ID, capped at the maximum distance, or -1 if not
+    // yet computed or not an accommodation.
+    private int[] accommodationDistances = new int[0];
+    private int accommodationCount;
+    private final Consumer<Building> recompute = this::recompute;
+    private long totalDistance;
+
+    // Footprints of the buildings changed since the distances were last recomputed.
+    private final ChangeQueue changes = new ChangeQueue(MAX_REPAIRED_CHANGES);
+
+    /**
+     * @param map               the map
+     * @param accommodationType the building type students walk from, or null if the map doesn't have one
+     * @param serviceTypes      the building types students walk to, ignoring any which are null
+     * @param maxDistance       the furthest distance which makes a difference, in tiles
+     */
+    ProximityModel(SimulationMap map, BuildingType accommodationType, BuildingType[] serviceTypes, int maxDistance) {
+        this.map = map;
+        this.accommodationType = accommodationType;
+        this.maxDistance = maxDistance;
+        this.serviceTypes = serviceTypes;
+        ensureCapacity(map.getBuildingIndex().getIdCapacity());
+        for (var building : map.getPlacedBuildings()) {
+            if (building.getType() == accommodationType) {
+                accommodationCount++;
+            }
+        }
+        map.addListener(this);
+    }
+
+    private void ensureCapacity(int capacity) {
+        int oldLength = accommodationDistances.length;
+        if (capacity > oldLength) {
+            accommodationDistances = Arrays.copyOf(accommodationDistances, Math.max(oldLength * 2, capacity));
+            Arrays.fill(accommodationDistances, oldLength, accommodationDistances.length, -1);
+        }
+    }
+
+    @Override
+    public void onBuildingPlaced(Building building) {
+        changes.add(building);
+        if (building.getType() == accommodationType) {
+            int id = building.getId();
+            ensureCapacity(Math.max(id + 1, 64));
+            accommodationDistances[id] = -1;
+            accommodationCount++;
+        }
+    }
+
+    @Override
+    public void onBuildingRemoved(Building building) {
+        changes.add(building);
+        if (building.getType() == accommodationType) {
+            // The building keeps its ID after removal, and the ID can't have been reused until now.
+            int id = building.getId();
+            if (accommodationDistances[id] >= 0) {
+                totalDistance -= accommodationDistances[id];
+            }
+            accommodationDistances[id] = -1;
+            accommodationCount--;
+        }
+    }
+
+    /**
+     * Brings the distance fields up to date, and recomputes the distances of any accommodations which could have been
+     * affected by the changes since the last call.
+     */
+    void update() {
+        if (accommodationType == null) {
+            return;
+        }
+        if (fields == null) {
+            var fieldList = new ArrayList<DistanceField>();
+            for (var type : serviceTypes) {
+                if (type != null) {
+                    fieldList.add(map.getDistanceFields().get(type));
+                }
+            }
+            fields = fieldList.toArray(new DistanceField[0]);
+        } else {
+            map.getDistanceFields().update();
+        }
+        if (changes.isRebuildNeeded()) {
+            recomputeAll();
+            return;
+        }
+        if (changes.getCount() == 0) {
+            return;
+        }
+
+        // A distance can only change if its path went through a change, so only accommodations within the maximum
+        // distance of a change need recomputing. This includes any accommodations which have just been placed. The
+        // fields are already up to date, so each one can be recomputed as soon as it's found.
+        int margin = maxDistance + 1;
+        for (int i = 0; i < changes.getCount(); i++) {
+            map.getBuildingIndex().forEachInRect(changes.getX(i) - margin, changes.getY(i) - margin,
+                    changes.getWidth(i) + 2 * margin, changes.getHeight(i) + 2 * margin, accommodationType, recompute);
+        }
+        changes.clear();
+    }
+
+    private void recomputeAll() {
+        changes.clear();
+
+        totalDistance = 0;
+        Arrays.fill(accommodationDistances, -1);
+        for (var building : map.getPlacedBuildings()) {
+            if (building.getType() == accommodationType) {
+                recompute(building);
+            }
+        }
+    }
+
+    private void recompute(Building accommodation) {
+        int previous = accommodationDistances[accommodation.getId()];
+        int distance = 0;
+        for (var field : fields) {
+            distance += Math.min(field.getDistance(accommodation), maxDistance);
+        }
+        if (previous >= 0) {
+            totalDistance -= previous;
+        }
+        totalDistance += distance;
+        accommodationDistances[accommodation.getId()] = distance;
+    }
+
+    /**
+     * @return the average walking distance from an accommodation to the nearest building of each service type, capped
+     * at the maximum distance, or 0 if there are no accommodations
+     */
+    float getAverageDistance() {
+        if (accommodationCount == 0 || fields == null || fields.length == 0) {
+            return 0.0f;
+        }
+        return (float) totalDistance / ((long) accommodationCount * fields.length);
+    }
+
+    /**
+     * Stops listening to the map.
+     */
+    void detach() {
+        map.removeListener(this);
+    }
+}
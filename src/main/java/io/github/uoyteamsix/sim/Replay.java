@@ -0,0 +1,234 @@
+package io.github.uoyteamsix.sim;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A class which replays a session recorded by {@link ActionRecorder} headlessly, as fast as possible. Replaying the
+ * same recording always produces a bit-identical satisfaction trace.
+ */
+public class Replay {
+    private final long seed;
+    private final int tickRate;
+    private final boolean[][] usableTiles;
+    private final List<BuildingType> buildingTypes;
+
+    // Recorded actions as parallel arrays. The arguments are unused for actions which don't need them.
+    private final long[] actionTicks;
+    private final byte[] actionTypes;
+    private final int[] actionArgs0;
+    private final int[] actionArgs1;
+    private final int[] actionArgs2;
+
+    private Replay(long seed, int tickRate, boolean[][] usableTiles, List<BuildingType> buildingTypes,
+                   long[] actionTicks, byte[] actionTypes, int[] actionArgs0, int[] actionArgs1, int[] actionArgs2) {
+        this.seed = seed;
+        this.tickRate = tickRate;
+        this.usableTiles = usableTiles;
+        this.buildingTypes = buildingTypes;
+        this.actionTicks = actionTicks;
+        this.actionTypes = actionTypes;
+        this.actionArgs0 = actionArgs0;
+        this.actionArgs1 = actionArgs1;
+        this.actionArgs2 = actionArgs2;
+    }
+
+    /**
+     * Reads a recording.
+     *
+     * @param in the stream to read from
+     * @return a {@link Replay}
+     * @throws IOException if the recording can't be read or is not a valid recording
+     */
+    public static Replay read(InputStream in) throws IOException {
+        var data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != ActionRecorder.MAGIC) {
+            throw new IOException("Not a UniSim recording");
+        }
+        int version = data.readUnsignedByte();
+        // Version 1 recordings are the same, but can't contain removals.
+        if (version < 1 || version > ActionRecorder.VERSION) {
+            throw new IOException("Unsupported recording version " + version);
+        }
+        long seed = data.readLong();
+        int tickRate = (int) VarInt.readUnsigned(data);
+
+        // Read the usable tile bitmap.
+        int width = (int) VarInt.readUnsigned(data);
+        int height = (int) VarInt.readUnsigned(data);
+        var usableTiles = new boolean[width][height];
+        int bits = 0;
+        int bitCount = 8;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (bitCount == 8) {
+                    bits = data.readUnsignedByte();
+                    bitCount = 0;
+                }
+                usableTiles[x][y] = (bits & (1 << bitCount++)) != 0;
+            }
+        }
+
+        int typeCount = (int) VarInt.readUnsigned(data);
+        var buildingTypes = new ArrayList<BuildingType>(typeCount);
+        for (int i = 0; i < typeCount; i++) {
+            var name = data.readUTF();
+            int typeWidth = (int) VarInt.readUnsigned(data);
+            int typeHeight = (int) VarInt.readUnsigned(data);
+            buildingTypes.add(new BuildingType(i, name, typeWidth, typeHeight));
+        }
+
+        // Read actions until the end marker.
+        int capacity = 64;
+        var actionTicks = new long[capacity];
+        var actionTypes = new byte[capacity];
+        var actionArgs0 = new int[capacity];
+        var actionArgs1 = new int[capacity];
+        var actionArgs2 = new int[capacity];
+        int count = 0;
+        long tick = 0;
+        while (true) {
+            tick += VarInt.readUnsigned(data);
+            int type = data.readUnsignedByte();
+            if (type == ActionRecorder.ACTION_END) {
+                break;
+            }
+            if (count == capacity) {
+                capacity *= 2;
+                actionTicks = Arrays.copyOf(actionTicks, capacity);
+                actionTypes = Arrays.copyOf(actionTypes, capacity);
+                actionArgs0 = Arrays.copyOf(actionArgs0, capacity);
+                actionArgs1 = Arrays.copyOf(actionArgs1, capacity);
+                actionArgs2 = Arrays.copyOf(actionArgs2, capacity);
+            }
+            actionTicks[count] = tick;
+            actionTypes[count] = (byte) type;
+            switch (type) {
+                case ActionRecorder.ACTION_SELECT_PREFAB:
+                    actionArgs0[count] = (int) VarInt.readSigned(data);
+                    break;
+                case ActionRecorder.ACTION_PLACE_BUILDING:
+                case ActionRecorder.ACTION_REMOVE_BUILDING:
+                    actionArgs0[count] = (int) VarInt.readUnsigned(data);
+                    actionArgs1[count] = (int) VarInt.readSigned(data);
+                    actionArgs2[count] = (int) VarInt.readSigned(data);
+                    break;
+                default:
+                    throw new IOException("Unknown action type " + type);
+            }
+            count++;
+        }
+
+        return new Replay(seed, tickRate, usableTiles, buildingTypes, Arrays.copyOf(actionTicks, count),
+                Arrays.copyOf(actionTypes, count), Arrays.copyOf(actionArgs0, count),
+                Arrays.copyOf(actionArgs1, count), Arrays.copyOf(actionArgs2, count));
+    }
+
+    /**
+     * @return a new map in the state the recording started from
+     */
+    public SimulationMap createMap() {
+        var tilesCopy = new boolean[usableTiles.length][];
+        for (int x = 0; x < usableTiles.length; x++) {
+            tilesCopy[x] = usableTiles[x].clone();
+        }
+        return new SimulationMap(tilesCopy, buildingTypes);
+    }
+
+    /**
+     * Runs the recording from the start until the game is over.
+     *
+     * @return the satisfaction after every tick
+     */
+    public float[] run() {
+        var map = createMap();
+        var simulation = new Simulation(map, seed);
+        float tickTime = 1.0f / tickRate;
+
+        var trace = new float[64];
+        int tick = 0;
+        int nextAction = 0;
+        while (!simulation.isGameOver()) {
+            // Apply every action which happened before this tick ran.
+            while (nextAction < actionTicks.length && actionTicks[nextAction] <= tick) {
+                if (actionTypes[nextAction] == ActionRecorder.ACTION_PLACE_BUILDING) {
+                    var type = buildingTypes.get(actionArgs0[nextAction]);
+                    map.placeBuilding(type, actionArgs1[nextAction], actionArgs2[nextAction]);
+                } else if (actionTypes[nextAction] == ActionRecorder.ACTION_REMOVE_BUILDING) {
+                    removeBuilding(map, actionArgs0[nextAction], actionArgs1[nextAction], actionArgs2[nextAction]);
+                }
+                nextAction++;
+            }
+
+            simulation.update(tickTime);
+            if (tick == trace.length) {
+                trace = Arrays.copyOf(trace, trace.length * 2);
+            }
+            trace[tick++] = simulation.getSatisfaction();
+        }
+        return Arrays.copyOf(trace, tick);
+    }
+
+    /**
+     * Removes the building with the given type and position, if there is one.
+     */
+    private static void removeBuilding(SimulationMap map, int typeId, int x, int y) {
+        var building = map.getBuildingAt(x, y);
+        if (building != null && building.getType().getId() == typeId && building.getX() == x
+                && building.getY() == y) {
+            map.removeBuilding(building);
+        }
+    }
+
+    /**
+     * @return the seed of the recorded simulation
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return the number of simulation ticks per second of the recorded simulation
+     */
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    /**
+     * @return the number of recorded actions
+     */
+    public int getActionCount() {
+        return actionTicks.length;
+    }
+
+    /**
+     * Replays the recordings given on the command line and prints each satisfaction trace as one value per line.
+     *
+     * @param args paths to recordings
+     * @throws IOException if a recording can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        for (var arg : args) {
+            Replay replay;
+            try (var in = Files.newInputStream(Path.of(arg))) {
+                replay = read(in);
+            }
+
+            long startTime = System.nanoTime();
+            var trace = replay.run();
+            long elapsedTime = System.nanoTime() - startTime;
+
+            System.out.println("# " + arg + ": " + trace.length + " ticks in " + elapsedTime / 1_000_000 + " ms");
+            for (var satisfaction : trace) {
+                System.out.println(satisfaction);
+            }
+        }
+    }
+}
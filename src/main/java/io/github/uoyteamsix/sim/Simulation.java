@@ -0,0 +1,495 @@
+package io.github.uoyteamsix.sim;
+
+import java.util.Arrays;
+
+/**
+ * A class which implements the simulation side of the gameplay logic: the remaining game time, how many buildings the
+ * player is allowed to place, student satisfaction and random events. It has no dependency on any rendering or input
+ * code so that it can be stepped headlessly. Given the same seed and the same sequence of placements, the simulation
+ * produces bit-identical results on any machine.
+ */
+public class Simulation {
+    private static final GameEvent[] EVENTS = GameEvent.values();
+
+    private final SimulationMap map;
+    private final SimulationParameters parameters;
+    private final long seed;
+    private final SimulationRandom random;
+    private int maximumAllowedBuildings;
+
+    // IDs of the building types used by the satisfaction calculation, resolved once up front. -1 if the map does not
+    // have a building type with that name.
+    private final int accommodationTypeId;
+    private final int canteenTypeId;
+    private final int recreationTypeId;
+    private final int studyTypeId;
+
+    // Walking distances from accommodation to the other building types, the individual students, and their timetables.
+    private final ProximityModel proximity;
+    private final StudentPopulation population;
+    private final StudentTimetable timetable;
+
+    // Timers.
+    private float remainingTime;
+    private float nextBuildingTime;
+    private boolean gameOver;
+
+    // Satisfaction.
+    private float satisfaction;
+    private float newBuildingSatisfaction;
+    // The most buildings there have ever been on the map.
+    private int peakBuildingCount;
+
+    // Events.
+    private GameEvent currentEvent;
+    private float nextEventProbability;
+    private float checkEventTimer;
+    private float eventDurationTimer;
+
+    // Listeners, replaced rather than modified so that notifying never allocates. The simulation listens to its map to
+    // forward building changes and notice allowance changes.
+    private SimulationListener[] listeners = new SimulationListener[0];
+    private final MapListener mapListener;
+    private int previousAllowance;
+
+    public Simulation(SimulationMap map) {
+        this(map, System.nanoTime());
+    }
+
+    public Simulation(SimulationMap map, long seed) {
+        this(map, seed, new SimulationParameters());
+    }
+
+    public Simulation(SimulationMap map, long seed, SimulationParameters parameters) {
+        this.map = map;
+        this.parameters = parameters;
+        this.seed = seed;
+        random = new SimulationRandom(seed);
+        accommodationTypeId = findBuildingTypeId("Accommodation");
+        canteenTypeId = findBuildingTypeId("Canteen");
+        recreationTypeId = findBuildingTypeId("Recreation");
+        studyTypeId = findBuildingTypeId("Study");
+        proximity = new ProximityModel(map, map.findBuildingType("Accommodation"), new BuildingType[]{
+                map.findBuildingType("Canteen"), map.findBuildingType("Study"), map.findBuildingType("Recreation")},
+                parameters.getMaxWalkingDistance());
+        population = new StudentPopulation(map, parameters);
+        timetable = new StudentTimetable(map, parameters, population);
+
+        remainingTime = parameters.getTotalGameTime();
+        nextBuildingTime = 0.0f;
+        currentEvent = GameEvent.NONE;
+
+        previousAllowance = getAllowance();
+        mapListener = new MapListener() {
+            @Override
+            public void onBuildingPlaced(Building building) {
+                for (var listener : listeners) {
+                    listener.onBuildingPlaced(building);
+                }
+                notifyIfAllowanceChanged();
+            }
+
+            @Override
+            public void onBuildingRemoved(Building building) {
+                for (var listener : listeners) {
+                    listener.onBuildingRemoved(building);
+                }
+                notifyIfAllowanceChanged();
+            }
+        };
+        map.addListener(mapListener);
+    }
+
+    /**
+     * Adds a listener to notify of changes to the simulation and its map.
+     *
+     * @param listener the listener
+     */
+    public void addListener(SimulationListener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    /**
+     * Removes a previously added listener.
+     *
+     * @param listener the listener
+     */
+    public void removeListener(SimulationListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                var newListeners = new SimulationListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                listeners = newListeners;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops listening to the map, so that the map can be reused by another simulation once this one is finished with.
+     */
+    public void detach() {
+        map.removeListener(mapListener);
+        proximity.detach();
+        population.detach();
+    }
+
+    /**
+     * @return the number of buildings the player can place now
+     */
+    public int getAllowance() {
+        return gameOver ? 0 : Math.max(maximumAllowedBuildings - map.getTotalBuildingCount(), 0);
+    }
+
+    private void notifyIfAllowanceChanged() {
+        int allowance = getAllowance();
+        if (allowance != previousAllowance) {
+            previousAllowance = allowance;
+            for (var listener : listeners) {
+                listener.onAllowanceChanged(allowance);
+            }
+        }
+    }
+
+    /**
+     * Notifies listeners of any satisfaction thresholds crossed since the previous tick.
+     */
+    private void notifyThresholdsCrossed(float previousSatisfaction) {
+        for (var threshold : parameters.getSatisfactionThresholds()) {
+            if (previousSatisfaction < threshold && satisfaction >= threshold) {
+                for (var listener : listeners) {
+                    listener.onSatisfactionThresholdCrossed(threshold, true);
+                }
+            } else if (previousSatisfaction >= threshold && satisfaction < threshold) {
+                for (var listener : listeners) {
+                    listener.onSatisfactionThresholdCrossed(threshold, false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the ID of the building type with the given name, or -1 if there isn't one.
+     */
+    private int findBuildingTypeId(String name) {
+        var type = map.findBuildingType(name);
+        return type != null ? type.getId() : -1;
+    }
+
+    /**
+     * Counts the buildings of the given type ID, treating a type missing from the map as having no buildings.
+     */
+    private int countBuildings(int typeId) {
+        return typeId >= 0 ? map.getBuildingCount(typeId) : 0;
+    }
+
+    /**
+     * Works out the fraction of students which the given capacity can serve, from 0 to 1.
+     */
+    private static float getSupply(int capacity, int studentCount) {
+        return studentCount > 0 ? Math.min((float) capacity / studentCount, 1.0f) : 0.0f;
+    }
+
+    /**
+     * Continuously updates the student satisfaction.
+     *
+     * @param deltaTime the time between the last call of this method
+     */
+    private void updateSatisfaction(float deltaTime) {
+        // Each accommodation building houses a number of students.
+        population.applyChanges();
+        int studentCount = population.getCount();
+
+        // Store satisfaction to add for new buildings. Only buildings beyond the most there have ever been count, so
+        // undoing a placement and redoing it doesn't earn the satisfaction again.
+        int newBuildingCount = map.getTotalBuildingCount() - peakBuildingCount;
+        if (newBuildingCount > 0) {
+            newBuildingSatisfaction += parameters.getNewBuildingSatisfaction() * newBuildingCount;
+            peakBuildingCount = map.getTotalBuildingCount();
+        }
+
+        // Slowly apply new building satisfaction.
+        float newBuildingFactor = newBuildingSatisfaction * parameters.getNewBuildingSatisfactionRate() * deltaTime;
+        satisfaction += newBuildingFactor;
+        newBuildingSatisfaction -= newBuildingFactor;
+        newBuildingSatisfaction = Math.max(newBuildingSatisfaction, 0.0f);
+
+        // Apply some satisfaction based on student count.
+        satisfaction += Math.min(studentCount / parameters.getStudentSatisfactionDivisor(),
+                parameters.getMaxStudentSatisfactionRate()) * deltaTime;
+
+        // Decrease satisfaction if there isn't enough canteen or study buildings for all the students. By default each
+        // canteen can support 100 students and each study building can support 75 students. Use exponential formulas
+        // so a deficit can not just be offset by placing lots of recreation buildings. StrictMath is used so that
+        // results are identical across platforms.
+        var canteenDeficit = studentCount - countBuildings(canteenTypeId) * parameters.getStudentsPerCanteen();
+        var studyDeficit = studentCount - countBuildings(studyTypeId) * parameters.getStudentsPerStudy();
+        if (canteenDeficit > 0) {
+            float penalty = (float) StrictMath.pow(2.0f, canteenDeficit / parameters.getCanteenDeficitScale())
+                    / parameters.getCanteenDeficitDivisor();
+            satisfaction -= penalty * deltaTime * parameters.getCanteenDeficitFactor();
+        }
+        if (studyDeficit > 0) {
+            float factor = currentEvent == GameEvent.STRIKE ? parameters.getStrikeStudyDeficitFactor()
+                    : parameters.getStudyDeficitFactor();
+            float penalty = (float) StrictMath.pow(2.0f, studyDeficit / parameters.getStudyDeficitScale())
+                    / parameters.getStudyDeficitDivisor();
+            satisfaction -= penalty * deltaTime * factor;
+        }
+
+        // Decay satisfaction based on a rate determined by the amount of recreation buildings.
+        float decayRate = parameters.getBaseDecayRate();
+        decayRate -= countBuildings(recreationTypeId) / parameters.getRecreationDecayDivisor();
+        satisfaction -= Math.max(decayRate, parameters.getMinDecayRate()) * deltaTime;
+
+        // Decrease satisfaction the further students have to walk from their accommodation to the nearest canteen,
+        // study and recreation building, so a canteen next door serves them better than one across the map. The term
+        // is off by default, in which case the distance fields aren't built or kept up to date at all.
+        if (parameters.getWalkingDistancePenaltyRate() != 0.0f) {
+            proximity.update();
+            satisfaction -= proximity.getAverageDistance() / parameters.getMaxWalkingDistance()
+                    * parameters.getWalkingDistancePenaltyRate() * deltaTime;
+        }
+
+        // Update every student's needs, given how much of the canteen and recreation capacity goes round, and move
+        // satisfaction towards their average mood. The term is off by default, in which case needs and moods are left
+        // as they are rather than updated for nothing.
+        if (parameters.getMoodSatisfactionRate() != 0.0f) {
+            float canteenSupply = getSupply(countBuildings(canteenTypeId) * parameters.getStudentsPerCanteen(),
+                    studentCount);
+            float leisureSupply = getSupply(countBuildings(recreationTypeId) * parameters.getStudentsPerRecreation(),
+                    studentCount);
+            float averageMood = population.update(deltaTime, canteenSupply, leisureSupply,
+                    currentEvent != GameEvent.STRIKE);
+            satisfaction += (averageMood - StudentPopulation.NEUTRAL_MOOD) * parameters.getMoodSatisfactionRate()
+                    * deltaTime;
+        }
+
+        // Move every student through their timetable, and decrease satisfaction the longer they have to queue to get
+        // into full canteens and study buildings. The term is off by default, in which case the timetable never runs,
+        // so snapshots don't save one either.
+        if (parameters.getWaitingPenaltyRate() != 0.0f) {
+            timetable.update(deltaTime);
+            satisfaction -= Math.min(timetable.getAverageWaitingTime() / parameters.getMaxWaitingTime(), 1.0f)
+                    * parameters.getWaitingPenaltyRate() * deltaTime;
+        }
+
+        // Handle rain and roses events.
+        if (currentEvent == GameEvent.RAIN) {
+            satisfaction -= parameters.getRainSatisfactionRate() * deltaTime;
+        } else if (currentEvent == GameEvent.ROSES) {
+            satisfaction += parameters.getRosesSatisfactionRate() * deltaTime;
+        }
+
+        // Clamp satisfaction between 0 and 1.
+        satisfaction = Math.min(Math.max(satisfaction, 0.0f), 1.0f);
+    }
+
+    /**
+     * Steps the simulation forward.
+     *
+     * @param deltaTime the delta time between the last call of update
+     */
+    public void update(float deltaTime) {
+        if (gameOver) {
+            return;
+        }
+
+        // Update timers.
+        remainingTime -= deltaTime;
+        if (remainingTime < 0.0f) {
+            gameOver = true;
+        }
+        nextBuildingTime -= deltaTime;
+        if (nextBuildingTime < 0.0f) {
+            // User can place another building.
+            maximumAllowedBuildings++;
+            nextBuildingTime = parameters.getBuildingTime();
+        }
+        notifyIfAllowanceChanged();
+
+        // Update satisfaction.
+        float previousSatisfaction = satisfaction;
+        updateSatisfaction(deltaTime);
+        notifyThresholdsCrossed(previousSatisfaction);
+        if (gameOver) {
+            for (var listener : listeners) {
+                listener.onGameOver(satisfaction);
+            }
+        }
+
+        // Tick event duration timer.
+        if (currentEvent != GameEvent.NONE) {
+            eventDurationTimer -= deltaTime;
+        }
+        if (eventDurationTimer < 0.0f && currentEvent != GameEvent.NONE) {
+            var endedEvent = currentEvent;
+            currentEvent = GameEvent.NONE;
+            for (var listener : listeners) {
+                listener.onEventEnded(endedEvent);
+            }
+        }
+        if (currentEvent != GameEvent.NONE) {
+            return;
+        }
+
+        // Generate a random number every few seconds to see if we should start an event. Bias the random number
+        // slightly to prevent events from happening to close to each other.
+        nextEventProbability += deltaTime * parameters.getEventProbabilityGrowth();
+        checkEventTimer += deltaTime;
+        if (checkEventTimer > parameters.getEventCheckInterval()) {
+            checkEventTimer = 0.0f;
+            if (Math.min(random.nextFloat() + parameters.getEventProbabilityBias(), 1.0f) < nextEventProbability) {
+                nextEventProbability = 0;
+                currentEvent = EVENTS[random.nextInt(EVENTS.length)];
+                eventDurationTimer = random.nextFloat(parameters.getMinEventDuration(),
+                        parameters.getMaxEventDuration());
+                if (currentEvent != GameEvent.NONE) {
+                    for (var listener : listeners) {
+                        listener.onEventStarted(currentEvent, eventDurationTimer);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes an immutable copy of the state of this simulation and its map, which can be saved.
+     *
+     * @param tickCount the number of ticks which have run
+     * @return the snapshot
+     */
+    public SimulationSnapshot createSnapshot(long tickCount) {
+        return SimulationSnapshot.create(this, tickCount, random.getState(), remainingTime, nextBuildingTime, gameOver,
+                maximumAllowedBuildings, satisfaction, newBuildingSatisfaction, peakBuildingCount, currentEvent,
+                nextEventProbability, checkEventTimer, eventDurationTimer);
+    }
+
+    /**
+     * Restores the state saved in a snapshot. The snapshot's buildings must already have been placed on the map, e.g.
+     * with {@link SimulationSnapshot#placeBuildings}, so that they aren't counted as newly placed. Listeners are
+     * notified of any changes to the allowance, satisfaction thresholds and current event.
+     *
+     * @param snapshot the snapshot
+     * @throws IllegalStateException if the map doesn't hold the snapshot's buildings
+     */
+    public void restore(SimulationSnapshot snapshot) {
+        if (map.getTotalBuildingCount() != snapshot.getBuildingCount()) {
+            throw new IllegalStateException("The snapshot's buildings must be placed before it is restored");
+        }
+        float previousSatisfaction = satisfaction;
+        var previousEvent = currentEvent;
+
+        random.setState(snapshot.getRandomState());
+        remainingTime = snapshot.getRemainingTime();
+        nextBuildingTime = snapshot.getNextBuildingTime();
+        gameOver = snapshot.isGameOver();
+        maximumAllowedBuildings = snapshot.getMaximumAllowedBuildings();
+        satisfaction = snapshot.getSatisfaction();
+        newBuildingSatisfaction = snapshot.getNewBuildingSatisfaction();
+        peakBuildingCount = snapshot.getPeakBuildingCount();
+        currentEvent = snapshot.getCurrentEvent();
+        nextEventProbability = snapshot.getNextEventProbability();
+        checkEventTimer = snapshot.getCheckEventTimer();
+        eventDurationTimer = snapshot.getEventDurationTimer();
+        population.restore(snapshot);
+        if (parameters.getWaitingPenaltyRate() != 0.0f) {
+            timetable.restore(snapshot);
+        }
+
+        notifyIfAllowanceChanged();
+        notifyThresholdsCrossed(previousSatisfaction);
+        if (currentEvent != previousEvent) {
+            for (var listener : listeners) {
+                if (previousEvent != GameEvent.NONE) {
+                    listener.onEventEnded(previousEvent);
+                }
+                if (currentEvent != GameEvent.NONE) {
+                    listener.onEventStarted(currentEvent, eventDurationTimer);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the player is allowed to place another building
+     */
+    public boolean canPlaceBuilding() {
+        return !gameOver && map.getTotalBuildingCount() < maximumAllowedBuildings;
+    }
+
+    /**
+     * @return the individual students, for taking a snapshot
+     */
+    StudentPopulation getPopulation() {
+        return population;
+    }
+
+    /**
+     * @return the students' timetables, for taking a snapshot
+     */
+    StudentTimetable getTimetable() {
+        return timetable;
+    }
+
+    /**
+     * @return the map this simulation is running on
+     */
+    public SimulationMap getMap() {
+        return map;
+    }
+
+    /**
+     * @return the parameters this simulation is using
+     */
+    public SimulationParameters getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return the seed this simulation's random number generator was created with
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return the random number generator used by this simulation
+     */
+    public SimulationRandom getRandom() {
+        return random;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public float getRemainingTime() {
+        return remainingTime;
+    }
+
+    public float getNextBuildingTime() {
+        return nextBuildingTime;
+    }
+
+    public float getSatisfaction() {
+        return satisfaction;
+    }
+
+    public GameEvent getCurrentEvent() {
+        return currentEvent;
+    }
+
+    public float getEventDurationTimer() {
+        return eventDurationTimer;
+    }
+
+    /**
+     * @return the average time students have recently spent queueing to get into a building, in seconds
+     */
+    public float getAverageWaitingTime() {
+        return timetable.getAverageWaitingTime();
+    }
+}
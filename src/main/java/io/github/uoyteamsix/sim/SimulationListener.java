@@ -0,0 +1,52 @@
+package io.github.uoyteamsix.sim;
+
+/**
+ * A listener which is notified of changes to the state of a {@link Simulation}, so that the UI, recorders and metrics
+ * can react to changes rather than polling every frame. Also receives the building changes of the simulation's map.
+ * Methods are called from within {@link Simulation#update} or the map's placement methods, after the state has changed,
+ * and do nothing by default.
+ */
+public interface SimulationListener extends MapListener {
+    /**
+     * Called when the number of buildings the player is still allowed to place changes, either because more have been
+     * allowed or because one has been placed or removed.
+     *
+     * @param remainingBuildings the number of buildings the player can place now
+     */
+    default void onAllowanceChanged(int remainingBuildings) {
+    }
+
+    /**
+     * Called when a random event starts.
+     *
+     * @param event    the event
+     * @param duration how long the event will last in seconds
+     */
+    default void onEventStarted(GameEvent event, float duration) {
+    }
+
+    /**
+     * Called when a random event ends.
+     *
+     * @param event the event which has ended
+     */
+    default void onEventEnded(GameEvent event) {
+    }
+
+    /**
+     * Called when satisfaction crosses one of the thresholds in {@link SimulationParameters#getSatisfactionThresholds}.
+     *
+     * @param threshold the threshold which has been crossed
+     * @param rising    true if satisfaction has risen above the threshold, false if it has fallen below
+     */
+    default void onSatisfactionThresholdCrossed(float threshold, boolean rising) {
+    }
+
+    /**
+     * Called once when the game time runs out.
+     *
+     * @param finalSatisfaction the satisfaction at the end of the game
+     */
+    default void onGameOver(float finalSatisfaction) {
+    }
+}
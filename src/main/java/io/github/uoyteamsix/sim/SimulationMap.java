@@ -0,0 +1,465 @@
+package io.github.uoyteamsix.sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A class which holds the placement state of the map without depending on any rendering code. Keeps track of which
+ * tiles can be built on and which buildings have been placed, so that it can be used headlessly.
+ */
+public class SimulationMap implements CommandLog.Target {
+    private final int width;
+    private final int height;
+    private final OccupancyGrid occupancy;
+    private final List<BuildingType> buildingTypes;
+    private final List<Building> placedBuildings;
+    private final BuildingIndex buildingIndex;
+
+    // Number of placed buildings of each type, indexed by building type ID.
+    private final int[] buildingCounts;
+
+    // Valid anchor indices of each type, indexed by building type ID. Created on first request.
+    private final AnchorIndex[] anchorIndices;
+
+    // Replaced rather than modified when listeners are added or removed, so notifying never allocates and listeners
+    // can add or remove listeners whilst being notified.
+    private MapListener[] listeners = new MapListener[0];
+
+    // Walking distance fields shared by the simulation and the crowd. Created on first request.
+    private DistanceFields distanceFields;
+
+    /**
+     * Creates a new simulation map.
+     *
+     * @param usableTiles   a [width][height] array of which tiles are allowed to be built on
+     * @param buildingTypes the building types available on this map, where each type's ID is its index in the list
+     */
+    public SimulationMap(boolean[][] usableTiles, List<? extends BuildingType> buildingTypes) {
+        for (int i = 0; i < buildingTypes.size(); i++) {
+            if (buildingTypes.get(i).getId() != i) {
+                throw new IllegalArgumentException("Building type " + buildingTypes.get(i).getName()
+                        + " has ID " + buildingTypes.get(i).getId() + " but is at index " + i);
+            }
+        }
+
+        occupancy = new OccupancyGrid(usableTiles);
+        this.buildingTypes = Collections.unmodifiableList(new ArrayList<>(buildingTypes));
+        width = occupancy.getWidth();
+        height = occupancy.getHeight();
+        placedBuildings = new ArrayList<>();
+        int maxBuildingWidth = 1;
+        int maxBuildingHeight = 1;
+        for (var type : buildingTypes) {
+            maxBuildingWidth = Math.max(maxBuildingWidth, type.getWidth());
+            maxBuildingHeight = Math.max(maxBuildingHeight, type.getHeight());
+        }
+        buildingIndex = new BuildingIndex(width, height, maxBuildingWidth, maxBuildingHeight);
+        buildingCounts = new int[buildingTypes.size()];
+        anchorIndices = new AnchorIndex[buildingTypes.size()];
+    }
+
+    /**
+     * Creates a new simulation map where every tile can be built on.
+     *
+     * @param width         the width of the map in tiles
+     * @param height        the height of the map in tiles
+     * @param buildingTypes the building types available on this map
+     * @return a {@link SimulationMap}
+     */
+    public static SimulationMap createEmpty(int width, int height, List<? extends BuildingType> buildingTypes) {
+        var usableTiles = new boolean[width][height];
+        for (var column : usableTiles) {
+            Arrays.fill(column, true);
+        }
+        return new SimulationMap(usableTiles, buildingTypes);
+    }
+
+    /**
+     * Finds a building type given its name.
+     *
+     * @param name the building type name
+     * @return a {@link BuildingType}, or null if there is no building type with the given name
+     */
+    public BuildingType findBuildingType(String name) {
+        for (var type : buildingTypes) {
+            if (type.getName().equals(name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a building type can be placed at the given coordinates. Runs in constant time regardless of the
+     * size of the building.
+     *
+     * @param type the building type
+     * @param x    the x coordinate in tiles
+     * @param y    the y coordinate in tiles
+     * @return true if the building can be placed, false otherwise
+     */
+    public boolean canPlaceBuilding(BuildingType type, int x, int y) {
+        return occupancy.isFree(x, y, type.getWidth(), type.getHeight());
+    }
+
+    /**
+     * Creates an instance of the given building type and places it at the given coordinates. Doesn't check for
+     * validity of placement.
+     *
+     * @param type the building type
+     * @param x    the x coordinate in tiles
+     * @param y    the y coordinate in tiles
+     * @return the placed {@link Building}
+     * @see #canPlaceBuilding
+     */
+    public Building placeBuilding(BuildingType type, int x, int y) {
+        occupancy.setRect(x, y, type.getWidth(), type.getHeight(), true);
+        updateAnchorIndices(x, y, type.getWidth(), type.getHeight());
+        var building = new Building(type, x, y);
+        placedBuildings.add(building);
+        buildingIndex.add(building);
+        buildingCounts[type.getId()]++;
+        for (var listener : listeners) {
+            listener.onBuildingPlaced(building);
+        }
+        return building;
+    }
+
+    @Override
+    public Building placeBuilding(int typeId, int x, int y) {
+        return placeBuilding(buildingTypes.get(typeId), x, y);
+    }
+
+    /**
+     * Places many buildings at once without checking their placement, e.g. when loading a save. Much faster than
+     * placing them one at a time, as the occupancy grid and anchor indices are only updated once. Listeners are then
+     * notified of each building in order.
+     *
+     * @param count   the number of buildings
+     * @param typeIds the building type ID of each building
+     * @param xs      the x coordinate of each building in tiles
+     * @param ys      the y coordinate of each building in tiles
+     */
+    public void placeBuildings(int count, int[] typeIds, int[] xs, int[] ys) {
+        if (count == 0) {
+            return;
+        }
+        setRects(count, typeIds, xs, ys, true);
+
+        var buildings = new Building[count];
+        for (int i = 0; i < count; i++) {
+            buildings[i] = new Building(buildingTypes.get(typeIds[i]), xs[i], ys[i]);
+            placedBuildings.add(buildings[i]);
+            buildingIndex.add(buildings[i]);
+            buildingCounts[typeIds[i]]++;
+        }
+        for (var building : buildings) {
+            for (var listener : listeners) {
+                listener.onBuildingPlaced(building);
+            }
+        }
+    }
+
+    /**
+     * Validates every slot of a batch in a single pass, without placing anything. Each slot is checked against the
+     * occupancy grid in constant time, and the slots never overlap each other, so the cost only depends on the number
+     * of slots. Free slots are accepted in order until the allowance runs out.
+     *
+     * @param batch     the batch, which has been laid out with a building type from this map
+     * @param allowance the most buildings which may be placed
+     * @return the number of accepted slots
+     */
+    public int validateBatch(PlacementBatch batch, int allowance) {
+        var type = batch.getType();
+        int accepted = 0;
+        for (int i = 0; i < batch.getCount(); i++) {
+            if (!canPlaceBuilding(type, batch.getX(i), batch.getY(i))) {
+                batch.setResult(i, PlacementBatch.SlotResult.BLOCKED);
+            } else if (accepted < allowance) {
+                batch.setResult(i, PlacementBatch.SlotResult.ACCEPTED);
+                accepted++;
+            } else {
+                batch.setResult(i, PlacementBatch.SlotResult.OVER_ALLOWANCE);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Places a building in every accepted slot of a validated batch at once, with a single update of the occupancy grid
+     * and anchor indices.
+     *
+     * @param batch the batch, which has been validated by {@link #validateBatch} since the map last changed
+     * @return the placed buildings, in slot order
+     */
+    public Building[] placeBatch(PlacementBatch batch) {
+        int count = batch.getAcceptedCount();
+        var typeIds = new int[count];
+        var xs = new int[count];
+        var ys = new int[count];
+        int placed = 0;
+        for (int i = 0; i < batch.getCount(); i++) {
+            if (batch.getResult(i) == PlacementBatch.SlotResult.ACCEPTED) {
+                typeIds[placed] = batch.getType().getId();
+                xs[placed] = batch.getX(i);
+                ys[placed] = batch.getY(i);
+                placed++;
+            }
+        }
+        int firstIndex = placedBuildings.size();
+        placeBuildings(count, typeIds, xs, ys);
+        return placedBuildings.subList(firstIndex, placedBuildings.size()).toArray(new Building[0]);
+    }
+
+    /**
+     * Removes every placed building at once, which is much faster than removing them one at a time. Listeners are then
+     * notified of each building in the order they were placed.
+     */
+    public void removeAllBuildings() {
+        int count = placedBuildings.size();
+        if (count == 0) {
+            return;
+        }
+        var buildings = placedBuildings.toArray(new Building[0]);
+        var typeIds = new int[count];
+        var xs = new int[count];
+        var ys = new int[count];
+        for (int i = 0; i < count; i++) {
+            typeIds[i] = buildings[i].getType().getId();
+            xs[i] = buildings[i].getX();
+            ys[i] = buildings[i].getY();
+        }
+        setRects(count, typeIds, xs, ys, false);
+        placedBuildings.clear();
+        buildingIndex.clear();
+        Arrays.fill(buildingCounts, 0);
+        for (var building : buildings) {
+            for (var listener : listeners) {
+                listener.onBuildingRemoved(building);
+            }
+        }
+    }
+
+    /**
+     * Blocks or frees the footprints of many buildings, updating the occupancy grid and anchor indices once.
+     */
+    private void setRects(int count, int[] typeIds, int[] xs, int[] ys, boolean blocked) {
+        var widths = new int[count];
+        var heights = new int[count];
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            var type = buildingTypes.get(typeIds[i]);
+            widths[i] = type.getWidth();
+            heights[i] = type.getHeight();
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i] + widths[i]);
+            maxY = Math.max(maxY, ys[i] + heights[i]);
+        }
+        occupancy.setRects(count, xs, ys, widths, heights, blocked);
+        updateAnchorIndices(minX, minY, maxX - minX, maxY - minY);
+    }
+
+    /**
+     * Checks whether a building is currently placed on this map. Runs in constant time.
+     *
+     * @param building the building
+     * @return true if the building is placed on this map
+     */
+    public boolean isPlaced(Building building) {
+        return buildingIndex.getBuildingAt(building.getX(), building.getY()) == building;
+    }
+
+    /**
+     * Removes a previously placed building and makes the tiles it covered usable again. Removing a recently placed
+     * building is fast, as the search starts from the most recent building.
+     *
+     * @param building the building to remove
+     * @return true if the building was on the map and has been removed, false otherwise
+     */
+    @Override
+    public boolean removeBuilding(Building building) {
+        if (!isPlaced(building)) {
+            return false;
+        }
+        placedBuildings.remove(placedBuildings.lastIndexOf(building));
+        buildingIndex.remove(building);
+        var type = building.getType();
+        occupancy.setRect(building.getX(), building.getY(), type.getWidth(), type.getHeight(), false);
+        updateAnchorIndices(building.getX(), building.getY(), type.getWidth(), type.getHeight());
+        buildingCounts[type.getId()]--;
+        for (var listener : listeners) {
+            listener.onBuildingRemoved(building);
+        }
+        return true;
+    }
+
+    /**
+     * Adds a listener to notify when buildings are placed or removed.
+     *
+     * @param listener the listener
+     */
+    public void addListener(MapListener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    /**
+     * Removes a previously added listener.
+     *
+     * @param listener the listener
+     */
+    public void removeListener(MapListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                var newListeners = new MapListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                listeners = newListeners;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Updates any anchor indices which have been created after a rectangle of tiles has changed.
+     */
+    private void updateAnchorIndices(int x, int y, int width, int height) {
+        for (var anchorIndex : anchorIndices) {
+            if (anchorIndex != null) {
+                anchorIndex.update(x, y, width, height);
+            }
+        }
+    }
+
+    /**
+     * Gets the set of all tiles where the given building type can currently be placed. The returned index is kept up
+     * to date as buildings are placed and removed.
+     *
+     * @param type the building type
+     * @return an {@link AnchorIndex}
+     */
+    public AnchorIndex getValidAnchors(BuildingType type) {
+        var anchorIndex = anchorIndices[type.getId()];
+        if (anchorIndex == null) {
+            anchorIndex = new AnchorIndex(occupancy, type);
+            anchorIndices[type.getId()] = anchorIndex;
+        }
+        return anchorIndex;
+    }
+
+    /**
+     * Gets the number of existing buildings of the given type. Runs in constant time.
+     *
+     * @param type the building type
+     * @return the building count
+     */
+    public int getBuildingCount(BuildingType type) {
+        return buildingCounts[type.getId()];
+    }
+
+    /**
+     * Gets the number of existing buildings of the type with the given ID. Runs in constant time.
+     *
+     * @param typeId the building type ID
+     * @return the building count
+     */
+    public int getBuildingCount(int typeId) {
+        return buildingCounts[typeId];
+    }
+
+    /**
+     * @return the total building count of all types
+     */
+    public int getTotalBuildingCount() {
+        return placedBuildings.size();
+    }
+
+    /**
+     * @return true if the given tile is inside the map and can be built on
+     */
+    public boolean isUsable(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height && !occupancy.isBlocked(x, y);
+    }
+
+    /**
+     * @return a new [width][height] array of which tiles can currently be built on
+     */
+    public boolean[][] copyUsableTiles() {
+        var usableTiles = new boolean[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                usableTiles[x][y] = isUsable(x, y);
+            }
+        }
+        return usableTiles;
+    }
+
+    /**
+     * Finds the building covering a tile. Runs in constant time.
+     *
+     * @param x the x coordinate in tiles
+     * @param y the y coordinate in tiles
+     * @return the {@link Building} covering the tile, or null if there is none
+     */
+    public Building getBuildingAt(int x, int y) {
+        return buildingIndex.getBuildingAt(x, y);
+    }
+
+    /**
+     * @return the spatial index of placed buildings, for finding buildings in an area or near a point
+     */
+    public BuildingIndex getBuildingIndex() {
+        return buildingIndex;
+    }
+
+    /**
+     * @return the walking distance fields of this map, which are shared by everything which measures walking distances
+     */
+    DistanceFields getDistanceFields() {
+        if (distanceFields == null) {
+            distanceFields = new DistanceFields(this);
+        }
+        return distanceFields;
+    }
+
+    /**
+     * @return the occupancy grid recording which tiles are blocked
+     */
+    public OccupancyGrid getOccupancy() {
+        return occupancy;
+    }
+
+    /**
+     * @return the width of the map in tiles
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the map in tiles
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return a list of all building types available on this map
+     */
+    public List<BuildingType> getBuildingTypes() {
+        return buildingTypes;
+    }
+
+    /**
+     * @return a list of all placed buildings
+     */
+    public List<Building> getPlacedBuildings() {
+        return Collections.unmodifiableList(placedBuildings);
+    }
+}
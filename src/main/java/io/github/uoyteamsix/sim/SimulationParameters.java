@@ -0,0 +1,458 @@
+package io.github.uoyteamsix.sim;
+
+import java.util.Arrays;
+
+/**
+ * A class which holds the tunable constants of the simulation, so that the game balance can be changed without
+ * changing code. The defaults match the shipped game, so satisfaction terms which it doesn't have yet default to a rate
+ * of zero and have to be turned on to try them out. A parameter object must not be changed whilst a simulation is using
+ * it, but it can be shared between simulations running on different threads.
+ */
+public class SimulationParameters {
+    // Timers.
+    private float totalGameTime = 5.0f * 60.0f;
+    private float buildingTime = 20.0f;
+
+    // Students and building capacities.
+    private int studentsPerAccommodation = 25;
+    private int studentsPerCanteen = 100;
+    private int studentsPerStudy = 75;
+
+    // Satisfaction gained from new buildings, and how quickly it is applied.
+    private float newBuildingSatisfaction = 0.5f;
+    private float newBuildingSatisfactionRate = 2.0f;
+
+    // Satisfaction gained from the student count, as students per unit of satisfaction per second, and its maximum.
+    private float studentSatisfactionDivisor = 25000.0f;
+    private float maxStudentSatisfactionRate = 0.01f;
+
+    // Deficit penalties, of the form 2^(deficit / scale) / divisor * factor per second.
+    private float canteenDeficitScale = 12.0f;
+    private float canteenDeficitDivisor = 175.0f;
+    private float canteenDeficitFactor = 0.5f;
+    private float studyDeficitScale = 15.0f;
+    private float studyDeficitDivisor = 75.0f;
+    private float studyDeficitFactor = 0.5f;
+    private float strikeStudyDeficitFactor = 1.0f;
+
+    // Satisfaction decay, which is reduced by one unit for this many recreation buildings.
+    private float baseDecayRate = 0.035f;
+    private float recreationDecayDivisor = 500.0f;
+    private float minDecayRate = 0.015f;
+
+    // Walking distance in tiles from accommodation to the nearest canteen, study and recreation building beyond which
+    // being further makes no difference, and the satisfaction lost per second when every building is at least that far,
+    // which is off by default.
+    private int maxWalkingDistance = 40;
+    private float walkingDistancePenaltyRate = 0.0f;
+
+    // Individual students' needs, which grow by the growth rate per second and are met by up to the relief rate per
+    // second when there is enough capacity, how quickly their mood follows their needs, and the satisfaction gained per
+    // second for each unit of average mood above neutral, which is off by default.
+    private int studentsPerRecreation = 100;
+    private float needGrowthRate = 0.02f;
+    private float needReliefRate = 0.04f;
+    private float moodChangeRate = 0.2f;
+    private float moodSatisfactionRate = 0.0f;
+
+    // Length of a day of the students' timetable in seconds, the average time spent queueing to get into a building in
+    // seconds beyond which waiting longer makes no difference, and the satisfaction lost per second when students wait
+    // that long, which is off by default.
+    private float dayLength = 60.0f;
+    private float maxWaitingTime = 5.0f;
+    private float waitingPenaltyRate = 0.0f;
+
+    // Events.
+    private float rainSatisfactionRate = 0.02f;
+    private float rosesSatisfactionRate = 0.02f;
+    private float eventCheckInterval = 2.0f;
+    private float eventProbabilityGrowth = 0.01f;
+    private float eventProbabilityBias = 0.1f;
+    private float minEventDuration = 15.0f;
+    private float maxEventDuration = 45.0f;
+
+    // Satisfaction levels which listeners are notified about crossing, in ascending order.
+    private float[] satisfactionThresholds = {0.25f, 0.5f, 0.75f};
+
+    /**
+     * @return a copy of these parameters which can be changed independently
+     */
+    public SimulationParameters copy() {
+        var copy = new SimulationParameters();
+        copy.totalGameTime = totalGameTime;
+        copy.buildingTime = buildingTime;
+        copy.studentsPerAccommodation = studentsPerAccommodation;
+        copy.studentsPerCanteen = studentsPerCanteen;
+        copy.studentsPerStudy = studentsPerStudy;
+        copy.newBuildingSatisfaction = newBuildingSatisfaction;
+        copy.newBuildingSatisfactionRate = newBuildingSatisfactionRate;
+        copy.studentSatisfactionDivisor = studentSatisfactionDivisor;
+        copy.maxStudentSatisfactionRate = maxStudentSatisfactionRate;
+        copy.canteenDeficitScale = canteenDeficitScale;
+        copy.canteenDeficitDivisor = canteenDeficitDivisor;
+        copy.canteenDeficitFactor = canteenDeficitFactor;
+        copy.studyDeficitScale = studyDeficitScale;
+        copy.studyDeficitDivisor = studyDeficitDivisor;
+        copy.studyDeficitFactor = studyDeficitFactor;
+        copy.strikeStudyDeficitFactor = strikeStudyDeficitFactor;
+        copy.baseDecayRate = baseDecayRate;
+        copy.recreationDecayDivisor = recreationDecayDivisor;
+        copy.minDecayRate = minDecayRate;
+        copy.maxWalkingDistance = maxWalkingDistance;
+        copy.walkingDistancePenaltyRate = walkingDistancePenaltyRate;
+        copy.studentsPerRecreation = studentsPerRecreation;
+        copy.needGrowthRate = needGrowthRate;
+        copy.needReliefRate = needReliefRate;
+        copy.moodChangeRate = moodChangeRate;
+        copy.moodSatisfactionRate = moodSatisfactionRate;
+        copy.dayLength = dayLength;
+        copy.maxWaitingTime = maxWaitingTime;
+        copy.waitingPenaltyRate = waitingPenaltyRate;
+        copy.rainSatisfactionRate = rainSatisfactionRate;
+        copy.rosesSatisfactionRate = rosesSatisfactionRate;
+        copy.eventCheckInterval = eventCheckInterval;
+        copy.eventProbabilityGrowth = eventProbabilityGrowth;
+        copy.eventProbabilityBias = eventProbabilityBias;
+        copy.minEventDuration = minEventDuration;
+        copy.maxEventDuration = maxEventDuration;
+        copy.satisfactionThresholds = satisfactionThresholds.clone();
+        return copy;
+    }
+
+    public float getTotalGameTime() {
+        return totalGameTime;
+    }
+
+    public SimulationParameters setTotalGameTime(float totalGameTime) {
+        this.totalGameTime = totalGameTime;
+        return this;
+    }
+
+    public float getBuildingTime() {
+        return buildingTime;
+    }
+
+    public SimulationParameters setBuildingTime(float buildingTime) {
+        this.buildingTime = buildingTime;
+        return this;
+    }
+
+    public int getStudentsPerAccommodation() {
+        return studentsPerAccommodation;
+    }
+
+    public SimulationParameters setStudentsPerAccommodation(int studentsPerAccommodation) {
+        this.studentsPerAccommodation = studentsPerAccommodation;
+        return this;
+    }
+
+    public int getStudentsPerCanteen() {
+        return studentsPerCanteen;
+    }
+
+    public SimulationParameters setStudentsPerCanteen(int studentsPerCanteen) {
+        this.studentsPerCanteen = studentsPerCanteen;
+        return this;
+    }
+
+    public int getStudentsPerStudy() {
+        return studentsPerStudy;
+    }
+
+    public SimulationParameters setStudentsPerStudy(int studentsPerStudy) {
+        this.studentsPerStudy = studentsPerStudy;
+        return this;
+    }
+
+    public float getNewBuildingSatisfaction() {
+        return newBuildingSatisfaction;
+    }
+
+    public SimulationParameters setNewBuildingSatisfaction(float newBuildingSatisfaction) {
+        this.newBuildingSatisfaction = newBuildingSatisfaction;
+        return this;
+    }
+
+    public float getNewBuildingSatisfactionRate() {
+        return newBuildingSatisfactionRate;
+    }
+
+    public SimulationParameters setNewBuildingSatisfactionRate(float newBuildingSatisfactionRate) {
+        this.newBuildingSatisfactionRate = newBuildingSatisfactionRate;
+        return this;
+    }
+
+    public float getStudentSatisfactionDivisor() {
+        return studentSatisfactionDivisor;
+    }
+
+    public SimulationParameters setStudentSatisfactionDivisor(float studentSatisfactionDivisor) {
+        this.studentSatisfactionDivisor = studentSatisfactionDivisor;
+        return this;
+    }
+
+    public float getMaxStudentSatisfactionRate() {
+        return maxStudentSatisfactionRate;
+    }
+
+    public SimulationParameters setMaxStudentSatisfactionRate(float maxStudentSatisfactionRate) {
+        this.maxStudentSatisfactionRate = maxStudentSatisfactionRate;
+        return this;
+    }
+
+    public float getCanteenDeficitScale() {
+        return canteenDeficitScale;
+    }
+
+    public SimulationParameters setCanteenDeficitScale(float canteenDeficitScale) {
+        this.canteenDeficitScale = canteenDeficitScale;
+        return this;
+    }
+
+    public float getCanteenDeficitDivisor() {
+        return canteenDeficitDivisor;
+    }
+
+    public SimulationParameters setCanteenDeficitDivisor(float canteenDeficitDivisor) {
+        this.canteenDeficitDivisor = canteenDeficitDivisor;
+        return this;
+    }
+
+    public float getCanteenDeficitFactor() {
+        return canteenDeficitFactor;
+    }
+
+    public SimulationParameters setCanteenDeficitFactor(float canteenDeficitFactor) {
+        this.canteenDeficitFactor = canteenDeficitFactor;
+        return this;
+    }
+
+    public float getStudyDeficitScale() {
+        return studyDeficitScale;
+    }
+
+    public SimulationParameters setStudyDeficitScale(float studyDeficitScale) {
+        this.studyDeficitScale = studyDeficitScale;
+        return this;
+    }
+
+    public float getStudyDeficitDivisor() {
+        return studyDeficitDivisor;
+    }
+
+    public SimulationParameters setStudyDeficitDivisor(float studyDeficitDivisor) {
+        this.studyDeficitDivisor = studyDeficitDivisor;
+        return this;
+    }
+
+    public float getStudyDeficitFactor() {
+        return studyDeficitFactor;
+    }
+
+    public SimulationParameters setStudyDeficitFactor(float studyDeficitFactor) {
+        this.studyDeficitFactor = studyDeficitFactor;
+        return this;
+    }
+
+    public float getStrikeStudyDeficitFactor() {
+        return strikeStudyDeficitFactor;
+    }
+
+    public SimulationParameters setStrikeStudyDeficitFactor(float strikeStudyDeficitFactor) {
+        this.strikeStudyDeficitFactor = strikeStudyDeficitFactor;
+        return this;
+    }
+
+    public float getBaseDecayRate() {
+        return baseDecayRate;
+    }
+
+    public SimulationParameters setBaseDecayRate(float baseDecayRate) {
+        this.baseDecayRate = baseDecayRate;
+        return this;
+    }
+
+    public float getRecreationDecayDivisor() {
+        return recreationDecayDivisor;
+    }
+
+    public SimulationParameters setRecreationDecayDivisor(float recreationDecayDivisor) {
+        this.recreationDecayDivisor = recreationDecayDivisor;
+        return this;
+    }
+
+    public float getMinDecayRate() {
+        return minDecayRate;
+    }
+
+    public SimulationParameters setMinDecayRate(float minDecayRate) {
+        this.minDecayRate = minDecayRate;
+        return this;
+    }
+
+    public int getMaxWalkingDistance() {
+        return maxWalkingDistance;
+    }
+
+    public SimulationParameters setMaxWalkingDistance(int maxWalkingDistance) {
+        this.maxWalkingDistance = maxWalkingDistance;
+        return this;
+    }
+
+    public float getWalkingDistancePenaltyRate() {
+        return walkingDistancePenaltyRate;
+    }
+
+    public SimulationParameters setWalkingDistancePenaltyRate(float walkingDistancePenaltyRate) {
+        this.walkingDistancePenaltyRate = walkingDistancePenaltyRate;
+        return this;
+    }
+
+    public int getStudentsPerRecreation() {
+        return studentsPerRecreation;
+    }
+
+    public SimulationParameters setStudentsPerRecreation(int studentsPerRecreation) {
+        this.studentsPerRecreation = studentsPerRecreation;
+        return this;
+    }
+
+    public float getNeedGrowthRate() {
+        return needGrowthRate;
+    }
+
+    public SimulationParameters setNeedGrowthRate(float needGrowthRate) {
+        this.needGrowthRate = needGrowthRate;
+        return this;
+    }
+
+    public float getNeedReliefRate() {
+        return needReliefRate;
+    }
+
+    public SimulationParameters setNeedReliefRate(float needReliefRate) {
+        this.needReliefRate = needReliefRate;
+        return this;
+    }
+
+    public float getMoodChangeRate() {
+        return moodChangeRate;
+    }
+
+    public SimulationParameters setMoodChangeRate(float moodChangeRate) {
+        this.moodChangeRate = moodChangeRate;
+        return this;
+    }
+
+    public float getMoodSatisfactionRate() {
+        return moodSatisfactionRate;
+    }
+
+    public SimulationParameters setMoodSatisfactionRate(float moodSatisfactionRate) {
+        this.moodSatisfactionRate = moodSatisfactionRate;
+        return this;
+    }
+
+    public float getDayLength() {
+        return dayLength;
+    }
+
+    public SimulationParameters setDayLength(float dayLength) {
+        this.dayLength = dayLength;
+        return this;
+    }
+
+    public float getMaxWaitingTime() {
+        return maxWaitingTime;
+    }
+
+    public SimulationParameters setMaxWaitingTime(float maxWaitingTime) {
+        this.maxWaitingTime = maxWaitingTime;
+        return this;
+    }
+
+    public float getWaitingPenaltyRate() {
+        return waitingPenaltyRate;
+    }
+
+    public SimulationParameters setWaitingPenaltyRate(float waitingPenaltyRate) {
+        this.waitingPenaltyRate = waitingPenaltyRate;
+        return this;
+    }
+
+    public float getRainSatisfactionRate() {
+        return rainSatisfactionRate;
+    }
+
+    public SimulationParameters setRainSatisfactionRate(float rainSatisfactionRate) {
+        this.rainSatisfactionRate = rainSatisfactionRate;
+        return this;
+    }
+
+    public float getRosesSatisfactionRate() {
+        return rosesSatisfactionRate;
+    }
+
+    public SimulationParameters setRosesSatisfactionRate(float rosesSatisfactionRate) {
+        this.rosesSatisfactionRate = rosesSatisfactionRate;
+        return this;
+    }
+
+    public float getEventCheckInterval() {
+        return eventCheckInterval;
+    }
+
+    public SimulationParameters setEventCheckInterval(float eventCheckInterval) {
+        this.eventCheckInterval = eventCheckInterval;
+        return this;
+    }
+
+    public float getEventProbabilityGrowth() {
+        return eventProbabilityGrowth;
+    }
+
+    public SimulationParameters setEventProbabilityGrowth(float eventProbabilityGrowth) {
+        this.eventProbabilityGrowth = eventProbabilityGrowth;
+        return this;
+    }
+
+    public float getEventProbabilityBias() {
+        return eventProbabilityBias;
+    }
+
+    public SimulationParameters setEventProbabilityBias(float eventProbabilityBias) {
+        this.eventProbabilityBias = eventProbabilityBias;
+        return this;
+    }
+
+    public float getMinEventDuration() {
+        return minEventDuration;
+    }
+
+    public SimulationParameters setMinEventDuration(float minEventDuration) {
+        this.minEventDuration = minEventDuration;
+        return this;
+    }
+
+    public float getMaxEventDuration() {
+        return maxEventDuration;
+    }
+
+    public SimulationParameters setMaxEventDuration(float maxEventDuration) {
+        this.maxEventDuration = maxEventDuration;
+        return this;
+    }
+
+    /**
+     * @return the satisfaction thresholds in ascending order, which must not be modified
+     */
+    public float[] getSatisfactionThresholds() {
+        return satisfactionThresholds;
+    }
+
+    public SimulationParameters setSatisfactionThresholds(float... satisfactionThresholds) {
+        this.satisfactionThresholds = satisfactionThresholds.clone();
+        Arrays.sort(this.satisfactionThresholds);
+        return this;
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.uoyteamsix.sim;
+
+/**
+ * A small, fast, seeded random number generator based on SplitMix64. Each simulation owns its own instance, so runs
+ * with the same seed are reproducible and several simulations can run on different threads without sharing state. The
+ * whole state is a single long, so it can be saved and restored.
+ */
+public class SimulationRandom {
+    private long state;
+
+    public SimulationRandom(long seed) {
+        state = seed;
+    }
+
+    /**
+     * @return the next 64 random bits
+     */
+    public long nextLong() {
+        long z = (state += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return a random float between 0 (inclusive) and 1 (exclusive)
+     */
+    public float nextFloat() {
+        return (nextLong() >>> 40) * 0x1.0p-24f;
+    }
+
+    /**
+     * @param start the lower bound (inclusive)
+     * @param end   the upper bound (exclusive)
+     * @return a random float between start and end
+     */
+    public float nextFloat(float start, float end) {
+        return start + nextFloat() * (end - start);
+    }
+
+    /**
+     * @param bound the upper bound (exclusive), must be positive
+     * @return a random int between 0 (inclusive) and bound (exclusive)
+     */
+    public int nextInt(int bound) {
+        // Multiply-shift range reduction. The bias is negligible for the small bounds used by the simulation.
+        return (int) (((nextLong() >>> 33) * bound) >>> 31);
+    }
+
+    /**
+     * @return the current internal state, which can be passed to {@link #setState} to resume the same sequence
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * @param state a state previously returned by {@link #getState}
+     */
+    public void setState(long state) {
+        this.state = state;
+    }
+}
@@ -0,0 +1,727 @@
+package io.github.uoyteamsix.sim;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * An immutable copy of the state of a game: the simulation's timers, satisfaction, current event and random number
+ * generator state, the buildings placed on its map, and its students and their timetables. Taking a snapshot only
+ * copies a few arrays, so it is cheap enough to do on the render thread, whereas encoding and compressing it can be
+ * left to a background thread.
+ * <p>
+ * Saves are compact and versioned. After the magic number and format version, the rest of the save is deflated and
+ * consists of:
+ * <ul>
+ *     <li>the simulation seed, tick count and random number generator state</li>
+ *     <li>the simulation's timers, satisfaction and event state</li>
+ *     <li>the map size and each building type's name and size, so a save can't be loaded onto a different map</li>
+ *     <li>each building's type ID, followed by its position as a variable length delta from the previous building</li>
+ *     <li>each student's home, as a delta from the previous student's home in the list of buildings, their seat in
+ *     the home, and then every student's needs and mood a column at a time</li>
+ *     <li>the timetable's clock and average waiting time, and if the timetable was up to date, what every student's
+ *     pending event is for and which activity it is for, followed by each student's building, event time and, if they
+ *     are queueing, when they joined the queue</li>
+ * </ul>
+ * Saves of version 1 have no students, so students are added for every accommodation building when they are loaded.
+ * Saves before version 3 have no timetable, so every student starts their timetable afresh.
+ */
+public final class SimulationSnapshot {
+    static final int MAGIC = 0x55535356;
+    static final int VERSION = 3;
+    private static final int MIN_VERSION = 1;
+
+    private static final GameEvent[] EVENTS = GameEvent.values();
+
+    // Fewest bytes a building type, a building and a student can each be saved in.
+    private static final int MIN_TYPE_BYTES = 4;
+    private static final int MIN_BUILDING_BYTES = 3;
+    private static final int MIN_STUDENT_BYTES = 2 + 4 * Float.BYTES;
+
+    // Simulation state.
+    private final long seed;
+    private final long tickCount;
+    private final long randomState;
+    private final float remainingTime;
+    private final float nextBuildingTime;
+    private final boolean gameOver;
+    private final int maximumAllowedBuildings;
+    private final float satisfaction;
+    private final float newBuildingSatisfaction;
+    private final int peakBuildingCount;
+    private final GameEvent currentEvent;
+    private final float nextEventProbability;
+    private final float checkEventTimer;
+    private final float eventDurationTimer;
+
+    // Map state, with the placed buildings as parallel arrays.
+    private final int mapWidth;
+    private final int mapHeight;
+    private final String[] typeNames;
+    private final int[] typeWidths;
+    private final int[] typeHeights;
+    private final int[] buildingTypeIds;
+    private final int[] buildingXs;
+    private final int[] buildingYs;
+
+    // Students, as parallel arrays.
+    private final int[] studentHomes;
+    private final byte[] studentSeats;
+    private final float[] studentHungers;
+    private final float[] studentStudyNeeds;
+    private final float[] studentLeisureNeeds;
+    private final float[] studentMoods;
+
+    // Timetable state, with a column for each student if the timetable was up to date.
+    private final double timetableClock;
+    private final float averageWaitingTime;
+    private final byte[] studentStates;
+    private final byte[] studentActivities;
+    private final int[] studentLocations;
+    private final long[] studentEventTimes;
+    private final long[] studentWaitStarts;
+
+    SimulationSnapshot(long seed, long tickCount, long randomState, float remainingTime, float nextBuildingTime,
+                       boolean gameOver, int maximumAllowedBuildings, float satisfaction,
+                       float newBuildingSatisfaction, int peakBuildingCount, GameEvent currentEvent,
+                       float nextEventProbability, float checkEventTimer, float eventDurationTimer, int mapWidth,
+                       int mapHeight, String[] typeNames, int[] typeWidths, int[] typeHeights, int[] buildingTypeIds,
+                       int[] buildingXs, int[] buildingYs, int[] studentHomes, byte[] studentSeats,
+                       float[] studentHungers, float[] studentStudyNeeds, float[] studentLeisureNeeds,
+                       float[] studentMoods, double timetableClock, float averageWaitingTime, byte[] studentStates,
+                       byte[] studentActivities, int[] studentLocations, long[] studentEventTimes,
+                       long[] studentWaitStarts) {
+        this.seed = seed;
+        this.tickCount = tickCount;
+        this.randomState = randomState;
+        this.remainingTime = remainingTime;
+        this.nextBuildingTime = nextBuildingTime;
+        this.gameOver = gameOver;
+        this.maximumAllowedBuildings = maximumAllowedBuildings;
+        this.satisfaction = satisfaction;
+        this.newBuildingSatisfaction = newBuildingSatisfaction;
+        this.peakBuildingCount = peakBuildingCount;
+        this.currentEvent = currentEvent;
+        this.nextEventProbability = nextEventProbability;
+        this.checkEventTimer = checkEventTimer;
+        this.eventDurationTimer = eventDurationTimer;
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+        this.typeNames = typeNames;
+        this.typeWidths = typeWidths;
+        this.typeHeights = typeHeights;
+        this.buildingTypeIds = buildingTypeIds;
+        this.buildingXs = buildingXs;
+        this.buildingYs = buildingYs;
+        this.studentHomes = studentHomes;
+        this.studentSeats = studentSeats;
+        this.studentHungers = studentHungers;
+        this.studentStudyNeeds = studentStudyNeeds;
+        this.studentLeisureNeeds = studentLeisureNeeds;
+        this.studentMoods = studentMoods;
+        this.timetableClock = timetableClock;
+        this.averageWaitingTime = averageWaitingTime;
+        this.studentStates = studentStates;
+        this.studentActivities = studentActivities;
+        this.studentLocations = studentLocations;
+        this.studentEventTimes = studentEventTimes;
+        this.studentWaitStarts = studentWaitStarts;
+    }
+
+    /**
+     * Copies the map size, building types and placed buildings of a map, and the simulation's students and their
+     * timetables, for use by {@link Simulation#createSnapshot}.
+     */
+    static SimulationSnapshot create(Simulation simulation, long tickCount, long randomState, float remainingTime,
+                                     float nextBuildingTime, boolean gameOver, int maximumAllowedBuildings,
+                                     float satisfaction, float newBuildingSatisfaction, int peakBuildingCount,
+                                     GameEvent currentEvent, float nextEventProbability, float checkEventTimer,
+                                     float eventDurationTimer) {
+        var map = simulation.getMap();
+        var types = map.getBuildingTypes();
+        var typeNames = new String[types.size()];
+        var typeWidths = new int[types.size()];
+        var typeHeights = new int[types.size()];
+        for (int i = 0; i < types.size(); i++) {
+            typeNames[i] = types.get(i).getName();
+            typeWidths[i] = types.get(i).getWidth();
+            typeHeights[i] = types.get(i).getHeight();
+        }
+
+        var buildings = map.getPlacedBuildings();
+        var buildingTypeIds = new int[buildings.size()];
+        var buildingXs = new int[buildings.size()];
+        var buildingYs = new int[buildings.size()];
+        // Index of each building in the list by building ID, so students can refer to buildings without a map lookup.
+        var buildingIndices = new int[map.getBuildingIndex().getIdCapacity()];
+        for (int i = 0; i < buildings.size(); i++) {
+            var building = buildings.get(i);
+            buildingTypeIds[i] = building.getType().getId();
+            buildingXs[i] = building.getX();
+            buildingYs[i] = building.getY();
+            buildingIndices[building.getId()] = i;
+        }
+
+        // Students are referred to by the index of their home, as buildings are recreated when loading.
+        var population = simulation.getPopulation();
+        int maxStudents = population.getCount();
+        var studentHomes = new int[maxStudents];
+        var studentSeats = new byte[maxStudents];
+        var studentHungers = new float[maxStudents];
+        var studentStudyNeeds = new float[maxStudents];
+        var studentLeisureNeeds = new float[maxStudents];
+        var studentMoods = new float[maxStudents];
+        int studentCount = population.copyTo(buildingIndices, studentHomes, studentSeats, studentHungers,
+                studentStudyNeeds, studentLeisureNeeds, studentMoods);
+
+        var timetable = simulation.getTimetable();
+        var studentStates = new byte[maxStudents];
+        var studentActivities = new byte[maxStudents];
+        var studentLocations = new int[maxStudents];
+        var studentEventTimes = new long[maxStudents];
+        var studentWaitStarts = new long[maxStudents];
+        int timetableCount = timetable.copyTo(buildingIndices, studentStates, studentActivities, studentLocations,
+                studentEventTimes, studentWaitStarts) ? studentCount : 0;
+        return new SimulationSnapshot(simulation.getSeed(), tickCount, randomState, remainingTime, nextBuildingTime,
+                gameOver, maximumAllowedBuildings, satisfaction, newBuildingSatisfaction, peakBuildingCount,
+                currentEvent, nextEventProbability, checkEventTimer, eventDurationTimer, map.getWidth(),
+                map.getHeight(), typeNames, typeWidths, typeHeights, buildingTypeIds, buildingXs, buildingYs,
+                Arrays.copyOf(studentHomes, studentCount), Arrays.copyOf(studentSeats, studentCount),
+                Arrays.copyOf(studentHungers, studentCount), Arrays.copyOf(studentStudyNeeds, studentCount),
+                Arrays.copyOf(studentLeisureNeeds, studentCount), Arrays.copyOf(studentMoods, studentCount),
+                timetable.getClock(), timetable.getAverageWaitingTime(),
+                Arrays.copyOf(studentStates, timetableCount), Arrays.copyOf(studentActivities, timetableCount),
+                Arrays.copyOf(studentLocations, timetableCount), Arrays.copyOf(studentEventTimes, timetableCount),
+                Arrays.copyOf(studentWaitStarts, timetableCount));
+    }
+
+    /**
+     * Checks whether this snapshot can be loaded onto the given map, which must be the same size and have the same
+     * building types as the map the snapshot was taken from, and whose usable tiles must have room for every saved
+     * building without any of them overlapping. Buildings already placed on the map are ignored, as they are removed
+     * before loading.
+     *
+     * @param map the map
+     * @throws IllegalArgumentException if the snapshot was taken from a different map, or its buildings don't fit
+     */
+    public void checkCompatible(SimulationMap map) {
+        if (map.getWidth() != mapWidth || map.getHeight() != mapHeight) {
+            throw new IllegalArgumentException("Save is for a " + mapWidth + "x" + mapHeight + " map, but the map is "
+                    + map.getWidth() + "x" + map.getHeight());
+        }
+        var types = map.getBuildingTypes();
+        if (types.size() != typeNames.length) {
+            throw new IllegalArgumentException("Save has " + typeNames.length + " building types, but the map has "
+                    + types.size());
+        }
+        for (int i = 0; i < typeNames.length; i++) {
+            var type = types.get(i);
+            if (!type.getName().equals(typeNames[i]) || type.getWidth() != typeWidths[i]
+                    || type.getHeight() != typeHeights[i]) {
+                throw new IllegalArgumentException("Building type " + typeNames[i] + " of the save doesn't match "
+                        + type.getName() + " of the map");
+            }
+        }
+
+        // The buildings are placed without checking, so check them against a scratch grid of the map's usable tiles
+        // with its own buildings freed. Each building is checked against the terrain on its own, and then overlaps
+        // are found all at once by blocking every building and seeing if fewer tiles became blocked than they cover.
+        var usableTiles = map.copyUsableTiles();
+        for (var building : map.getPlacedBuildings()) {
+            for (int x = building.getX(); x < building.getX() + building.getType().getWidth(); x++) {
+                Arrays.fill(usableTiles[x], building.getY(), building.getY() + building.getType().getHeight(), true);
+            }
+        }
+        var grid = new OccupancyGrid(usableTiles);
+        int count = buildingTypeIds.length;
+        var widths = new int[count];
+        var heights = new int[count];
+        long coveredTiles = 0;
+        for (int i = 0; i < count; i++) {
+            widths[i] = typeWidths[buildingTypeIds[i]];
+            heights[i] = typeHeights[buildingTypeIds[i]];
+            if (grid.countBlocked(buildingXs[i], buildingYs[i], widths[i], heights[i]) != 0) {
+                throw new IllegalArgumentException("Building " + i + " of the save covers tiles which can't be "
+                        + "built on");
+            }
+            coveredTiles += (long) widths[i] * heights[i];
+        }
+        long blockedTiles = grid.countBlocked(0, 0, mapWidth, mapHeight);
+        grid.setRects(count, buildingXs, buildingYs, widths, heights, true);
+        if (grid.countBlocked(0, 0, mapWidth, mapHeight) != blockedTiles + coveredTiles) {
+            throw new IllegalArgumentException("Save has buildings which overlap each other");
+        }
+    }
+
+    /**
+     * Places the saved buildings onto a map all at once.
+     *
+     * @param map a map which is compatible with this snapshot and has no buildings placed
+     * @see #checkCompatible
+     */
+    public void placeBuildings(SimulationMap map) {
+        map.placeBuildings(buildingTypeIds.length, buildingTypeIds, buildingXs, buildingYs);
+    }
+
+    /**
+     * Writes this snapshot, compressing it as it goes.
+     *
+     * @param out the stream to write to, which is not closed
+     * @throws IOException if writing fails
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        var header = new DataOutputStream(out);
+        header.writeInt(MAGIC);
+        header.writeByte(VERSION);
+        header.flush();
+
+        var deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            var deflated = new DeflaterOutputStream(out, deflater);
+            var data = new DataOutputStream(new BufferedOutputStream(deflated));
+            data.writeLong(seed);
+            VarInt.writeUnsigned(data, tickCount);
+            data.writeLong(randomState);
+
+            data.writeFloat(remainingTime);
+            data.writeFloat(nextBuildingTime);
+            data.writeBoolean(gameOver);
+            VarInt.writeUnsigned(data, maximumAllowedBuildings);
+            data.writeFloat(satisfaction);
+            data.writeFloat(newBuildingSatisfaction);
+            VarInt.writeUnsigned(data, peakBuildingCount);
+            data.writeByte(currentEvent.ordinal());
+            data.writeFloat(nextEventProbability);
+            data.writeFloat(checkEventTimer);
+            data.writeFloat(eventDurationTimer);
+
+            VarInt.writeUnsigned(data, mapWidth);
+            VarInt.writeUnsigned(data, mapHeight);
+            VarInt.writeUnsigned(data, typeNames.length);
+            for (int i = 0; i < typeNames.length; i++) {
+                data.writeUTF(typeNames[i]);
+                VarInt.writeUnsigned(data, typeWidths[i]);
+                VarInt.writeUnsigned(data, typeHeights[i]);
+            }
+
+            // Buildings placed one after another tend to be near each other, so store positions as deltas.
+            VarInt.writeUnsigned(data, buildingTypeIds.length);
+            int previousX = 0;
+            int previousY = 0;
+            for (int i = 0; i < buildingTypeIds.length; i++) {
+                VarInt.writeUnsigned(data, buildingTypeIds[i]);
+                VarInt.writeSigned(data, buildingXs[i] - previousX);
+                VarInt.writeSigned(data, buildingYs[i] - previousY);
+                previousX = buildingXs[i];
+                previousY = buildingYs[i];
+            }
+
+            // Students of the same home are next to each other, so most home deltas are 0. The needs and mood are
+            // written a column at a time, as students of the same home tend to have similar values.
+            VarInt.writeUnsigned(data, studentHomes.length);
+            int previousHome = 0;
+            for (int i = 0; i < studentHomes.length; i++) {
+                VarInt.writeSigned(data, studentHomes[i] - previousHome);
+                data.writeByte(studentSeats[i]);
+                previousHome = studentHomes[i];
+            }
+            // There can be millions of students, so the columns are copied in bulk rather than a float at a time.
+            var columnBytes = ByteBuffer.allocate(studentHomes.length * Float.BYTES);
+            for (var column : new float[][]{studentHungers, studentStudyNeeds, studentLeisureNeeds, studentMoods}) {
+                columnBytes.asFloatBuffer().put(column);
+                data.write(columnBytes.array());
+            }
+
+            // Students of the same home follow similar timetables, so event times are stored as deltas from the
+            // previous student's, and only queueing students need to know when they joined the queue.
+            data.writeDouble(timetableClock);
+            data.writeFloat(averageWaitingTime);
+            data.writeBoolean(hasTimetable());
+            if (hasTimetable()) {
+                data.write(studentStates);
+                data.write(studentActivities);
+                long previousTime = 0;
+                for (int i = 0; i < studentStates.length; i++) {
+                    VarInt.writeUnsigned(data, studentLocations[i] + 1);
+                    VarInt.writeSigned(data, studentEventTimes[i] - previousTime);
+                    if (studentStates[i] == StudentTimetable.WAITING) {
+                        VarInt.writeSigned(data, studentEventTimes[i] - studentWaitStarts[i]);
+                    }
+                    previousTime = studentEventTimes[i];
+                }
+            }
+            data.flush();
+            deflated.finish();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Reads a snapshot.
+     *
+     * @param in the stream to read from
+     * @return the snapshot
+     * @throws IOException if the save can't be read or is not a valid save
+     */
+    public static SimulationSnapshot read(InputStream in) throws IOException {
+        var header = new DataInputStream(in);
+        if (header.readInt() != MAGIC) {
+            throw new IOException("Not a UniSim save");
+        }
+        int version = header.readUnsignedByte();
+        if (version < MIN_VERSION || version > VERSION) {
+            throw new IOException("Unsupported save version " + version);
+        }
+
+        // Inflate the whole save up front, so the many small reads below come from memory.
+        byte[] bytes;
+        try (var inflater = new InflaterInputStream(in)) {
+            bytes = inflater.readAllBytes();
+        }
+        var data = new DataInputStream(new ByteArrayInputStream(bytes));
+        long seed = data.readLong();
+        long tickCount = VarInt.readUnsigned(data);
+        long randomState = data.readLong();
+
+        float remainingTime = data.readFloat();
+        float nextBuildingTime = data.readFloat();
+        boolean gameOver = data.readBoolean();
+        int maximumAllowedBuildings = readCount(data, Integer.MAX_VALUE, "allowed buildings");
+        float satisfaction = data.readFloat();
+        float newBuildingSatisfaction = data.readFloat();
+        int peakBuildingCount = readCount(data, Integer.MAX_VALUE, "peak buildings");
+        int eventOrdinal = data.readUnsignedByte();
+        if (eventOrdinal >= EVENTS.length) {
+            throw new IOException("Unknown event " + eventOrdinal);
+        }
+        float nextEventProbability = data.readFloat();
+        float checkEventTimer = data.readFloat();
+        float eventDurationTimer = data.readFloat();
+
+        // Counts are checked against the bytes left before anything is allocated, as each item takes at least a few
+        // bytes, so that a corrupt save can't ask for huge arrays.
+        int mapWidth = readCount(data, Integer.MAX_VALUE, "map columns");
+        int mapHeight = readCount(data, Integer.MAX_VALUE, "map rows");
+        int typeCount = readCount(data, data.available() / MIN_TYPE_BYTES, "building types");
+        var typeNames = new String[typeCount];
+        var typeWidths = new int[typeCount];
+        var typeHeights = new int[typeCount];
+        for (int i = 0; i < typeCount; i++) {
+            typeNames[i] = data.readUTF();
+            typeWidths[i] = (int) VarInt.readUnsigned(data);
+            typeHeights[i] = (int) VarInt.readUnsigned(data);
+            if (typeWidths[i] < 1 || typeWidths[i] > mapWidth || typeHeights[i] < 1 || typeHeights[i] > mapHeight) {
+                throw new IOException("Building type " + typeNames[i] + " doesn't fit on the map");
+            }
+        }
+
+        long maxBuildings = Math.min(data.available() / MIN_BUILDING_BYTES, (long) mapWidth * mapHeight);
+        int buildingCount = readCount(data, maxBuildings, "buildings");
+        var buildingTypeIds = new int[buildingCount];
+        var buildingXs = new int[buildingCount];
+        var buildingYs = new int[buildingCount];
+        int x = 0;
+        int y = 0;
+        for (int i = 0; i < buildingCount; i++) {
+            int typeId = (int) VarInt.readUnsigned(data);
+            x += (int) VarInt.readSigned(data);
+            y += (int) VarInt.readSigned(data);
+            if (typeId < 0 || typeId >= typeCount || x < 0 || y < 0 || x > mapWidth - typeWidths[typeId]
+                    || y > mapHeight - typeHeights[typeId]) {
+                throw new IOException("Building " + i + " is not on the map");
+            }
+            buildingTypeIds[i] = typeId;
+            buildingXs[i] = x;
+            buildingYs[i] = y;
+        }
+
+        int studentCount = version >= 2 ? readCount(data, data.available() / MIN_STUDENT_BYTES, "students") : 0;
+        var studentHomes = new int[studentCount];
+        var studentSeats = new byte[studentCount];
+        int home = 0;
+        for (int i = 0; i < studentCount; i++) {
+            home += (int) VarInt.readSigned(data);
+            if (home < 0 || home >= buildingCount || !typeNames[buildingTypeIds[home]].equals("Accommodation")) {
+                throw new IOException("Student " + i + " doesn't live in an accommodation building");
+            }
+            studentHomes[i] = home;
+            studentSeats[i] = data.readByte();
+        }
+        var studentColumns = new float[4][studentCount];
+        var columnBytes = new byte[studentCount * Float.BYTES];
+        for (var column : studentColumns) {
+            data.readFully(columnBytes);
+            ByteBuffer.wrap(columnBytes).asFloatBuffer().get(column);
+        }
+
+        double timetableClock = 0.0;
+        float averageWaitingTime = 0.0f;
+        int timetableCount = 0;
+        if (version >= 3) {
+            timetableClock = data.readDouble();
+            averageWaitingTime = data.readFloat();
+            timetableCount = data.readBoolean() ? studentCount : 0;
+        }
+        var studentStates = new byte[timetableCount];
+        var studentActivities = new byte[timetableCount];
+        var studentLocations = new int[timetableCount];
+        var studentEventTimes = new long[timetableCount];
+        var studentWaitStarts = new long[timetableCount];
+        data.readFully(studentStates);
+        data.readFully(studentActivities);
+        long time = 0;
+        for (int i = 0; i < timetableCount; i++) {
+            if (studentStates[i] < 0 || studentStates[i] >= StudentTimetable.STATE_COUNT
+                    || studentActivities[i] < 0 || studentActivities[i] >= StudentTimetable.ACTIVITY_COUNT) {
+                throw new IOException("Student " + i + " has an invalid timetable");
+            }
+            int location = (int) VarInt.readUnsigned(data) - 1;
+            if (location >= buildingCount
+                    || (location >= 0 && !isTimetabled(typeNames[buildingTypeIds[location]]))) {
+                throw new IOException("Student " + i + " is in a building without a timetable");
+            }
+            studentLocations[i] = location;
+            time = checkTime(time + VarInt.readSigned(data));
+            studentEventTimes[i] = time;
+            if (studentStates[i] == StudentTimetable.WAITING) {
+                studentWaitStarts[i] = checkTime(time - VarInt.readSigned(data));
+            }
+        }
+        return new SimulationSnapshot(seed, tickCount, randomState, remainingTime, nextBuildingTime, gameOver,
+                maximumAllowedBuildings, satisfaction, newBuildingSatisfaction, peakBuildingCount,
+                EVENTS[eventOrdinal], nextEventProbability, checkEventTimer, eventDurationTimer, mapWidth, mapHeight,
+                typeNames, typeWidths, typeHeights, buildingTypeIds, buildingXs, buildingYs, studentHomes,
+                studentSeats, studentColumns[0], studentColumns[1], studentColumns[2], studentColumns[3],
+                timetableClock, averageWaitingTime, studentStates, studentActivities, studentLocations,
+                studentEventTimes, studentWaitStarts);
+    }
+
+    private static boolean isTimetabled(String typeName) {
+        return typeName.equals("Canteen") || typeName.equals("Study");
+    }
+
+    /**
+     * Reads a count, making sure that it is no more than the given maximum.
+     */
+    private static int readCount(DataInputStream data, long max, String name) throws IOException {
+        long count = VarInt.readUnsigned(data);
+        if (count < 0 || count > max) {
+            throw new IOException("Save has too many " + name);
+        }
+        return (int) count;
+    }
+
+    private static long checkTime(long time) throws IOException {
+        if (time < 0 || time > EventQueue.MAX_TIME) {
+            throw new IOException("Time " + time + " is out of range");
+        }
+        return time;
+    }
+
+    /**
+     * Writes this snapshot to a file without ever leaving a partly written save behind. The save is written to a
+     * temporary file next to it and flushed to disk, then moved over the old save in one step, so a crash part way
+     * through leaves the previous save intact.
+     *
+     * @param path the path of the save
+     * @throws IOException if writing fails
+     */
+    public void writeTo(Path path) throws IOException {
+        var temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            var out = new BufferedOutputStream(Channels.newOutputStream(channel));
+            writeTo(out);
+            out.flush();
+            channel.force(true);
+        }
+        try {
+            Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a snapshot from a file.
+     *
+     * @param path the path of the save
+     * @return the snapshot
+     * @throws IOException if the save can't be read or is not a valid save
+     */
+    public static SimulationSnapshot read(Path path) throws IOException {
+        try (var in = new BufferedInputStream(Files.newInputStream(path))) {
+            return read(in);
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return the number of simulation ticks which had run when the snapshot was taken
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    long getRandomState() {
+        return randomState;
+    }
+
+    public float getRemainingTime() {
+        return remainingTime;
+    }
+
+    public float getNextBuildingTime() {
+        return nextBuildingTime;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    int getMaximumAllowedBuildings() {
+        return maximumAllowedBuildings;
+    }
+
+    public float getSatisfaction() {
+        return satisfaction;
+    }
+
+    float getNewBuildingSatisfaction() {
+        return newBuildingSatisfaction;
+    }
+
+    int getPeakBuildingCount() {
+        return peakBuildingCount;
+    }
+
+    public GameEvent getCurrentEvent() {
+        return currentEvent;
+    }
+
+    float getNextEventProbability() {
+        return nextEventProbability;
+    }
+
+    float getCheckEventTimer() {
+        return checkEventTimer;
+    }
+
+    public float getEventDurationTimer() {
+        return eventDurationTimer;
+    }
+
+    /**
+     * @return the number of placed buildings
+     */
+    public int getBuildingCount() {
+        return buildingTypeIds.length;
+    }
+
+    public int getBuildingTypeId(int building) {
+        return buildingTypeIds[building];
+    }
+
+    public int getBuildingX(int building) {
+        return buildingXs[building];
+    }
+
+    public int getBuildingY(int building) {
+        return buildingYs[building];
+    }
+
+    /**
+     * @return the number of students
+     */
+    public int getStudentCount() {
+        return studentHomes.length;
+    }
+
+    /**
+     * @param student the index of the student
+     * @return the index of the student's home in the list of buildings
+     */
+    int getStudentHome(int student) {
+        return studentHomes[student];
+    }
+
+    byte getStudentSeat(int student) {
+        return studentSeats[student];
+    }
+
+    float getStudentHunger(int student) {
+        return studentHungers[student];
+    }
+
+    float getStudentStudyNeed(int student) {
+        return studentStudyNeeds[student];
+    }
+
+    float getStudentLeisureNeed(int student) {
+        return studentLeisureNeeds[student];
+    }
+
+    float getStudentMood(int student) {
+        return studentMoods[student];
+    }
+
+    double getTimetableClock() {
+        return timetableClock;
+    }
+
+    float getAverageWaitingTime() {
+        return averageWaitingTime;
+    }
+
+    /**
+     * @return true if the snapshot holds every student's timetable, or false if they need to start theirs afresh
+     */
+    boolean hasTimetable() {
+        return studentStates.length == studentHomes.length;
+    }
+
+    byte getStudentState(int student) {
+        return studentStates[student];
+    }
+
+    byte getStudentActivity(int student) {
+        return studentActivities[student];
+    }
+
+    /**
+     * @param student the index of the student
+     * @return the index of the building the student is inside or queueing at in the list of buildings, or -1
+     */
+    int getStudentLocation(int student) {
+        return studentLocations[student];
+    }
+
+    long getStudentEventTime(int student) {
+        return studentEventTimes[student];
+    }
+
+    long getStudentWaitStart(int student) {
+        return studentWaitStarts[student];
+    }
+}
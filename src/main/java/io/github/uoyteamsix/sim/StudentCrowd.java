@@ -0,0 +1,303 @@
+package io.github.uoyteamsix.sim;
+
+import java.util.ArrayList;
+
+/**
+ * A crowd of students walking between their accommodation and the canteen, study and recreation buildings. Rather than
+ * each student searching for a path, every building type has a single {@link DistanceField} which is shared as a flow
+ * field, so each student only has to look at the neighbours of its tile to take the next step, however many students
+ * there are. The fields are the map's {@link DistanceFields}, which are shared with the simulation and are brought up
+ * to date by {@link #updateFields} before each step.
+ * <p>
+ * Students are stored as columns of primitives rather than as objects. Their positions are double buffered, so that
+ * {@link #step} can run on another thread whilst the positions from the previous step are being drawn, after which
+ * {@link #swapBuffers} publishes the new positions. The map and the fields are read during a step, so the map must not
+ * be changed whilst a step is running.
+ */
+public class StudentCrowd {
+    // Index of the accommodation flow field. The other fields lead to services.
+    private static final int HOME = 0;
+
+    private static final int MAX_SPAWNS_PER_STEP = 64;
+    private static final int MAX_SPAWN_ATTEMPTS = 16;
+    private static final float MAX_STEP_TIME = 0.1f;
+
+    // Walking speed in tiles per second, and how long students stay in a building in seconds.
+    private static final float WALKING_SPEED = 3.0f;
+    private static final float MIN_VISIT_TIME = 2.0f;
+    private static final float MAX_VISIT_TIME = 10.0f;
+
+    private final SimulationMap map;
+    private final BuildingType[] destinationTypes;
+    private final int width;
+    private final int maxStudents;
+    private final int studentsPerAccommodation;
+    private final SimulationRandom random;
+    private DistanceField[] fields;
+
+    // Positions in tiles and whether each student is walking rather than inside a building, double buffered. Steps
+    // write to the back buffer, whilst the front buffer holds the positions from the previous step.
+    private final float[][] xs;
+    private final float[][] ys;
+    private final boolean[][] walking;
+    private int front;
+    private int publishedCount;
+
+    // The rest of the state is only used by steps, so isn't double buffered.
+    private final int[] targetTiles;
+    private final byte[] destinations;
+    private final float[] visitTimers;
+    private int count;
+
+    /**
+     * @param map                      the map
+     * @param maxStudents              the most students in the crowd
+     * @param studentsPerAccommodation the number of students each accommodation adds to the crowd
+     * @param seed                     the seed for choosing where students go
+     */
+    public StudentCrowd(SimulationMap map, int maxStudents, int studentsPerAccommodation, long seed) {
+        this.map = map;
+        this.maxStudents = maxStudents;
+        this.studentsPerAccommodation = studentsPerAccommodation;
+        width = map.getWidth();
+        random = new SimulationRandom(seed);
+
+        // Students walk home to their accommodation and out to every other type of building the map has.
+        var types = new ArrayList<BuildingType>();
+        types.add(map.findBuildingType("Accommodation"));
+        for (var name : new String[]{"Canteen", "Study", "Recreation"}) {
+            var type = map.findBuildingType(name);
+            if (type != null) {
+                types.add(type);
+            }
+        }
+        destinationTypes = types.toArray(new BuildingType[0]);
+
+        xs = new float[2][maxStudents];
+        ys = new float[2][maxStudents];
+        walking = new boolean[2][maxStudents];
+        targetTiles = new int[maxStudents];
+        destinations = new byte[maxStudents];
+        visitTimers = new float[maxStudents];
+    }
+
+    /**
+     * Applies the changes to the map since the last call to the flow fields, building them on the first call. Must be
+     * called on the thread which changes the map, before each {@link #step}.
+     */
+    public void updateFields() {
+        if (destinationTypes[HOME] == null || destinationTypes.length == 1) {
+            return;
+        }
+        if (fields == null) {
+            fields = new DistanceField[destinationTypes.length];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = map.getDistanceFields().get(destinationTypes[i]);
+            }
+        } else {
+            map.getDistanceFields().update();
+        }
+    }
+
+    /**
+     * Moves every student along by the given time, and adds students for new accommodations. Writes to the back
+     * buffer, so {@link #swapBuffers} needs calling once the step has finished. Only reads the flow fields, so
+     * {@link #updateFields} needs calling first.
+     *
+     * @param deltaTime the time to move by in seconds, which is capped so that students never skip a tile
+     */
+    public void step(float deltaTime) {
+        if (fields == null) {
+            return;
+        }
+
+        // Start from the positions of the previous step.
+        int back = 1 - front;
+        System.arraycopy(xs[front], 0, xs[back], 0, count);
+        System.arraycopy(ys[front], 0, ys[back], 0, count);
+        System.arraycopy(walking[front], 0, walking[back], 0, count);
+
+        float time = Math.min(deltaTime, MAX_STEP_TIME);
+        int targetCount = Math.min(maxStudents,
+                map.getBuildingCount(destinationTypes[HOME]) * studentsPerAccommodation);
+        for (int i = 0; i < count; ) {
+            if (moveStudent(i, back, time, targetCount)) {
+                i++;
+            } else {
+                removeStudent(i, back);
+            }
+        }
+        spawnStudents(back, targetCount);
+    }
+
+    /**
+     * @return false if the student has left the crowd and should be removed
+     */
+    private boolean moveStudent(int i, int buffer, float time, int targetCount) {
+        if (!walking[buffer][i]) {
+            visitTimers[i] -= time;
+            if (visitTimers[i] > 0.0f) {
+                return true;
+            }
+            // Come back out onto the tile the building was entered from.
+            walking[buffer][i] = true;
+        }
+
+        // Walk towards the centre of the target tile, and only pick the next tile once it has been reached.
+        float targetX = targetTiles[i] % width + 0.5f;
+        float targetY = targetTiles[i] / width + 0.5f;
+        float dx = targetX - xs[buffer][i];
+        float dy = targetY - ys[buffer][i];
+        float distance = Math.abs(dx) + Math.abs(dy);
+        float stepDistance = WALKING_SPEED * time;
+        if (distance > stepDistance) {
+            xs[buffer][i] += dx / distance * stepDistance;
+            ys[buffer][i] += dy / distance * stepDistance;
+            return true;
+        }
+        xs[buffer][i] = targetX;
+        ys[buffer][i] = targetY;
+
+        var field = fields[destinations[i]];
+        int tileX = targetTiles[i] % width;
+        int tileY = targetTiles[i] / width;
+        int nextTile = field.getNextTile(tileX, tileY);
+        if (nextTile < 0) {
+            // There is no building of this type in reach, e.g. the last one has been removed, so head home instead,
+            // unless there's no way home either.
+            if (destinations[i] == HOME) {
+                return false;
+            }
+            destinations[i] = HOME;
+            return true;
+        }
+        if (field.getDistance(nextTile % width, nextTile / width) == 0) {
+            // Arrived at the building. Students leave the crowd when they get home if there are now too many.
+            if (destinations[i] == HOME && count > targetCount) {
+                return false;
+            }
+            walking[buffer][i] = false;
+            visitTimers[i] = random.nextFloat(MIN_VISIT_TIME, MAX_VISIT_TIME);
+            destinations[i] = (byte) chooseNextDestination(destinations[i]);
+            return true;
+        }
+        targetTiles[i] = nextTile;
+        return true;
+    }
+
+    private int chooseNextDestination(int current) {
+        if (current != HOME && random.nextInt(2) == 0) {
+            return HOME;
+        }
+        return 1 + random.nextInt(fields.length - 1);
+    }
+
+    private void removeStudent(int i, int buffer) {
+        count--;
+        xs[buffer][i] = xs[buffer][count];
+        ys[buffer][i] = ys[buffer][count];
+        walking[buffer][i] = walking[buffer][count];
+        targetTiles[i] = targetTiles[count];
+        destinations[i] = destinations[count];
+        visitTimers[i] = visitTimers[count];
+    }
+
+    private void spawnStudents(int buffer, int targetCount) {
+        for (int spawns = 0; spawns < MAX_SPAWNS_PER_STEP && count < targetCount; spawns++) {
+            var accommodation = findRandomAccommodation();
+            int tile = accommodation != null ? findExitTile(accommodation) : -1;
+            if (tile < 0) {
+                continue;
+            }
+            xs[buffer][count] = tile % width + 0.5f;
+            ys[buffer][count] = tile / width + 0.5f;
+            walking[buffer][count] = true;
+            targetTiles[count] = tile;
+            destinations[count] = (byte) chooseNextDestination(HOME);
+            visitTimers[count] = 0.0f;
+            count++;
+        }
+    }
+
+    private Building findRandomAccommodation() {
+        var buildings = map.getPlacedBuildings();
+        for (int attempt = 0; attempt < MAX_SPAWN_ATTEMPTS && !buildings.isEmpty(); attempt++) {
+            var building = buildings.get(random.nextInt(buildings.size()));
+            if (building.getType() == destinationTypes[HOME]) {
+                return building;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the index of a tile next to the building which can be walked on, or -1 if it is boxed in
+     */
+    private int findExitTile(Building building) {
+        int minX = building.getX() - 1;
+        int minY = building.getY() - 1;
+        int maxX = building.getX() + building.getType().getWidth();
+        int maxY = building.getY() + building.getType().getHeight();
+        for (int x = minX + 1; x < maxX; x++) {
+            if (isWalkable(x, minY)) {
+                return minY * width + x;
+            }
+            if (isWalkable(x, maxY)) {
+                return maxY * width + x;
+            }
+        }
+        for (int y = minY + 1; y < maxY; y++) {
+            if (isWalkable(minX, y)) {
+                return y * width + minX;
+            }
+            if (isWalkable(maxX, y)) {
+                return y * width + maxX;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isWalkable(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < map.getHeight() && map.isUsable(x, y);
+    }
+
+    /**
+     * Publishes the positions written by the last step, so they are returned by the getters. Must not be called
+     * whilst a step is running.
+     */
+    public void swapBuffers() {
+        front = 1 - front;
+        publishedCount = count;
+    }
+
+    /**
+     * @return the number of students as of the last published step
+     */
+    public int getStudentCount() {
+        return publishedCount;
+    }
+
+    /**
+     * @param index the index of the student
+     * @return the x coordinate of the student's centre in tiles
+     */
+    public float getX(int index) {
+        return xs[front][index];
+    }
+
+    /**
+     * @param index the index of the student
+     * @return the y coordinate of the student's centre in tiles
+     */
+    public float getY(int index) {
+        return ys[front][index];
+    }
+
+    /**
+     * @param index the index of the student
+     * @return true if the student is walking, or false if it is inside a building
+     */
+    public boolean isWalking(int index) {
+        return walking[front][index];
+    }
+}
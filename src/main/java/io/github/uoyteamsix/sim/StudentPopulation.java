@@ -0,0 +1,612 @@
+package io.github.uoyteamsix.sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A class which simulates every student individually. Each student lives in an accommodation building, is assigned
+ * to one of the canteens and one of the study buildings nearest to it, and has hunger, study and leisure needs which
+ * grow over time and are met by the canteens, their study building and the recreation buildings, depending on how much
+ * capacity there is to go round. Their mood follows how well their needs are met, and the average mood feeds into
+ * satisfaction.
+ * <p>
+ * Students are stored as columns of primitives rather than as objects, so a million of them can be updated every tick.
+ * The update is split into fixed size chunks which are run in parallel with fork-join, and the mood of each chunk is
+ * summed separately and then added up in order, so the average is bit-identical however many threads are used.
+ * Buildings placed or removed are queued up and applied at the start of the next update.
+ */
+class StudentPopulation implements MapListener {
+    // Number of students updated by each fork-join task.
+    private static final int CHUNK_SIZE = 16384;
+
+    // Students of an accommodation are spread across this many of the nearest canteens and study buildings. More
+    // candidates are searched for so that ties in distance are broken by position rather than by the order of the
+    // index's buckets.
+    private static final int SERVICE_CHOICES = 3;
+    private static final int SERVICE_CANDIDATES = 8;
+
+    private static final float INITIAL_NEED = 0.0f;
+    static final float NEUTRAL_MOOD = 0.5f;
+
+    private final SimulationMap map;
+    private final SimulationParameters parameters;
+    private final BuildingType accommodationType;
+    private final BuildingType canteenType;
+    private final BuildingType studyType;
+
+    // Accommodation, canteen and study buildings are given slots, which students refer to. The slots of removed
+    // buildings are only reused once no student refers to them.
+    private final Map<Building, Integer> slotIds = new IdentityHashMap<>();
+    private Building[] slotBuildings = new Building[64];
+    private int[] homeCanteens = new int[64 * SERVICE_CHOICES];
+    private int[] homeCanteenCounts = new int[64];
+    private int[] homeStudies = new int[64 * SERVICE_CHOICES];
+    private int[] homeStudyCounts = new int[64];
+    private int[] studyAssignedCounts = new int[64];
+    private float[] studySupplies = new float[64];
+    private int[] freeSlots = new int[16];
+    private int freeSlotCount;
+    private int slotCount;
+    private final List<Integer> removedSlots = new ArrayList<>();
+
+    // Changes since the last update.
+    private final List<Building> placedHomes = new ArrayList<>();
+    private boolean homesRemoved;
+    private boolean canteensChanged;
+    private boolean studiesChanged;
+
+    // What the last call of applyChanges did: the slots it freed, and where each student it kept has moved to.
+    private int[] freedSlots = new int[16];
+    private int freedSlotCount;
+    private boolean studentsRemoved;
+
+    // Student columns.
+    private int count;
+    private int[] homes = new int[0];
+    private byte[] seats = new byte[0];
+    private int[] canteens = new int[0];
+    private int[] studies = new int[0];
+    private float[] hungers = new float[0];
+    private float[] studyNeeds = new float[0];
+    private float[] leisureNeeds = new float[0];
+    private float[] moods = new float[0];
+    private int[] newIndices = new int[0];
+
+    // Inputs of the current update, shared by every chunk, and the total mood of each chunk.
+    private float tickTime;
+    private float canteenSupply;
+    private float leisureSupply;
+    private float studySupplyScale;
+    private double[] chunkMoods = new double[1];
+    private final Building[] candidates = new Building[SERVICE_CANDIDATES];
+
+    /**
+     * @param map        the map, whose buildings already placed are given students by the first update
+     * @param parameters the simulation parameters
+     */
+    StudentPopulation(SimulationMap map, SimulationParameters parameters) {
+        this.map = map;
+        this.parameters = parameters;
+        accommodationType = map.findBuildingType("Accommodation");
+        canteenType = map.findBuildingType("Canteen");
+        studyType = map.findBuildingType("Study");
+        for (var building : map.getPlacedBuildings()) {
+            onBuildingPlaced(building);
+        }
+        map.addListener(this);
+    }
+
+    @Override
+    public void onBuildingPlaced(Building building) {
+        var type = building.getType();
+        if (!hasSlot(type)) {
+            return;
+        }
+        addSlot(building);
+        if (type == accommodationType) {
+            placedHomes.add(building);
+        } else {
+            markServiceChanged(type);
+        }
+    }
+
+    private boolean hasSlot(BuildingType type) {
+        return type != null && (type == accommodationType || type == canteenType || type == studyType);
+    }
+
+    private void markServiceChanged(BuildingType type) {
+        if (type == canteenType) {
+            canteensChanged = true;
+        } else {
+            studiesChanged = true;
+        }
+    }
+
+    @Override
+    public void onBuildingRemoved(Building building) {
+        Integer slot = slotIds.remove(building);
+        if (slot == null) {
+            return;
+        }
+        slotBuildings[slot] = null;
+        removedSlots.add(slot);
+        if (building.getType() == accommodationType) {
+            homesRemoved = true;
+        } else {
+            markServiceChanged(building.getType());
+        }
+    }
+
+    private int addSlot(Building building) {
+        int slot;
+        if (freeSlotCount > 0) {
+            slot = freeSlots[--freeSlotCount];
+        } else {
+            slot = slotCount++;
+            if (slot == slotBuildings.length) {
+                int capacity = slotBuildings.length * 2;
+                slotBuildings = Arrays.copyOf(slotBuildings, capacity);
+                homeCanteens = Arrays.copyOf(homeCanteens, capacity * SERVICE_CHOICES);
+                homeCanteenCounts = Arrays.copyOf(homeCanteenCounts, capacity);
+                homeStudies = Arrays.copyOf(homeStudies, capacity * SERVICE_CHOICES);
+                homeStudyCounts = Arrays.copyOf(homeStudyCounts, capacity);
+                studyAssignedCounts = Arrays.copyOf(studyAssignedCounts, capacity);
+                studySupplies = Arrays.copyOf(studySupplies, capacity);
+            }
+        }
+        slotBuildings[slot] = building;
+        homeCanteenCounts[slot] = 0;
+        homeStudyCounts[slot] = 0;
+        slotIds.put(building, slot);
+        return slot;
+    }
+
+    /**
+     * Brings the students up to date with the buildings placed and removed since this was last called. Students of
+     * removed accommodation leave, keeping the order of the rest, students are added for new accommodation, and
+     * students are reassigned if the canteens or study buildings have changed. Should be called before each update.
+     */
+    void applyChanges() {
+        freedSlotCount = 0;
+        studentsRemoved = false;
+        if (placedHomes.isEmpty() && !homesRemoved && !canteensChanged && !studiesChanged) {
+            return;
+        }
+        if (homesRemoved) {
+            count = keepStudentsWithHomes();
+            studentsRemoved = true;
+        }
+        for (int slot : removedSlots) {
+            if (freeSlotCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+            }
+            if (freedSlotCount == freedSlots.length) {
+                freedSlots = Arrays.copyOf(freedSlots, freedSlotCount * 2);
+            }
+            freeSlots[freeSlotCount++] = slot;
+            freedSlots[freedSlotCount++] = slot;
+        }
+        removedSlots.clear();
+
+        // Work out the nearest canteens and study buildings of every accommodation if they have changed, or otherwise
+        // only of the new accommodation.
+        if (canteensChanged || studiesChanged) {
+            for (int slot = 0; slot < slotCount; slot++) {
+                var building = slotBuildings[slot];
+                if (building != null && building.getType() == accommodationType) {
+                    if (canteensChanged) {
+                        findNearestServices(slot, canteenType, homeCanteens, homeCanteenCounts);
+                    }
+                    if (studiesChanged) {
+                        findNearestServices(slot, studyType, homeStudies, homeStudyCounts);
+                    }
+                }
+            }
+        }
+        for (var home : placedHomes) {
+            Integer slot = slotIds.get(home);
+            if (slot == null) {
+                // Placed and removed again before this update.
+                continue;
+            }
+            if (!canteensChanged) {
+                findNearestServices(slot, canteenType, homeCanteens, homeCanteenCounts);
+            }
+            if (!studiesChanged) {
+                findNearestServices(slot, studyType, homeStudies, homeStudyCounts);
+            }
+            addStudents(slot);
+        }
+        placedHomes.clear();
+        homesRemoved = false;
+        canteensChanged = false;
+        studiesChanged = false;
+        assignServices();
+    }
+
+    /**
+     * Removes every student whose home has been removed from the map, keeping the rest in the same order, and records
+     * where each student has moved to.
+     *
+     * @return the number of students kept
+     */
+    private int keepStudentsWithHomes() {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (slotBuildings[homes[i]] == null) {
+                newIndices[i] = -1;
+                continue;
+            }
+            newIndices[i] = kept;
+            homes[kept] = homes[i];
+            seats[kept] = seats[i];
+            hungers[kept] = hungers[i];
+            studyNeeds[kept] = studyNeeds[i];
+            leisureNeeds[kept] = leisureNeeds[i];
+            moods[kept] = moods[i];
+            kept++;
+        }
+        return kept;
+    }
+
+    private void findNearestServices(int homeSlot, BuildingType type, int[] homeServices, int[] homeServiceCounts) {
+        var home = slotBuildings[homeSlot];
+        float centreX = home.getX() + home.getType().getWidth() / 2.0f;
+        float centreY = home.getY() + home.getType().getHeight() / 2.0f;
+        int found = type != null ? map.getBuildingIndex().findNearest(centreX, centreY, type, candidates) : 0;
+
+        // Sort by distance, then by position, so the choice doesn't depend on the order buildings were indexed in.
+        for (int i = 1; i < found; i++) {
+            var candidate = candidates[i];
+            int j = i;
+            while (j > 0 && compareDistance(candidate, candidates[j - 1], centreX, centreY) < 0) {
+                candidates[j] = candidates[j - 1];
+                j--;
+            }
+            candidates[j] = candidate;
+        }
+        int choices = Math.min(found, SERVICE_CHOICES);
+        for (int i = 0; i < choices; i++) {
+            homeServices[homeSlot * SERVICE_CHOICES + i] = slotIds.get(candidates[i]);
+        }
+        homeServiceCounts[homeSlot] = choices;
+        Arrays.fill(candidates, null);
+    }
+
+    private static int compareDistance(Building a, Building b, float x, float y) {
+        int result = Float.compare(distanceSquared(a, x, y), distanceSquared(b, x, y));
+        if (result == 0) {
+            result = Integer.compare(a.getY(), b.getY());
+        }
+        return result != 0 ? result : Integer.compare(a.getX(), b.getX());
+    }
+
+    private static float distanceSquared(Building building, float x, float y) {
+        float dx = building.getX() + building.getType().getWidth() / 2.0f - x;
+        float dy = building.getY() + building.getType().getHeight() / 2.0f - y;
+        return dx * dx + dy * dy;
+    }
+
+    private void addStudents(int homeSlot) {
+        int studentsPerHome = parameters.getStudentsPerAccommodation();
+        ensureCapacity(count + studentsPerHome);
+        for (int seat = 0; seat < studentsPerHome; seat++) {
+            homes[count] = homeSlot;
+            seats[count] = (byte) seat;
+            hungers[count] = INITIAL_NEED;
+            studyNeeds[count] = INITIAL_NEED;
+            leisureNeeds[count] = INITIAL_NEED;
+            moods[count] = NEUTRAL_MOOD;
+            count++;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= homes.length) {
+            return;
+        }
+        capacity = Math.max(capacity, homes.length * 2);
+        homes = Arrays.copyOf(homes, capacity);
+        seats = Arrays.copyOf(seats, capacity);
+        canteens = Arrays.copyOf(canteens, capacity);
+        studies = Arrays.copyOf(studies, capacity);
+        hungers = Arrays.copyOf(hungers, capacity);
+        studyNeeds = Arrays.copyOf(studyNeeds, capacity);
+        leisureNeeds = Arrays.copyOf(leisureNeeds, capacity);
+        moods = Arrays.copyOf(moods, capacity);
+        newIndices = Arrays.copyOf(newIndices, capacity);
+    }
+
+    /**
+     * Assigns every student to one of their home's nearest canteens and study buildings by their seat in the home, and
+     * works out how much of each study building's capacity each of its students gets.
+     */
+    private void assignServices() {
+        Arrays.fill(studyAssignedCounts, 0, slotCount, 0);
+        for (int i = 0; i < count; i++) {
+            int home = homes[i];
+            int seat = seats[i] & 0xFF;
+            int canteenChoices = homeCanteenCounts[home];
+            canteens[i] = canteenChoices > 0 ? homeCanteens[home * SERVICE_CHOICES + seat % canteenChoices] : -1;
+            int studyChoices = homeStudyCounts[home];
+            if (studyChoices == 0) {
+                studies[i] = -1;
+                continue;
+            }
+            int study = homeStudies[home * SERVICE_CHOICES + seat % studyChoices];
+            studies[i] = study;
+            studyAssignedCounts[study]++;
+        }
+        for (int slot = 0; slot < slotCount; slot++) {
+            int assigned = studyAssignedCounts[slot];
+            studySupplies[slot] = assigned > 0 ? Math.min((float) parameters.getStudentsPerStudy() / assigned, 1.0f)
+                    : 0.0f;
+        }
+    }
+
+    /**
+     * Updates the needs and mood of every student, once {@link #applyChanges} has been called.
+     *
+     * @param deltaTime      the time between the last call of this method
+     * @param canteenSupply  the fraction of students the canteens can serve, from 0 to 1
+     * @param leisureSupply  the fraction of students the recreation buildings can serve, from 0 to 1
+     * @param studyAvailable whether the study buildings are open, e.g. false during a strike
+     * @return the average mood of every student, or {@link #NEUTRAL_MOOD} if there are none
+     */
+    float update(float deltaTime, float canteenSupply, float leisureSupply, boolean studyAvailable) {
+        if (count == 0) {
+            return NEUTRAL_MOOD;
+        }
+        tickTime = deltaTime;
+        this.canteenSupply = canteenSupply;
+        this.leisureSupply = leisureSupply;
+        studySupplyScale = studyAvailable ? 1.0f : 0.0f;
+
+        int chunkCount = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (chunkMoods.length < chunkCount) {
+            chunkMoods = new double[chunkCount];
+        }
+        if (chunkCount == 1) {
+            updateChunk(0);
+        } else {
+            new UpdateTask(0, chunkCount).invoke();
+        }
+
+        // Add up the chunks in order, so the result doesn't depend on which threads finished first.
+        double totalMood = 0.0;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            totalMood += chunkMoods[chunk];
+        }
+        return (float) (totalMood / count);
+    }
+
+    private void updateChunk(int chunk) {
+        int from = chunk * CHUNK_SIZE;
+        int to = Math.min(from + CHUNK_SIZE, count);
+        float growth = parameters.getNeedGrowthRate() * tickTime;
+        float relief = parameters.getNeedReliefRate() * tickTime;
+        float moodChange = Math.min(parameters.getMoodChangeRate() * tickTime, 1.0f);
+        float hungerChange = growth - relief * canteenSupply;
+        float leisureChange = growth - relief * leisureSupply;
+        float studyRelief = relief * studySupplyScale;
+
+        double totalMood = 0.0;
+        for (int i = from; i < to; i++) {
+            float studySupply = studies[i] >= 0 ? studySupplies[studies[i]] : 0.0f;
+            float hunger = Math.min(Math.max(hungers[i] + hungerChange, 0.0f), 1.0f);
+            float studyNeed = Math.min(Math.max(studyNeeds[i] + growth - studyRelief * studySupply, 0.0f), 1.0f);
+            float leisureNeed = Math.min(Math.max(leisureNeeds[i] + leisureChange, 0.0f), 1.0f);
+            hungers[i] = hunger;
+            studyNeeds[i] = studyNeed;
+            leisureNeeds[i] = leisureNeed;
+
+            // Mood moves towards how well every need is met.
+            float contentment = 1.0f - (hunger + studyNeed + leisureNeed) / 3.0f;
+            float mood = moods[i] + (contentment - moods[i]) * moodChange;
+            moods[i] = mood;
+            totalMood += mood;
+        }
+        chunkMoods[chunk] = totalMood;
+    }
+
+    /**
+     * A task which updates a range of chunks, splitting itself in half until there is a single chunk.
+     */
+    private class UpdateTask extends RecursiveAction {
+        private final int fromChunk;
+        private final int toChunk;
+
+        UpdateTask(int fromChunk, int toChunk) {
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk == 1) {
+                updateChunk(fromChunk);
+                return;
+            }
+            int middle = (fromChunk + toChunk) >>> 1;
+            invokeAll(new UpdateTask(fromChunk, middle), new UpdateTask(middle, toChunk));
+        }
+    }
+
+    /**
+     * Copies every student whose home is still on the map into the columns of a snapshot, referring to homes by their
+     * index in the map's list of placed buildings. Students of removed accommodation would be removed by the next
+     * update without affecting anyone else, so they are left out.
+     *
+     * @param buildingIndices the index of each placed building in the list, by building ID
+     * @param homeIndices     the column to copy each student's home into
+     * @param seatsOut        the column to copy each student's seat in their home into
+     * @param hungersOut      the column to copy each student's hunger into
+     * @param studyNeedsOut   the column to copy each student's study need into
+     * @param leisureNeedsOut the column to copy each student's leisure need into
+     * @param moodsOut        the column to copy each student's mood into
+     * @return the number of students copied
+     */
+    int copyTo(int[] buildingIndices, int[] homeIndices, byte[] seatsOut, float[] hungersOut, float[] studyNeedsOut,
+               float[] leisureNeedsOut, float[] moodsOut) {
+        int copied = 0;
+        for (int i = 0; i < count; i++) {
+            var home = slotBuildings[homes[i]];
+            if (home == null) {
+                continue;
+            }
+            homeIndices[copied] = buildingIndices[home.getId()];
+            seatsOut[copied] = seats[i];
+            hungersOut[copied] = hungers[i];
+            studyNeedsOut[copied] = studyNeeds[i];
+            leisureNeedsOut[copied] = leisureNeeds[i];
+            moodsOut[copied] = moods[i];
+            copied++;
+        }
+        return copied;
+    }
+
+    /**
+     * Replaces every student with the students saved in a snapshot, whose buildings must already be placed on the map.
+     * Accommodation without any saved students, e.g. placed after the last tick before the snapshot was taken, is
+     * given students by the next update, and every student is reassigned to a canteen and a study building.
+     *
+     * @param snapshot the snapshot
+     */
+    void restore(SimulationSnapshot snapshot) {
+        slotIds.clear();
+        Arrays.fill(slotBuildings, null);
+        slotCount = 0;
+        freeSlotCount = 0;
+        removedSlots.clear();
+        placedHomes.clear();
+        homesRemoved = false;
+
+        // Give the buildings slots in the order they were placed, so homes can be looked up by index.
+        var buildings = map.getPlacedBuildings();
+        var buildingSlots = new int[buildings.size()];
+        Arrays.fill(buildingSlots, -1);
+        for (int i = 0; i < buildings.size(); i++) {
+            if (hasSlot(buildings.get(i).getType())) {
+                buildingSlots[i] = addSlot(buildings.get(i));
+            }
+        }
+
+        count = 0;
+        ensureCapacity(snapshot.getStudentCount());
+        var populatedSlots = new boolean[slotCount];
+        for (int i = 0; i < snapshot.getStudentCount(); i++) {
+            int slot = buildingSlots[snapshot.getStudentHome(i)];
+            homes[i] = slot;
+            seats[i] = snapshot.getStudentSeat(i);
+            hungers[i] = snapshot.getStudentHunger(i);
+            studyNeeds[i] = snapshot.getStudentStudyNeed(i);
+            leisureNeeds[i] = snapshot.getStudentLeisureNeed(i);
+            moods[i] = snapshot.getStudentMood(i);
+            populatedSlots[slot] = true;
+        }
+        count = snapshot.getStudentCount();
+        for (var building : buildings) {
+            if (building.getType() == accommodationType && !populatedSlots[slotIds.get(building)]) {
+                placedHomes.add(building);
+            }
+        }
+        canteensChanged = true;
+        studiesChanged = true;
+    }
+
+    /**
+     * Stops listening to the map.
+     */
+    void detach() {
+        map.removeListener(this);
+    }
+
+    /**
+     * @return the number of students, as of the last update
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * @return true if the last call of {@link #applyChanges} removed any students, which moves the rest down
+     */
+    boolean wereStudentsRemoved() {
+        return studentsRemoved;
+    }
+
+    /**
+     * @param student the index of a student before the last call of {@link #applyChanges}, if it removed students
+     * @return the index the student has moved to, or -1 if they have left
+     */
+    int getNewIndex(int student) {
+        return newIndices[student];
+    }
+
+    /**
+     * @return the number of slots freed by the last call of {@link #applyChanges}
+     */
+    int getFreedSlotCount() {
+        return freedSlotCount;
+    }
+
+    /**
+     * @param index the index of the freed slot, from 0 to {@link #getFreedSlotCount}
+     * @return the slot, which will be given to the next building placed
+     */
+    int getFreedSlot(int index) {
+        return freedSlots[index];
+    }
+
+    /**
+     * @return the number of slots ever used, which every slot is below
+     */
+    int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * @param slot the slot
+     * @return the building in the slot, or null if the slot is free or its building has been removed
+     */
+    Building getSlotBuilding(int slot) {
+        return slotBuildings[slot];
+    }
+
+    /**
+     * @param building an accommodation, canteen or study building
+     * @return the building's slot, or -1 if it doesn't have one
+     */
+    int getSlot(Building building) {
+        Integer slot = slotIds.get(building);
+        return slot != null ? slot : -1;
+    }
+
+    /**
+     * @param student the index of the student
+     * @return true if the student's home is still on the map, as students only leave on the next update
+     */
+    boolean hasHome(int student) {
+        return slotBuildings[homes[student]] != null;
+    }
+
+    /**
+     * @param student the index of the student
+     * @return the slot of the student's canteen, or -1 if there are no canteens
+     */
+    int getCanteen(int student) {
+        return canteens[student];
+    }
+
+    /**
+     * @param student the index of the student
+     * @return the slot of the student's study building, or -1 if there are no study buildings
+     */
+    int getStudy(int student) {
+        return studies[student];
+    }
+}
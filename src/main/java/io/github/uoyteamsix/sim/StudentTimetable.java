@@ -0,0 +1,518 @@
+package io.github.uoyteamsix.sim;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A discrete-event simulation of the students of a {@link StudentPopulation} following a daily timetable of meals at
+ * their canteen and sessions at their study building. A building only holds as many students as its capacity, and
+ * students who arrive when it is full queue until someone leaves, or give up once their session would have ended. The
+ * average time spent waiting feeds into satisfaction.
+ * <p>
+ * Each student has a single pending event at a time: arriving at their next activity, leaving it, or giving up on a
+ * queue. Events are kept in an {@link EventQueue} and the state of each student and building is held in columns, so
+ * processing an event never allocates and millions can be processed per simulated day. Events are ordered by time and
+ * then by student, so the simulation is deterministic. Time is counted in whole milliseconds and advanced by
+ * {@link #update}, which is driven by the simulation's ticks.
+ */
+class StudentTimetable {
+    // A day's timetable: when each activity starts and how long it lasts, as fractions of a day, and whether it is a
+    // meal at the student's canteen or a session at their study building.
+    private static final float[] ACTIVITY_STARTS = {0.05f, 0.15f, 0.45f, 0.55f, 0.8f};
+    private static final float[] ACTIVITY_DURATIONS = {0.04f, 0.2f, 0.04f, 0.2f, 0.05f};
+    private static final boolean[] ACTIVITY_MEALS = {true, false, true, false, true};
+    static final int ACTIVITY_COUNT = ACTIVITY_STARTS.length;
+
+    // Students start each activity up to this fraction of a day late, so they don't all arrive at once, and take at
+    // least this fraction of a day to get from one building to the next.
+    private static final float START_SPREAD = 0.1f;
+    private static final float TRAVEL_TIME = 0.005f;
+
+    // How quickly the average waiting time follows the waiting times of the latest visits, per second.
+    private static final float WAITING_TIME_SMOOTHING = 0.5f;
+
+    // What a student's pending event is for.
+    static final byte TRAVELLING = 0;
+    static final byte INSIDE = 1;
+    static final byte WAITING = 2;
+    static final int STATE_COUNT = 3;
+
+    private final SimulationMap map;
+    private final SimulationParameters parameters;
+    private final StudentPopulation population;
+    private final BuildingType canteenType;
+    private final EventQueue events = new EventQueue();
+    private final IntUnaryOperator newIndex;
+
+    // Lengths of a day and of each activity in milliseconds.
+    private final long dayLength;
+    private final long[] activityStarts = new long[ACTIVITY_COUNT];
+    private final long[] activityDurations = new long[ACTIVITY_COUNT];
+    private final long startSpread;
+    private final long travelTime;
+
+    // Time in seconds, and the waiting time statistics.
+    private double clock;
+    private float averageWaitingTime;
+    private long tickWaitingTime;
+    private int tickVisits;
+
+    // Student columns. The location is the slot of the building a student is inside or queueing at, or -1. Queues are
+    // linked lists through the students.
+    private int count;
+    private byte[] states = new byte[0];
+    private byte[] activities = new byte[0];
+    private int[] locations = new int[0];
+    private long[] waitStarts = new long[0];
+    private int[] queuePrevious = new int[0];
+    private int[] queueNext = new int[0];
+
+    // Building columns, indexed by the population's slots.
+    private int[] occupancies = new int[0];
+    private int[] queueHeads = new int[0];
+    private int[] queueTails = new int[0];
+    private boolean[] evicted = new boolean[0];
+    private boolean admissionsNeeded;
+    private boolean evictionNeeded;
+
+    /**
+     * @param map        the map
+     * @param parameters the simulation parameters
+     * @param population the students, whose changes must be applied before each update
+     */
+    StudentTimetable(SimulationMap map, SimulationParameters parameters, StudentPopulation population) {
+        this.map = map;
+        this.parameters = parameters;
+        this.population = population;
+        canteenType = map.findBuildingType("Canteen");
+        newIndex = population::getNewIndex;
+
+        dayLength = Math.max(Math.round(parameters.getDayLength() * 1000.0), 1L);
+        for (int i = 0; i < ACTIVITY_COUNT; i++) {
+            activityStarts[i] = (long) (ACTIVITY_STARTS[i] * dayLength);
+            activityDurations[i] = Math.max((long) (ACTIVITY_DURATIONS[i] * dayLength), 1L);
+        }
+        startSpread = Math.max((long) (START_SPREAD * dayLength), 1L);
+        travelTime = Math.max((long) (TRAVEL_TIME * dayLength), 1L);
+    }
+
+    /**
+     * Brings the timetable up to date with the population, then processes every event up to the end of the tick.
+     *
+     * @param deltaTime the time between the last call of this method
+     */
+    void update(float deltaTime) {
+        long now = getTime();
+        tickWaitingTime = 0;
+        tickVisits = 0;
+        ensureSlotCapacity(population.getSlotCount());
+        if (population.wereStudentsRemoved()) {
+            removeStudents();
+        }
+        evictFromFreedSlots(now);
+        if (admissionsNeeded) {
+            admissionsNeeded = false;
+            for (int slot = 0; slot < population.getSlotCount(); slot++) {
+                admit(slot, now);
+            }
+        }
+        int studentCount = population.getCount();
+        ensureStudentCapacity(studentCount);
+        for (int student = count; student < studentCount; student++) {
+            startTimetable(student, now);
+        }
+        count = studentCount;
+
+        clock += deltaTime;
+        long until = getTime();
+        while (events.peekTime() <= until) {
+            long time = events.peekTime();
+            int student = events.poll();
+            switch (states[student]) {
+                case TRAVELLING -> arrive(student, time);
+                case INSIDE -> {
+                    leave(student, time);
+                    scheduleNextActivity(student, time);
+                }
+                default -> {
+                    // Given up waiting.
+                    unlink(student);
+                    recordVisit(time - waitStarts[student]);
+                    scheduleNextActivity(student, time);
+                }
+            }
+        }
+
+        if (tickVisits > 0) {
+            float tickAverage = (float) (tickWaitingTime / 1000.0 / tickVisits);
+            float smoothing = Math.min(WAITING_TIME_SMOOTHING * deltaTime, 1.0f);
+            averageWaitingTime += (tickAverage - averageWaitingTime) * smoothing;
+        }
+    }
+
+    private long getTime() {
+        return (long) (clock * 1000.0);
+    }
+
+    /**
+     * Lets the students removed by the population leave their buildings and queues, and moves the rest down.
+     */
+    private void removeStudents() {
+        // The queues still link the old indices, so unlink the students who have gone first.
+        for (int student = 0; student < count; student++) {
+            if (population.getNewIndex(student) >= 0 || locations[student] < 0) {
+                continue;
+            }
+            if (states[student] == INSIDE) {
+                occupancies[locations[student]]--;
+                admissionsNeeded = true;
+            } else if (states[student] == WAITING) {
+                unlink(student);
+            }
+        }
+        int kept = 0;
+        for (int student = 0; student < count; student++) {
+            int newStudent = population.getNewIndex(student);
+            if (newStudent < 0) {
+                continue;
+            }
+            states[newStudent] = states[student];
+            activities[newStudent] = activities[student];
+            locations[newStudent] = locations[student];
+            waitStarts[newStudent] = waitStarts[student];
+            queuePrevious[newStudent] = remap(queuePrevious[student]);
+            queueNext[newStudent] = remap(queueNext[student]);
+            kept++;
+        }
+        for (int slot = 0; slot < population.getSlotCount(); slot++) {
+            queueHeads[slot] = remap(queueHeads[slot]);
+            queueTails[slot] = remap(queueTails[slot]);
+        }
+        events.remapSubjects(newIndex, count);
+        count = kept;
+    }
+
+    private int remap(int student) {
+        return student >= 0 ? population.getNewIndex(student) : -1;
+    }
+
+    /**
+     * Sends the students inside or queueing at buildings which have been removed on to their next activity.
+     */
+    private void evictFromFreedSlots(long now) {
+        for (int i = 0; i < population.getFreedSlotCount(); i++) {
+            int slot = population.getFreedSlot(i);
+            if (occupancies[slot] > 0 || queueHeads[slot] >= 0) {
+                evicted[slot] = true;
+                evictionNeeded = true;
+            }
+        }
+        if (!evictionNeeded) {
+            return;
+        }
+        for (int student = 0; student < count; student++) {
+            int location = locations[student];
+            if (location >= 0 && !evicted[location]) {
+                continue;
+            }
+            if (states[student] == INSIDE) {
+                // The student's departure still goes ahead, but has no building to leave.
+                locations[student] = -1;
+            } else if (states[student] == WAITING) {
+                locations[student] = -1;
+                recordVisit(now - waitStarts[student]);
+                scheduleNextActivity(student, now);
+            }
+        }
+        for (int slot = 0; slot < evicted.length; slot++) {
+            if (evicted[slot]) {
+                evicted[slot] = false;
+                occupancies[slot] = 0;
+                queueHeads[slot] = -1;
+                queueTails[slot] = -1;
+            }
+        }
+        evictionNeeded = false;
+    }
+
+    /**
+     * Schedules a new student's arrival at the next activity of the day.
+     */
+    private void startTimetable(int student, long now) {
+        long day = now / dayLength;
+        int activity = 0;
+        while (activity < ACTIVITY_COUNT && getStartTime(student, activity, day) <= now) {
+            activity++;
+        }
+        if (activity == ACTIVITY_COUNT) {
+            activity = 0;
+            day++;
+        }
+        locations[student] = -1;
+        queuePrevious[student] = -1;
+        queueNext[student] = -1;
+        travelTo(student, activity, getStartTime(student, activity, day));
+    }
+
+    private void scheduleNextActivity(int student, long now) {
+        int activity = (activities[student] + 1) % ACTIVITY_COUNT;
+        long day = now / dayLength;
+        long start = getStartTime(student, activity, day);
+        if (activity == 0 && start <= now) {
+            start = getStartTime(student, activity, day + 1);
+        }
+        travelTo(student, activity, Math.max(start, now + travelTime));
+    }
+
+    private void travelTo(int student, int activity, long arrivalTime) {
+        states[student] = TRAVELLING;
+        activities[student] = (byte) activity;
+        locations[student] = -1;
+        events.schedule(student, arrivalTime);
+    }
+
+    /**
+     * @return the time the student means to start the activity on the given day, spread out by a hash of the student
+     */
+    private long getStartTime(int student, int activity, long day) {
+        long hash = (day * ACTIVITY_COUNT + activity) * 0x9E3779B97F4A7C15L + student;
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        hash ^= hash >>> 31;
+        return day * dayLength + activityStarts[activity] + Math.floorMod(hash, startSpread);
+    }
+
+    private void arrive(int student, long time) {
+        int activity = activities[student];
+        int slot = ACTIVITY_MEALS[activity] ? population.getCanteen(student) : population.getStudy(student);
+        if (slot < 0) {
+            // There isn't a building for the activity, so skip it.
+            scheduleNextActivity(student, time);
+            return;
+        }
+        if (queueHeads[slot] < 0 && occupancies[slot] < getCapacity(slot)) {
+            enter(student, slot, time);
+            recordVisit(0);
+            return;
+        }
+
+        // Join the back of the queue, and give up once the session would have ended.
+        states[student] = WAITING;
+        locations[student] = slot;
+        waitStarts[student] = time;
+        queuePrevious[student] = queueTails[slot];
+        queueNext[student] = -1;
+        if (queueTails[slot] >= 0) {
+            queueNext[queueTails[slot]] = student;
+        } else {
+            queueHeads[slot] = student;
+        }
+        queueTails[slot] = student;
+        events.schedule(student, time + activityDurations[activity]);
+    }
+
+    private void enter(int student, int slot, long time) {
+        occupancies[slot]++;
+        states[student] = INSIDE;
+        locations[student] = slot;
+        events.schedule(student, time + activityDurations[activities[student]]);
+    }
+
+    private void leave(int student, long time) {
+        int slot = locations[student];
+        if (slot >= 0) {
+            occupancies[slot]--;
+            admit(slot, time);
+        }
+    }
+
+    /**
+     * Lets students in from the front of a building's queue whilst it has room.
+     */
+    private void admit(int slot, long time) {
+        while (queueHeads[slot] >= 0 && occupancies[slot] < getCapacity(slot)) {
+            int student = queueHeads[slot];
+            unlink(student);
+            recordVisit(time - waitStarts[student]);
+            enter(student, slot, time);
+        }
+    }
+
+    private void unlink(int student) {
+        int slot = locations[student];
+        int previous = queuePrevious[student];
+        int next = queueNext[student];
+        if (previous >= 0) {
+            queueNext[previous] = next;
+        } else {
+            queueHeads[slot] = next;
+        }
+        if (next >= 0) {
+            queuePrevious[next] = previous;
+        } else {
+            queueTails[slot] = previous;
+        }
+        queuePrevious[student] = -1;
+        queueNext[student] = -1;
+    }
+
+    private int getCapacity(int slot) {
+        var building = population.getSlotBuilding(slot);
+        if (building == null) {
+            return 0;
+        }
+        return building.getType() == canteenType ? parameters.getStudentsPerCanteen()
+                : parameters.getStudentsPerStudy();
+    }
+
+    private void recordVisit(long waitingTime) {
+        tickWaitingTime += waitingTime;
+        tickVisits++;
+    }
+
+    private void ensureStudentCapacity(int capacity) {
+        if (capacity <= states.length) {
+            return;
+        }
+        capacity = Math.max(capacity, states.length * 2);
+        states = Arrays.copyOf(states, capacity);
+        activities = Arrays.copyOf(activities, capacity);
+        locations = Arrays.copyOf(locations, capacity);
+        waitStarts = Arrays.copyOf(waitStarts, capacity);
+        queuePrevious = Arrays.copyOf(queuePrevious, capacity);
+        queueNext = Arrays.copyOf(queueNext, capacity);
+    }
+
+    private void ensureSlotCapacity(int capacity) {
+        if (capacity <= occupancies.length) {
+            return;
+        }
+        int previousLength = occupancies.length;
+        capacity = Math.max(capacity, previousLength * 2);
+        occupancies = Arrays.copyOf(occupancies, capacity);
+        queueHeads = Arrays.copyOf(queueHeads, capacity);
+        queueTails = Arrays.copyOf(queueTails, capacity);
+        evicted = Arrays.copyOf(evicted, capacity);
+        Arrays.fill(queueHeads, previousLength, capacity, -1);
+        Arrays.fill(queueTails, previousLength, capacity, -1);
+    }
+
+    /**
+     * Copies the timetable of every student whose home is still on the map into the columns of a snapshot, in the same
+     * order as {@link StudentPopulation#copyTo}, referring to buildings by their index in the map's list of placed
+     * buildings.
+     *
+     * @param buildingIndices the index of each placed building in the list, by building ID
+     * @param statesOut       the column to copy what each student's pending event is for into
+     * @param activitiesOut   the column to copy each student's activity into
+     * @param locationsOut    the column to copy the building each student is inside or queueing at into, or -1
+     * @param eventTimesOut   the column to copy the time of each student's pending event into
+     * @param waitStartsOut   the column to copy the time each student started queueing into
+     * @return false if the timetable hasn't caught up with the population since it was restored, so there is nothing
+     * to copy
+     */
+    boolean copyTo(int[] buildingIndices, byte[] statesOut, byte[] activitiesOut, int[] locationsOut,
+                   long[] eventTimesOut, long[] waitStartsOut) {
+        if (count != population.getCount()) {
+            return false;
+        }
+        int copied = 0;
+        for (int student = 0; student < count; student++) {
+            if (!population.hasHome(student)) {
+                continue;
+            }
+            var building = locations[student] >= 0 ? population.getSlotBuilding(locations[student]) : null;
+            statesOut[copied] = states[student];
+            activitiesOut[copied] = activities[student];
+            locationsOut[copied] = building != null ? buildingIndices[building.getId()] : -1;
+            eventTimesOut[copied] = events.getTime(student);
+            waitStartsOut[copied] = waitStarts[student];
+            copied++;
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the timetable with the one saved in a snapshot, once the population has been restored. Students from a
+     * snapshot without a timetable start theirs on the next update.
+     *
+     * @param snapshot the snapshot
+     */
+    void restore(SimulationSnapshot snapshot) {
+        events.clear();
+        Arrays.fill(occupancies, 0);
+        Arrays.fill(queueHeads, -1);
+        Arrays.fill(queueTails, -1);
+        clock = snapshot.getTimetableClock();
+        averageWaitingTime = snapshot.getAverageWaitingTime();
+        if (!snapshot.hasTimetable()) {
+            count = 0;
+            return;
+        }
+
+        count = snapshot.getStudentCount();
+        ensureStudentCapacity(count);
+        ensureSlotCapacity(population.getSlotCount());
+        var buildings = map.getPlacedBuildings();
+        int waitingCount = 0;
+        for (int student = 0; student < count; student++) {
+            int building = snapshot.getStudentLocation(student);
+            int slot = building >= 0 ? population.getSlot(buildings.get(building)) : -1;
+            states[student] = snapshot.getStudentState(student);
+            activities[student] = snapshot.getStudentActivity(student);
+            locations[student] = slot;
+            waitStarts[student] = snapshot.getStudentWaitStart(student);
+            queuePrevious[student] = -1;
+            queueNext[student] = -1;
+            events.schedule(student, snapshot.getStudentEventTime(student));
+            if (states[student] == INSIDE && slot >= 0) {
+                occupancies[slot]++;
+            } else if (states[student] == WAITING) {
+                if (slot >= 0) {
+                    waitingCount++;
+                } else {
+                    // Queueing at a building which was removed before the snapshot was taken.
+                    evictionNeeded = true;
+                }
+            }
+        }
+
+        // Students joined their queues in the order of their arrival events, which is by time and then by student.
+        var waiting = new long[waitingCount];
+        waitingCount = 0;
+        for (int student = 0; student < count; student++) {
+            if (states[student] == WAITING && locations[student] >= 0) {
+                waiting[waitingCount++] = waitStarts[student] * EventQueue.MAX_SUBJECTS + student;
+            }
+        }
+        Arrays.sort(waiting);
+        for (long key : waiting) {
+            int student = (int) (key % EventQueue.MAX_SUBJECTS);
+            int slot = locations[student];
+            queuePrevious[student] = queueTails[slot];
+            if (queueTails[slot] >= 0) {
+                queueNext[queueTails[slot]] = student;
+            } else {
+                queueHeads[slot] = student;
+            }
+            queueTails[slot] = student;
+        }
+
+        // Seats of students who left after the snapshot was taken are handed out on the next update.
+        admissionsNeeded = true;
+    }
+
+    /**
+     * @return the simulated time in seconds
+     */
+    double getClock() {
+        return clock;
+    }
+
+    /**
+     * @return the average time students have recently spent queueing to get into a building, in seconds
+     */
+    float getAverageWaitingTime() {
+        return averageWaitingTime;
+    }
+}
@@ -0,0 +1,13 @@
+package io.github.uoyteamsix.sim;
+
+/**
+ * A callback which accepts a tile coordinate.
+ */
+@FunctionalInterface
+public interface TileConsumer {
+    /**
+     * @param x the x coordinate in tiles
+     * @param y the y coordinate in tiles
+     */
+    void accept(int x, int y);
+}
@@ -7,6 +7,8 @@ import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.utils.Align;
 import io.github.uoyteamsix.GameLogic;
+import io.github.uoyteamsix.sim.Building;
+import io.github.uoyteamsix.sim.SimulationListener;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -18,12 +20,28 @@ public class BuildingStatsBox extends Table {
     private final UiAssets uiAssets;
     private final GameLogic gameLogic;
     private final List<Label> labels;
+    private final List<IntLabelBinding> countBindings;
     private Image boxImage;
 
+    // Set when a building is placed or removed, so counts are only read when they have changed.
+    private boolean countsChanged = true;
+
     public BuildingStatsBox(UiAssets uiAssets, GameLogic gameLogic) {
         this.uiAssets = uiAssets;
         this.gameLogic = gameLogic;
         labels = new ArrayList<>();
+        countBindings = new ArrayList<>();
+        gameLogic.addListener(new SimulationListener() {
+            @Override
+            public void onBuildingPlaced(Building building) {
+                countsChanged = true;
+            }
+
+            @Override
+            public void onBuildingRemoved(Building building) {
+                countsChanged = true;
+            }
+        });
     }
 
     @Override
@@ -33,8 +51,12 @@ public class BuildingStatsBox extends Table {
         // Create labels once fonts have been loaded.
         if (labels.isEmpty() && uiAssets.hasFontsLoaded()) {
             var labelStyle = new Label.LabelStyle(uiAssets.getSmallFont(), Color.BLACK);
-            for (int i = 0; i < gameLogic.getGameMap().getAvailablePrefabs().size(); i++) {
-                labels.add(new Label("", labelStyle));
+            for (var prefab : gameLogic.getGameMap().getAvailablePrefabs()) {
+                var label = new Label("", labelStyle);
+                var name = prefab.getName();
+                labels.add(label);
+                countBindings.add(new IntLabelBinding(label, (count, text) -> text.append(name).append(": ")
+                        .append(count)));
             }
         }
 
@@ -57,14 +79,13 @@ public class BuildingStatsBox extends Table {
             add(labels.get(3)).align(Align.left).padLeft(12.0f).padTop(-23.0f);
         }
 
-        // Update label text.
-        if (!labels.isEmpty()) {
+        // Update label text when a building count has changed. Prefab IDs are their indices.
+        if (countsChanged && !countBindings.isEmpty()) {
             var map = gameLogic.getGameMap();
-            for (int i = 0; i < map.getAvailablePrefabs().size(); i++) {
-                var prefab = map.getAvailablePrefabs().get(i);
-                var count = map.getBuildingCount(prefab);
-                labels.get(i).setText(String.format("%s: %d", prefab.getName(), count));
+            for (int i = 0; i < countBindings.size(); i++) {
+                countBindings.get(i).update(map.getBuildingCount(i));
             }
+            countsChanged = false;
         }
     }
 }
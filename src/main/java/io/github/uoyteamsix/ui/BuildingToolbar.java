@@ -11,6 +11,7 @@ import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
 import com.badlogic.gdx.utils.Align;
 import io.github.uoyteamsix.GameLogic;
+import io.github.uoyteamsix.sim.SimulationListener;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -24,13 +25,27 @@ public class BuildingToolbar extends Stack {
     private final Table toolbarTable;
     private final List<Image> backgroundImages;
     private Label nextBuildingTimeLabel;
+    private IntLabelBinding nextBuildingTimeBinding;
     private TextureRegion selectionBoxTexture;
+    private boolean showingToolbar;
+
+    // Set when the number of buildings the player can place changes, so the toolbar is only shown or hidden then.
+    private boolean allowanceChanged = true;
+
+    // Reused when working out where to draw icons, to avoid allocating every frame.
+    private final Vector2 coords = new Vector2();
 
     public BuildingToolbar(UiAssets uiAssets, GameLogic gameLogic) {
         this.uiAssets = uiAssets;
         this.gameLogic = gameLogic;
         toolbarTable = new Table();
         backgroundImages = new ArrayList<>();
+        gameLogic.addListener(new SimulationListener() {
+            @Override
+            public void onAllowanceChanged(int remainingBuildings) {
+                allowanceChanged = true;
+            }
+        });
     }
 
     @Override
@@ -72,6 +87,8 @@ public class BuildingToolbar extends Stack {
             var timeLabelStyle = new Label.LabelStyle(uiAssets.getLargeFont(), Color.BLACK);
             nextBuildingTimeLabel = new Label("", timeLabelStyle);
             nextBuildingTimeLabel.setAlignment(Align.center);
+            nextBuildingTimeBinding = new IntLabelBinding(nextBuildingTimeLabel, (seconds, text) -> text
+                    .append("Next building in ").append(seconds));
             selectionBoxTexture = new TextureRegion(uiAssets.getSpritesheet(), 384, 32, 32, 32);
 
             // Add toolbar table to the stack, and add the background images to the table.
@@ -82,23 +99,35 @@ public class BuildingToolbar extends Stack {
                     cell.padLeft(20.0f);
                 }
             }
+            showingToolbar = true;
         }
 
-        if (nextBuildingTimeLabel != null) {
-            // Update label text.
-            var text = String.format("Next building in %d", (int) gameLogic.getNextBuildingTime());
-            nextBuildingTimeLabel.setText(text);
+        if (nextBuildingTimeBinding == null) {
+            return;
+        }
 
-            // Show toolbar if player can place a building, otherwise show the next building timer.
+        // Show toolbar if player can place a building, otherwise show the next building timer. Only change the children
+        // when this flips, as adding and removing actors invalidates the layout.
+        if (allowanceChanged) {
+            allowanceChanged = false;
             boolean canPlaceBuilding = gameLogic.canPlaceBuilding();
-            toolbarTable.setVisible(canPlaceBuilding);
-
-            // Remove and add label so it doesn't affect the layout of the toolbar.
-            removeActor(nextBuildingTimeLabel);
-            if (!canPlaceBuilding) {
-                add(nextBuildingTimeLabel);
+            if (canPlaceBuilding != showingToolbar) {
+                showingToolbar = canPlaceBuilding;
+                toolbarTable.setVisible(canPlaceBuilding);
+
+                // Remove and add label so it doesn't affect the layout of the toolbar.
+                if (canPlaceBuilding) {
+                    removeActor(nextBuildingTimeLabel);
+                } else {
+                    add(nextBuildingTimeLabel);
+                }
             }
         }
+
+        // Update label text when it is shown and the whole number of seconds changes.
+        if (!showingToolbar) {
+            nextBuildingTimeBinding.update((int) gameLogic.getNextBuildingTime());
+        }
     }
 
     @Override
@@ -113,13 +142,13 @@ public class BuildingToolbar extends Stack {
         // Draw building icons in each box.
         for (int i = 0; i < backgroundImages.size(); i++) {
             var image = backgroundImages.get(i);
-            var coords = image.localToScreenCoordinates(new Vector2(0, 0));
+            image.localToScreenCoordinates(coords.set(0.0f, 0.0f));
 
             // Offset slightly.
             coords.add(8.0f, -10.0f);
 
             var prefab = gameLogic.getGameMap().getAvailablePrefabs().get(i);
-            batch.draw(prefab.getNormalTexture(), coords.x, Gdx.graphics.getHeight() - coords.y, 48.0f, 48.0f);
+            batch.draw(prefab.getTexture(), coords.x, Gdx.graphics.getHeight() - coords.y, 48.0f, 48.0f);
         }
 
         var prefabIndex = gameLogic.getSelectedPrefabIndex();
@@ -130,7 +159,7 @@ public class BuildingToolbar extends Stack {
 
         // Draw selection image on top of clicked cell.
         var image = backgroundImages.get(prefabIndex);
-        var coords = image.localToScreenCoordinates(new Vector2(0, 0));
+        image.localToScreenCoordinates(coords.set(0.0f, 0.0f));
         batch.draw(selectionBoxTexture, coords.x, Gdx.graphics.getHeight() - coords.y, 64.0f, 64.0f);
     }
 }
@@ -7,21 +7,43 @@ import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.utils.Align;
 import io.github.uoyteamsix.GameLogic;
+import io.github.uoyteamsix.sim.GameEvent;
+import io.github.uoyteamsix.sim.SimulationListener;
 
 /**
  * A class which represents the event information box UI element.
  */
 public class CurrentEventBox extends Table {
+    // Cached as values() copies the array each call.
+    private static final GameEvent[] EVENTS = GameEvent.values();
+
     private final UiAssets uiAssets;
     private final GameLogic gameLogic;
     private Label eventLabel;
     private Label descriptionLabel;
     private Label timeLabel;
+    private IntLabelBinding eventBinding;
+    private IntLabelBinding descriptionBinding;
+    private IntLabelBinding timeBinding;
     private Image boxImage;
 
+    // Set when an event starts or ends, so the event labels are only updated then.
+    private boolean eventChanged = true;
+
     public CurrentEventBox(UiAssets uiAssets, GameLogic gameLogic) {
         this.uiAssets = uiAssets;
         this.gameLogic = gameLogic;
+        gameLogic.addListener(new SimulationListener() {
+            @Override
+            public void onEventStarted(GameEvent event, float duration) {
+                eventChanged = true;
+            }
+
+            @Override
+            public void onEventEnded(GameEvent event) {
+                eventChanged = true;
+            }
+        });
     }
 
     @Override
@@ -34,6 +56,17 @@ public class CurrentEventBox extends Table {
             eventLabel = new Label("", labelStyle);
             descriptionLabel = new Label("", labelStyle);
             timeLabel = new Label("", labelStyle);
+
+            // Event labels are bound to the event's ordinal, and the time label to the whole seconds remaining.
+            eventBinding = new IntLabelBinding(eventLabel, (ordinal, text) -> text.append("Event: ")
+                    .append(getEventName(EVENTS[ordinal])));
+            descriptionBinding = new IntLabelBinding(descriptionLabel, (ordinal, text) -> text
+                    .append(getEventDescription(EVENTS[ordinal])));
+            timeBinding = new IntLabelBinding(timeLabel, (seconds, text) -> {
+                if (seconds >= 0) {
+                    text.append(seconds);
+                }
+            });
         }
 
         // Create image once spritesheet has been loaded.
@@ -53,27 +86,41 @@ public class CurrentEventBox extends Table {
             add(timeLabel).align(Align.left).padLeft(12.0f).padTop(-44.0f);
         }
 
-        if (eventLabel != null) {
-            timeLabel.setText(String.format("%d", (int) gameLogic.getEventDurationTimer()));
-            switch (gameLogic.getCurrentEvent()) {
-                case NONE:
-                    eventLabel.setText("Event: None");
-                    descriptionLabel.setText("");
-                    timeLabel.setText("");
-                    break;
-                case RAIN:
-                    eventLabel.setText("Event: Rain");
-                    descriptionLabel.setText("Satisfaction -");
-                    break;
-                case ROSES:
-                    eventLabel.setText("Event: Roses");
-                    descriptionLabel.setText("Satisfaction +");
-                    break;
-                case STRIKE:
-                    eventLabel.setText("Event: Strike");
-                    descriptionLabel.setText("Study -");
-                    break;
-            }
+        if (eventBinding == null) {
+            return;
+        }
+        var event = gameLogic.getCurrentEvent();
+        if (eventChanged) {
+            eventChanged = false;
+            eventBinding.update(event.ordinal());
+            descriptionBinding.update(event.ordinal());
+        }
+        timeBinding.update(event == GameEvent.NONE ? -1 : (int) gameLogic.getEventDurationTimer());
+    }
+
+    private static String getEventName(GameEvent event) {
+        switch (event) {
+            case RAIN:
+                return "Rain";
+            case ROSES:
+                return "Roses";
+            case STRIKE:
+                return "Strike";
+            default:
+                return "None";
+        }
+    }
+
+    private static String getEventDescription(GameEvent event) {
+        switch (event) {
+            case RAIN:
+                return "Satisfaction -";
+            case ROSES:
+                return "Satisfaction +";
+            case STRIKE:
+                return "Study -";
+            default:
+                return "";
         }
     }
 }
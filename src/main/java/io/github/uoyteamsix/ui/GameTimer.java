@@ -20,6 +20,7 @@ public class GameTimer extends Table {
     private final UiAssets uiAssets;
     private final GameLogic gameLogic;
     private Label timeLabel;
+    private IntLabelBinding timeBinding;
     private Image backgroundImage;
 
     public GameTimer(UiAssets uiAssets, GameLogic gameLogic) {
@@ -31,12 +32,9 @@ public class GameTimer extends Table {
     public void act(float delta) {
         super.act(delta);
 
-        // Convert time in seconds to minutes and seconds.
-        float remainingTime = gameLogic.getRemainingTime();
-        int minutes = (int) (remainingTime / 60.0f);
-        int seconds = ((int) remainingTime) % 60;
-        if (timeLabel != null) {
-            timeLabel.setText(String.format("%d:%02d", minutes, seconds));
+        // Only update the label when the number of whole seconds remaining changes.
+        if (timeBinding != null) {
+            timeBinding.update((int) gameLogic.getRemainingTime());
         }
 
         // Create time label once fonts have been loaded.
@@ -44,6 +42,13 @@ public class GameTimer extends Table {
             var labelStyle = new Label.LabelStyle(uiAssets.getLargeFont(), Color.BLACK);
             timeLabel = new Label("", labelStyle);
             timeLabel.setAlignment(Align.center);
+
+            // Convert time in seconds to minutes and seconds.
+            timeBinding = new IntLabelBinding(timeLabel, (remainingSeconds, text) -> {
+                int seconds = remainingSeconds % 60;
+                text.append(remainingSeconds / 60).append(seconds < 10 ? ":0" : ":").append(seconds);
+            });
+            timeBinding.update((int) gameLogic.getRemainingTime());
         }
 
         // Create background image once spritesheet has been loaded.
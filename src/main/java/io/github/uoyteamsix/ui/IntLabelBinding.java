@@ -0,0 +1,67 @@
+package io.github.uoyteamsix.ui;
+
+import com.badlogic.gdx.scenes.scene2d.ui.Label;
+import com.badlogic.gdx.utils.StringBuilder;
+
+/**
+ * A class which binds the text of a {@link Label} to an integer value. The text is only formatted, and the label's
+ * layout only invalidated, when the value actually changes, so a frame where nothing has changed does no text layout.
+ * Text is formatted into a reused {@link StringBuilder}, which the label copies without allocating.
+ */
+public class IntLabelBinding {
+    private final Label label;
+    private final IntFormatter formatter;
+    private final StringBuilder text;
+    private int value;
+    private boolean hasValue;
+
+    /**
+     * Formats an integer value into text.
+     */
+    @FunctionalInterface
+    public interface IntFormatter {
+        /**
+         * @param value the value to format
+         * @param text  an empty builder to append the text to
+         */
+        void format(int value, StringBuilder text);
+    }
+
+    public IntLabelBinding(Label label, IntFormatter formatter) {
+        this.label = label;
+        this.formatter = formatter;
+        text = new StringBuilder();
+    }
+
+    /**
+     * Updates the label if the value has changed since the last call.
+     *
+     * @param newValue the current value
+     * @return true if the label's text was updated, false otherwise
+     */
+    public boolean update(int newValue) {
+        if (hasValue && newValue == value) {
+            return false;
+        }
+        value = newValue;
+        hasValue = true;
+        text.setLength(0);
+        formatter.format(newValue, text);
+        label.setText(text);
+        return true;
+    }
+
+    /**
+     * Forgets the current value, so the label is updated on the next call to {@link #update} whatever the value is.
+     */
+    public void invalidate() {
+        hasValue = false;
+    }
+
+    /**
+     * @return the bound label
+     */
+    public Label getLabel() {
+        return label;
+    }
+}
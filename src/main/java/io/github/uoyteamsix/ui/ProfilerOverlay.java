@@ -0,0 +1,87 @@
+package io.github.uoyteamsix.ui;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.scenes.scene2d.ui.Label;
+import com.badlogic.gdx.scenes.scene2d.ui.Table;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.StringBuilder;
+import io.github.uoyteamsix.FramePhase;
+import io.github.uoyteamsix.FrameProfiler;
+
+/**
+ * A class which represents the frame profiler overlay UI element, showing the rolling p50, p95 and p99 times of each
+ * frame phase in milliseconds. Only shown whilst the profiler is enabled.
+ */
+public class ProfilerOverlay extends Table {
+    // How often to refresh the text in seconds, as working out percentiles sorts the recent history.
+    private static final float REFRESH_INTERVAL = 0.5f;
+    private static final FramePhase[] PHASES = FramePhase.values();
+
+    private final UiAssets uiAssets;
+    private final FrameProfiler profiler;
+    private final StringBuilder text;
+    private Label statsLabel;
+    private float refreshTimer;
+
+    public ProfilerOverlay(UiAssets uiAssets, FrameProfiler profiler) {
+        this.uiAssets = uiAssets;
+        this.profiler = profiler;
+        text = new StringBuilder();
+        setFillParent(true);
+        top().right().pad(10.0f);
+    }
+
+    @Override
+    public void act(float delta) {
+        super.act(delta);
+        setVisible(profiler.isEnabled());
+
+        // Create label once fonts have been loaded.
+        if (statsLabel == null && uiAssets.hasFontsLoaded()) {
+            var labelStyle = new Label.LabelStyle(uiAssets.getSmallFont(), Color.BLACK);
+            statsLabel = new Label("", labelStyle);
+            statsLabel.setAlignment(Align.right);
+            add(statsLabel);
+        }
+        if (statsLabel == null || !isVisible()) {
+            return;
+        }
+
+        refreshTimer -= delta;
+        if (refreshTimer > 0.0f) {
+            return;
+        }
+        refreshTimer = REFRESH_INTERVAL;
+
+        text.setLength(0);
+        text.append("ms      p50    p95    p99\n");
+        for (var phase : PHASES) {
+            appendRow(phase.getDisplayName(), profiler.getPhasePercentile(phase, 50),
+                    profiler.getPhasePercentile(phase, 95), profiler.getPhasePercentile(phase, 99));
+        }
+        appendRow("Frame", profiler.getFramePercentile(50), profiler.getFramePercentile(95),
+                profiler.getFramePercentile(99));
+        statsLabel.setText(text);
+    }
+
+    private void appendRow(String name, long p50, long p95, long p99) {
+        text.append(name);
+        appendMillis(p50);
+        appendMillis(p95);
+        appendMillis(p99);
+        text.append('\n');
+    }
+
+    /**
+     * Appends a time in nanoseconds as milliseconds with two decimal places, without allocating.
+     */
+    private void appendMillis(long nanos) {
+        long hundredths = (nanos + 5_000) / 10_000;
+        text.append("  ").append(hundredths / 100).append('.');
+        long fraction = hundredths % 100;
+        if (fraction < 10) {
+            text.append('0');
+        }
+        text.append(fraction);
+    }
+}
@@ -18,6 +18,9 @@ public class SatisfactionMeter extends Table {
     private Image backgroundImage;
     private TextureRegion solidColour;
 
+    // Reused when working out where to draw the bar, to avoid allocating every frame.
+    private final Vector2 coords = new Vector2();
+
     public SatisfactionMeter(UiAssets uiAssets, GameLogic gameLogic) {
         this.uiAssets = uiAssets;
         this.gameLogic = gameLogic;
@@ -39,7 +42,7 @@ public class SatisfactionMeter extends Table {
     public void draw(Batch batch, float parentAlpha) {
         super.draw(batch, parentAlpha);
         if (backgroundImage != null) {
-            var coords = backgroundImage.localToScreenCoordinates(new Vector2(0, 0));
+            backgroundImage.localToScreenCoordinates(coords.set(0.0f, 0.0f));
             float width = MathUtils.lerp(0.0f, 176.0f, gameLogic.getSatisfaction());
             batch.draw(solidColour, coords.x + 9, Gdx.graphics.getHeight() - coords.y + 13, width, 8.0f);
         }
@@ -1,22 +1,31 @@
 package io.github.uoyteamsix.ui;
 
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
 import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.utils.Align;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
+import io.github.uoyteamsix.FrameProfiler;
 import io.github.uoyteamsix.GameLogic;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 /**
  * A class which holds all the UI elements.
  */
 public class UiStage extends Stage {
     private final UiAssets assets;
+    private final FrameProfiler profiler;
 
-    public UiStage(AssetManager assetManager, GameLogic gameLogic) {
+    public UiStage(AssetManager assetManager, GameLogic gameLogic, FrameProfiler profiler) {
         // The UI spans the whole screen.
         super(new ScreenViewport());
         assets = new UiAssets(assetManager);
+        this.profiler = profiler;
 
         // Create a table to fill the whole screen.
         var mainTable = new Table();
@@ -38,6 +47,37 @@ public class UiStage extends Stage {
         mainTable.add(topLeftTable).expand().top().left().padLeft(25.0f);
         mainTable.row();
         mainTable.add(buildingToolbar).bottom().center().padBottom(5.0f);
+
+        // Add the profiler overlay on top of everything else, anchored to the top right.
+        addActor(new ProfilerOverlay(assets, profiler));
+    }
+
+    @Override
+    public boolean keyDown(int keyCode) {
+        // F3 toggles the frame profiler and its overlay, and F4 exports the profiled frames.
+        if (keyCode == Input.Keys.F3) {
+            profiler.setEnabled(!profiler.isEnabled());
+            return true;
+        }
+        if (keyCode == Input.Keys.F4) {
+            exportProfile();
+            return true;
+        }
+        return super.keyDown(keyCode);
+    }
+
+    /**
+     * Writes the profiled frames to a CSV file in the working directory.
+     */
+    private void exportProfile() {
+        var path = Path.of("unisim-frames-" + System.currentTimeMillis() + ".csv");
+        try (var writer = Files.newBufferedWriter(path)) {
+            profiler.writeCsv(writer);
+            Gdx.app.log("UiStage", "Wrote " + profiler.getFrameCount() + " profiled frames to "
+                    + path.toAbsolutePath());
+        } catch (IOException e) {
+            Gdx.app.error("UiStage", "Failed to export the frame profile: " + e.getMessage());
+        }
     }
 
     @Override